@@ -0,0 +1,113 @@
+package cn.uestc.ew.rpc.benchmark;
+
+import cn.uestc.ew.rpc.common.bean.MethodTable;
+import cn.uestc.ew.rpc.common.bean.RpcFrame;
+import cn.uestc.ew.rpc.common.bean.RpcRequest;
+import cn.uestc.ew.rpc.common.bean.RpcResponse;
+import cn.uestc.ew.rpc.common.compress.Compressors;
+import cn.uestc.ew.rpc.common.serialize.Serializer;
+import cn.uestc.ew.rpc.common.serialize.Serializers;
+import cn.uestc.ew.rpc.common.util.codec.FrameBuffer;
+import cn.uestc.ew.rpc.common.util.codec.FrameCodec;
+import cn.uestc.ew.rpc.common.util.codec.RpcDecoder;
+import cn.uestc.ew.rpc.common.util.codec.RpcEncoder;
+import cn.uestc.ew.rpc.server.RpcDispatchTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 协议帧的编解码，包括消息体的序列化及压缩，即一次调用在客户端及服务端各自的编解码开销
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-opens=java.base/java.lang=ALL-UNNAMED")
+public class CodecBenchmark {
+
+    @Param({"protostuff", "compact"})
+    public String serializer;
+
+    @Param({"none", "lz4"})
+    public String compressor;
+
+    @Param({"1", "64"})
+    public int items;
+
+    private MethodTable methodTable;
+
+    private RpcRequest request;
+
+    private RpcResponse response;
+
+    private byte compressorId;
+
+    private RpcFrame requestFrame;
+
+    private RpcFrame responseFrame;
+
+    private final byte[] intBytes = RpcEncoder.toBytes(0x12345678);
+
+    @Setup
+    public void setup() {
+        Serializer codec = Serializers.get(serializer);
+        methodTable = RpcDispatchTable.build(List.of(new EchoServiceImpl())).getMethodTable();
+        request = Payloads.orderRequest(codec.getId(), items);
+        if (!Compressors.NONE.equals(compressor)) {
+            compressorId = Compressors.get(compressor).getId();
+            request.setCompressor(compressorId);
+            request.setCompressThreshold(0);
+        }
+        response = Payloads.orderResponse(items);
+        requestFrame = Payloads.toFrame(FrameCodec.encodeRequest(request, methodTable));
+        responseFrame = Payloads.toFrame(FrameCodec.encodeResponse(response, codec.getId(), compressorId, 0));
+    }
+
+    @Benchmark
+    public int encodeRequest() {
+        FrameBuffer buffer = FrameCodec.encodeRequest(request, methodTable);
+        int size = buffer.size();
+        buffer.release();
+        return size;
+    }
+
+    @Benchmark
+    public RpcRequest decodeRequest() {
+        return Serializers.get(requestFrame.getSerializer())
+                .deserialize(FrameCodec.decompressBody(requestFrame), RpcRequest.class);
+    }
+
+    @Benchmark
+    public int encodeResponse() {
+        FrameBuffer buffer = FrameCodec.encodeResponse(response, requestFrame.getSerializer(), compressorId, 0);
+        int size = buffer.size();
+        buffer.release();
+        return size;
+    }
+
+    @Benchmark
+    public RpcResponse decodeResponse() {
+        return FrameCodec.decodeResponse(responseFrame);
+    }
+
+    /**
+     * {@link RpcEncoder}、{@link RpcDecoder} 的整数与字节数组互转
+     */
+    @Benchmark
+    public int intRoundTrip() {
+        return RpcDecoder.toInt(RpcEncoder.toBytes(RpcDecoder.toInt(intBytes)));
+    }
+}
@@ -0,0 +1,75 @@
+package cn.uestc.ew.rpc.benchmark;
+
+import cn.uestc.ew.rpc.common.bean.MethodTable;
+import cn.uestc.ew.rpc.common.bean.RpcFrame;
+import cn.uestc.ew.rpc.common.bean.RpcRequest;
+import cn.uestc.ew.rpc.common.serialize.Serializers;
+import cn.uestc.ew.rpc.common.util.codec.FrameBuffer;
+import cn.uestc.ew.rpc.common.util.codec.FrameCodec;
+import cn.uestc.ew.rpc.server.RpcDispatchTable;
+import cn.uestc.ew.rpc.server.RpcServerHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 服务端处理单个请求帧的开销：解码请求、查找服务方法、反射调用及编码响应，不包含网络读写
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-opens=java.base/java.lang=ALL-UNNAMED")
+public class DispatchBenchmark {
+
+    /**
+     * 在当前线程执行的线程池，批量请求以外不会使用
+     */
+    private static final Executor DIRECT = Runnable::run;
+
+    @Param({"protostuff", "compact"})
+    public String serializer;
+
+    @Param({"1", "64"})
+    public int items;
+
+    /**
+     * 请求帧是否携带方法编号，不携带时服务端按名称及参数类型查找方法
+     */
+    @Param({"true", "false"})
+    public boolean methodId;
+
+    private RpcServerHandler handler;
+
+    private RpcFrame frame;
+
+    @Setup
+    public void setup() {
+        RpcDispatchTable dispatchTable = RpcDispatchTable.build(List.of(new EchoServiceImpl()));
+        handler = new RpcServerHandler(dispatchTable);
+        MethodTable methodTable = methodId ? dispatchTable.getMethodTable() : null;
+        RpcRequest request = Payloads.orderRequest(Serializers.get(serializer).getId(), items);
+        frame = Payloads.toFrame(FrameCodec.encodeRequest(request, methodTable));
+    }
+
+    @Benchmark
+    public int handle() {
+        FrameBuffer response = handler.handle(frame, DIRECT);
+        int size = response.size();
+        response.release();
+        return size;
+    }
+}
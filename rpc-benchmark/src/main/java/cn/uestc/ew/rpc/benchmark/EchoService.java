@@ -0,0 +1,17 @@
+package cn.uestc.ew.rpc.benchmark;
+
+/**
+ * 基准测试使用的服务接口
+ */
+public interface EchoService {
+
+    /**
+     * 原样返回字符串，测量最小调用的开销
+     */
+    String echo(String text);
+
+    /**
+     * 原样返回订单，测量含有嵌套对象及集合的消息体的开销
+     */
+    Order order(Order order);
+}
@@ -0,0 +1,20 @@
+package cn.uestc.ew.rpc.benchmark;
+
+import cn.uestc.ew.rpc.server.RpcService;
+
+/**
+ * 基准测试使用的服务实现，不做任何计算，测量结果只包含框架本身的开销
+ */
+@RpcService(EchoService.class)
+public class EchoServiceImpl implements EchoService {
+
+    @Override
+    public String echo(String text) {
+        return text;
+    }
+
+    @Override
+    public Order order(Order order) {
+        return order;
+    }
+}
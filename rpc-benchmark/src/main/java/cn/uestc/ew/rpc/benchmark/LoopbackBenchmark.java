@@ -0,0 +1,138 @@
+package cn.uestc.ew.rpc.benchmark;
+
+import cn.uestc.ew.rpc.client.RpcClientProxy;
+import cn.uestc.ew.rpc.common.config.RpcConfig;
+import cn.uestc.ew.rpc.common.config.TransportType;
+import cn.uestc.ew.rpc.server.impl.NioRpcServer;
+import cn.uestc.ew.rpc.server.impl.SocketRpcServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 通过 {@link RpcClientProxy} 访问同一进程中的服务端的完整调用，服务发现直接返回服务端地址，不依赖注册中心
+ *
+ * <p>BIO 服务端不支持关闭，其监听线程为守护线程，随测试进程退出。</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--add-opens=java.base/java.lang=ALL-UNNAMED")
+public class LoopbackBenchmark {
+
+    @Param({"NIO", "BIO"})
+    public String server;
+
+    @Param({"POOLED", "MULTIPLEX"})
+    public TransportType transport;
+
+    @Param({"protostuff", "compact"})
+    public String serializer;
+
+    private NioRpcServer nioServer;
+
+    private RpcClientProxy proxy;
+
+    private EchoService service;
+
+    private Order order;
+
+    @Setup
+    public void setup() throws Exception {
+        String address = "127.0.0.1:" + freePort();
+        List<EchoServiceImpl> services = List.of(new EchoServiceImpl());
+        if ("NIO".equals(server)) {
+            nioServer = new NioRpcServer(address, null);
+            nioServer.registerServices(services);
+            nioServer.startup();
+        } else {
+            SocketRpcServer socketServer = new SocketRpcServer(address, null);
+            socketServer.registerServices(services);
+            Thread thread = new Thread(socketServer::startup, "rpc-benchmark-bio");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        awaitListening(address);
+
+        RpcConfig rpcConfig = new RpcConfig(5000, 0, 0);
+        rpcConfig.setTransport(transport);
+        rpcConfig.setSerializer(serializer);
+        rpcConfig.setPoolMaxSize(64);
+        proxy = new RpcClientProxy(serviceName -> address, rpcConfig);
+        service = proxy.create(EchoService.class);
+        order = Payloads.order(16);
+    }
+
+    @TearDown
+    public void tearDown() {
+        proxy.close();
+        if (nioServer != null) {
+            nioServer.shutdown();
+        }
+    }
+
+    @Benchmark
+    public String echo() {
+        return service.echo("hello");
+    }
+
+    @Benchmark
+    public Order order() {
+        return service.order(order);
+    }
+
+    /**
+     * 多个线程并发调用，多路复用传输方式下共享同一个连接
+     */
+    @Benchmark
+    @Threads(16)
+    public String echoConcurrent() {
+        return service.echo("hello");
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /**
+     * 等待服务端开始监听，BIO 服务端在后台线程中启动
+     */
+    private static void awaitListening(String address) throws InterruptedException {
+        int index = address.lastIndexOf(':');
+        InetSocketAddress socketAddress = new InetSocketAddress(address.substring(0, index),
+                Integer.parseInt(address.substring(index + 1)));
+        IOException last = null;
+        for (int i = 0; i < 100; i++) {
+            try (Socket socket = new Socket()) {
+                socket.connect(socketAddress, 100);
+                return;
+            } catch (IOException e) {
+                last = e;
+                Thread.sleep(50);
+            }
+        }
+        throw new UncheckedIOException("Server not listening: " + address, last);
+    }
+}
@@ -0,0 +1,38 @@
+package cn.uestc.ew.rpc.benchmark;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 基准测试使用的消息体，包含常见的字段类型
+ */
+@Getter
+@Setter
+public class Order {
+
+    private long id;
+
+    private String customer;
+
+    private double amount;
+
+    private boolean paid;
+
+    private List<Item> items;
+
+    private Map<String, String> attributes;
+
+    @Getter
+    @Setter
+    public static class Item {
+
+        private String sku;
+
+        private int quantity;
+
+        private double price;
+    }
+}
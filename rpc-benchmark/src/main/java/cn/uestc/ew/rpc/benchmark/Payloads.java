@@ -0,0 +1,94 @@
+package cn.uestc.ew.rpc.benchmark;
+
+import cn.uestc.ew.rpc.common.bean.RpcFrame;
+import cn.uestc.ew.rpc.common.bean.RpcRequest;
+import cn.uestc.ew.rpc.common.bean.RpcResponse;
+import cn.uestc.ew.rpc.common.serialize.ClassAllowlist;
+import cn.uestc.ew.rpc.common.util.codec.FrameBuffer;
+import cn.uestc.ew.rpc.common.util.codec.FrameCodec;
+import lombok.experimental.UtilityClass;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 基准测试使用的请求、响应及协议帧
+ */
+@UtilityClass
+public class Payloads {
+
+    static {
+        // 基准测试直接调用序列化器，没有经过注册服务或创建代理，需要手动允许订单等类型
+        ClassAllowlist.allowService(EchoService.class);
+    }
+
+    /**
+     * 生成包含指定个数条目的订单，条目数决定消息体的大小
+     */
+    public static Order order(int items) {
+        Order order = new Order();
+        order.setId(20221024L);
+        order.setCustomer("customer-0001");
+        order.setAmount(items * 12.5);
+        order.setPaid(true);
+        List<Order.Item> list = new ArrayList<>(items);
+        for (int i = 0; i < items; i++) {
+            Order.Item item = new Order.Item();
+            item.setSku("sku-" + i);
+            item.setQuantity(i + 1);
+            item.setPrice(12.5);
+            list.add(item);
+        }
+        order.setItems(list);
+        order.setAttributes(Map.of("channel", "app", "region", "cn-southwest"));
+        return order;
+    }
+
+    /**
+     * 生成调用 {@link EchoService#order(Order)} 的请求
+     *
+     * @param serializer 序列化器编号
+     * @param items      订单中的条目数
+     */
+    public static RpcRequest orderRequest(byte serializer, int items) {
+        RpcRequest request = new RpcRequest();
+        request.setRequestId(1L);
+        request.setInterfaceName(EchoService.class.getName());
+        request.setMethodName("order");
+        request.setParameterTypes(new Class<?>[]{Order.class});
+        request.setParameters(new Object[]{order(items)});
+        request.setServiceVersion("");
+        request.setSerializer(serializer);
+        return request;
+    }
+
+    /**
+     * 生成 {@link EchoService#order(Order)} 的响应
+     */
+    public static RpcResponse orderResponse(int items) {
+        RpcResponse response = new RpcResponse();
+        response.setRequestId(1L);
+        response.setResult(order(items));
+        return response;
+    }
+
+    /**
+     * 将编码好的帧解析为读取端得到的 {@link RpcFrame}，并归还缓冲区
+     */
+    public static RpcFrame toFrame(FrameBuffer buffer) {
+        try {
+            ByteBuffer bytes = ByteBuffer.wrap(buffer.toByteArray());
+            RpcFrame frame = FrameCodec.decodeHeader(bytes);
+            bytes.get(frame.getBody());
+            return frame;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            buffer.release();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package cn.uestc.ew.rpc.benchmark;
+
+import cn.uestc.ew.rpc.common.bean.RpcRequest;
+import cn.uestc.ew.rpc.common.bean.RpcResponse;
+import cn.uestc.ew.rpc.common.serialize.Serializer;
+import cn.uestc.ew.rpc.common.serialize.Serializers;
+import cn.uestc.ew.rpc.common.util.SerializationUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 请求体、响应体的序列化及反序列化，不包含协议帧的编解码
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    /**
+     * 按序列化器区分的测试数据
+     */
+    @State(Scope.Benchmark)
+    public static class Codec {
+
+        @Param({"protostuff", "compact", "json"})
+        public String serializer;
+
+        @Param({"1", "64"})
+        public int items;
+
+        Serializer codec;
+
+        RpcRequest request;
+
+        RpcResponse response;
+
+        byte[] requestBytes;
+
+        byte[] responseBytes;
+
+        @Setup
+        public void setup() {
+            codec = Serializers.get(serializer);
+            request = Payloads.orderRequest(codec.getId(), items);
+            response = Payloads.orderResponse(items);
+            requestBytes = codec.serialize(request);
+            responseBytes = codec.serialize(response);
+        }
+    }
+
+    /**
+     * {@link SerializationUtils} 使用的默认序列化器的测试数据
+     */
+    @State(Scope.Benchmark)
+    public static class Defaults {
+
+        @Param({"1", "64"})
+        public int items;
+
+        RpcRequest request;
+
+        RpcResponse response;
+
+        @Setup
+        public void setup() {
+            request = Payloads.orderRequest(Serializers.DEFAULT.getId(), items);
+            response = Payloads.orderResponse(items);
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeRequest(Codec state) {
+        return state.codec.serialize(state.request);
+    }
+
+    @Benchmark
+    public RpcRequest deserializeRequest(Codec state) {
+        return state.codec.deserialize(state.requestBytes, RpcRequest.class);
+    }
+
+    @Benchmark
+    public byte[] serializeResponse(Codec state) {
+        return state.codec.serialize(state.response);
+    }
+
+    @Benchmark
+    public RpcResponse deserializeResponse(Codec state) {
+        return state.codec.deserialize(state.responseBytes, RpcResponse.class);
+    }
+
+    @Benchmark
+    public RpcRequest utilsRequestRoundTrip(Defaults state) {
+        return SerializationUtils.deserialize(SerializationUtils.serialize(state.request), RpcRequest.class);
+    }
+
+    @Benchmark
+    public RpcResponse utilsResponseRoundTrip(Defaults state) {
+        return SerializationUtils.deserialize(SerializationUtils.serialize(state.response), RpcResponse.class);
+    }
+}
@@ -0,0 +1,34 @@
+package cn.uestc.ew.rpc.client;
+
+import cn.uestc.ew.rpc.common.bean.RpcBatchRequest;
+import cn.uestc.ew.rpc.common.bean.RpcBatchResponse;
+import cn.uestc.ew.rpc.common.bean.RpcRequest;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 批量调用的执行者，由 {@link RpcClientProxy} 中的服务代理处理器实现，{@link RpcBatch} 通过它创建请求体、
+ * 选择服务提供者并发送批量请求
+ */
+interface BatchInvoker {
+
+    /**
+     * 创建调用服务方法的请求体，与单个调用使用相同的序列化器及压缩算法
+     */
+    RpcRequest newRequest(Method method, Object[] args);
+
+    /**
+     * 选择服务提供者并发送批量请求
+     *
+     * @param batch 批量 RPC 请求体，序列化器及压缩算法由实现设置
+     * @return 收到批量响应时完成的 Future
+     */
+    CompletableFuture<RpcBatchResponse> invokeBatch(RpcBatchRequest batch);
+
+    /**
+     * 将返回值转换为方法声明的类型，见 {@link cn.uestc.ew.rpc.common.serialize.Serializer#convert(Object, Type)}
+     */
+    Object convertResult(Object result, Type type);
+}
@@ -0,0 +1,217 @@
+package cn.uestc.ew.rpc.client;
+
+import cn.uestc.ew.rpc.common.bean.RpcBatchRequest;
+import cn.uestc.ew.rpc.common.bean.RpcBatchResponse;
+import cn.uestc.ew.rpc.common.bean.RpcRequest;
+import cn.uestc.ew.rpc.common.bean.RpcResponse;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 批量调用，将同一服务上的多个相互独立的调用合并到一个请求帧中发送，服务端并行执行后一次返回，
+ * N 次调用只需一次往返。通过 {@link RpcClientProxy#batch(Class)} 创建：
+ *
+ * <pre>{@code
+ * RpcBatch<StringService> batch = proxy.batch(StringService.class);
+ * CompletableFuture<String> a = batch.call(s -> s.toUppercase("a"));
+ * CompletableFuture<String> b = batch.call(s -> s.toUppercase("b"));
+ * batch.execute();
+ * }</pre>
+ *
+ * <p>{@link #call(Function)} 中的服务对象只记录方法及参数，返回值没有意义；每个调用的结果或异常通过各自的
+ * Future 返回，互不影响。批量请求的所有调用发往同一个服务提供者（由第一个调用参与负载均衡），
+ * 超时后不会重试，即 At-most-once。</p>
+ *
+ * <p>非线程安全，执行后清空已添加的调用，可以继续添加下一批调用。</p>
+ *
+ * @param <T> 服务接口类
+ */
+public class RpcBatch<T> {
+
+    private final BatchInvoker invoker;
+
+    /**
+     * 只记录方法及参数的服务对象
+     */
+    private final T recorder;
+
+    private final List<RpcRequest> requests = new ArrayList<>();
+
+    private final List<CompletableFuture<Object>> futures = new ArrayList<>();
+
+    private final List<Type> resultTypes = new ArrayList<>();
+
+    /**
+     * 最近一次在 {@link #recorder} 上调用的方法及参数
+     */
+    private Method recordedMethod;
+
+    private Object[] recordedArgs;
+
+    @SuppressWarnings("unchecked")
+    RpcBatch(Class<T> interfaceClass, BatchInvoker invoker) {
+        this.invoker = invoker;
+        this.recorder = (T) Proxy.newProxyInstance(interfaceClass.getClassLoader(), new Class<?>[]{interfaceClass},
+                (proxy, method, args) -> {
+                    if (method.getDeclaringClass() == Object.class) {
+                        throw new UnsupportedOperationException("Only service methods can be batched: " + method);
+                    }
+                    if (recordedMethod != null) {
+                        throw new IllegalArgumentException("Only one service method can be called in each batch call");
+                    }
+                    recordedMethod = method;
+                    recordedArgs = args;
+                    return defaultValue(method.getReturnType());
+                });
+    }
+
+    /**
+     * 添加一个调用
+     *
+     * @param call 在服务对象上调用一次服务方法，如 {@code s -> s.toUppercase("a")}
+     * @return 批量请求执行后以该调用的结果完成的 Future
+     * @param <R> 服务方法的返回值类型
+     */
+    @SuppressWarnings("unchecked")
+    public <R> CompletableFuture<R> call(Function<T, R> call) {
+        record(call::apply);
+        Type resultType = recordedMethod.getGenericReturnType();
+        return (CompletableFuture<R>) add(resultType);
+    }
+
+    /**
+     * 添加一个没有返回值的调用
+     *
+     * @param call 在服务对象上调用一次服务方法
+     * @return 批量请求执行后完成的 Future
+     */
+    public CompletableFuture<Void> run(Consumer<T> call) {
+        record(call);
+        return add(void.class).thenApply(result -> null);
+    }
+
+    /**
+     * 已添加的调用数
+     */
+    public int size() {
+        return requests.size();
+    }
+
+    /**
+     * 发送批量请求并阻塞等待批量响应，之后各个调用的 Future 均已完成
+     *
+     * @throws Exception 批量请求发送失败或等待响应超时，此时所有调用的 Future 以同一异常结束
+     */
+    public void execute() throws Exception {
+        try {
+            executeAsync().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 异步发送批量请求，立即返回
+     *
+     * @return 各个调用的 Future 均已完成时完成的 Future，只有批量请求本身失败时以异常结束
+     */
+    public CompletableFuture<Void> executeAsync() {
+        if (requests.isEmpty()) return CompletableFuture.completedFuture(null);
+        RpcBatchRequest batch = new RpcBatchRequest();
+        batch.setRequests(requests.toArray(new RpcRequest[0]));
+        List<CompletableFuture<Object>> futures = new ArrayList<>(this.futures);
+        List<Type> resultTypes = new ArrayList<>(this.resultTypes);
+        requests.clear();
+        this.futures.clear();
+        this.resultTypes.clear();
+
+        CompletableFuture<RpcBatchResponse> response;
+        try {
+            response = invoker.invokeBatch(batch);
+        } catch (RuntimeException e) {
+            response = CompletableFuture.failedFuture(e);
+        }
+        return response.handle((batchResponse, e) -> {
+            if (e != null) {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                futures.forEach(future -> future.completeExceptionally(cause));
+                throw new CompletionException(cause);
+            }
+            complete(batchResponse, futures, resultTypes);
+            return null;
+        });
+    }
+
+    /**
+     * 以批量响应中对应位置的结果或异常完成各个调用的 Future
+     */
+    private void complete(RpcBatchResponse batchResponse, List<CompletableFuture<Object>> futures, List<Type> resultTypes) {
+        RpcResponse[] responses = batchResponse.getResponses();
+        if (responses == null || responses.length != futures.size()) {
+            IllegalStateException e = new IllegalStateException(String.format(
+                    "Batch response size mismatch: expected %d, got %d",
+                    futures.size(), responses == null ? 0 : responses.length));
+            futures.forEach(future -> future.completeExceptionally(e));
+            return;
+        }
+        for (int i = 0; i < responses.length; i++) {
+            CompletableFuture<Object> future = futures.get(i);
+            if (responses[i] == null) {
+                future.completeExceptionally(new IllegalStateException("Missing response in batch: index=" + i));
+            } else if (responses[i].getException() != null) {
+                future.completeExceptionally(responses[i].getException());
+            } else {
+                try {
+                    future.complete(invoker.convertResult(responses[i].getResult(), resultTypes.get(i)));
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            }
+        }
+    }
+
+    private void record(Consumer<T> call) {
+        recordedMethod = null;
+        recordedArgs = null;
+        call.accept(recorder);
+        if (recordedMethod == null) {
+            throw new IllegalArgumentException("No service method called");
+        }
+    }
+
+    private CompletableFuture<Object> add(Type resultType) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        requests.add(invoker.newRequest(recordedMethod, recordedArgs));
+        futures.add(future);
+        resultTypes.add(resultType);
+        recordedMethod = null;
+        recordedArgs = null;
+        return future;
+    }
+
+    /**
+     * 记录调用时返回的默认值，基本类型不能返回 {@code null}
+     */
+    private static Object defaultValue(Class<?> type) {
+        if (!type.isPrimitive() || type == void.class) return null;
+        if (type == boolean.class) return false;
+        if (type == char.class) return (char) 0;
+        if (type == byte.class) return (byte) 0;
+        if (type == short.class) return (short) 0;
+        if (type == int.class) return 0;
+        if (type == long.class) return 0L;
+        if (type == float.class) return 0f;
+        return 0d;
+    }
+}
@@ -1,9 +1,13 @@
 package cn.uestc.ew.rpc.client;
 
+import cn.uestc.ew.rpc.common.bean.RpcBatchRequest;
+import cn.uestc.ew.rpc.common.bean.RpcBatchResponse;
 import cn.uestc.ew.rpc.common.bean.RpcRequest;
 import cn.uestc.ew.rpc.common.bean.RpcResponse;
 import cn.uestc.ew.rpc.common.config.RpcConfig;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface RpcClient {
 
     /**
@@ -11,9 +15,28 @@ public interface RpcClient {
      */
     RpcResponse send(RpcRequest request) throws Exception;
 
+    /**
+     * RPC 客户端异步发送方法，立即返回而不阻塞调用线程，收到响应后完成返回的 Future。
+     * 等待响应超时时，Future 以 {@link java.net.SocketTimeoutException} 异常结束。
+     * 取消返回的 Future 只是不再等待响应，请求可能已经在服务端执行
+     *
+     * @param request RPC 请求体
+     * @return 收到响应时完成的 Future
+     */
+    CompletableFuture<RpcResponse> sendAsync(RpcRequest request);
+
+    /**
+     * 异步发送批量请求，所有调用合并在一个请求帧中发送，服务端返回一个批量响应。
+     * 等待响应超时时，Future 以 {@link java.net.SocketTimeoutException} 异常结束
+     *
+     * @param batch 批量 RPC 请求体
+     * @return 收到批量响应时完成的 Future
+     */
+    CompletableFuture<RpcBatchResponse> sendBatchAsync(RpcBatchRequest batch);
+
     /**
      * 注入 RPC 配置文件
      * @param config 应用提供的 RPC 配置文件
      */
     void setRpcConfig(RpcConfig config);
-}
\ No newline at end of file
+}
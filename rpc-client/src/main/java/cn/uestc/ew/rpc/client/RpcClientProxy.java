@@ -1,28 +1,85 @@
 package cn.uestc.ew.rpc.client;
 
+import cn.uestc.ew.rpc.client.cache.CacheStats;
+import cn.uestc.ew.rpc.client.cache.ResultCache;
+import cn.uestc.ew.rpc.client.hedge.HedgingPolicy;
+import cn.uestc.ew.rpc.client.impl.MultiplexRpcClient;
 import cn.uestc.ew.rpc.client.impl.SocketRpcClient;
+import cn.uestc.ew.rpc.client.loadbalance.AbstractStatsLoadBalancer;
+import cn.uestc.ew.rpc.client.loadbalance.CircuitBreakingLoadBalancer;
+import cn.uestc.ew.rpc.client.loadbalance.ConsistentHashLoadBalancer;
+import cn.uestc.ew.rpc.client.loadbalance.LeastActiveLoadBalancer;
+import cn.uestc.ew.rpc.client.loadbalance.LoadBalancer;
+import cn.uestc.ew.rpc.client.loadbalance.P2cLoadBalancer;
+import cn.uestc.ew.rpc.client.loadbalance.RandomLoadBalancer;
+import cn.uestc.ew.rpc.client.loadbalance.RoundRobinLoadBalancer;
+import cn.uestc.ew.rpc.client.loadbalance.WeightedRoundRobinLoadBalancer;
+import cn.uestc.ew.rpc.client.multiplex.MultiplexConnection;
+import cn.uestc.ew.rpc.client.multiplex.MultiplexConnectionManager;
+import cn.uestc.ew.rpc.client.pool.KeyedConnectionPool;
+import cn.uestc.ew.rpc.common.annotation.RpcCacheable;
+import cn.uestc.ew.rpc.common.annotation.RpcHedged;
+import cn.uestc.ew.rpc.common.annotation.RpcSerializer;
+import cn.uestc.ew.rpc.common.bean.RpcBatchRequest;
+import cn.uestc.ew.rpc.common.bean.RpcBatchResponse;
 import cn.uestc.ew.rpc.common.bean.RpcRequest;
 import cn.uestc.ew.rpc.common.bean.RpcResponse;
+import cn.uestc.ew.rpc.common.compress.Compressor;
+import cn.uestc.ew.rpc.common.compress.Compressors;
 import cn.uestc.ew.rpc.common.config.RpcConfig;
+import cn.uestc.ew.rpc.common.config.TransportType;
+import cn.uestc.ew.rpc.common.context.RpcContext;
 import cn.uestc.ew.rpc.common.exception.Asserts;
+import cn.uestc.ew.rpc.common.exception.DeadlineExceededException;
+import cn.uestc.ew.rpc.common.exception.OverloadedException;
+import cn.uestc.ew.rpc.common.jfr.ClientInvokeEvent;
+import cn.uestc.ew.rpc.common.jfr.DiscoveryEvent;
+import cn.uestc.ew.rpc.common.log.AccessLog;
+import cn.uestc.ew.rpc.common.metrics.MethodMetrics;
+import cn.uestc.ew.rpc.common.metrics.RpcMetrics;
+import cn.uestc.ew.rpc.common.serialize.ClassAllowlist;
+import cn.uestc.ew.rpc.common.serialize.Serializer;
+import cn.uestc.ew.rpc.common.serialize.Serializers;
+import cn.uestc.ew.rpc.common.stream.RpcStreams;
+import cn.uestc.ew.rpc.common.util.ExecutorUtils;
 import cn.uestc.ew.rpc.registry.ServiceDiscovery;
-import com.alibaba.fastjson2.JSON;
+import cn.uestc.ew.rpc.registry.ServiceInstance;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 
+import java.io.IOException;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Proxy;
+import java.lang.reflect.Type;
+import java.net.InetSocketAddress;
 import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 /**
  * RPC 代理，也就是 RPC Stub。为客户端提供服务调用、编解码及远程调用结果返回，
  * 屏蔽了远程过程调用涉及的网络通信。
  */
 @Slf4j
-public class RpcClientProxy {
+public class RpcClientProxy implements AutoCloseable {
 
     /**
      * RPC 参数
@@ -34,9 +91,108 @@ public class RpcClientProxy {
      */
     private final ServiceDiscovery serviceDiscovery;
 
+    /**
+     * 连接池，所有代理对象共享，按服务地址复用长连接
+     */
+    private final KeyedConnectionPool connectionPool;
+
+    /**
+     * 多路复用连接管理器，传输方式为 {@link TransportType#MULTIPLEX} 时使用
+     */
+    private final MultiplexConnectionManager multiplexConnectionManager;
+
+    /**
+     * 异步调用时执行阻塞发送的线程池，传输方式为 {@link TransportType#POOLED} 时使用，
+     * 根据 {@link RpcConfig#getExecutionMode()} 使用虚拟线程或有界的平台线程池；流式调用中同样以其交付流中的元素
+     */
+    private final ExecutorService asyncExecutor;
+
+    /**
+     * 负载均衡策略，默认根据 {@link RpcConfig#getLoadBalance()} 创建，启用了熔断时以 {@link CircuitBreakingLoadBalancer} 包装
+     */
+    private volatile LoadBalancer loadBalancer;
+
+    /**
+     * 标注了 {@link RpcCacheable} 的方法的结果缓存，所有代理对象共享，缓存键中包含服务名称及版本号
+     */
+    private final Map<Method, ResultCache> resultCaches = new ConcurrentHashMap<>();
+
+    /**
+     * 客户端的访问日志，每次同步或异步调用结束后异步记录一条
+     */
+    private final AccessLog accessLog;
+
     public RpcClientProxy(ServiceDiscovery serviceDiscovery, RpcConfig rpcConfig) {
         this.serviceDiscovery = serviceDiscovery;
         this.rpcConfig = rpcConfig;
+        this.connectionPool = new KeyedConnectionPool(rpcConfig);
+        this.asyncExecutor = ExecutorUtils.newExecutor(
+                rpcConfig.getExecutionMode(), "rpc-client-async-", rpcConfig.getAsyncThreads(), true);
+        this.multiplexConnectionManager = new MultiplexConnectionManager(rpcConfig, asyncExecutor);
+        setLoadBalancer(createLoadBalancer(rpcConfig));
+        this.accessLog = new AccessLog(AccessLog.CLIENT, rpcConfig.getAccessLogSampleRate(),
+                rpcConfig.getAccessLogPayloadServices());
+    }
+
+    /**
+     * 关闭代理，释放连接池中的所有连接
+     */
+    @Override
+    public void close() {
+        connectionPool.close();
+        multiplexConnectionManager.close();
+        asyncExecutor.shutdown();
+    }
+
+    /**
+     * 返回各个方法的结果缓存的统计信息
+     */
+    public List<CacheStats> cacheStats() {
+        return resultCaches.values().stream().map(ResultCache::stats).collect(Collectors.toList());
+    }
+
+    /**
+     * 使用指定的负载均衡策略，启用了熔断（{@link RpcConfig#getCircuitBreakerFailures()} 大于 0）时，
+     * 以 {@link CircuitBreakingLoadBalancer} 包装，跳过被摘除的服务提供者
+     */
+    public void setLoadBalancer(LoadBalancer loadBalancer) {
+        this.loadBalancer = rpcConfig.getCircuitBreakerFailures() > 0
+                ? new CircuitBreakingLoadBalancer(loadBalancer, rpcConfig.getCircuitBreakerFailures(),
+                rpcConfig.getCircuitBreakerSlowCallTime(), rpcConfig.getCircuitBreakerOpenTime(),
+                rpcConfig.getCircuitBreakerMaxOpenTime())
+                : loadBalancer;
+    }
+
+    /**
+     * 根据配置的传输方式，创建访问指定服务地址的 RPC 客户端
+     */
+    private RpcClient createClient(String host, int port) {
+        if (rpcConfig.getTransport() == TransportType.MULTIPLEX) {
+            return new MultiplexRpcClient(host, port, rpcConfig, multiplexConnectionManager);
+        }
+        return new SocketRpcClient(host, port, rpcConfig, connectionPool, asyncExecutor);
+    }
+
+    /**
+     * 根据配置的负载均衡策略，创建对应的负载均衡器。基于观测统计的策略以请求的超时时间作为失败调用的惩罚延迟
+     */
+    private static LoadBalancer createLoadBalancer(RpcConfig rpcConfig) {
+        long failurePenalty = rpcConfig.getTimeout() > 0
+                ? rpcConfig.getTimeout() : AbstractStatsLoadBalancer.DEFAULT_FAILURE_PENALTY;
+        switch (rpcConfig.getLoadBalance()) {
+            case ROUND_ROBIN:
+                return new RoundRobinLoadBalancer();
+            case WEIGHTED_ROUND_ROBIN:
+                return new WeightedRoundRobinLoadBalancer();
+            case LEAST_ACTIVE:
+                return new LeastActiveLoadBalancer(failurePenalty);
+            case P2C:
+                return new P2cLoadBalancer(failurePenalty);
+            case CONSISTENT_HASH:
+                return new ConsistentHashLoadBalancer(rpcConfig.getHashArgument());
+            default:
+                return new RandomLoadBalancer();
+        }
     }
 
     /**
@@ -68,12 +224,65 @@ public class RpcClientProxy {
                 new RpcInvocationHandler(interfaceClass, serviceVersion));
     }
 
+    /**
+     * 根据异步 API 接口类及其对应的服务接口类，创建异步代理服务对象，使用默认版本号（""）。
+     *
+     * @see RpcClientProxy#createAsync(Class, Class, String)
+     */
+    public <T> T createAsync(final Class<T> asyncInterfaceClass, final Class<?> interfaceClass) {
+        return createAsync(asyncInterfaceClass, interfaceClass, StringUtils.EMPTY);
+    }
+
+    /**
+     * 根据异步 API 接口类及其对应的服务接口类，创建异步代理服务对象。
+     *
+     * <p>异步 API 接口由客户端自行定义，其中的方法与服务接口中的方法名称、参数列表一一对应，
+     * 返回值为 {@link CompletableFuture}（或 {@link CompletionStage}）包装后的原始返回值，例如
+     * 服务接口中的 {@code String toUppercase(String)} 对应 {@code CompletableFuture<String> toUppercase(String)}。
+     * 调用异步方法时立即返回，不会阻塞调用线程：多路复用传输方式下 Future 由连接的 I/O 线程完成，
+     * 因此在其上注册的非 {@code *Async} 回调也会在 I/O 线程上执行，耗时的回调应指定其它线程池。</p>
+     *
+     * @param asyncInterfaceClass 客户端定义的异步 API 接口类
+     * @param interfaceClass      需要访问的服务接口类
+     * @param serviceVersion      需要访问的服务版本号
+     * @return 异步服务代理接口
+     * @param <T> 异步 API 接口类
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T createAsync(final Class<T> asyncInterfaceClass, final Class<?> interfaceClass, final String serviceVersion) {
+        return (T) Proxy.newProxyInstance(
+                asyncInterfaceClass.getClassLoader(),
+                new Class<?>[]{asyncInterfaceClass},
+                new RpcInvocationHandler(interfaceClass, serviceVersion));
+    }
+
+    /**
+     * 创建访问指定服务的批量调用，使用默认版本号（""）。
+     *
+     * @see RpcClientProxy#batch(Class, String)
+     */
+    public <T> RpcBatch<T> batch(final Class<T> interfaceClass) {
+        return batch(interfaceClass, StringUtils.EMPTY);
+    }
+
+    /**
+     * 创建访问指定服务的批量调用，多个相互独立的调用合并到一个请求帧中发送，服务端并行执行后一次返回，见 {@link RpcBatch}
+     *
+     * @param interfaceClass 需要访问的服务接口类
+     * @param serviceVersion 需要访问的服务版本号
+     * @return 批量调用，非线程安全
+     * @param <T> 需要访问的服务接口类
+     */
+    public <T> RpcBatch<T> batch(final Class<T> interfaceClass, final String serviceVersion) {
+        return new RpcBatch<>(interfaceClass, new RpcInvocationHandler(interfaceClass, serviceVersion));
+    }
+
     /**
      * RPC 服务代理处理器，用于规定代理对象如何处理服务调用及返回，每次发起
      * 服务调用，都会动态创建一个服务代理对象。而代理对象由于访问的服务不同，
      * 需要不同的代理处理器，来完成自己需要执行的操作。
      */
-    private class RpcInvocationHandler implements InvocationHandler {
+    private class RpcInvocationHandler implements InvocationHandler, BatchInvoker {
 
         /**
          * 本次请求需要访问的 API 接口类
@@ -85,9 +294,44 @@ public class RpcClientProxy {
          */
         private final String serviceVersion;
 
+        /**
+         * 注册中心中的服务名称（接口名称[-版本号]），创建代理时拼接一次
+         */
+        private final String serviceName;
+
+        /**
+         * 本服务使用的序列化器，接口上的 {@link RpcSerializer} 注解优先于客户端配置，创建代理时解析一次
+         */
+        private final Serializer serializer;
+
+        /**
+         * 本服务使用的压缩算法，不压缩时为 {@code null}
+         */
+        private final Compressor compressor;
+
+        /**
+         * 各个方法在客户端的调用统计，见 {@link RpcMetrics#CLIENT}
+         */
+        private final Map<Method, MethodMetrics> metrics = new ConcurrentHashMap<>();
+
+        /**
+         * 标注了 {@link RpcHedged} 的方法的对冲请求策略
+         */
+        private final Map<Method, HedgingPolicy> hedgingPolicies = new ConcurrentHashMap<>();
+
         RpcInvocationHandler (final Class<?> interfaceClass, final String serviceVersion) {
             this.interfaceClass = interfaceClass;
             this.serviceVersion = serviceVersion;
+            this.serviceName = StringUtils.isNotEmpty(serviceVersion)
+                    ? interfaceClass.getName() + "-" + serviceVersion : interfaceClass.getName();
+            RpcSerializer annotation = interfaceClass.getAnnotation(RpcSerializer.class);
+            String serializerName = annotation != null ? annotation.value()
+                    : rpcConfig != null && StringUtils.isNotEmpty(rpcConfig.getSerializer()) ? rpcConfig.getSerializer()
+                    : Serializers.DEFAULT.getName();
+            this.serializer = Serializers.get(serializerName);
+            ClassAllowlist.allowService(interfaceClass);
+            if (rpcConfig != null) ClassAllowlist.allow(rpcConfig.getSerializerAllowlist());
+            this.compressor = rpcConfig != null ? Compressors.get(rpcConfig.getCompressor()) : null;
         }
 
         /**
@@ -101,6 +345,11 @@ public class RpcClientProxy {
          *     <li>接收并处理返回结果，将其返回给客户端</li>
          * </ol>
          *
+         * <p>方法返回值为 {@link CompletionStage} 时以异步方式发起调用，见 {@link #invokeAsync(Method, RpcRequest, Type)}；
+         * 返回值或参数为 {@link Flow.Publisher} 时以流的方式发起调用，见 {@link #invokeStream(Method, Object[], int)}；
+         * 方法标注了 {@link RpcCacheable} 时先查找结果缓存，见 {@link #invokeCached(Method, Object[], RpcCacheable)}；
+         * 方法标注了 {@link RpcHedged} 时慢调用会向另一个服务提供者发出对冲请求，见 {@link HedgedCall}。</p>
+         *
          * @return RPC 服务代理类的执行结果，正常情况下应该是调用远程服务返回的内容，
          *         被正确解码后的结果
          * @throws Exception 代理类执行过程中可能出现的任何异常，如网络通信异常等
@@ -108,44 +357,473 @@ public class RpcClientProxy {
         @Override
         public Object invoke(Object proxy, Method method, Object[] args) throws Exception {
 
+            int streamParameter = RpcStreams.streamParameter(method);
+            if (streamParameter >= 0 || RpcStreams.isStream(method.getReturnType())) {
+                return invokeStream(method, args, streamParameter);
+            }
+            RpcCacheable cacheable = method.getAnnotation(RpcCacheable.class);
+            if (cacheable != null) {
+                return invokeCached(method, args, cacheable);
+            }
+            if (CompletionStage.class.isAssignableFrom(method.getReturnType())) {
+                return invokeAsync(method, newRequest(method, args), resultType(method.getGenericReturnType()));
+            }
+            return invokeSync(method, args);
+        }
+
+        /**
+         * 以同步方式发起远程调用，阻塞等待远程服务的返回值
+         */
+        private Object invokeSync(Method method, Object[] args) throws Exception {
+
+            // 对冲请求需要同时等待多个请求，以异步方式发起
+            if (hedgingPolicy(method) != null) {
+                try {
+                    return invokeAsync(method, newRequest(method, args), method.getGenericReturnType()).get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof Exception) {
+                        throw (Exception) e.getCause();
+                    }
+                    throw e;
+                }
+            }
+
             // 1. 创建 RPC 请求对象并设置请求属性
+            RpcRequest request = newRequest(method, args);
+            MethodMetrics methodMetrics = metrics(method);
+            ClientInvokeEvent event = new ClientInvokeEvent();
+            event.begin();
+            long start = System.nanoTime();
+            methodMetrics.begin();
+            ServiceInstance instance = null;
+            RpcResponse response = null;
+            Throwable exception = null;
+            try {
+                // 2. 获取 RPC 服务地址，由负载均衡策略选择服务提供者
+                instance = select(request);
+
+                // 4. 创建 RPC 客户端对象并发送 RPC 请求，服务提供者过载时向另一个服务提供者重新发送一次
+                response = sendTo(instance, request);
+                ServiceInstance other = overloaded(response) ? failover(request, instance) : null;
+                if (other != null) {
+                    instance = other;
+                    response = sendTo(instance, request);
+                }
+                Asserts.notNull(response, String.format("Cannot receive any response from [%s]", instance.getAddress()));
+                methodMetrics.bytes(request.getFrameLength(), response.getFrameLength());
+
+                // 5. 返回 RPC 响应结果
+                if (Objects.nonNull(response.getException())) {
+                    throw response.getException();
+                }
+                return serializer.convert(response.getResult(), method.getGenericReturnType());
+            } catch (Exception | Error e) {
+                exception = e;
+                throw e;
+            } finally {
+                methodMetrics.retried(request.getRetryTimes() - 1);
+                methodMetrics.end(start, exception != null);
+                commit(event, request, instance, response, exception, false);
+                accessLog.record(request, instance != null ? instance.getAddress() : null, request.getFrameLength(),
+                        response != null ? response.getFrameLength() : 0, System.nanoTime() - start, exception,
+                        response != null ? response.getResult() : null);
+            }
+        }
+
+        /**
+         * 结束并提交客户端调用事件，事件未开启时不填充字段
+         */
+        private void commit(ClientInvokeEvent event, RpcRequest request, ServiceInstance instance,
+                            RpcResponse response, Throwable exception, boolean async) {
+            event.end();
+            if (!event.shouldCommit()) return;
+            event.setService(serviceName);
+            event.setMethod(request.getMethodName());
+            event.setAddress(instance != null ? instance.getAddress() : null);
+            event.setTransport(rpcConfig.getTransport().name());
+            event.setAsync(async);
+            event.setRequestBytes(request.getFrameLength());
+            event.setResponseBytes(response != null ? response.getFrameLength() : 0);
+            event.setRetries(Math.max(0, request.getRetryTimes() - 1));
+            event.setException(exception != null ? exception.getClass().getName() : null);
+            event.commit();
+        }
+
+        /**
+         * 返回方法的对冲请求策略，方法没有标注 {@link RpcHedged} 时返回 {@code null}
+         */
+        private HedgingPolicy hedgingPolicy(Method method) {
+            RpcHedged hedged = method.getAnnotation(RpcHedged.class);
+            if (hedged == null) return null;
+            return hedgingPolicies.computeIfAbsent(method, m -> new HedgingPolicy(hedged.percentile(), hedged.delay(),
+                    hedged.maxAttempts(), rpcConfig.getHedgeBudget()));
+        }
+
+        /**
+         * 返回方法在客户端的调用统计，首次调用时创建
+         */
+        private MethodMetrics metrics(Method method) {
+            MethodMetrics methodMetrics = metrics.get(method);
+            if (methodMetrics == null) {
+                methodMetrics = metrics.computeIfAbsent(method,
+                        m -> RpcMetrics.CLIENT.get(serviceName, m.getName(), m.getParameterTypes()));
+            }
+            return methodMetrics;
+        }
+
+        @Override
+        public RpcRequest newRequest(Method method, Object[] args) {
             RpcRequest request = new RpcRequest();
-            request.setRequestId(UUID.randomUUID().toString());
-            request.setInterfaceName(method.getDeclaringClass().getName());
+            request.setRequestId(ThreadLocalRandom.current().nextLong());
+            request.setInterfaceName(interfaceClass.getName());
             request.setMethodName(method.getName());
             request.setParameterTypes(method.getParameterTypes());
             request.setParameters(args);
             request.setServiceVersion(serviceVersion);
+            request.setSerializer(serializer.getId());
+            if (compressor != null) {
+                request.setCompressor(compressor.getId());
+                request.setCompressThreshold(rpcConfig.getCompressThreshold());
+            }
+            request.setDeadline(RpcContext.getDeadline());
+            request.setTimeout(timeout(request));
+            return request;
+        }
+
+        /**
+         * 请求携带的超时时间，单位毫秒，即客户端等待单次请求的时间，传输层同样以此等待响应。
+         * 在服务方法中发起的嵌套调用不超过外层调用的剩余时间，外层调用已经超时时为 1，由服务端直接拒绝
+         *
+         * @param request 请求，{@link RpcRequest#getDeadline()} 为外层调用的截止时间
+         */
+        private int timeout(RpcRequest request) {
+            if (request.getDeadline() == 0) {
+                return Math.max(0, rpcConfig.getTimeout());
+            }
+            long remaining = TimeUnit.NANOSECONDS.toMillis(request.getDeadline() - System.nanoTime());
+            long timeout = rpcConfig.getTimeout() > 0 ? Math.min(rpcConfig.getTimeout(), remaining) : remaining;
+            return (int) Math.max(1, Math.min(Integer.MAX_VALUE, timeout));
+        }
+
+        /**
+         * 以第一个调用选择服务提供者，发送批量请求，超时后不会重试
+         */
+        @Override
+        public CompletableFuture<RpcBatchResponse> invokeBatch(RpcBatchRequest batch) {
+            batch.setRequestId(ThreadLocalRandom.current().nextLong());
+            batch.setSerializer(serializer.getId());
+            if (compressor != null) {
+                batch.setCompressor(compressor.getId());
+                batch.setCompressThreshold(rpcConfig.getCompressThreshold());
+            }
+            ServiceInstance instance = select(batch.getRequests()[0]);
+            InetSocketAddress serviceAddress = instance.getSocketAddress();
+            RpcClient client = createClient(serviceAddress.getHostString(), serviceAddress.getPort());
+            long start = System.nanoTime();
+            loadBalancer.onSend(instance);
+            return client.sendBatchAsync(batch).whenComplete((response, e) -> {
+                loadBalancer.onReceive(instance, System.nanoTime() - start, e == null);
+                log.debug("RPC: batch size = {}, service = {}, waste time = {} ms", batch.getRequests().length,
+                        serviceName, (System.nanoTime() - start) / 1000000);
+            });
+        }
+
+        @Override
+        public Object convertResult(Object result, Type type) {
+            return serializer.convert(result, type);
+        }
+
+        /**
+         * 以异步方式发起远程调用，立即返回一个 Future，收到响应后以远程服务的返回值（或异常）完成。
+         * 服务发现、发送请求及超时重试过程中出现的异常都通过 Future 返回，而不会直接抛出。
+         *
+         * @param method     调用的方法，用于记录调用统计
+         * @param request    RPC 请求体
+         * @param resultType 异步结果的声明类型
+         * @return 远程调用结果的 Future
+         */
+        private CompletableFuture<Object> invokeAsync(Method method, RpcRequest request, Type resultType) {
+            MethodMetrics methodMetrics = metrics(method);
+            ClientInvokeEvent event = new ClientInvokeEvent();
+            event.begin();
+            long start = System.nanoTime();
+            methodMetrics.begin();
+            ServiceInstance instance;
+            RpcClient client;
+            try {
+                instance = select(request);
+                InetSocketAddress serviceAddress = instance.getSocketAddress();
+                client = createClient(serviceAddress.getHostString(), serviceAddress.getPort());
+            } catch (RuntimeException e) {
+                methodMetrics.end(start, true);
+                commit(event, request, null, null, e, true);
+                accessLog.record(request, null, 0, 0, System.nanoTime() - start, e, null);
+                return CompletableFuture.failedFuture(e);
+            }
+            HedgingPolicy hedgingPolicy = hedgingPolicy(method);
+            CompletableFuture<RpcResponse> future;
+            // 最终发送请求的服务提供者，过载重发后改变
+            ServiceInstance[] target = {instance};
+            if (hedgingPolicy != null) {
+                future = new HedgedCall(hedgingPolicy, methodMetrics, method, request).start(instance, client);
+            } else {
+                future = sendAsyncTo(instance, client, request).thenCompose(response -> {
+                    ServiceInstance other = overloaded(response) ? failover(request, instance) : null;
+                    if (other == null) return CompletableFuture.completedFuture(response);
+                    target[0] = other;
+                    InetSocketAddress address = other.getSocketAddress();
+                    return sendAsyncTo(other, createClient(address.getHostString(), address.getPort()), request);
+                });
+            }
+            return future.whenComplete((response, e) -> {
+                methodMetrics.retried(request.getRetryTimes() - 1);
+                if (response != null) {
+                    methodMetrics.bytes(request.getFrameLength(), response.getFrameLength());
+                }
+                methodMetrics.end(start, e != null || response.getException() != null);
+                Throwable exception = e != null
+                        ? (e instanceof CompletionException && e.getCause() != null ? e.getCause() : e)
+                        : response.getException();
+                commit(event, request, target[0], response, exception, true);
+                accessLog.record(request, target[0].getAddress(), request.getFrameLength(),
+                        response != null ? response.getFrameLength() : 0, System.nanoTime() - start, exception,
+                        response != null ? response.getResult() : null);
+            }).thenCompose(response -> {
+                if (Objects.nonNull(response.getException())) {
+                    return CompletableFuture.failedFuture(response.getException());
+                }
+                return CompletableFuture.completedFuture(serializer.convert(response.getResult(), resultType));
+            });
+        }
+
+        /**
+         * 先查找结果缓存，未命中时发起远程调用并缓存其结果。同步方法在当前线程发起调用，
+         * 异步方法返回缓存的 Future 的副本，调用方完成或取消返回的 Future 不影响其它调用方
+         */
+        private Object invokeCached(Method method, Object[] args, RpcCacheable cacheable) throws Exception {
+            ResultCache cache = resultCaches.computeIfAbsent(method, m -> new ResultCache(
+                    m.getDeclaringClass().getName() + "#" + m.getName(), cacheable.ttl(), cacheable.maxSize()));
+            Object key = cacheKey(args);
+            if (CompletionStage.class.isAssignableFrom(method.getReturnType())) {
+                Type resultType = resultType(method.getGenericReturnType());
+                return cache.get(key, () -> invokeAsync(method, newRequest(method, args), resultType)).copy();
+            }
+            CompletableFuture<Object> result = cache.get(key, () -> {
+                try {
+                    return CompletableFuture.completedFuture(invokeSync(method, args));
+                } catch (Exception e) {
+                    return CompletableFuture.failedFuture(e);
+                }
+            });
+            try {
+                return result.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof Exception) {
+                    throw (Exception) e.getCause();
+                }
+                throw e;
+            }
+        }
+
+        /**
+         * 生成结果缓存的键：参数都是字符串、基本类型的包装类或枚举时直接以参数列表作为键，
+         * 否则以本服务的序列化器序列化参数列表，以序列化后的字节作为键
+         */
+        private Object cacheKey(Object[] args) {
+            if (args == null || args.length == 0) {
+                return serviceName;
+            }
+            boolean plain = true;
+            for (Object arg : args) {
+                if (arg != null && !(arg instanceof String || arg instanceof Integer || arg instanceof Long
+                        || arg instanceof Boolean || arg instanceof Enum || arg instanceof Character
+                        || arg instanceof Short || arg instanceof Byte || arg instanceof Double || arg instanceof Float)) {
+                    plain = false;
+                    break;
+                }
+            }
+            if (plain) {
+                Object[] key = new Object[args.length + 1];
+                key[0] = serviceName;
+                System.arraycopy(args, 0, key, 1, args.length);
+                return Arrays.asList(key);
+            }
+            RpcRequest holder = new RpcRequest();
+            holder.setParameters(args);
+            return Arrays.asList(serviceName, ByteBuffer.wrap(serializer.serialize(holder)));
+        }
 
-            // 2. 获取 RPC 服务地址
-            String serviceName = interfaceClass.getName();
-            if (StringUtils.isNotEmpty(serviceVersion)) {
-                serviceName += "-" + serviceVersion;
-            }
-            String serviceAddress = serviceDiscovery.discover(serviceName);
-            Asserts.notEmpty(serviceAddress, String.format("Service address of [%s] is empty", serviceName));
-            log.debug("Discover service: name={}, address={}.", serviceName, serviceAddress);
-            String[] array = StringUtils.split(serviceAddress, ":");
-            String host = array[0];     // 服务端 IP
-            int port = Integer.parseInt(array[1]); // 服务端端口
-
-            // 4. 创建 RPC 客户端对象并发送 RPC 请求
-            log.info("RPC: request body = {}", JSON.toJSONString(request));
-            RpcClient client = new SocketRpcClient(host, port, rpcConfig);
-            long time = System.currentTimeMillis();
-            RpcResponse response = sendWithRetry(client, request);
-            Asserts.notNull(response, String.format("Cannot receive any response from [%s]", serviceAddress));
-            log.info("RPC: resp body = {}, waste time = {} ms", JSON.toJSONString(response), System.currentTimeMillis() - time);
-
-            // 5. 返回 RPC 响应结果
+        /**
+         * 以流的方式发起远程调用，无论配置的传输方式如何，流式调用都在多路复用连接上进行，不会超时重试
+         *
+         * <ul>
+         *     <li>返回值为 {@link Flow.Publisher} 时返回一个冷流，每次订阅发起一次新的调用，
+         *         服务端按订阅者的需求逐个发送元素，订阅者取消订阅时服务端随之停止</li>
+         *     <li>否则阻塞等待服务端返回单个结果，服务端返回后参数中的流随之结束</li>
+         * </ul>
+         *
+         * <p>参数中的 {@link Flow.Publisher}（至多一个）由客户端订阅，按服务端授予的信用逐个发送元素。
+         * 流式请求不携带超时时间，服务端不会因截止时间拒绝。</p>
+         */
+        private Object invokeStream(Method method, Object[] args, int streamParameter) throws Exception {
+            if (RpcStreams.isStream(method.getReturnType())) {
+                Type elementType = RpcStreams.elementType(method.getGenericReturnType());
+                return (Flow.Publisher<Object>) subscriber -> {
+                    RpcRequest request = newRequest(method, args);
+                    request.setTimeout(0);
+                    Flow.Publisher<Object> result;
+                    try {
+                        result = streamConnection(request).openStream(request, streamParameter, elementType);
+                    } catch (IOException | RuntimeException e) {
+                        result = RpcStreams.failed(e);
+                    }
+                    result.subscribe(subscriber);
+                };
+            }
+            RpcRequest request = newRequest(method, args);
+            request.setTimeout(0);
+            RpcResponse response;
+            try {
+                response = streamConnection(request).sendStream(request, streamParameter).get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof Exception) {
+                    throw (Exception) e.getCause();
+                }
+                throw e;
+            }
             if (Objects.nonNull(response.getException())) {
                 throw response.getException();
             }
-            return response.getResult();
+            return serializer.convert(response.getResult(), method.getGenericReturnType());
+        }
+
+        /**
+         * 选择服务提供者，返回其多路复用连接
+         */
+        private MultiplexConnection streamConnection(RpcRequest request) throws IOException {
+            ServiceInstance instance = select(request);
+            InetSocketAddress serviceAddress = instance.getSocketAddress();
+            log.debug("RPC: stream request, service = {}, method = {}, address = {}",
+                    serviceName, request.getMethodName(), instance.getAddress());
+            return multiplexConnectionManager.get(serviceAddress.getHostString(), serviceAddress.getPort());
+        }
+
+        /**
+         * 返回异步方法的结果类型，即 {@link CompletionStage} 的类型参数，无法确定时为 {@code Object}
+         */
+        private Type resultType(Type returnType) {
+            return returnType instanceof ParameterizedType
+                    ? ((ParameterizedType) returnType).getActualTypeArguments()[0] : Object.class;
+        }
+
+        /**
+         * 根据服务接口类及版本号查找所有服务提供者，并由负载均衡策略选择其中之一
+         *
+         * @param request RPC 请求体，部分负载均衡策略（如一致性哈希）需要根据请求参数选择
+         * @return 本次调用的服务提供者
+         */
+        private ServiceInstance select(RpcRequest request) {
+            DiscoveryEvent event = new DiscoveryEvent();
+            event.begin();
+            List<ServiceInstance> instances = serviceDiscovery.discoverInstances(serviceName);
+            ServiceInstance instance = instances.isEmpty() ? null : loadBalancer.select(serviceName, instances, request);
+            event.end();
+            if (event.shouldCommit()) {
+                event.setService(serviceName);
+                event.setMethod(request.getMethodName());
+                event.setInstances(instances.size());
+                event.setAddress(instance != null ? instance.getAddress() : null);
+                event.commit();
+            }
+            if (instance == null) {
+                throw new RuntimeException(String.format("Service address of [%s] is empty", serviceName));
+            }
+            log.debug("Discover service: name={}, address={}.", serviceName, instance.getAddress());
+            return instance;
+        }
+
+        /**
+         * 向服务提供者发送请求（按重试配置超时重试），并向负载均衡策略报告结果。过载的响应同样视为收到了响应，
+         * 不计入熔断统计，避免只是在卸载部分请求的服务提供者被整个摘除
+         */
+        private RpcResponse sendTo(ServiceInstance instance, RpcRequest request) throws Exception {
+            InetSocketAddress serviceAddress = instance.getSocketAddress();
+            RpcClient client = createClient(serviceAddress.getHostString(), serviceAddress.getPort());
+            long sent = System.nanoTime();
+            loadBalancer.onSend(instance);
+            RpcResponse response = null;
+            try {
+                response = sendWithRetry(client, request);
+            } finally {
+                loadBalancer.onReceive(instance, System.nanoTime() - sent, response != null);
+            }
+            return response;
+        }
+
+        /**
+         * {@link #sendTo(ServiceInstance, RpcRequest)} 的异步版本
+         */
+        private CompletableFuture<RpcResponse> sendAsyncTo(ServiceInstance instance, RpcClient client,
+                                                           RpcRequest request) {
+            long sent = System.nanoTime();
+            loadBalancer.onSend(instance);
+            return sendAsyncWithRetry(client, request, 1).whenComplete((response, e) ->
+                    loadBalancer.onReceive(instance, System.nanoTime() - sent, e == null));
+        }
+
+        /**
+         * 服务提供者过载（{@link OverloadedException}）时，选择另一个服务提供者重新发送。请求在服务端没有被执行，
+         * 因此非幂等的方法同样可以重新发送
+         *
+         * @return 另一个服务提供者，没有其它服务提供者或服务发现失败时返回 {@code null}
+         */
+        private ServiceInstance failover(RpcRequest request, ServiceInstance overloaded) {
+            try {
+                ServiceInstance other = selectExcept(request, Collections.singletonList(overloaded));
+                if (other != null) {
+                    log.debug("RPC: service overloaded, failover, service = {}, method = {}, address = {} -> {}",
+                            serviceName, request.getMethodName(), overloaded.getAddress(), other.getAddress());
+                }
+                return other;
+            } catch (RuntimeException e) {
+                log.warn("RPC: select failover instance failed, service = {}, exception = {}",
+                        serviceName, e.getMessage());
+                return null;
+            }
+        }
+
+        /**
+         * 选择一个不在 {@code excluded} 中的服务提供者，优先使用负载均衡的选择，选中已排除的服务提供者时从其余的提供者中随机选择
+         *
+         * @return 服务提供者，没有其它服务提供者时返回 {@code null}
+         */
+        private ServiceInstance selectExcept(RpcRequest request, List<ServiceInstance> excluded) {
+            List<ServiceInstance> instances = serviceDiscovery.discoverInstances(serviceName);
+            if (instances.isEmpty()) return null;
+            ServiceInstance instance = loadBalancer.select(serviceName, instances, request);
+            if (!contains(excluded, instance)) return instance;
+            List<ServiceInstance> rest = new ArrayList<>();
+            for (ServiceInstance candidate : instances) {
+                if (!contains(excluded, candidate)) rest.add(candidate);
+            }
+            return rest.isEmpty() ? null : rest.get(ThreadLocalRandom.current().nextInt(rest.size()));
+        }
+
+        private boolean contains(List<ServiceInstance> instances, ServiceInstance instance) {
+            for (ServiceInstance i : instances) {
+                if (i.getAddress().equals(instance.getAddress())) return true;
+            }
+            return false;
+        }
+
+        private boolean overloaded(RpcResponse response) {
+            return response != null && response.getException() instanceof OverloadedException;
         }
 
         /**
-         * 根据重试配置，决定以何种语义（"至多一次"，"至少一次"）发送请求
+         * 根据重试配置，决定以何种语义（"至多一次"，"至少一次"）发送请求。以"至少一次"语义发送时，
+         * 服务端因超过截止时间而未执行的响应与超时同样重试，见 {@link #checkDeadline(RpcResponse)}；
+         * 外层调用已经超过截止时间时不再重试，每次重试的超时时间不超过外层调用的剩余时间
          * @see RpcClient#send(RpcRequest)
          */
         private RpcResponse sendWithRetry(RpcClient client, RpcRequest request) throws Exception {
@@ -158,15 +836,17 @@ public class RpcClientProxy {
             // Send with retry (At-least-once)
             try {
                 request.setRetryTimes(1);
-                return client.send(request);
+                return checkDeadline(client.send(request));
             } catch (SocketTimeoutException e) {
                 log.info("RPC: service timeout, start retry...");
                 int i = 1;
-                while (rpcConfig.needRetry(i++)) {
+                while (rpcConfig.needRetry(i++) && !deadlineExceeded(request)) {
                     try {
                         request.setRetryTimes(i);
-                        log.info("RPC: retry {}th, request body = {}", i, JSON.toJSONString(request));
-                        return client.send(request);
+                        request.setTimeout(timeout(request));
+                        log.info("RPC: retry {}th, service = {}, method = {}, requestId = {}",
+                                i, serviceName, request.getMethodName(), request.getRequestId());
+                        return checkDeadline(client.send(request));
                     } catch (SocketTimeoutException ee) {
                         // Ignore
                         log.info("RPC: retry {}th, exception = {}", i, ee.getMessage());
@@ -176,5 +856,206 @@ public class RpcClientProxy {
             log.info("RPC: retry over, service unavailable");
             return null;
         }
+
+        /**
+         * {@link #sendWithRetry(RpcClient, RpcRequest)} 的异步版本，超时后在完成超时的线程上发起下一次重试，
+         * 重试次数用尽时 Future 以 {@link SocketTimeoutException} 异常结束
+         *
+         * @param i 当前是第几次发送，从 1 开始
+         * @see RpcClient#sendAsync(RpcRequest)
+         */
+        private CompletableFuture<RpcResponse> sendAsyncWithRetry(RpcClient client, RpcRequest request, int i) {
+
+            // No retry (At-most-once)
+            if (rpcConfig == null || rpcConfig.noRetry()) {
+                return client.sendAsync(request);
+            }
+
+            // Send with retry (At-least-once)
+            request.setRetryTimes(i);
+            return client.sendAsync(request).thenCompose(response -> {
+                try {
+                    return CompletableFuture.completedFuture(checkDeadline(response));
+                } catch (SocketTimeoutException e) {
+                    return CompletableFuture.<RpcResponse>failedFuture(e);
+                }
+            }).exceptionallyCompose(e -> {
+                Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                if (!(cause instanceof SocketTimeoutException)) {
+                    return CompletableFuture.failedFuture(cause);
+                }
+                if (!rpcConfig.needRetry(i) || deadlineExceeded(request)) {
+                    log.info("RPC: retry over, service unavailable");
+                    return CompletableFuture.failedFuture(cause);
+                }
+                log.info("RPC: retry {}th, exception = {}", i + 1, cause.getMessage());
+                request.setTimeout(timeout(request));
+                return sendAsyncWithRetry(client, request, i + 1);
+            });
+        }
+
+        /**
+         * 发起请求的外层调用是否已经超过截止时间，超过后调用方已经不再等待结果，不再重试
+         */
+        private boolean deadlineExceeded(RpcRequest request) {
+            return request.getDeadline() != 0 && System.nanoTime() - request.getDeadline() >= 0;
+        }
+
+        /**
+         * 服务端因超过截止时间而未执行请求（{@link DeadlineExceededException}）时，客户端也已经或即将超时，
+         * 转换为 {@link SocketTimeoutException}，避免服务端的响应先于客户端超时到达时不再重试
+         */
+        private RpcResponse checkDeadline(RpcResponse response) throws SocketTimeoutException {
+            if (response != null && response.getException() instanceof DeadlineExceededException) {
+                throw new SocketTimeoutException(response.getException().getMessage());
+            }
+            return response;
+        }
+
+        /**
+         * 一次启用了对冲请求的调用，见 {@link RpcHedged}
+         *
+         * <p>首先向负载均衡选中的服务提供者发出原请求，等待 {@link HedgingPolicy#delayNanos()} 后仍未收到响应时，
+         * 在预算允许的情况下向另一个服务提供者发出对冲请求，直到达到最大请求数。以第一个收到的响应（包括服务方法抛出的异常）
+         * 完成调用，并取消其余未完成的请求；某个请求失败（包括服务端过载）而没有其它未完成的请求时，立即发出下一个对冲请求，
+         * 没有可用的服务提供者或预算时以该异常结束调用。每个请求只发送一次，不会超时重试。</p>
+         *
+         * <p>等待时间按原请求的耗时统计，而不是按调用的耗时：发出对冲请求后调用的耗时是原请求与对冲请求中较短的一个，
+         * 以此计算分位数会使等待时间越来越短。原请求落败被取消时，取消前已等待的时间是其耗时的下限，同样记录。</p>
+         */
+        private class HedgedCall {
+
+            private final HedgingPolicy policy;
+
+            private final MethodMetrics methodMetrics;
+
+            private final Method method;
+
+            /**
+             * 原请求，对冲请求是其 requestId 相同的副本
+             */
+            private final RpcRequest request;
+
+            private final CompletableFuture<RpcResponse> result = new CompletableFuture<>();
+
+            /**
+             * 已发出的请求的服务提供者及等待响应的 Future，由当前对象的锁保护
+             */
+            private final List<ServiceInstance> tried = new ArrayList<>();
+
+            private final List<CompletableFuture<RpcResponse>> attempts = new ArrayList<>();
+
+            /**
+             * 未完成的请求数，由当前对象的锁保护
+             */
+            private int pending;
+
+            HedgedCall(HedgingPolicy policy, MethodMetrics methodMetrics, Method method, RpcRequest request) {
+                this.policy = policy;
+                this.methodMetrics = methodMetrics;
+                this.method = method;
+                this.request = request;
+            }
+
+            /**
+             * 发出原请求并安排对冲请求
+             *
+             * @return 以第一个响应完成的 Future
+             */
+            CompletableFuture<RpcResponse> start(ServiceInstance instance, RpcClient client) {
+                policy.onCall();
+                synchronized (this) {
+                    tried.add(instance);
+                    pending++;
+                }
+                result.whenComplete((response, e) -> {
+                    synchronized (this) {
+                        attempts.forEach(attempt -> attempt.cancel(false));
+                    }
+                });
+                send(instance, client, request);
+                schedule();
+                return result;
+            }
+
+            /**
+             * 等待一段时间后发出对冲请求，由异步线程池执行
+             */
+            private void schedule() {
+                CompletableFuture.delayedExecutor(policy.delayNanos(), TimeUnit.NANOSECONDS, asyncExecutor).execute(() -> {
+                    if (hedge()) schedule();
+                });
+            }
+
+            /**
+             * 向尚未发出请求的服务提供者发出一个对冲请求
+             *
+             * @return 是否发出了对冲请求
+             */
+            private boolean hedge() {
+                ServiceInstance instance;
+                synchronized (this) {
+                    if (result.isDone() || tried.size() >= policy.getMaxAttempts()) return false;
+                    try {
+                        instance = selectExcept(request, tried);
+                    } catch (RuntimeException e) {
+                        log.warn("RPC: select hedge instance failed, service = {}, exception = {}",
+                                serviceName, e.getMessage());
+                        return false;
+                    }
+                    if (instance == null || !policy.tryAcquire()) return false;
+                    tried.add(instance);
+                    pending++;
+                }
+                methodMetrics.hedged();
+                log.debug("RPC: hedge request, service = {}, method = {}, requestId = {}, address = {}",
+                        serviceName, request.getMethodName(), request.getRequestId(), instance.getAddress());
+                RpcRequest copy = newRequest(method, request.getParameters());
+                copy.setRequestId(request.getRequestId());
+                InetSocketAddress serviceAddress = instance.getSocketAddress();
+                send(instance, createClient(serviceAddress.getHostString(), serviceAddress.getPort()), copy);
+                return true;
+            }
+
+            private void send(ServiceInstance instance, RpcClient client, RpcRequest attempt) {
+                long sent = System.nanoTime();
+                loadBalancer.onSend(instance);
+                CompletableFuture<RpcResponse> future = client.sendAsync(attempt);
+                synchronized (this) {
+                    attempts.add(future);
+                }
+                if (result.isDone()) future.cancel(false);
+                future.whenComplete((response, e) -> {
+                    long elapsed = System.nanoTime() - sent;
+                    boolean cancelled = e instanceof CancellationException;
+                    // 落败被取消的请求不是服务提供者的失败，也没有真实的耗时
+                    if (cancelled) {
+                        loadBalancer.onCancel(instance);
+                    } else {
+                        loadBalancer.onReceive(instance, elapsed, e == null);
+                    }
+                    boolean overloaded = e == null && overloaded(response);
+                    if (attempt == request && (e == null ? !overloaded : cancelled)) {
+                        policy.record(elapsed);
+                    }
+                    if (e == null && !overloaded) {
+                        result.complete(response);
+                        return;
+                    }
+                    boolean last;
+                    synchronized (this) {
+                        last = --pending == 0;
+                    }
+                    if (last && !hedge()) {
+                        if (overloaded) {
+                            result.complete(response);
+                        } else {
+                            result.completeExceptionally(e instanceof CompletionException && e.getCause() != null
+                                    ? e.getCause() : e);
+                        }
+                    }
+                });
+            }
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,50 @@
+package cn.uestc.ew.rpc.client.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 单个方法的结果缓存的统计信息快照
+ */
+@Getter
+@AllArgsConstructor
+public class CacheStats {
+
+    /**
+     * 缓存名称，即 接口名称#方法名称
+     */
+    private final String name;
+
+    /**
+     * 命中次数，包括等待其它调用方进行中的远程调用
+     */
+    private final long hitCount;
+
+    /**
+     * 未命中（发起远程调用）次数
+     */
+    private final long missCount;
+
+    /**
+     * 因超出最大条目数被淘汰的结果个数
+     */
+    private final long evictionCount;
+
+    /**
+     * 当前缓存的条目数，包括已过期但尚未被淘汰的条目
+     */
+    private final int size;
+
+    /**
+     * 命中率，没有调用时为 0
+     */
+    public double hitRate() {
+        long total = hitCount + missCount;
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s{hit=%d, miss=%d, eviction=%d, size=%d}", name, hitCount, missCount, evictionCount, size);
+    }
+}
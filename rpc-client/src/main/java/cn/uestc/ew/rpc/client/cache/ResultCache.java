@@ -0,0 +1,153 @@
+package cn.uestc.ew.rpc.client.cache;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 单个方法的调用结果缓存，按有效时间及最大条目数淘汰
+ *
+ * <p>缓存的值是调用结果的 Future：未命中的调用方登记一个未完成的条目后发起远程调用，
+ * 同一时刻相同参数的其它调用方直接等待该条目，不会重复发起调用。调用失败时条目立即过期，
+ * 等待中的调用方收到同一个异常，之后的调用重新发起远程调用。</p>
+ *
+ * <p>条目数超出上限时按登记顺序淘汰最早的条目；过期的条目在再次访问时重新加载，不单独清理。</p>
+ */
+public class ResultCache {
+
+    private final String name;
+
+    private final long ttlNanos;
+
+    private final int maxSize;
+
+    private final Map<Object, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * 条目的登记顺序，每个键只出现一次
+     */
+    private final Queue<Object> order = new ConcurrentLinkedQueue<>();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param name    缓存名称
+     * @param ttl     结果的有效时间，单位毫秒
+     * @param maxSize 最大条目数
+     */
+    public ResultCache(String name, long ttl, int maxSize) {
+        if (ttl <= 0 || maxSize <= 0) {
+            throw new IllegalArgumentException(String.format("Illegal cache config: name=%s, ttl=%d, maxSize=%d",
+                    name, ttl, maxSize));
+        }
+        this.name = name;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttl);
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * 返回键对应的调用结果，没有有效的条目时由 {@code loader} 发起调用
+     *
+     * @param key    缓存键，需要正确实现 {@code equals} 及 {@code hashCode}
+     * @param loader 发起远程调用，返回调用结果的 Future
+     * @return 调用结果的 Future，可能由其它调用方发起的调用完成
+     */
+    public CompletableFuture<Object> get(Object key, Supplier<CompletableFuture<Object>> loader) {
+        long now = System.nanoTime();
+        Entry entry = entries.get(key);
+        if (entry != null && !entry.isExpired(now)) {
+            hits.increment();
+            return entry.future;
+        }
+
+        Entry created = new Entry();
+        boolean[] added = new boolean[1];
+        entry = entries.compute(key, (k, old) -> {
+            if (old != null && !old.isExpired(now)) {
+                return old;
+            }
+            added[0] = old == null;
+            return created;
+        });
+        if (entry != created) {
+            hits.increment();
+            return entry.future;
+        }
+        misses.increment();
+        if (added[0]) {
+            order.add(key);
+            evict();
+        }
+
+        CompletableFuture<Object> loaded;
+        try {
+            loaded = loader.get();
+        } catch (RuntimeException e) {
+            loaded = CompletableFuture.failedFuture(e);
+        }
+        loaded.whenComplete((result, e) -> {
+            if (e != null) {
+                created.expireAt = System.nanoTime();
+                created.loaded = true;
+                created.future.completeExceptionally(e);
+            } else {
+                created.expireAt = System.nanoTime() + ttlNanos;
+                created.loaded = true;
+                created.future.complete(result);
+            }
+        });
+        return created.future;
+    }
+
+    /**
+     * 返回缓存的统计信息快照
+     */
+    public CacheStats stats() {
+        return new CacheStats(name, hits.sum(), misses.sum(), evictions.sum(), entries.size());
+    }
+
+    /**
+     * 清空缓存，进行中的调用不受影响
+     */
+    public void clear() {
+        entries.clear();
+        order.clear();
+    }
+
+    private void evict() {
+        while (entries.size() > maxSize) {
+            Object key = order.poll();
+            if (key == null) {
+                return;
+            }
+            if (entries.remove(key) != null) {
+                evictions.increment();
+            }
+        }
+    }
+
+    private static final class Entry {
+
+        private final CompletableFuture<Object> future = new CompletableFuture<>();
+
+        /**
+         * 调用是否已结束，结束前条目不会过期
+         */
+        private volatile boolean loaded;
+
+        private volatile long expireAt;
+
+        boolean isExpired(long now) {
+            return loaded && now - expireAt >= 0;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package cn.uestc.ew.rpc.client.hedge;
+
+import cn.uestc.ew.rpc.common.metrics.LatencyHistogram;
+import lombok.Getter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单个方法的对冲请求策略，决定何时发出对冲请求以及是否还有预算
+ *
+ * <p>等待时间取最近调用耗时的分位数：耗时记录在两个轮换的 {@link LatencyHistogram} 中，每个窗口
+ * {@link #WINDOW_NANOS}，分位数由上一个完整窗口计算，上一个窗口的样本不足 {@link #MIN_SAMPLES} 时
+ * 使用固定的等待时间。分位数在窗口轮换时计算一次，热路径上只读取一个 volatile 字段。</p>
+ *
+ * <p>预算以令牌桶实现：每次调用存入 {@code budget} 个令牌，每个对冲请求取出一个令牌，令牌数不超过
+ * {@link #MAX_TOKENS}，因此对冲请求数长期不超过调用数的 {@code budget} 倍，并允许少量突发。</p>
+ */
+public class HedgingPolicy {
+
+    /**
+     * 耗时统计的窗口长度
+     */
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    /**
+     * 以分位数作为等待时间所需的最少样本数
+     */
+    private static final long MIN_SAMPLES = 100;
+
+    /**
+     * 令牌以千分之一为单位计数
+     */
+    private static final long TOKEN = 1000;
+
+    /**
+     * 令牌桶的容量
+     */
+    private static final long MAX_TOKENS = 10 * TOKEN;
+
+    private final double percentile;
+
+    private final long fallbackDelayNanos;
+
+    /**
+     * 一次调用最多发出的请求数，包括原请求
+     */
+    @Getter
+    private final int maxAttempts;
+
+    /**
+     * 每次调用存入的令牌数
+     */
+    private final long deposit;
+
+    private final AtomicLong tokens = new AtomicLong();
+
+    private volatile LatencyHistogram current = new LatencyHistogram();
+
+    private volatile long windowStart = System.nanoTime();
+
+    private volatile long delayNanos;
+
+    /**
+     * @param percentile  发出对冲请求前等待的耗时分位数
+     * @param delay       耗时样本不足时的等待时间，单位毫秒
+     * @param maxAttempts 一次调用最多发出的请求数，包括原请求
+     * @param budget      对冲请求数占调用数的最大比例
+     */
+    public HedgingPolicy(double percentile, long delay, int maxAttempts, double budget) {
+        if (percentile <= 0 || percentile > 100 || delay < 0 || maxAttempts < 1 || budget < 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Illegal hedging config: percentile=%s, delay=%d, maxAttempts=%d, budget=%s",
+                    percentile, delay, maxAttempts, budget));
+        }
+        this.percentile = percentile;
+        this.fallbackDelayNanos = TimeUnit.MILLISECONDS.toNanos(delay);
+        this.maxAttempts = maxAttempts;
+        this.deposit = Math.round(budget * TOKEN);
+        this.delayNanos = fallbackDelayNanos;
+    }
+
+    /**
+     * 一次调用开始，存入令牌
+     */
+    public void onCall() {
+        long t;
+        do {
+            t = tokens.get();
+            if (t >= MAX_TOKENS) return;
+        } while (!tokens.compareAndSet(t, Math.min(MAX_TOKENS, t + deposit)));
+    }
+
+    /**
+     * 尝试为一个对冲请求取出令牌
+     *
+     * @return 预算未用尽时返回 {@code true}
+     */
+    public boolean tryAcquire() {
+        long t;
+        do {
+            t = tokens.get();
+            if (t < TOKEN) return false;
+        } while (!tokens.compareAndSet(t, t - TOKEN));
+        return true;
+    }
+
+    /**
+     * 发出对冲请求前的等待时间，单位纳秒
+     */
+    public long delayNanos() {
+        return delayNanos;
+    }
+
+    /**
+     * 记录一次调用中原请求的耗时，窗口结束时轮换并重新计算等待时间
+     *
+     * @param nanos 原请求从发出到收到响应的耗时，原请求被取消时为取消前已等待的时间
+     */
+    public void record(long nanos) {
+        long now = System.nanoTime();
+        if (now - windowStart >= WINDOW_NANOS) {
+            rotate(now);
+        }
+        current.record(nanos);
+    }
+
+    private synchronized void rotate(long now) {
+        if (now - windowStart < WINDOW_NANOS) return;
+        LatencyHistogram previous = current;
+        current = new LatencyHistogram();
+        windowStart = now;
+        delayNanos = previous.getCount() >= MIN_SAMPLES ? previous.percentile(percentile) : fallbackDelayNanos;
+    }
+}
@@ -0,0 +1,116 @@
+package cn.uestc.ew.rpc.client.impl;
+
+import cn.uestc.ew.rpc.client.RpcClient;
+import cn.uestc.ew.rpc.client.multiplex.MultiplexConnectionManager;
+import cn.uestc.ew.rpc.common.bean.RpcBatchRequest;
+import cn.uestc.ew.rpc.common.bean.RpcBatchResponse;
+import cn.uestc.ew.rpc.common.bean.RpcRequest;
+import cn.uestc.ew.rpc.common.bean.RpcResponse;
+import cn.uestc.ew.rpc.common.config.RpcConfig;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * RPC 客户端，基于多路复用长连接实现，同一服务地址的所有调用共享一个连接，
+ * 请求与响应通过 requestId 关联
+ */
+public class MultiplexRpcClient implements RpcClient {
+
+    /**
+     * 远程服务地址
+     */
+    private final String host;
+
+    /**
+     * 远程服务端口
+     */
+    private final int port;
+
+    /**
+     * RPC 配置文件
+     */
+    private RpcConfig config;
+
+    /**
+     * 多路复用连接管理器
+     */
+    private final MultiplexConnectionManager connectionManager;
+
+    @Override
+    public void setRpcConfig(RpcConfig config) {
+        this.config = config;
+    }
+
+    public MultiplexRpcClient(String host, int port, RpcConfig config, MultiplexConnectionManager connectionManager) {
+        this.host = host;
+        this.port = port;
+        this.config = config;
+        this.connectionManager = connectionManager;
+    }
+
+    /**
+     * 向远程服务发起请求，并阻塞等待对应的响应
+     *
+     * @param request RPC 请求体
+     * @return RPC 响应体
+     * @throws SocketTimeoutException 超出请求携带的超时时间（{@link RpcRequest#getTimeout()}）未收到响应
+     */
+    @Override
+    public RpcResponse send(RpcRequest request) throws Exception {
+        try {
+            return sendAsync(request).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 异步发起请求，Future 由连接的 I/O 读线程完成，调用线程不会被阻塞
+     */
+    @Override
+    public CompletableFuture<RpcResponse> sendAsync(RpcRequest request) {
+        try {
+            return translateTimeout(connectionManager.get(host, port).send(request, request.getTimeout()));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * 异步发送批量请求，与单个请求共享同一个多路复用连接
+     */
+    @Override
+    public CompletableFuture<RpcBatchResponse> sendBatchAsync(RpcBatchRequest batch) {
+        try {
+            return translateTimeout(connectionManager.get(host, port).sendBatch(batch, config.getTimeout()));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * 将等待响应超时的 {@link TimeoutException} 转换为 {@link SocketTimeoutException}，与阻塞传输方式保持一致，
+     * 取消返回的 Future 时同时取消原 Future
+     */
+    private <T> CompletableFuture<T> translateTimeout(CompletableFuture<T> future) {
+        CompletableFuture<T> result = future.exceptionallyCompose(e -> {
+            Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+            if (cause instanceof TimeoutException) {
+                cause = new SocketTimeoutException(String.format("Wait response timeout: %s:%d", host, port));
+            }
+            return CompletableFuture.failedFuture(cause);
+        });
+        result.whenComplete((r, e) -> {
+            if (result.isCancelled()) future.cancel(false);
+        });
+        return result;
+    }
+}
@@ -1,21 +1,29 @@
 package cn.uestc.ew.rpc.client.impl;
 
 import cn.uestc.ew.rpc.client.RpcClient;
+import cn.uestc.ew.rpc.client.pool.KeyedConnectionPool;
+import cn.uestc.ew.rpc.client.pool.SocketConnection;
+import cn.uestc.ew.rpc.common.bean.MethodTable;
+import cn.uestc.ew.rpc.common.bean.RpcBatchRequest;
+import cn.uestc.ew.rpc.common.bean.RpcBatchResponse;
+import cn.uestc.ew.rpc.common.bean.RpcFrame;
 import cn.uestc.ew.rpc.common.bean.RpcRequest;
 import cn.uestc.ew.rpc.common.bean.RpcResponse;
 import cn.uestc.ew.rpc.common.config.RpcConfig;
-import cn.uestc.ew.rpc.common.util.SerializationUtils;
-import cn.uestc.ew.rpc.common.util.codec.RpcEncoder;
+import cn.uestc.ew.rpc.common.jfr.NetworkEvent;
+import cn.uestc.ew.rpc.common.util.codec.FrameBuffer;
+import cn.uestc.ew.rpc.common.util.codec.FrameCodec;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.net.Socket;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
 
 /**
  * RPC 客户端，用于 RPC 服务代理发起远程调用时，处理相关的网络调用逻辑，
- * 基于 Socket BIO 实现
+ * 基于 Socket BIO 实现，连接从 {@link KeyedConnectionPool} 中借出并在调用结束后归还
  */
 @Slf4j
 public class SocketRpcClient implements RpcClient {
@@ -35,15 +43,28 @@ public class SocketRpcClient implements RpcClient {
      */
     private RpcConfig config;
 
+    /**
+     * 连接池
+     */
+    private final KeyedConnectionPool connectionPool;
+
+    /**
+     * 异步调用时执行阻塞发送的线程池
+     */
+    private final Executor asyncExecutor;
+
     @Override
     public void setRpcConfig(RpcConfig config) {
         this.config = config;
     }
 
-    public SocketRpcClient(String host, int port, RpcConfig config) {
+    public SocketRpcClient(String host, int port, RpcConfig config,
+                           KeyedConnectionPool connectionPool, Executor asyncExecutor) {
         this.host = host;
         this.port = port;
         this.config = config;
+        this.connectionPool = connectionPool;
+        this.asyncExecutor = asyncExecutor;
     }
 
     /**
@@ -53,21 +74,95 @@ public class SocketRpcClient implements RpcClient {
      * @return RPC 响应体
      */
     public RpcResponse send(RpcRequest request) throws IOException {
-        byte[] requestBytes = SerializationUtils.serialize(request);
-        try (Socket socket  = new Socket(host, port);
-             OutputStream out = socket.getOutputStream();
-             InputStream in = socket.getInputStream()) {
-
-            // 1. 封装请求参数（4B + RpcRequest）
-            socket.setSoTimeout(config.getTimeout());
-            out.write(RpcEncoder.toBytes(requestBytes.length));
-            out.write(requestBytes);
-            socket.getOutputStream().flush();
-
-            // 2. 接收服务端响应
-            byte[] respBytes = in.readAllBytes();   // 阻塞
-            socket.getInputStream().close();
-            return SerializationUtils.deserialize(respBytes, RpcResponse.class);
+        // 服务端提供该方法时只携带方法编号
+        return FrameCodec.decodeResponse(
+                exchange(request, request.getTimeout(),
+                        methodTable -> FrameCodec.encodeRequest(request, methodTable)), request);
+    }
+
+    /**
+     * 异步发起请求，由于连接是阻塞的，发送及等待响应的过程在 {@code asyncExecutor} 中执行
+     */
+    @Override
+    public CompletableFuture<RpcResponse> sendAsync(RpcRequest request) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return send(request);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, asyncExecutor);
+    }
+
+    /**
+     * 异步发送批量请求，与 {@link #sendAsync(RpcRequest)} 相同，在 {@code asyncExecutor} 中阻塞等待批量响应
+     */
+    @Override
+    public CompletableFuture<RpcBatchResponse> sendBatchAsync(RpcBatchRequest batch) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return FrameCodec.decodeBatchResponse(
+                        exchange(null, config.getTimeout(),
+                                methodTable -> FrameCodec.encodeBatchRequest(batch, methodTable)));
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, asyncExecutor);
+    }
+
+    /**
+     * 从连接池借出连接，写出一个请求帧并阻塞读取对应的响应帧，写出及读取时记录 {@link NetworkEvent}
+     *
+     * @param request 请求帧对应的 RPC 请求，用于记录事件，批量请求时为 {@code null}，不记录事件
+     * @param timeout 等待响应的时间，单位毫秒，0 表示一直等待
+     * @param encoder 根据连接握手时获取的方法表编码请求帧
+     * @return 响应帧
+     */
+    private RpcFrame exchange(RpcRequest request, int timeout, Function<MethodTable, FrameBuffer> encoder)
+            throws IOException {
+        SocketConnection connection = connectionPool.borrow(host, port);
+        boolean broken = true;
+        try {
+            // 1. 封装请求帧
+            FrameBuffer frame = encoder.apply(connection.getMethodTable());
+            NetworkEvent write = new NetworkEvent();
+            write.begin();
+            try {
+                connection.write(frame);
+            } finally {
+                commit(write, request, NetworkEvent.WRITE, frame.size());
+                frame.release();
+            }
+
+            // 2. 接收服务端响应帧
+            NetworkEvent read = new NetworkEvent();
+            read.begin();
+            RpcFrame response = null;
+            try {
+                response = connection.read(timeout);   // 阻塞
+            } finally {
+                commit(read, request, NetworkEvent.READ,
+                        response != null ? RpcFrame.HEADER_LENGTH + response.getBody().length : 0);
+            }
+            broken = false;
+            return response;
+        } finally {
+            // 超时或出错的连接上可能还有未读完的响应，不能再复用
+            connectionPool.release(host, port, connection, broken);
+        }
+    }
+
+    /**
+     * 结束并提交网络事件，事件未开启或没有对应的 RPC 请求时不提交
+     */
+    private void commit(NetworkEvent event, RpcRequest request, String operation, int bytes) {
+        event.end();
+        if (request != null && event.shouldCommit()) {
+            event.setTarget(request);
+            event.setOperation(operation);
+            event.setAddress(host + ":" + port);
+            event.setBytes(bytes);
+            event.commit();
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,25 @@
+package cn.uestc.ew.rpc.client.loadbalance;
+
+import cn.uestc.ew.rpc.common.bean.RpcRequest;
+import cn.uestc.ew.rpc.registry.ServiceInstance;
+
+import java.util.List;
+
+/**
+ * 负载均衡策略基类，只有一个提供者时直接返回，不再执行具体的选择逻辑
+ */
+public abstract class AbstractLoadBalancer implements LoadBalancer {
+
+    @Override
+    public ServiceInstance select(String serviceName, List<ServiceInstance> instances, RpcRequest request) {
+        if (instances.size() == 1) return instances.get(0);
+        return doSelect(serviceName, instances, request);
+    }
+
+    /**
+     * 从多个提供者中选择一个
+     *
+     * @see LoadBalancer#select(String, List, RpcRequest)
+     */
+    protected abstract ServiceInstance doSelect(String serviceName, List<ServiceInstance> instances, RpcRequest request);
+}
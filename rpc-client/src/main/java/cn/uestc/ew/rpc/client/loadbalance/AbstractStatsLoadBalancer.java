@@ -0,0 +1,68 @@
+package cn.uestc.ew.rpc.client.loadbalance;
+
+import cn.uestc.ew.rpc.registry.ServiceInstance;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于客户端观测统计的负载均衡策略基类，按服务地址（host:port）记录 {@link InstanceStats}
+ *
+ * <p>没有收到响应的调用（超时、连接失败）按失败惩罚延迟记录，而不是实际耗时：快速失败的提供者
+ * （如拒绝连接）实际耗时很短，按耗时记录反而会使其显得更快而吸引更多请求。</p>
+ */
+public abstract class AbstractStatsLoadBalancer extends AbstractLoadBalancer {
+
+    /**
+     * 默认的失败惩罚延迟，单位毫秒，与默认的请求超时时间相同
+     */
+    public static final long DEFAULT_FAILURE_PENALTY = 5000;
+
+    /**
+     * 服务地址与观测统计的映射，同一地址上的多个服务共享统计
+     */
+    private final Map<String, InstanceStats> stats = new ConcurrentHashMap<>();
+
+    /**
+     * 失败调用记录的延迟，单位纳秒
+     */
+    private final long failurePenaltyNanos;
+
+    protected AbstractStatsLoadBalancer() {
+        this(DEFAULT_FAILURE_PENALTY);
+    }
+
+    /**
+     * @param failurePenalty 失败调用记录的延迟，单位毫秒，通常取请求的超时时间；实际耗时更长时记录实际耗时
+     */
+    protected AbstractStatsLoadBalancer(long failurePenalty) {
+        if (failurePenalty < 0) {
+            throw new IllegalArgumentException(String.format("Illegal failure penalty: %d", failurePenalty));
+        }
+        this.failurePenaltyNanos = TimeUnit.MILLISECONDS.toNanos(failurePenalty);
+    }
+
+    @Override
+    public void onSend(ServiceInstance instance) {
+        stats(instance).begin();
+    }
+
+    @Override
+    public void onReceive(ServiceInstance instance, long elapsedNanos, boolean success) {
+        stats(instance).end(success ? elapsedNanos : Math.max(elapsedNanos, failurePenaltyNanos));
+    }
+
+    @Override
+    public void onCancel(ServiceInstance instance) {
+        stats(instance).cancel();
+    }
+
+    protected InstanceStats stats(ServiceInstance instance) {
+        InstanceStats instanceStats = stats.get(instance.getAddress());
+        if (instanceStats == null) {
+            instanceStats = stats.computeIfAbsent(instance.getAddress(), key -> new InstanceStats());
+        }
+        return instanceStats;
+    }
+}
@@ -0,0 +1,255 @@
+package cn.uestc.ew.rpc.client.loadbalance;
+
+import cn.uestc.ew.rpc.common.bean.RpcRequest;
+import cn.uestc.ew.rpc.registry.ServiceInstance;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按服务地址（host:port）熔断的负载均衡策略，包装其它负载均衡策略，使其跳过被摘除的服务提供者
+ *
+ * <p>每个服务地址对应一个熔断器：连续失败（没有收到响应，或耗时超过慢调用阈值）达到阈值后熔断，在摘除时间内不再被选中；
+ * 摘除时间到期后进入半开状态，下一次选择直接选中该地址作为探测请求，探测成功则恢复，失败则再次熔断并加倍摘除时间，
+ * 直到最大摘除时间。探测请求在摘除时间内没有结果时允许再次探测。所有提供者都被摘除时不再跳过，仍从全部提供者中选择。</p>
+ *
+ * <p>没有熔断的地址时直接交给被包装的策略；否则按服务缓存过滤后的提供者列表，熔断状态或提供者变化时才重新过滤，
+ * 因此被包装的策略在熔断状态不变时仍然得到同一个列表对象。</p>
+ */
+@Slf4j
+public class CircuitBreakingLoadBalancer implements LoadBalancer {
+
+    private static final int CLOSED = 0;
+
+    private static final int OPEN = 1;
+
+    private static final int HALF_OPEN = 2;
+
+    private final LoadBalancer delegate;
+
+    /**
+     * 熔断所需的连续失败次数
+     */
+    private final int failureThreshold;
+
+    /**
+     * 慢调用阈值，耗时不低于该值的调用视为失败，0 表示不统计慢调用
+     */
+    private final long slowCallNanos;
+
+    private final long openNanos;
+
+    private final long maxOpenNanos;
+
+    /**
+     * 服务地址与熔断器的映射，同一地址上的多个服务共享熔断器
+     */
+    private final Map<String, Breaker> breakers = new ConcurrentHashMap<>();
+
+    /**
+     * 服务名称与过滤后的提供者列表的映射
+     */
+    private final Map<String, Filtered> filtered = new ConcurrentHashMap<>();
+
+    /**
+     * 未处于关闭状态的熔断器数量，为 0 时不需要过滤
+     */
+    private final AtomicInteger unhealthy = new AtomicInteger();
+
+    /**
+     * 熔断状态的版本号，任一熔断器状态变化时递增，使缓存的过滤结果失效
+     */
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * @param delegate         被包装的负载均衡策略
+     * @param failureThreshold 熔断所需的连续失败次数
+     * @param slowCallTime     慢调用阈值，单位毫秒，0 表示不统计慢调用
+     * @param openTime         首次熔断的摘除时间，单位毫秒
+     * @param maxOpenTime      最大摘除时间，单位毫秒
+     */
+    public CircuitBreakingLoadBalancer(LoadBalancer delegate, int failureThreshold, long slowCallTime,
+                                       long openTime, long maxOpenTime) {
+        if (failureThreshold <= 0 || slowCallTime < 0 || openTime <= 0 || maxOpenTime < openTime) {
+            throw new IllegalArgumentException(String.format(
+                    "Illegal circuit breaker config: failures=%d, slowCallTime=%d, openTime=%d, maxOpenTime=%d",
+                    failureThreshold, slowCallTime, openTime, maxOpenTime));
+        }
+        this.delegate = delegate;
+        this.failureThreshold = failureThreshold;
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(slowCallTime);
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openTime);
+        this.maxOpenNanos = TimeUnit.MILLISECONDS.toNanos(maxOpenTime);
+    }
+
+    @Override
+    public ServiceInstance select(String serviceName, List<ServiceInstance> instances, RpcRequest request) {
+        if (unhealthy.get() == 0) {
+            return delegate.select(serviceName, instances, request);
+        }
+        long now = System.nanoTime();
+        Filtered entry = filtered.get(serviceName);
+        if (entry == null || entry.source != instances || entry.version != version.get() || now - entry.nextProbe >= 0) {
+            // 先读取版本号再过滤，过滤期间的状态变化会使本次缓存的结果在下一次选择时失效
+            long current = version.get();
+            List<ServiceInstance> available = new ArrayList<>(instances.size());
+            long nextProbe = Long.MAX_VALUE;
+            for (ServiceInstance instance : instances) {
+                Breaker breaker = breakers.get(instance.getAddress());
+                if (breaker == null || breaker.state == CLOSED) {
+                    available.add(instance);
+                } else if (breaker.tryProbe(now)) {
+                    return instance;
+                } else {
+                    nextProbe = Math.min(nextProbe, breaker.deadline);
+                }
+            }
+            List<ServiceInstance> list = available.size() == instances.size() || available.isEmpty()
+                    ? instances : Collections.unmodifiableList(available);
+            entry = new Filtered(instances, current, nextProbe == Long.MAX_VALUE ? now + maxOpenNanos : nextProbe, list);
+            filtered.put(serviceName, entry);
+        }
+        return entry.available.size() == 1 ? entry.available.get(0)
+                : delegate.select(serviceName, entry.available, request);
+    }
+
+    @Override
+    public void onSend(ServiceInstance instance) {
+        delegate.onSend(instance);
+    }
+
+    @Override
+    public void onReceive(ServiceInstance instance, long elapsedNanos, boolean success) {
+        delegate.onReceive(instance, elapsedNanos, success);
+        Breaker breaker = breakers.get(instance.getAddress());
+        if (breaker == null) {
+            breaker = breakers.computeIfAbsent(instance.getAddress(), Breaker::new);
+        }
+        if (success && (slowCallNanos == 0 || elapsedNanos < slowCallNanos)) {
+            breaker.onSuccess();
+        } else {
+            breaker.onFailure();
+        }
+    }
+
+    /**
+     * 被取消的请求不影响熔断状态，被取消的探测请求在摘除时间后允许再次探测
+     */
+    @Override
+    public void onCancel(ServiceInstance instance) {
+        delegate.onCancel(instance);
+    }
+
+    /**
+     * 返回当前被摘除（熔断或半开）的服务地址
+     */
+    public List<String> unhealthyAddresses() {
+        List<String> addresses = new ArrayList<>();
+        breakers.forEach((address, breaker) -> {
+            if (breaker.state != CLOSED) addresses.add(address);
+        });
+        return addresses;
+    }
+
+    /**
+     * 单个服务地址的熔断器。状态只在失败达到阈值、摘除到期及探测结束时变化，变化时加锁，正常调用只读写计数器
+     */
+    private class Breaker {
+
+        private final String address;
+
+        private final AtomicInteger failures = new AtomicInteger();
+
+        private volatile int state = CLOSED;
+
+        /**
+         * 熔断状态下摘除结束的时间，半开状态下探测请求超时的时间
+         */
+        private volatile long deadline;
+
+        /**
+         * 连续熔断的次数，决定下一次的摘除时间
+         */
+        private int openCount;
+
+        Breaker(String address) {
+            this.address = address;
+        }
+
+        void onSuccess() {
+            if (failures.get() != 0) failures.set(0);
+            if (state != CLOSED) close();
+        }
+
+        void onFailure() {
+            int s = state;
+            if (s == HALF_OPEN || s == CLOSED && failures.incrementAndGet() >= failureThreshold) {
+                open();
+            }
+        }
+
+        /**
+         * 摘除到期或探测超时时，由当前调用方发起探测请求
+         */
+        synchronized boolean tryProbe(long now) {
+            if (state == CLOSED || now - deadline < 0) return false;
+            state = HALF_OPEN;
+            deadline = now + openNanos;
+            version.incrementAndGet();
+            log.info("Probe service provider: address={}", address);
+            return true;
+        }
+
+        private synchronized void open() {
+            if (state == OPEN) return;
+            if (state == CLOSED) unhealthy.incrementAndGet();
+            long time = Math.min(maxOpenNanos, openNanos << Math.min(openCount, 20));
+            openCount++;
+            deadline = System.nanoTime() + time;
+            state = OPEN;
+            failures.set(0);
+            version.incrementAndGet();
+            log.warn("Eject service provider: address={}, time={} ms", address, TimeUnit.NANOSECONDS.toMillis(time));
+        }
+
+        private synchronized void close() {
+            if (state == CLOSED) return;
+            state = CLOSED;
+            openCount = 0;
+            unhealthy.decrementAndGet();
+            version.incrementAndGet();
+            log.info("Recover service provider: address={}", address);
+        }
+    }
+
+    /**
+     * 缓存的过滤结果
+     */
+    private static class Filtered {
+
+        private final List<ServiceInstance> source;
+
+        private final long version;
+
+        /**
+         * 最早的探测时间，到达后需要重新过滤
+         */
+        private final long nextProbe;
+
+        private final List<ServiceInstance> available;
+
+        Filtered(List<ServiceInstance> source, long version, long nextProbe, List<ServiceInstance> available) {
+            this.source = source;
+            this.version = version;
+            this.nextProbe = nextProbe;
+            this.available = available;
+        }
+    }
+}
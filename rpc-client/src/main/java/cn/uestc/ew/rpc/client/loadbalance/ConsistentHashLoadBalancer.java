@@ -0,0 +1,129 @@
+package cn.uestc.ew.rpc.client.loadbalance;
+
+import cn.uestc.ew.rpc.common.bean.RpcRequest;
+import cn.uestc.ew.rpc.registry.ServiceInstance;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 一致性哈希负载均衡（Ketama），以指定下标的参数作为哈希键，相同参数的调用总是发往同一个提供者，
+ * 提高提供者本地缓存的命中率。提供者增减时只有哈希环上相邻区间的调用会改变路由。
+ *
+ * <p>每个提供者在哈希环上有 {@link #VIRTUAL_NODES} 个虚拟节点，哈希环在提供者列表变化时重建，
+ * 以有序数组保存，查找时二分搜索。</p>
+ */
+public class ConsistentHashLoadBalancer extends AbstractLoadBalancer {
+
+    /**
+     * 每个提供者的虚拟节点数
+     */
+    public static final int VIRTUAL_NODES = 160;
+
+    private static final ThreadLocal<MessageDigest> MD5 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    /**
+     * 参与哈希的参数下标，方法没有该参数时以方法名称作为哈希键
+     */
+    private final int argumentIndex;
+
+    /**
+     * 服务名称与其哈希环的映射
+     */
+    private final Map<String, HashRing> rings = new ConcurrentHashMap<>();
+
+    public ConsistentHashLoadBalancer(int argumentIndex) {
+        this.argumentIndex = argumentIndex;
+    }
+
+    @Override
+    protected ServiceInstance doSelect(String serviceName, List<ServiceInstance> instances, RpcRequest request) {
+        HashRing ring = rings.get(serviceName);
+        if (ring == null || ring.instances != instances) {
+            ring = new HashRing(instances);
+            rings.put(serviceName, ring);
+        }
+        Object[] parameters = request.getParameters();
+        String key = parameters != null && argumentIndex < parameters.length
+                ? String.valueOf(parameters[argumentIndex]) : request.getMethodName();
+        return ring.select(hash(md5(key), 0));
+    }
+
+    private static byte[] md5(String key) {
+        MessageDigest md5 = MD5.get();
+        md5.reset();
+        return md5.digest(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 取摘要中第 {@code index} 组 4 个字节作为 32 位无符号哈希值
+     */
+    private static long hash(byte[] digest, int index) {
+        return ((long) (digest[3 + index * 4] & 0xFF) << 24)
+                | ((long) (digest[2 + index * 4] & 0xFF) << 16)
+                | ((long) (digest[1 + index * 4] & 0xFF) << 8)
+                | (digest[index * 4] & 0xFF);
+    }
+
+    /**
+     * 哈希环，与创建时的提供者列表绑定，创建后不可修改
+     */
+    private static class HashRing {
+
+        private final List<ServiceInstance> instances;
+
+        /**
+         * 有序的虚拟节点哈希值
+         */
+        private final long[] hashes;
+
+        /**
+         * 与 {@code hashes} 一一对应的提供者
+         */
+        private final ServiceInstance[] nodes;
+
+        HashRing(List<ServiceInstance> instances) {
+            this.instances = instances;
+            int size = instances.size() * VIRTUAL_NODES;
+            long[][] entries = new long[size][];
+            int n = 0;
+            for (int i = 0; i < instances.size(); i++) {
+                String address = instances.get(i).getAddress();
+                // 每个 MD5 摘要可以生成 4 个虚拟节点
+                for (int j = 0; j < VIRTUAL_NODES / 4; j++) {
+                    byte[] digest = md5(address + "#" + j);
+                    for (int k = 0; k < 4; k++) {
+                        entries[n++] = new long[]{hash(digest, k), i};
+                    }
+                }
+            }
+            Arrays.sort(entries, (x, y) -> Long.compare(x[0], y[0]));
+            this.hashes = new long[size];
+            this.nodes = new ServiceInstance[size];
+            for (int i = 0; i < size; i++) {
+                hashes[i] = entries[i][0];
+                nodes[i] = instances.get((int) entries[i][1]);
+            }
+        }
+
+        /**
+         * 顺时针查找第一个哈希值不小于 {@code hash} 的虚拟节点
+         */
+        ServiceInstance select(long hash) {
+            int index = Arrays.binarySearch(hashes, hash);
+            if (index < 0) index = -index - 1;
+            return nodes[index == hashes.length ? 0 : index];
+        }
+    }
+}
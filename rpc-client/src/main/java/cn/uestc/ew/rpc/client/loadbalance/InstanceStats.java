@@ -0,0 +1,65 @@
+package cn.uestc.ew.rpc.client.loadbalance;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 客户端对单个服务提供者的观测统计：进行中的请求数及按时间衰减的峰值平均延迟（Peak EWMA）。
+ *
+ * <p>采样值高于当前平均值时直接取采样值，使变慢的提供者立即体现出来；否则按距上次采样的时间衰减地合并。
+ * 读取时同样按距上次采样的时间衰减，长时间没有被选中的提供者延迟估计逐渐回落，从而重新获得试探的机会。</p>
+ */
+public class InstanceStats {
+
+    /**
+     * 平均延迟的衰减时间常数，单位纳秒。距上次采样越久，旧的平均值所占比重越小
+     */
+    private static final double DECAY_NANOS = 1_000_000_000d;
+
+    /**
+     * 进行中的请求数
+     */
+    private final AtomicInteger active = new AtomicInteger();
+
+    /**
+     * 平均延迟，单位纳秒，没有采样时为 0
+     */
+    private volatile double latency;
+
+    /**
+     * 最近一次采样的时间
+     */
+    private volatile long sampleTime = System.nanoTime();
+
+    public int getActive() {
+        return active.get();
+    }
+
+    public double getLatency() {
+        return latency * Math.exp(-(System.nanoTime() - sampleTime) / DECAY_NANOS);
+    }
+
+    void begin() {
+        active.incrementAndGet();
+    }
+
+    /**
+     * 调用被取消，只减少进行中的请求数，不采样
+     */
+    void cancel() {
+        active.decrementAndGet();
+    }
+
+    /**
+     * 记录一次调用结束。并发采样时可能丢失个别样本，对于负载均衡的估计而言可以接受，换取更新时无需加锁
+     *
+     * @param elapsedNanos 调用耗时，单位纳秒
+     */
+    void end(long elapsedNanos) {
+        active.decrementAndGet();
+        long now = System.nanoTime();
+        double weight = Math.exp(-(now - sampleTime) / DECAY_NANOS);
+        sampleTime = now;
+        double previous = latency;
+        latency = elapsedNanos >= previous ? elapsedNanos : previous * weight + elapsedNanos * (1 - weight);
+    }
+}
@@ -0,0 +1,43 @@
+package cn.uestc.ew.rpc.client.loadbalance;
+
+import cn.uestc.ew.rpc.common.bean.RpcRequest;
+import cn.uestc.ew.rpc.registry.ServiceInstance;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 最少活跃请求负载均衡，选择当前客户端上进行中请求数最少的提供者，多个提供者并列时随机选择。
+ * 处理较慢的提供者积压的请求更多，因此会自然地分到更少的新请求
+ */
+public class LeastActiveLoadBalancer extends AbstractStatsLoadBalancer {
+
+    public LeastActiveLoadBalancer() {
+    }
+
+    /**
+     * @param failurePenalty 失败调用记录的延迟，单位毫秒，见 {@link AbstractStatsLoadBalancer}
+     */
+    public LeastActiveLoadBalancer(long failurePenalty) {
+        super(failurePenalty);
+    }
+
+    @Override
+    protected ServiceInstance doSelect(String serviceName, List<ServiceInstance> instances, RpcRequest request) {
+        ServiceInstance selected = null;
+        int leastActive = Integer.MAX_VALUE;
+        int ties = 0;
+        for (ServiceInstance instance : instances) {
+            int active = stats(instance).getActive();
+            if (active < leastActive) {
+                leastActive = active;
+                selected = instance;
+                ties = 1;
+            } else if (active == leastActive && ThreadLocalRandom.current().nextInt(++ties) == 0) {
+                // 蓄水池抽样，使并列的提供者被选中的概率相同
+                selected = instance;
+            }
+        }
+        return selected;
+    }
+}
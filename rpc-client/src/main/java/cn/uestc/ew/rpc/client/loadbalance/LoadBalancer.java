@@ -0,0 +1,53 @@
+package cn.uestc.ew.rpc.client.loadbalance;
+
+import cn.uestc.ew.rpc.common.bean.RpcRequest;
+import cn.uestc.ew.rpc.registry.ServiceInstance;
+
+import java.util.List;
+
+/**
+ * 负载均衡策略，从服务的所有提供者中为一次调用选择一个。
+ *
+ * <p>内置策略见 {@link cn.uestc.ew.rpc.common.config.LoadBalanceType}，也可以实现当前接口并通过
+ * {@link cn.uestc.ew.rpc.client.RpcClientProxy#setLoadBalancer(LoadBalancer)} 使用自定义策略。
+ * 同一个实例会被所有调用线程共享，实现类必须是线程安全的。</p>
+ */
+public interface LoadBalancer {
+
+    /**
+     * 选择本次调用的服务提供者
+     *
+     * @param serviceName 服务名称（接口名称[-版本号]）
+     * @param instances   服务的所有提供者，不为空且不可修改，提供者不变时通常是同一个列表对象
+     * @param request     RPC 请求体
+     * @return 选中的服务提供者
+     */
+    ServiceInstance select(String serviceName, List<ServiceInstance> instances, RpcRequest request);
+
+    /**
+     * 向选中的服务提供者发出请求前回调，用于统计进行中的请求数等
+     *
+     * @param instance 选中的服务提供者
+     */
+    default void onSend(ServiceInstance instance) {
+    }
+
+    /**
+     * 调用结束后回调，与 {@link #onSend(ServiceInstance)} 一一对应
+     *
+     * @param instance     选中的服务提供者
+     * @param elapsedNanos 本次调用（含重试）的耗时，单位纳秒
+     * @param success      是否收到了服务端的响应，服务方法抛出的异常同样视为收到了响应
+     */
+    default void onReceive(ServiceInstance instance, long elapsedNanos, boolean success) {
+    }
+
+    /**
+     * 请求被调用方主动取消（如对冲调用中落败的请求），与 {@link #onSend(ServiceInstance)} 一一对应，
+     * 代替 {@link #onReceive(ServiceInstance, long, boolean)}，既不视为成功也不视为失败，不计入耗时
+     *
+     * @param instance 选中的服务提供者
+     */
+    default void onCancel(ServiceInstance instance) {
+    }
+}
@@ -0,0 +1,44 @@
+package cn.uestc.ew.rpc.client.loadbalance;
+
+import cn.uestc.ew.rpc.common.bean.RpcRequest;
+import cn.uestc.ew.rpc.registry.ServiceInstance;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 两次随机选择（Power of Two Choices）负载均衡
+ *
+ * <p>随机选出两个不同的提供者，比较二者的负载 "平均延迟 × (进行中请求数 + 1)"，选择负载较低的一个。
+ * 相比遍历所有提供者，只需读取两个提供者的统计；相比完全随机，能够明显避开变慢的提供者，改善尾延迟。
+ * 尚无延迟采样的提供者负载视为 0，因此新上线的提供者会优先得到请求。</p>
+ */
+public class P2cLoadBalancer extends AbstractStatsLoadBalancer {
+
+    public P2cLoadBalancer() {
+    }
+
+    /**
+     * @param failurePenalty 失败调用记录的延迟，单位毫秒，见 {@link AbstractStatsLoadBalancer}
+     */
+    public P2cLoadBalancer(long failurePenalty) {
+        super(failurePenalty);
+    }
+
+    @Override
+    protected ServiceInstance doSelect(String serviceName, List<ServiceInstance> instances, RpcRequest request) {
+        int size = instances.size();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(size);
+        int second = random.nextInt(size - 1);
+        if (second >= first) second++;
+        ServiceInstance a = instances.get(first);
+        ServiceInstance b = instances.get(second);
+        return load(a) <= load(b) ? a : b;
+    }
+
+    private double load(ServiceInstance instance) {
+        InstanceStats instanceStats = stats(instance);
+        return instanceStats.getLatency() * (instanceStats.getActive() + 1);
+    }
+}
@@ -0,0 +1,18 @@
+package cn.uestc.ew.rpc.client.loadbalance;
+
+import cn.uestc.ew.rpc.common.bean.RpcRequest;
+import cn.uestc.ew.rpc.registry.ServiceInstance;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 随机负载均衡，不考虑权重
+ */
+public class RandomLoadBalancer extends AbstractLoadBalancer {
+
+    @Override
+    protected ServiceInstance doSelect(String serviceName, List<ServiceInstance> instances, RpcRequest request) {
+        return instances.get(ThreadLocalRandom.current().nextInt(instances.size()));
+    }
+}
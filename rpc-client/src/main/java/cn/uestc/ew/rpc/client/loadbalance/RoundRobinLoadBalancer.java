@@ -0,0 +1,26 @@
+package cn.uestc.ew.rpc.client.loadbalance;
+
+import cn.uestc.ew.rpc.common.bean.RpcRequest;
+import cn.uestc.ew.rpc.registry.ServiceInstance;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 轮询负载均衡，每个服务独立计数，不考虑权重
+ */
+public class RoundRobinLoadBalancer extends AbstractLoadBalancer {
+
+    /**
+     * 服务名称与其调用计数的映射
+     */
+    private final Map<String, AtomicInteger> sequences = new ConcurrentHashMap<>();
+
+    @Override
+    protected ServiceInstance doSelect(String serviceName, List<ServiceInstance> instances, RpcRequest request) {
+        AtomicInteger sequence = sequences.computeIfAbsent(serviceName, key -> new AtomicInteger());
+        return instances.get(Math.floorMod(sequence.getAndIncrement(), instances.size()));
+    }
+}
@@ -0,0 +1,74 @@
+package cn.uestc.ew.rpc.client.loadbalance;
+
+import cn.uestc.ew.rpc.common.bean.RpcRequest;
+import cn.uestc.ew.rpc.registry.ServiceInstance;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 平滑加权轮询负载均衡（与 Nginx 的实现相同）
+ *
+ * <p>每次选择时，所有提供者的当前权重加上其配置权重，选出当前权重最大的提供者，再将其当前权重减去权重总和。
+ * 例如权重为 {5, 1, 1} 时选择顺序为 a a b a c a a，而不是 a a a a a b c，权重高的提供者不会连续承受突发流量。
+ * 权重为 0 的提供者不会被选中。提供者列表变化时重置所有当前权重。</p>
+ */
+public class WeightedRoundRobinLoadBalancer extends AbstractLoadBalancer {
+
+    /**
+     * 服务名称与其轮询状态的映射
+     */
+    private final Map<String, WeightedState> states = new ConcurrentHashMap<>();
+
+    @Override
+    protected ServiceInstance doSelect(String serviceName, List<ServiceInstance> instances, RpcRequest request) {
+        WeightedState state = states.get(serviceName);
+        if (state == null || state.instances != instances) {
+            state = new WeightedState(instances);
+            states.put(serviceName, state);
+        }
+        return state.next();
+    }
+
+    /**
+     * 单个服务的轮询状态，与创建时的提供者列表绑定
+     */
+    private static class WeightedState {
+
+        private final List<ServiceInstance> instances;
+
+        /**
+         * 各提供者的当前权重
+         */
+        private final int[] current;
+
+        private final int totalWeight;
+
+        WeightedState(List<ServiceInstance> instances) {
+            this.instances = instances;
+            this.current = new int[instances.size()];
+            int totalWeight = 0;
+            for (ServiceInstance instance : instances) {
+                totalWeight += instance.getWeight();
+            }
+            this.totalWeight = totalWeight;
+        }
+
+        synchronized ServiceInstance next() {
+            if (totalWeight == 0) {
+                return instances.get(ThreadLocalRandom.current().nextInt(instances.size()));
+            }
+            int best = -1;
+            for (int i = 0; i < current.length; i++) {
+                int weight = instances.get(i).getWeight();
+                if (weight == 0) continue;
+                current[i] += weight;
+                if (best < 0 || current[i] > current[best]) best = i;
+            }
+            current[best] -= totalWeight;
+            return instances.get(best);
+        }
+    }
+}
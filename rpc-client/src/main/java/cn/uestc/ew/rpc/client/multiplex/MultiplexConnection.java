@@ -0,0 +1,310 @@
+package cn.uestc.ew.rpc.client.multiplex;
+
+import cn.uestc.ew.rpc.common.bean.MethodTable;
+import cn.uestc.ew.rpc.common.bean.RpcBatchRequest;
+import cn.uestc.ew.rpc.common.bean.RpcBatchResponse;
+import cn.uestc.ew.rpc.common.bean.RpcFrame;
+import cn.uestc.ew.rpc.common.bean.RpcRequest;
+import cn.uestc.ew.rpc.common.bean.RpcResponse;
+import cn.uestc.ew.rpc.common.config.RpcConfig;
+import cn.uestc.ew.rpc.common.jfr.NetworkEvent;
+import cn.uestc.ew.rpc.common.stream.RpcStream;
+import cn.uestc.ew.rpc.common.stream.RpcStreams;
+import cn.uestc.ew.rpc.common.util.codec.CoalescingFrameWriter;
+import cn.uestc.ew.rpc.common.util.codec.FrameBuffer;
+import cn.uestc.ew.rpc.common.util.codec.FrameCodec;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 多路复用长连接，多个调用方可以同时在同一个连接上发送请求，不必等待前一个请求的响应。
+ *
+ * <p>每个连接有一个独立的 I/O 读线程，持续读取响应帧，并根据帧头中的 {@link RpcFrame#getRequestId()}
+ * 在等待表中找到对应的调用方完成其 {@link CompletableFuture}，因此服务端可以乱序返回响应。</p>
+ *
+ * <p>连接建立后先与服务端握手获取 {@link MethodTable}，后续请求只需携带方法编号。
+ * 并发调用方的请求帧由 {@link CoalescingFrameWriter} 合并写出，高并发时多个请求共用一次系统调用。</p>
+ *
+ * <p>流式调用（服务方法的返回值或参数为 {@link Flow.Publisher}）只能在多路复用连接上进行，
+ * 流中的帧由读线程交给连接的 {@link RpcStreams} 处理。</p>
+ */
+@Slf4j
+public class MultiplexConnection implements AutoCloseable {
+
+    private final String address;
+
+    private final Socket socket;
+
+    private final DataInputStream in;
+
+    /**
+     * 合并写出请求帧的写出器，多个调用方共享
+     */
+    private final CoalescingFrameWriter writer;
+
+    /**
+     * 握手时获取的服务端方法表
+     */
+    private final MethodTable methodTable;
+
+    /**
+     * 等待响应的请求表，requestId 与调用方 Future 的映射
+     */
+    private final Map<Long, CompletableFuture<RpcFrame>> pending = new ConcurrentHashMap<>();
+
+    /**
+     * 连接上进行中的流
+     */
+    private final RpcStreams streams;
+
+    private volatile boolean closed;
+
+    /**
+     * @param executor 交付流中元素的线程池
+     */
+    public MultiplexConnection(String host, int port, RpcConfig config, Executor executor) throws IOException {
+        this.address = host + ":" + port;
+        Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(host, port), config.getTimeout());
+            socket.setTcpNoDelay(true);
+            socket.setKeepAlive(true);
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            socket.setSoTimeout(config.getTimeout());
+            this.methodTable = FrameCodec.handshake(in, socket.getOutputStream());
+            socket.setSoTimeout(0);     // 握手完成后读线程一直阻塞等待响应
+        } catch (IOException | IllegalStateException e) {
+            socket.close();
+            throw e;
+        }
+        this.socket = socket;
+        this.writer = new CoalescingFrameWriter(socket.getOutputStream(),
+                config.getWriteBatchBytes(), config.getWriteBatchDelay());
+        this.streams = new RpcStreams(this::write, executor);
+        Thread reader = new Thread(this::readLoop, "rpc-multiplex-reader-" + address);
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * 发送请求，立即返回而不等待响应
+     *
+     * @param request RPC 请求体
+     * @param timeout 等待响应的超时时间，单位毫秒，超时后 Future 以 {@link java.util.concurrent.TimeoutException} 结束，0 表示一直等待
+     * @return 收到响应时完成的 Future，由 I/O 读线程完成。取消该 Future 时不再等待响应，之后到达的响应帧被丢弃
+     */
+    public CompletableFuture<RpcResponse> send(RpcRequest request, int timeout) {
+        CompletableFuture<RpcFrame> frame =
+                send(request.getRequestId(), request, () -> FrameCodec.encodeRequest(request, methodTable), timeout);
+        CompletableFuture<RpcResponse> response = frame.thenApply(f -> FrameCodec.decodeResponse(f, request));
+        response.whenComplete((r, e) -> {
+            if (response.isCancelled()) frame.cancel(false);
+        });
+        return response;
+    }
+
+    /**
+     * 发送批量请求，立即返回而不等待响应
+     *
+     * @param batch   批量 RPC 请求体
+     * @param timeout 等待响应的超时时间，单位毫秒，0 表示一直等待
+     * @return 收到批量响应时完成的 Future，由 I/O 读线程完成
+     */
+    public CompletableFuture<RpcBatchResponse> sendBatch(RpcBatchRequest batch, int timeout) {
+        return send(batch.getRequestId(), null, () -> FrameCodec.encodeBatchRequest(batch, methodTable), timeout)
+                .thenApply(FrameCodec::decodeBatchResponse);
+    }
+
+    /**
+     * 登记等待中的请求后编码并写出请求帧，响应帧由 I/O 读线程根据 requestId 交给返回的 Future
+     *
+     * @param request 请求帧对应的 RPC 请求，用于记录 {@link NetworkEvent}，批量请求时为 {@code null}，不记录事件
+     */
+    private CompletableFuture<RpcFrame> send(long requestId, RpcRequest request, Supplier<FrameBuffer> encoder,
+                                             int timeout) {
+        CompletableFuture<RpcFrame> future = new CompletableFuture<>();
+        if (closed) {
+            future.completeExceptionally(new IOException("Connection closed: " + address));
+            return future;
+        }
+        // 请求帧写出前不会收到响应帧，编码后再登记，编码失败时不会留下等待中的请求
+        FrameBuffer frame = encoder.get();
+        int bytes = frame.size();
+        pending.put(requestId, future);
+        // 超时时间为 0 表示一直等待，不设置超时
+        if (timeout > 0) future.orTimeout(timeout, TimeUnit.MILLISECONDS);
+        NetworkEvent write = new NetworkEvent();
+        write.begin();
+        try {
+            // 其它调用方正在写出时只入队，由其合并写出
+            writer.write(frame);
+        } catch (IOException e) {
+            future.completeExceptionally(e);
+            close();
+        } finally {
+            commit(write, request, NetworkEvent.WRITE, bytes);
+        }
+        // 写出后才开始等待响应，响应已经到达时回调在当前线程立即执行
+        NetworkEvent read = new NetworkEvent();
+        read.begin();
+        future.whenComplete((response, e) -> {
+            pending.remove(requestId, future);
+            commit(read, request, NetworkEvent.READ,
+                    response != null ? RpcFrame.HEADER_LENGTH + response.getBody().length : 0);
+        });
+        return future;
+    }
+
+    /**
+     * 结束并提交网络事件，事件未开启或没有对应的 RPC 请求时不提交
+     */
+    private void commit(NetworkEvent event, RpcRequest request, String operation, int bytes) {
+        event.end();
+        if (request != null && event.shouldCommit()) {
+            event.setTarget(request);
+            event.setOperation(operation);
+            event.setAddress(address);
+            event.setBytes(bytes);
+            event.commit();
+        }
+    }
+
+    /**
+     * 发起以流返回结果的调用，服务端按返回的 Publisher 的订阅者的需求逐个发送元素
+     *
+     * @param request         RPC 请求体，每次调用使用新的请求标识符
+     * @param streamParameter 以流发送的参数的下标，没有时为 -1，该参数由客户端订阅后逐个发送给服务端
+     * @param elementType     结果中元素的声明类型
+     * @return 服务端发送的流，只能被订阅一次；服务端在流开始前返回异常时，流以该异常结束
+     */
+    public <T> Flow.Publisher<T> openStream(RpcRequest request, int streamParameter, Type elementType) {
+        RpcStream stream;
+        try {
+            stream = openStream(request);
+        } catch (IOException | RuntimeException e) {
+            return RpcStreams.failed(e);
+        }
+        Flow.Publisher<T> result = stream.inbound(elementType);
+        // 以流返回结果时，服务端只在流开始前出现异常时返回响应帧
+        stream.response().whenComplete((response, e) -> stream.fail(e != null ? e
+                : response.getException() != null ? response.getException()
+                : new IllegalStateException("Unexpected response of stream request: " + request.getMethodName())));
+        start(stream, request, streamParameter);
+        stream.attached();
+        return result;
+    }
+
+    /**
+     * 发起参数中带有流、以单个值返回结果的调用，服务端返回结果时流随之结束。流式调用不设超时时间
+     *
+     * @param request         RPC 请求体
+     * @param streamParameter 以流发送的参数的下标
+     * @return 收到响应时完成的 Future
+     */
+    public CompletableFuture<RpcResponse> sendStream(RpcRequest request, int streamParameter) {
+        RpcStream stream;
+        try {
+            stream = openStream(request);
+        } catch (IOException | RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        // 收到响应前保留打开流时持有的引用，服务端先取消参数中的流时，之后到达的响应帧仍能找到该流
+        CompletableFuture<RpcResponse> response = stream.response().whenComplete((r, e) -> stream.close());
+        start(stream, request, streamParameter);
+        return response;
+    }
+
+    private RpcStream openStream(RpcRequest request) throws IOException {
+        if (closed) {
+            throw new IOException("Connection closed: " + address);
+        }
+        return streams.open(request.getRequestId(), request.getSerializer());
+    }
+
+    /**
+     * 写出流式请求帧，参数中的流以 {@code null} 占位，之后订阅该流，按服务端授予的信用逐个发送元素
+     */
+    @SuppressWarnings("unchecked")
+    private void start(RpcStream stream, RpcRequest request, int streamParameter) {
+        Flow.Publisher<Object> upstream = null;
+        if (streamParameter >= 0) {
+            Object[] parameters = request.getParameters().clone();
+            upstream = (Flow.Publisher<Object>) parameters[streamParameter];
+            parameters[streamParameter] = null;
+            request.setParameters(parameters);
+        }
+        Flow.Subscriber<Object> outbound = upstream != null ? stream.outbound() : null;
+        write(FrameCodec.encodeStreamRequest(request, methodTable));
+        if (upstream != null) {
+            upstream.subscribe(outbound);
+        }
+    }
+
+    /**
+     * 写出一帧，写出失败时关闭连接，等待中的请求及进行中的流随之以异常结束
+     */
+    private void write(FrameBuffer frame) {
+        try {
+            writer.write(frame);
+        } catch (IOException e) {
+            close();
+        }
+    }
+
+    /**
+     * 连接是否已关闭，已关闭的连接不能再发送请求
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        writer.close();
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            // Ignore
+        }
+    }
+
+    /**
+     * I/O 读线程执行逻辑，连接断开时以异常结束所有等待中的请求
+     */
+    private void readLoop() {
+        try {
+            while (!closed) {
+                RpcFrame frame = FrameCodec.read(in);
+                if (streams.receive(frame)) continue;
+                CompletableFuture<RpcFrame> future = pending.remove(frame.getRequestId());
+                if (future != null) {
+                    future.complete(frame);
+                } else {
+                    log.debug("Discard response of expired request: {}", frame.getRequestId());
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            if (!closed) log.debug("Multiplex connection broken: {}, {}", address, e.getMessage());
+        } finally {
+            close();
+            IOException cause = new IOException("Connection closed: " + address);
+            pending.values().forEach(future -> future.completeExceptionally(cause));
+            pending.clear();
+            streams.closeAll(cause);
+        }
+    }
+}
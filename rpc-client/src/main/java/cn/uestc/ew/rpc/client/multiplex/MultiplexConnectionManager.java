@@ -0,0 +1,100 @@
+package cn.uestc.ew.rpc.client.multiplex;
+
+import cn.uestc.ew.rpc.common.config.RpcConfig;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+/**
+ * 多路复用连接管理器，每个服务地址（host:port）只维护一个 {@link MultiplexConnection}，
+ * 连接断开后在下一次使用时重新建立
+ */
+public class MultiplexConnectionManager implements AutoCloseable {
+
+    /**
+     * RPC 配置文件
+     */
+    private final RpcConfig config;
+
+    /**
+     * 服务地址（host:port）与长连接的映射，值为建立中或已建立的连接
+     */
+    private final Map<String, CompletableFuture<MultiplexConnection>> connections = new ConcurrentHashMap<>();
+
+    /**
+     * 交付流中元素的线程池
+     */
+    private final Executor executor;
+
+    public MultiplexConnectionManager(RpcConfig config, Executor executor) {
+        this.config = config;
+        this.executor = executor;
+    }
+
+    /**
+     * 获取指定地址的长连接，不存在或已断开时新建
+     *
+     * <p>建立连接（包括握手）在映射之外进行：抢先登记占位 Future 的线程负责建立连接，
+     * 同一地址上的其它线程等待该 Future，其它地址的获取不受影响。建立失败时移除占位，下一次获取重新建立。</p>
+     */
+    public MultiplexConnection get(String host, int port) throws IOException {
+        String address = host + ":" + port;
+        while (true) {
+            CompletableFuture<MultiplexConnection> current = connections.get(address);
+            if (current != null && !isStale(current)) {
+                MultiplexConnection connection = await(current);
+                if (!connection.isClosed()) return connection;
+                continue;
+            }
+            CompletableFuture<MultiplexConnection> created = new CompletableFuture<>();
+            boolean registered = current == null
+                    ? connections.putIfAbsent(address, created) == null
+                    : connections.replace(address, current, created);
+            if (!registered) continue;
+            try {
+                MultiplexConnection connection = new MultiplexConnection(host, port, config, executor);
+                created.complete(connection);
+                return connection;
+            } catch (IOException | RuntimeException e) {
+                connections.remove(address, created);
+                created.completeExceptionally(e);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * 占位 Future 对应的连接是否已经建立并断开，建立中的连接不算
+     */
+    private static boolean isStale(CompletableFuture<MultiplexConnection> future) {
+        return future.isDone() && !future.isCompletedExceptionally() && future.join().isClosed();
+    }
+
+    /**
+     * 等待其它线程建立连接，建立连接本身受 {@link RpcConfig#getTimeout()} 限制，不会一直等待
+     */
+    private static MultiplexConnection await(CompletableFuture<MultiplexConnection> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for connection");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new IOException(e.getCause());
+        }
+    }
+
+    @Override
+    public void close() {
+        // 建立中的连接在建立完成后关闭
+        connections.values().forEach(future -> future.thenAccept(MultiplexConnection::close));
+        connections.clear();
+    }
+}
@@ -0,0 +1,108 @@
+package cn.uestc.ew.rpc.client.pool;
+
+import cn.uestc.ew.rpc.common.config.RpcConfig;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按服务地址（host:port）划分的连接池，每个地址对应一个 {@link SocketConnectionPool}，
+ * 并由一个后台守护线程定期回收空闲连接。
+ *
+ * <p>超过空闲时间没有借出过连接的地址（如已从服务发现中移除的服务提供者），其连接池被关闭并移除，
+ * 再次调用该地址时重新创建。</p>
+ */
+@Slf4j
+public class KeyedConnectionPool implements AutoCloseable {
+
+    /**
+     * 空闲连接回收周期，单位毫秒
+     */
+    private static final long EVICTION_INTERVAL = 5000;
+
+    /**
+     * RPC 配置文件
+     */
+    private final RpcConfig config;
+
+    /**
+     * 服务地址（host:port）与连接池的映射
+     */
+    private final Map<String, SocketConnectionPool> pools = new ConcurrentHashMap<>();
+
+    /**
+     * 空闲连接回收线程
+     */
+    private final ScheduledExecutorService evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "rpc-connection-evictor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile boolean closed;
+
+    public KeyedConnectionPool(RpcConfig config) {
+        this.config = config;
+        evictor.scheduleWithFixedDelay(this::evict, EVICTION_INTERVAL, EVICTION_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 借出指定地址的连接
+     *
+     * @see SocketConnectionPool#borrow()
+     */
+    public SocketConnection borrow(String host, int port) throws IOException {
+        while (true) {
+            if (closed) throw new IOException("Connection pool is closed");
+            SocketConnectionPool pool = getPool(host, port);
+            try {
+                return pool.borrow();
+            } catch (IOException e) {
+                // 连接池恰好因长时间未使用而被回收，改用重新创建的连接池
+                if (closed || !pool.isClosed()) throw e;
+            }
+        }
+    }
+
+    /**
+     * 归还指定地址的连接
+     *
+     * @see SocketConnectionPool#release(SocketConnection, boolean)
+     */
+    public void release(String host, int port, SocketConnection connection, boolean broken) {
+        // 有借出中的连接的连接池不会被回收，借出连接的连接池仍在映射中
+        SocketConnectionPool pool = pools.get(host + ":" + port);
+        if (pool != null) {
+            pool.release(connection, broken);
+        } else {
+            connection.close();
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        evictor.shutdownNow();
+        pools.values().forEach(SocketConnectionPool::close);
+    }
+
+    private SocketConnectionPool getPool(String host, int port) {
+        return pools.computeIfAbsent(host + ":" + port, key -> new SocketConnectionPool(host, port, config));
+    }
+
+    private void evict() {
+        pools.forEach((address, pool) -> {
+            if (pool.retireIfUnused()) {
+                pools.remove(address, pool);
+                log.debug("Remove unused connection pool: {}", address);
+            } else {
+                pool.evict();
+            }
+        });
+    }
+}
@@ -0,0 +1,137 @@
+package cn.uestc.ew.rpc.client.pool;
+
+import cn.uestc.ew.rpc.common.bean.MethodTable;
+import cn.uestc.ew.rpc.common.bean.RpcFrame;
+import cn.uestc.ew.rpc.common.util.codec.FrameBuffer;
+import cn.uestc.ew.rpc.common.util.codec.FrameCodec;
+import lombok.Getter;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+
+/**
+ * 可复用的 Socket 长连接，请求与响应都使用 {@link RpcFrame} 协议帧，
+ * 因此同一连接可以依次发送多次请求。同一时刻只允许一个线程持有并使用。
+ *
+ * <p>连接建立后立即与服务端握手，获取服务端的 {@link MethodTable}，后续请求只需携带方法编号。</p>
+ */
+public class SocketConnection implements AutoCloseable {
+
+    /**
+     * 底层 Socket
+     */
+    private final Socket socket;
+
+    private final DataInputStream in;
+
+    private final OutputStream out;
+
+    /**
+     * 握手时获取的服务端方法表
+     */
+    @Getter
+    private final MethodTable methodTable;
+
+    /**
+     * 最近一次归还到连接池的时间，用于空闲回收及借出前的健康检查
+     */
+    @Getter
+    private volatile long lastUsedTime = System.currentTimeMillis();
+
+    /**
+     * 当前设置在 Socket 上的读超时，单位毫秒，只在变化时重新设置
+     */
+    private int soTimeout;
+
+    public SocketConnection(String host, int port, int timeout) throws IOException {
+        Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(host, port), timeout);
+            socket.setTcpNoDelay(true);
+            socket.setKeepAlive(true);
+            socket.setSoTimeout(timeout);
+            this.soTimeout = timeout;
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.out = socket.getOutputStream();
+            this.methodTable = FrameCodec.handshake(in, out);
+        } catch (IOException | IllegalStateException e) {
+            socket.close();
+            throw e;
+        }
+        this.socket = socket;
+    }
+
+    /**
+     * 写出一个已编码的完整协议帧，整个帧只调用一次底层输出流的写方法
+     *
+     * @param frame 已编码的协议帧，由调用方归还
+     */
+    public void write(FrameBuffer frame) throws IOException {
+        frame.writeTo(out);
+        out.flush();
+    }
+
+    /**
+     * 阻塞读取一个完整的协议帧，超出 {@code timeout} 未读取到数据时抛出 {@link SocketTimeoutException}
+     *
+     * @param timeout 读超时，单位毫秒，0 表示一直等待
+     * @return 协议帧
+     */
+    public RpcFrame read(int timeout) throws IOException {
+        if (timeout != soTimeout) {
+            socket.setSoTimeout(timeout);
+            soTimeout = timeout;
+        }
+        return FrameCodec.read(in);
+    }
+
+    /**
+     * 标记连接被归还到连接池
+     */
+    void touch() {
+        lastUsedTime = System.currentTimeMillis();
+    }
+
+    /**
+     * 健康检查，判断连接是否仍然可用
+     *
+     * <p>除检查 Socket 自身状态外，还会以 1ms 的超时尝试读取一个字节：空闲连接上不应该有任何数据，
+     * 读到 EOF 说明对端已经关闭连接，读到数据说明连接上有残留的响应，二者都视为不可用。</p>
+     *
+     * @return 连接可用时返回 {@code true}
+     */
+    boolean isHealthy() {
+        if (socket.isClosed() || !socket.isConnected() || socket.isInputShutdown() || socket.isOutputShutdown()) {
+            return false;
+        }
+        try {
+            if (in.available() > 0) return false;
+            int timeout = socket.getSoTimeout();
+            socket.setSoTimeout(1);
+            try {
+                in.read();  // 无论读到 EOF 还是残留数据，连接都不可再复用
+                return false;
+            } catch (SocketTimeoutException e) {
+                return true;
+            } finally {
+                socket.setSoTimeout(timeout);
+            }
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            // Ignore
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package cn.uestc.ew.rpc.client.pool;
+
+import cn.uestc.ew.rpc.common.config.RpcConfig;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 单个服务地址（host:port）的连接池
+ *
+ * <p>空闲连接以后进先出的顺序借出，使最近使用过的连接保持活跃，长时间不用的连接沉到队尾，
+ * 由 {@link #evict()} 统一回收。连接数达到上限时，借用方最多等待 {@link RpcConfig#getTimeout()} 毫秒。</p>
+ *
+ * <p>锁只保护空闲队列及连接总数：建立连接、借出前的健康检查（需要阻塞读取）以及关闭连接都在锁外进行，
+ * 被取出的连接在此期间仍计入连接总数，不会被其它线程看到。</p>
+ */
+@Slf4j
+public class SocketConnectionPool {
+
+    private final String host;
+
+    private final int port;
+
+    /**
+     * RPC 配置文件，提供连接池的容量、空闲时间等参数
+     */
+    private final RpcConfig config;
+
+    /**
+     * 空闲连接，队头为最近归还的连接
+     */
+    private final Deque<SocketConnection> idle = new ArrayDeque<>();
+
+    /**
+     * 连接总数（空闲 + 借出 + 创建中）
+     */
+    private int total;
+
+    /**
+     * 最近一次借出连接的时间，用于回收不再使用的连接池，见 {@link #retireIfUnused()}
+     */
+    private long lastBorrowTime = System.currentTimeMillis();
+
+    private volatile boolean closed;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition available = lock.newCondition();
+
+    public SocketConnectionPool(String host, int port, RpcConfig config) {
+        this.host = host;
+        this.port = port;
+        this.config = config;
+    }
+
+    /**
+     * 借出一个连接，优先复用空闲连接，没有空闲连接且未达到上限时新建连接
+     *
+     * @return 可用的连接，使用完毕后必须通过 {@link #release(SocketConnection, boolean)} 归还
+     * @throws SocketTimeoutException 连接数达到上限且等待超时
+     */
+    public SocketConnection borrow() throws IOException {
+        long waitNanos = TimeUnit.MILLISECONDS.toNanos(config.getTimeout());
+        while (true) {
+            SocketConnection connection;
+            lock.lock();
+            try {
+                while (true) {
+                    if (closed) throw new IOException("Connection pool is closed");
+                    connection = idle.pollFirst();
+                    if (connection != null) break;
+                    if (total < config.getPoolMaxSize()) {
+                        total++;
+                        break;
+                    }
+                    if (waitNanos <= 0) {
+                        throw new SocketTimeoutException(String.format("Borrow connection timeout: %s:%d", host, port));
+                    }
+                    waitNanos = available.awaitNanos(waitNanos);
+                }
+                lastBorrowTime = System.currentTimeMillis();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            } finally {
+                lock.unlock();
+            }
+            // 在锁外建立连接或检查空闲连接，避免阻塞其它借用方
+            if (connection == null) return create();
+            if (validate(connection)) return connection;
+            discard(connection);
+        }
+    }
+
+    /**
+     * 归还连接
+     *
+     * @param connection 借出的连接
+     * @param broken     连接在使用过程中是否出现了异常，出现异常的连接直接关闭而不放回连接池
+     */
+    public void release(SocketConnection connection, boolean broken) {
+        if (broken) {
+            discard(connection);
+            return;
+        }
+        connection.touch();
+        lock.lock();
+        try {
+            if (!closed) {
+                idle.offerFirst(connection);
+                available.signal();
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        discard(connection);
+    }
+
+    /**
+     * 回收空闲时间超过 {@link RpcConfig#getPoolMaxIdleTime()} 的连接，并补足最小连接数
+     */
+    public void evict() {
+        long now = System.currentTimeMillis();
+        List<SocketConnection> expired = new ArrayList<>();
+        int missing;
+        lock.lock();
+        try {
+            Iterator<SocketConnection> iterator = idle.descendingIterator();
+            while (iterator.hasNext() && total > config.getPoolMinSize()) {
+                SocketConnection connection = iterator.next();
+                if (now - connection.getLastUsedTime() < config.getPoolMaxIdleTime()) break;
+                iterator.remove();
+                total--;
+                expired.add(connection);
+            }
+            missing = closed ? 0 : Math.max(0, config.getPoolMinSize() - total);
+            total += missing;
+        } finally {
+            lock.unlock();
+        }
+        expired.forEach(SocketConnection::close);
+        for (int i = 0; i < missing; i++) {
+            try {
+                release(create(), false);
+            } catch (IOException e) {
+                log.debug("Create idle connection failed: {}:{}, {}", host, port, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 超过 {@link RpcConfig#getPoolMaxIdleTime()} 没有借出过连接且没有借出中的连接时关闭连接池，
+     * 通常是服务地址已从服务发现中移除，或者不再被调用
+     *
+     * @return 连接池是否已关闭
+     */
+    boolean retireIfUnused() {
+        lock.lock();
+        try {
+            if (!closed && (total > idle.size()
+                    || System.currentTimeMillis() - lastBorrowTime < config.getPoolMaxIdleTime())) {
+                return false;
+            }
+            // 在锁内标记关闭，之后的借用方不会再取到空闲连接
+            closed = true;
+        } finally {
+            lock.unlock();
+        }
+        close();
+        return true;
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * 关闭连接池及所有空闲连接，借出中的连接在归还时关闭
+     */
+    public void close() {
+        List<SocketConnection> connections;
+        lock.lock();
+        try {
+            closed = true;
+            connections = new ArrayList<>(idle);
+            total -= connections.size();
+            idle.clear();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        connections.forEach(SocketConnection::close);
+    }
+
+    /**
+     * 新建连接，调用前必须已经占用了连接总数中的一个名额，失败时释放该名额
+     */
+    private SocketConnection create() throws IOException {
+        try {
+            SocketConnection connection = new SocketConnection(host, port, config.getTimeout());
+            log.debug("Create connection: {}:{}", host, port);
+            return connection;
+        } catch (IOException e) {
+            lock.lock();
+            try {
+                total--;
+                available.signal();
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 在锁外关闭已从空闲队列中取出（或借出）的连接，并释放其占用的名额
+     */
+    private void discard(SocketConnection connection) {
+        connection.close();
+        lock.lock();
+        try {
+            total--;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 借出前的健康检查，只对空闲时间较长的连接执行，避免每次借出都付出检查的开销
+     */
+    private boolean validate(SocketConnection connection) {
+        long validateAfterIdle = config.getPoolValidateAfterIdle();
+        if (validateAfterIdle < 0) return true;
+        if (System.currentTimeMillis() - connection.getLastUsedTime() < validateAfterIdle) return true;
+        return connection.isHealthy();
+    }
+}
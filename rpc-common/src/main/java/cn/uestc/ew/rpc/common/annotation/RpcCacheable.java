@@ -0,0 +1,30 @@
+package cn.uestc.ew.rpc.common.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 在客户端缓存方法的调用结果，标注在 API 接口的方法上，只适用于没有副作用的查询方法
+ *
+ * <p>缓存按服务名称（含版本号）、方法及参数区分，命中时直接返回缓存的结果，不再进行服务发现、序列化及网络通信；
+ * 同一时刻对同一参数的多个未命中调用只发起一次远程调用。远程调用的异常不会被缓存。
+ * 缓存的结果由多个调用方共享，调用方不应修改。</p>
+ */
+@Documented
+@Target({ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RpcCacheable {
+
+    /**
+     * 结果的有效时间，单位毫秒
+     */
+    long ttl() default 1000;
+
+    /**
+     * 缓存的最大条目数，超出时淘汰最早缓存的结果
+     */
+    int maxSize() default 1024;
+}
@@ -0,0 +1,39 @@
+package cn.uestc.ew.rpc.common.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 对方法的调用启用对冲请求，标注在 API 接口的方法上，只适用于幂等的方法
+ *
+ * <p>调用在一段时间内没有收到响应时，向另一个服务提供者发出同一请求的备份，以先收到的响应作为结果，
+ * 并取消其余未完成的请求。等待时间取该方法最近调用耗时的 {@link #percentile()} 分位数，
+ * 样本不足时使用 {@link #delay()}。对冲请求额外增加的请求数受
+ * {@link cn.uestc.ew.rpc.common.config.RpcConfig#getHedgeBudget()} 限制，预算用尽时不再发出对冲请求。</p>
+ *
+ * <p>对冲请求与原请求的 requestId 相同，每个请求只发送一次，不再超时重试；服务只有一个提供者时不发出对冲请求。
+ * 被取消的请求可能已经在服务端执行，因此方法必须是幂等的。</p>
+ */
+@Documented
+@Target({ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RpcHedged {
+
+    /**
+     * 发出对冲请求前等待的耗时分位数，如 95 表示等待时间超过最近 95% 的调用时发出对冲请求
+     */
+    double percentile() default 95;
+
+    /**
+     * 耗时样本不足时，发出对冲请求前等待的时间，单位毫秒
+     */
+    long delay() default 50;
+
+    /**
+     * 一次调用最多发出的请求数，包括原请求
+     */
+    int maxAttempts() default 2;
+}
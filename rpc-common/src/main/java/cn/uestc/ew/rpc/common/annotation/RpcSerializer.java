@@ -0,0 +1,25 @@
+package cn.uestc.ew.rpc.common.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 为单个服务指定序列化器，标注在服务接口上，优先级高于客户端配置中的 {@code serializer}
+ *
+ * <p>服务端使用与请求帧相同的序列化器，因此只需客户端标注，服务端无需额外配置。</p>
+ *
+ * @see cn.uestc.ew.rpc.common.serialize.Serializers
+ */
+@Documented
+@Target({ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RpcSerializer {
+
+    /**
+     * 序列化器名称，如 {@code protostuff}、{@code compact}、{@code json}
+     */
+    String value();
+}
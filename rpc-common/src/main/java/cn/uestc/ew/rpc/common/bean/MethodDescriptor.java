@@ -0,0 +1,41 @@
+package cn.uestc.ew.rpc.common.bean;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * 服务方法描述，是服务端方法表 {@link MethodTable} 中的一项
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class MethodDescriptor {
+
+    /**
+     * 方法编号，从 1 开始
+     */
+    private int id;
+
+    /**
+     * 服务接口名称
+     */
+    private String interfaceName;
+
+    /**
+     * 服务版本号，未指定版本时为空字符串
+     */
+    private String serviceVersion;
+
+    /**
+     * 方法名称
+     */
+    private String methodName;
+
+    /**
+     * 参数类型名称列表，即 {@link Class#getName()}
+     */
+    private String[] parameterTypeNames;
+}
@@ -0,0 +1,108 @@
+package cn.uestc.ew.rpc.common.bean;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 服务端方法表，客户端建立连接时通过握手获取，之后的请求只需携带方法编号，
+ * 而不必再传输接口名称、方法名称、版本号及参数类型
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class MethodTable {
+
+    /**
+     * 服务端提供的所有服务方法
+     */
+    private List<MethodDescriptor> methods;
+
+    /**
+     * 服务端支持的压缩算法编号，客户端只使用其中的压缩算法，见 {@link cn.uestc.ew.rpc.common.compress.Compressors}
+     */
+    private byte[] compressors;
+
+    /**
+     * 接口名称 -> 版本号 -> 方法名称 -> 同名方法列表，首次查找时构建
+     */
+    private transient volatile Map<String, Map<String, Map<String, MethodDescriptor[]>>> index;
+
+    public MethodTable(List<MethodDescriptor> methods, byte[] compressors) {
+        this.methods = methods;
+        this.compressors = compressors;
+    }
+
+    /**
+     * 服务端是否支持指定的压缩算法
+     *
+     * @param compressor 压缩算法编号
+     * @return 支持时返回 {@code true}
+     */
+    public boolean supportsCompressor(byte compressor) {
+        if (compressors == null) return false;
+        for (byte id : compressors) {
+            if (id == compressor) return true;
+        }
+        return false;
+    }
+
+    /**
+     * 查找方法编号
+     *
+     * @param interfaceName  服务接口名称
+     * @param serviceVersion 服务版本号，{@code null} 视为空字符串
+     * @param methodName     方法名称
+     * @param parameterTypes 参数类型列表
+     * @return 方法编号，服务端不提供该方法时返回 0
+     */
+    public int lookup(String interfaceName, String serviceVersion, String methodName, Class<?>[] parameterTypes) {
+        Map<String, Map<String, Map<String, MethodDescriptor[]>>> index = this.index;
+        if (index == null) {
+            this.index = index = buildIndex();
+        }
+        Map<String, Map<String, MethodDescriptor[]>> versions = index.get(interfaceName);
+        if (versions == null) return 0;
+        Map<String, MethodDescriptor[]> names = versions.get(serviceVersion == null ? "" : serviceVersion);
+        if (names == null) return 0;
+        MethodDescriptor[] descriptors = names.get(methodName);
+        if (descriptors == null) return 0;
+        for (MethodDescriptor descriptor : descriptors) {
+            if (sameTypes(descriptor.getParameterTypeNames(), parameterTypes)) return descriptor.getId();
+        }
+        return 0;
+    }
+
+    private Map<String, Map<String, Map<String, MethodDescriptor[]>>> buildIndex() {
+        Map<String, Map<String, Map<String, MethodDescriptor[]>>> index = new HashMap<>();
+        if (methods == null) return index;
+        for (MethodDescriptor descriptor : methods) {
+            index.computeIfAbsent(descriptor.getInterfaceName(), key -> new HashMap<>())
+                    .computeIfAbsent(descriptor.getServiceVersion() == null ? "" : descriptor.getServiceVersion(), key -> new HashMap<>())
+                    .merge(descriptor.getMethodName(), new MethodDescriptor[]{descriptor}, (current, added) -> {
+                        MethodDescriptor[] merged = new MethodDescriptor[current.length + 1];
+                        System.arraycopy(current, 0, merged, 0, current.length);
+                        merged[current.length] = added[0];
+                        return merged;
+                    });
+        }
+        return index;
+    }
+
+    /**
+     * 按类型名称比较参数类型列表，{@link Class#getName()} 的结果会被缓存，比较过程不产生新对象
+     */
+    private static boolean sameTypes(String[] typeNames, Class<?>[] types) {
+        int expected = typeNames == null ? 0 : typeNames.length;
+        int actual = types == null ? 0 : types.length;
+        if (expected != actual) return false;
+        for (int i = 0; i < expected; i++) {
+            if (!typeNames[i].equals(types[i].getName())) return false;
+        }
+        return true;
+    }
+}
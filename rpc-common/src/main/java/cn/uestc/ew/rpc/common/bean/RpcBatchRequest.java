@@ -0,0 +1,47 @@
+package cn.uestc.ew.rpc.common.bean;
+
+import cn.uestc.ew.rpc.common.serialize.ProtostuffSerializer;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * 批量 RPC 请求体，将同一服务提供者上的多个相互独立的调用合并到一个请求帧中发送，
+ * 服务端并行执行后以 {@link RpcBatchResponse} 一次返回
+ *
+ * <p>与单个请求相同，方法表中能找到对应方法的调用只携带方法编号及参数列表。</p>
+ */
+@Getter
+@Setter
+public class RpcBatchRequest {
+
+    /**
+     * 批量请求标识符，由帧头（{@link RpcFrame#getRequestId()}）携带，不参与消息体的序列化
+     */
+    private transient long requestId;
+
+    /**
+     * 所有调用共用的序列化器编号，由帧头携带，不参与消息体的序列化
+     */
+    private transient byte serializer = ProtostuffSerializer.ID;
+
+    /**
+     * 压缩算法编号，0 表示不压缩，由帧头的标志位携带，不参与消息体的序列化
+     */
+    private transient byte compressor;
+
+    /**
+     * 压缩阈值（字节），消息体超过该长度时才压缩
+     */
+    private transient int compressThreshold;
+
+    /**
+     * 各个调用的请求体，其中的 {@code requestId} 等帧头字段不会被传输
+     */
+    private RpcRequest[] requests;
+
+    /**
+     * 与 {@link #requests} 一一对应的方法编号，0 表示请求体中携带了完整的方法信息。
+     * 只在编码后的消息体中存在
+     */
+    private int[] methodIds;
+}
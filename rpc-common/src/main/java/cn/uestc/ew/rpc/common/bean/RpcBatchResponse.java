@@ -0,0 +1,30 @@
+package cn.uestc.ew.rpc.common.bean;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * 批量 RPC 响应体，按 {@link RpcBatchRequest#getRequests()} 的顺序保存各个调用的响应，
+ * 每个调用的异常随各自的 {@link RpcResponse} 返回，互不影响
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class RpcBatchResponse {
+
+    /**
+     * 对应的批量请求标识符，由帧头（{@link RpcFrame#getRequestId()}）携带，不参与消息体的序列化
+     */
+    private transient long requestId;
+
+    /**
+     * 各个调用的响应体
+     */
+    private RpcResponse[] responses;
+
+    public RpcBatchResponse(long requestId, RpcResponse[] responses) {
+        this.requestId = requestId;
+        this.responses = responses;
+    }
+}
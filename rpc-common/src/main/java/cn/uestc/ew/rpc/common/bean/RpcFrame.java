@@ -0,0 +1,156 @@
+package cn.uestc.ew.rpc.common.bean;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * RPC 协议帧，客户端与服务端之间传输的基本单位，由固定长度的帧头及变长的消息体组成。
+ * 帧头中的多字节字段均采用小端法存储：
+ *
+ * <pre>
+ * +--------+---------+------+-------+------------+-----------+----------+-------------+-------------+
+ * | magic  | version | type | flags | serializer | requestId | methodId | body length |    body     |
+ * | 2B     | 1B      | 1B   | 1B    | 1B         | 8B        | 4B       | 4B          | (length) B  |
+ * +--------+---------+------+-------+------------+-----------+----------+-------------+-------------+
+ * </pre>
+ *
+ * @see cn.uestc.ew.rpc.common.util.codec.FrameCodec
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RpcFrame {
+
+    /**
+     * 魔数，用于快速识别非法连接
+     */
+    public static final short MAGIC = (short) 0xE5C0;
+
+    /**
+     * 协议版本号
+     */
+    public static final byte VERSION = 2;
+
+    /**
+     * 帧头长度（字节）
+     */
+    public static final int HEADER_LENGTH = 22;
+
+    /**
+     * 帧类型：RPC 请求，消息体为 {@link RpcRequest}
+     */
+    public static final byte TYPE_REQUEST = 1;
+
+    /**
+     * 帧类型：RPC 响应，消息体为 {@link RpcResponse}
+     */
+    public static final byte TYPE_RESPONSE = 2;
+
+    /**
+     * 帧类型：握手请求，客户端建立连接后发送，消息体为空
+     */
+    public static final byte TYPE_HANDSHAKE_REQUEST = 3;
+
+    /**
+     * 帧类型：握手响应，消息体为服务端的方法表 {@link MethodTable}
+     */
+    public static final byte TYPE_HANDSHAKE_RESPONSE = 4;
+
+    /**
+     * 帧类型：批量 RPC 请求，消息体为 {@link RpcBatchRequest}
+     */
+    public static final byte TYPE_BATCH_REQUEST = 5;
+
+    /**
+     * 帧类型：批量 RPC 响应，消息体为 {@link RpcBatchResponse}
+     */
+    public static final byte TYPE_BATCH_RESPONSE = 6;
+
+    /**
+     * 帧类型：流式请求，服务方法的返回值或参数中有 {@link java.util.concurrent.Flow.Publisher}，
+     * 消息体与请求帧相同，参数中的流以 {@code null} 占位，其元素随后以流元素帧发送
+     */
+    public static final byte TYPE_STREAM_REQUEST = 7;
+
+    /**
+     * 帧类型：流中的一个元素，消息体为 {@link RpcResponse}，元素保存在 {@code result} 中。
+     * 每个请求的每个方向至多有一个流，因此流元素帧及流结束帧属于对端发送的流
+     */
+    public static final byte TYPE_STREAM_ELEMENT = 8;
+
+    /**
+     * 帧类型：流结束，消息体为 {@link RpcResponse}，{@code exception} 不为空时表示流以该异常结束
+     */
+    public static final byte TYPE_STREAM_COMPLETE = 9;
+
+    /**
+     * 帧类型：流量信用，{@code methodId} 字段为接收方还能接收的元素个数，消息体为空。
+     * 信用帧及取消帧属于本端发送的流
+     */
+    public static final byte TYPE_STREAM_CREDIT = 10;
+
+    /**
+     * 帧类型：取消流，发送方不再接收该流中的元素，消息体为空
+     */
+    public static final byte TYPE_STREAM_CANCEL = 11;
+
+    /**
+     * 标志位的低 4 位：消息体使用的压缩算法编号，0 表示未压缩，见 {@link cn.uestc.ew.rpc.common.compress.Compressors}。
+     * 压缩后的消息体以 4 字节的原始长度开头，之后是压缩数据
+     */
+    public static final int FLAG_COMPRESSOR_MASK = 0x0f;
+
+    /**
+     * 标志位的高 4 位：仅用于请求帧，客户端接受的响应压缩算法编号，0 表示响应不压缩
+     */
+    public static final int FLAG_ACCEPT_COMPRESSOR_SHIFT = 4;
+
+    /**
+     * 帧类型
+     */
+    private byte type;
+
+    /**
+     * 标志位，目前用于压缩算法的协商，见 {@link #FLAG_COMPRESSOR_MASK} 及 {@link #FLAG_ACCEPT_COMPRESSOR_SHIFT}
+     */
+    private byte flags;
+
+    /**
+     * 消息体使用的序列化器编号，见 {@link cn.uestc.ew.rpc.common.serialize.Serializers}。
+     * 服务端使用与请求帧相同的序列化器编码响应，握手帧固定使用默认的序列化器
+     */
+    private byte serializer;
+
+    /**
+     * 请求标识符，响应帧与对应的请求帧相同
+     */
+    private long requestId;
+
+    /**
+     * 方法编号，由握手时交换的 {@link MethodTable} 分配，仅在当前连接上有效。
+     * 请求帧的方法编号大于 0 时，消息体中省略接口名称、方法名称、版本号及参数类型，由服务端根据编号补全
+     */
+    private int methodId;
+
+    /**
+     * 消息体
+     */
+    private byte[] body;
+
+    /**
+     * 消息体使用的压缩算法编号，0 表示未压缩
+     */
+    public byte getCompressor() {
+        return (byte) (flags & FLAG_COMPRESSOR_MASK);
+    }
+
+    /**
+     * 客户端接受的响应压缩算法编号，0 表示响应不压缩
+     */
+    public byte getAcceptCompressor() {
+        return (byte) ((flags & 0xff) >>> FLAG_ACCEPT_COMPRESSOR_SHIFT);
+    }
+}
@@ -1,5 +1,6 @@
 package cn.uestc.ew.rpc.common.bean;
 
+import cn.uestc.ew.rpc.common.serialize.ProtostuffSerializer;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -11,9 +12,39 @@ import lombok.Setter;
 public class RpcRequest {
 
     /**
-     * 请求者标识符
+     * 请求标识符，64 位随机数，重试时保持不变。由帧头（{@link RpcFrame#getRequestId()}）携带，不参与消息体的序列化
      */
-    private String requestId;
+    private transient long requestId;
+
+    /**
+     * 序列化器编号，见 {@link cn.uestc.ew.rpc.common.serialize.Serializers}。由帧头（{@link RpcFrame#getSerializer()}）携带，
+     * 不参与消息体的序列化
+     */
+    private transient byte serializer = ProtostuffSerializer.ID;
+
+    /**
+     * 压缩算法编号，0 表示不压缩，见 {@link cn.uestc.ew.rpc.common.compress.Compressors}。
+     * 服务端支持时，消息体超过 {@link #compressThreshold} 的请求帧使用该算法压缩，并要求服务端以同一算法压缩响应，
+     * 由帧头的标志位携带，不参与消息体的序列化
+     */
+    private transient byte compressor;
+
+    /**
+     * 请求的压缩阈值（字节），消息体超过该长度时才压缩
+     */
+    private transient int compressThreshold;
+
+    /**
+     * 最近一次编码得到的请求帧的字节数，用于调用统计，不参与消息体的序列化
+     */
+    private transient int frameLength;
+
+    /**
+     * 截止时间（{@link System#nanoTime()}），0 表示没有截止时间，不参与消息体的序列化。
+     * 客户端为发起请求时外层调用（{@link cn.uestc.ew.rpc.common.context.RpcContext}）的截止时间，用于限制重试；
+     * 服务端为收到请求帧时根据 {@link #timeout} 计算的截止时间
+     */
+    private transient long deadline;
 
     /**
      * 重试次数
@@ -44,4 +75,10 @@ public class RpcRequest {
      * 参数类型列表，与参数列表一一对应
      */
     private Class<?>[] parameterTypes;
+
+    /**
+     * 客户端等待本次请求的时间，单位毫秒，0 表示不限。服务端以收到请求帧的时间加上该值作为截止时间，
+     * 超过截止时间的请求不再执行。放在最后以兼容按字段顺序编号的序列化器
+     */
+    private int timeout;
 }
\ No newline at end of file
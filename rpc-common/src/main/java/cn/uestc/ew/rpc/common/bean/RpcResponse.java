@@ -11,9 +11,14 @@ import lombok.Setter;
 public class RpcResponse {
 
     /**
-     * 请求发起者
+     * 对应的请求标识符，由帧头（{@link RpcFrame#getRequestId()}）携带，不参与消息体的序列化
      */
-    private String requestId;
+    private transient long requestId;
+
+    /**
+     * 解码时响应帧的字节数，用于调用统计，不参与消息体的序列化
+     */
+    private transient int frameLength;
 
     /**
      * 针对本次请求，返回处理过程中出现的异常信息
@@ -0,0 +1,45 @@
+package cn.uestc.ew.rpc.common.compress;
+
+import java.io.OutputStream;
+
+/**
+ * 压缩算法，负责协议帧消息体的压缩及解压缩
+ *
+ * <p>每个压缩算法有一个唯一的编号，随协议帧帧头中的标志位传输，见 {@link cn.uestc.ew.rpc.common.bean.RpcFrame#getFlags()}。
+ * 内置压缩算法见 {@link Compressors}，自定义压缩算法可以通过 {@link Compressors#register(Compressor)}
+ * 或 {@link java.util.ServiceLoader} 注册。客户端只会使用握手时服务端声明支持的压缩算法，实现类必须是线程安全的。</p>
+ */
+public interface Compressor {
+
+    /**
+     * 压缩算法编号，取值范围为 1 ~ 15，其中 1 ~ 7 保留给内置压缩算法
+     */
+    byte getId();
+
+    /**
+     * 压缩算法名称，用于在配置中指定压缩算法
+     */
+    String getName();
+
+    /**
+     * 压缩数据并写入输出流
+     *
+     * @param src 原始数据
+     * @param off 原始数据的起始下标
+     * @param len 原始数据的长度
+     * @param out 输出流，通常是 {@link cn.uestc.ew.rpc.common.util.codec.FrameBuffer}
+     * @throws IllegalStateException 压缩或写出失败后抛出该异常
+     */
+    void compress(byte[] src, int off, int len, OutputStream out);
+
+    /**
+     * 解压缩数据，解压缩后的长度必须与目标数组的长度一致
+     *
+     * @param src 压缩后的数据
+     * @param off 压缩数据的起始下标
+     * @param len 压缩数据的长度
+     * @param dst 目标数组，长度为原始数据的长度
+     * @throws IllegalStateException 数据损坏或解压缩后的长度不一致时抛出该异常
+     */
+    void decompress(byte[] src, int off, int len, byte[] dst);
+}
@@ -0,0 +1,119 @@
+package cn.uestc.ew.rpc.common.compress;
+
+import lombok.experimental.UtilityClass;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 压缩算法注册表，按编号或名称查找压缩算法
+ *
+ * <p>内置以下压缩算法：</p>
+ * <ul>
+ *     <li>{@link DeflateCompressor}：编号 1，名称 {@code deflate}，压缩率较高</li>
+ *     <li>{@link Lz4Compressor}：编号 2，名称 {@code lz4}，压缩率较低但速度很快</li>
+ * </ul>
+ *
+ * <p>类加载时还会通过 {@link ServiceLoader} 加载 {@code META-INF/services/cn.uestc.ew.rpc.common.compress.Compressor}
+ * 中声明的压缩算法。</p>
+ */
+@Slf4j
+@UtilityClass
+public class Compressors {
+
+    /**
+     * 表示不压缩的名称，对应编号 0
+     */
+    public static final String NONE = "none";
+
+    /**
+     * 默认的压缩阈值（字节），消息体超过该长度时才压缩
+     */
+    public static final int DEFAULT_THRESHOLD = 2048;
+
+    /**
+     * 帧头标志位中用于表示压缩算法的位数决定了编号的上限
+     */
+    private static final int MAX_ID = 15;
+
+    /**
+     * 以编号为下标的压缩算法数组，解码每一帧时都需要查找，因此不使用 Map
+     */
+    private static final Compressor[] COMPRESSORS = new Compressor[MAX_ID + 1];
+
+    private static final Map<String, Compressor> COMPRESSORS_BY_NAME = new ConcurrentHashMap<>();
+
+    static {
+        register(new DeflateCompressor());
+        register(new Lz4Compressor());
+        for (Compressor compressor : ServiceLoader.load(Compressor.class)) {
+            register(compressor);
+        }
+    }
+
+    /**
+     * 注册压缩算法，编号或名称已被占用时抛出异常
+     *
+     * @param compressor 压缩算法
+     */
+    public static synchronized void register(Compressor compressor) {
+        byte id = compressor.getId();
+        if (id <= 0 || id > MAX_ID) {
+            throw new IllegalArgumentException(String.format("Illegal compressor id: %d", id));
+        }
+        if (COMPRESSORS[id] != null || COMPRESSORS_BY_NAME.containsKey(compressor.getName())
+                || NONE.equals(compressor.getName())) {
+            throw new IllegalStateException(String.format("Compressor [%s] conflicts with registered one: id=%d",
+                    compressor.getName(), id));
+        }
+        COMPRESSORS[id] = compressor;
+        COMPRESSORS_BY_NAME.put(compressor.getName(), compressor);
+        log.debug("Register compressor: id={}, name={}", id, compressor.getName());
+    }
+
+    /**
+     * 按编号查找压缩算法
+     *
+     * @param id 压缩算法编号，0 表示不压缩
+     * @return 压缩算法，编号为 0 时返回 {@code null}
+     * @throws IllegalStateException 压缩算法不存在时抛出该异常
+     */
+    public static Compressor get(byte id) {
+        if (id == 0) return null;
+        Compressor compressor = id > 0 && id <= MAX_ID ? COMPRESSORS[id] : null;
+        if (compressor == null) {
+            throw new IllegalStateException(String.format("Unsupported compressor: id=%d", id));
+        }
+        return compressor;
+    }
+
+    /**
+     * 按名称查找压缩算法
+     *
+     * @param name 压缩算法名称，{@link #NONE} 或空字符串表示不压缩
+     * @return 压缩算法，不压缩时返回 {@code null}
+     * @throws IllegalStateException 压缩算法不存在时抛出该异常
+     */
+    public static Compressor get(String name) {
+        if (name == null || name.isEmpty() || NONE.equals(name)) return null;
+        Compressor compressor = COMPRESSORS_BY_NAME.get(name);
+        if (compressor == null) {
+            throw new IllegalStateException(String.format("Unsupported compressor: name=%s", name));
+        }
+        return compressor;
+    }
+
+    /**
+     * 当前支持的所有压缩算法的编号，握手时由服务端下发给客户端
+     */
+    public static synchronized byte[] ids() {
+        byte[] ids = new byte[COMPRESSORS_BY_NAME.size()];
+        int count = 0;
+        for (byte id = 1; id <= MAX_ID; id++) {
+            if (COMPRESSORS[id] != null) ids[count++] = id;
+        }
+        return ids;
+    }
+}
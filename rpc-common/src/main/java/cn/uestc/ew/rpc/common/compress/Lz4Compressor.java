@@ -0,0 +1,211 @@
+package cn.uestc.ew.rpc.common.compress;
+
+import cn.uestc.ew.rpc.common.util.StripedPool;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * 纯 Java 实现的 LZ4 块格式（block format）压缩算法，压缩及解压缩速度远高于 Deflate，
+ * 压缩率较低，适合对延迟敏感、消息体较大且重复内容较多（如字符串列表）的场景
+ *
+ * <p>只实现了 LZ4 的快速压缩模式：以 4 字节为单位计算哈希，在哈希表中查找最近一次出现的位置作为匹配候选，
+ * 连续找不到匹配时逐渐增大步长，避免在不可压缩的数据上浪费时间。输出与标准 LZ4 块格式兼容，
+ * 原始长度不包含在块中，由 {@link cn.uestc.ew.rpc.common.util.codec.FrameCodec} 单独记录。</p>
+ */
+public class Lz4Compressor implements Compressor {
+
+    public static final byte ID = 2;
+
+    public static final String NAME = "lz4";
+
+    /**
+     * 最短匹配长度
+     */
+    private static final int MIN_MATCH = 4;
+
+    /**
+     * 块末尾必须以字面量结束的字节数
+     */
+    private static final int LAST_LITERALS = 5;
+
+    /**
+     * 最后一个匹配的起点与块末尾之间至少间隔的字节数
+     */
+    private static final int MF_LIMIT = 12;
+
+    /**
+     * 匹配的最大回溯距离，偏移量以 2 字节存储
+     */
+    private static final int MAX_DISTANCE = 65535;
+
+    private static final int HASH_LOG = 12;
+
+    /**
+     * 连续未找到匹配时，每经过 2^SKIP_TRIGGER 字节步长加 1
+     */
+    private static final int SKIP_TRIGGER = 6;
+
+    private static final VarHandle INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * 哈希表，保存 4 字节序列最近一次出现的位置（加 1，0 表示不存在）
+     */
+    private final StripedPool<int[]> hashTables = new StripedPool<>(() -> new int[1 << HASH_LOG]);
+
+    @Override
+    public byte getId() {
+        return ID;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public void compress(byte[] src, int off, int len, OutputStream out) {
+        int[] table = hashTables.acquire();
+        try {
+            int end = off + len;
+            int anchor = off;
+            if (len > MF_LIMIT) {
+                int limit = end - MF_LIMIT;
+                int matchLimit = end - LAST_LITERALS;
+                int ip = off;
+                while (ip < limit) {
+                    int sequence = readInt(src, ip);
+                    int hash = hash(sequence);
+                    int ref = table[hash] - 1;
+                    table[hash] = ip + 1;
+                    if (ref < off || ip - ref > MAX_DISTANCE || readInt(src, ref) != sequence) {
+                        ip += 1 + ((ip - anchor) >>> SKIP_TRIGGER);
+                        continue;
+                    }
+                    // 向前扩展匹配
+                    while (ip > anchor && ref > off && src[ip - 1] == src[ref - 1]) {
+                        ip--;
+                        ref--;
+                    }
+                    // 向后扩展匹配
+                    int matchLength = MIN_MATCH;
+                    while (ip + matchLength < matchLimit && src[ip + matchLength] == src[ref + matchLength]) {
+                        matchLength++;
+                    }
+                    writeSequence(out, src, anchor, ip - anchor, ip - ref, matchLength);
+                    ip += matchLength;
+                    anchor = ip;
+                }
+            }
+            // 最后一个序列只包含字面量
+            int literalLength = end - anchor;
+            out.write(Math.min(literalLength, 15) << 4);
+            if (literalLength >= 15) writeLength(out, literalLength - 15);
+            out.write(src, anchor, literalLength);
+        } catch (IOException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        } finally {
+            Arrays.fill(table, 0);
+            hashTables.release(table);
+        }
+    }
+
+    @Override
+    public void decompress(byte[] src, int off, int len, byte[] dst) {
+        int ip = off;
+        int end = off + len;
+        int op = 0;
+        try {
+            while (true) {
+                int token = src[ip++] & 0xff;
+                int literalLength = token >>> 4;
+                if (literalLength == 15) {
+                    int b;
+                    do {
+                        b = src[ip++] & 0xff;
+                        literalLength += b;
+                    } while (b == 255);
+                }
+                if (literalLength > end - ip || literalLength > dst.length - op) {
+                    throw corrupted(op, dst.length);
+                }
+                System.arraycopy(src, ip, dst, op, literalLength);
+                ip += literalLength;
+                op += literalLength;
+                if (ip == end) break;
+
+                int offset = (src[ip] & 0xff) | (src[ip + 1] & 0xff) << 8;
+                ip += 2;
+                int matchLength = token & 0x0f;
+                if (matchLength == 15) {
+                    int b;
+                    do {
+                        b = src[ip++] & 0xff;
+                        matchLength += b;
+                    } while (b == 255);
+                }
+                matchLength += MIN_MATCH;
+                if (offset == 0 || offset > op || matchLength > dst.length - op) {
+                    throw corrupted(op, dst.length);
+                }
+                int ref = op - offset;
+                if (offset >= matchLength) {
+                    System.arraycopy(dst, ref, dst, op, matchLength);
+                } else {
+                    // 匹配与自身重叠（如重复的短模式），只能逐字节复制
+                    for (int i = 0; i < matchLength; i++) {
+                        dst[op + i] = dst[ref + i];
+                    }
+                }
+                op += matchLength;
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw corrupted(op, dst.length);
+        }
+        if (op != dst.length) {
+            throw corrupted(op, dst.length);
+        }
+    }
+
+    /**
+     * 写出一个完整的序列：令牌、字面量长度、字面量、偏移量及匹配长度
+     */
+    private static void writeSequence(OutputStream out, byte[] src, int literalStart, int literalLength,
+                                      int offset, int matchLength) throws IOException {
+        int matchCode = matchLength - MIN_MATCH;
+        out.write(Math.min(literalLength, 15) << 4 | Math.min(matchCode, 15));
+        if (literalLength >= 15) writeLength(out, literalLength - 15);
+        out.write(src, literalStart, literalLength);
+        out.write(offset);
+        out.write(offset >>> 8);
+        if (matchCode >= 15) writeLength(out, matchCode - 15);
+    }
+
+    /**
+     * 写出超过令牌表示范围的长度，每个字节 255 表示后面还有更多字节
+     */
+    private static void writeLength(OutputStream out, int length) throws IOException {
+        while (length >= 255) {
+            out.write(255);
+            length -= 255;
+        }
+        out.write(length);
+    }
+
+    private static int readInt(byte[] b, int i) {
+        return (int) INT.get(b, i);
+    }
+
+    private static int hash(int sequence) {
+        return (sequence * -1640531535) >>> (32 - HASH_LOG);
+    }
+
+    private static IllegalStateException corrupted(int decoded, int expected) {
+        return new IllegalStateException(String.format(
+                "Corrupted lz4 data: decoded %d of %d bytes", decoded, expected));
+    }
+}
@@ -0,0 +1,18 @@
+package cn.uestc.ew.rpc.common.config;
+
+/**
+ * 阻塞任务（服务端请求处理、客户端阻塞调用）的执行方式
+ */
+public enum ExecutionMode {
+
+    /**
+     * 有界的平台线程池，线程数由对应的配置项指定
+     */
+    PLATFORM,
+
+    /**
+     * 每个任务一个虚拟线程，阻塞时不占用平台线程，适合大量阻塞型调用。
+     * 当前 JVM 不支持虚拟线程时（如 JDK 19 未开启 {@code --enable-preview}）退化为 {@link #PLATFORM}
+     */
+    VIRTUAL
+}
@@ -0,0 +1,37 @@
+package cn.uestc.ew.rpc.common.config;
+
+/**
+ * RPC 客户端的负载均衡策略，决定一次调用发往服务的哪个提供者
+ */
+public enum LoadBalanceType {
+
+    /**
+     * 随机选择
+     */
+    RANDOM,
+
+    /**
+     * 依次轮询
+     */
+    ROUND_ROBIN,
+
+    /**
+     * 平滑加权轮询，权重由服务端注册到注册中心
+     */
+    WEIGHTED_ROUND_ROBIN,
+
+    /**
+     * 选择当前客户端上进行中请求数最少的提供者
+     */
+    LEAST_ACTIVE,
+
+    /**
+     * 随机选择两个提供者，从中选择观测延迟（及进行中请求数）较低的一个
+     */
+    P2C,
+
+    /**
+     * 按指定参数做一致性哈希，相同参数的调用总是发往同一个提供者
+     */
+    CONSISTENT_HASH
+}
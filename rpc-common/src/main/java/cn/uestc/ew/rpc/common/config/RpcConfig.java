@@ -1,12 +1,15 @@
 package cn.uestc.ew.rpc.common.config;
 
-import lombok.AllArgsConstructor;
+import cn.uestc.ew.rpc.common.compress.Compressors;
+import cn.uestc.ew.rpc.common.serialize.ProtostuffSerializer;
+import cn.uestc.ew.rpc.common.util.codec.CoalescingFrameWriter;
 import lombok.Getter;
+import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 @Getter
 @Setter
-@AllArgsConstructor
+@NoArgsConstructor
 public class RpcConfig {
 
     /**
@@ -28,6 +31,124 @@ public class RpcConfig {
      */
     private int retryTimes = 10;
 
+    /**
+     * 客户端传输方式
+     */
+    private TransportType transport = TransportType.POOLED;
+
+    /**
+     * 异步调用中阻塞发送（{@link TransportType#POOLED}）的执行方式
+     */
+    private ExecutionMode executionMode = ExecutionMode.PLATFORM;
+
+    /**
+     * 执行方式为 {@link ExecutionMode#PLATFORM} 时，执行阻塞发送的线程数
+     */
+    private int asyncThreads = 200;
+
+    /**
+     * 连接池中每个服务地址（host:port）保持的最小连接数
+     */
+    private int poolMinSize = 0;
+
+    /**
+     * 连接池中每个服务地址（host:port）允许的最大连接数
+     */
+    private int poolMaxSize = 8;
+
+    /**
+     * 连接最大空闲时间，单位毫秒，超出后由后台线程回收（保留最小连接数）
+     */
+    private long poolMaxIdleTime = 60000;
+
+    /**
+     * 连接空闲超过该时间后，借出前需要做一次健康检查，单位毫秒，设置为 -1 表示不检查
+     */
+    private long poolValidateAfterIdle = 1000;
+
+    /**
+     * 负载均衡策略
+     */
+    private LoadBalanceType loadBalance = LoadBalanceType.RANDOM;
+
+    /**
+     * 负载均衡策略为 {@link LoadBalanceType#CONSISTENT_HASH} 时，参与哈希的参数下标
+     */
+    private int hashArgument = 0;
+
+    /**
+     * 熔断所需的连续失败次数，服务地址连续失败达到该次数后被摘除，0 表示不熔断
+     */
+    private int circuitBreakerFailures = 5;
+
+    /**
+     * 慢调用阈值，单位毫秒，耗时不低于该值的调用在熔断统计中视为失败，0 表示不统计慢调用
+     */
+    private long circuitBreakerSlowCallTime = 0;
+
+    /**
+     * 首次熔断时的摘除时间，单位毫秒，之后每次连续熔断加倍
+     */
+    private long circuitBreakerOpenTime = 5000;
+
+    /**
+     * 熔断时的最大摘除时间，单位毫秒
+     */
+    private long circuitBreakerMaxOpenTime = 60000;
+
+    /**
+     * 默认使用的序列化器名称，单个服务可通过 {@link cn.uestc.ew.rpc.common.annotation.RpcSerializer} 单独指定
+     */
+    private String serializer = ProtostuffSerializer.NAME;
+
+    /**
+     * 反序列化时额外允许的类，以逗号分隔，{@code 包名.*} 表示整个包，见 {@link cn.uestc.ew.rpc.common.serialize.ClassAllowlist}。
+     * 服务接口所在的包及方法签名中的类已自动允许，返回值的子类型、服务抛出的自定义异常等需要在此声明
+     */
+    private String serializerAllowlist;
+
+    /**
+     * 压缩算法名称，如 {@code lz4}、{@code deflate}，默认不压缩。服务端不支持时同样不压缩。
+     * 指定后请求及响应的消息体超过压缩阈值时都会被压缩，响应的压缩阈值由服务端决定
+     */
+    private String compressor = Compressors.NONE;
+
+    /**
+     * 请求的压缩阈值（字节），消息体超过该长度时才压缩
+     */
+    private int compressThreshold = Compressors.DEFAULT_THRESHOLD;
+
+    /**
+     * 传输方式为 {@link TransportType#MULTIPLEX} 时，并发请求合并写出的最大字节数
+     */
+    private int writeBatchBytes = CoalescingFrameWriter.DEFAULT_BATCH_BYTES;
+
+    /**
+     * 传输方式为 {@link TransportType#MULTIPLEX} 时，合并写出前等待更多请求的最长时间，单位微秒，0 表示不等待
+     */
+    private long writeBatchDelay = 0;
+
+    /**
+     * 对冲请求的预算，即对冲请求数占调用数的最大比例，见 {@link cn.uestc.ew.rpc.common.annotation.RpcHedged}
+     */
+    private double hedgeBudget = 0.1;
+
+    /**
+     * 访问日志中成功调用的采样率，1 表示全部记录，0 表示只记录失败的调用，见 {@link cn.uestc.ew.rpc.common.log.AccessLog}
+     */
+    private double accessLogSampleRate = 1;
+
+    /**
+     * 访问日志中需要记录参数及返回值的服务（服务名称或接口名称），以逗号分隔，默认只记录元数据
+     */
+    private String accessLogPayloadServices;
+
+    public RpcConfig(int timeout, int retryPolicy, int retryTimes) {
+        this.timeout = timeout;
+        this.retryPolicy = retryPolicy;
+        this.retryTimes = retryTimes;
+    }
+
     /**
      * 是否关闭了重试策略
      * @return 当没有配置重试时，返回 {@code true}，否则返回 {@code false}
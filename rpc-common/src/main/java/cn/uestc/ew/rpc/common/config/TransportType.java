@@ -0,0 +1,18 @@
+package cn.uestc.ew.rpc.common.config;
+
+/**
+ * RPC 客户端的传输方式
+ */
+public enum TransportType {
+
+    /**
+     * 连接池模式：每次调用从连接池借出一个连接，独占连接直到收到响应
+     */
+    POOLED,
+
+    /**
+     * 多路复用模式：每个服务地址只维护一个长连接，多个调用同时在该连接上发送，
+     * 通过 requestId 匹配响应
+     */
+    MULTIPLEX
+}
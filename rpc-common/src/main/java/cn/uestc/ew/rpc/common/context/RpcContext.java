@@ -0,0 +1,73 @@
+package cn.uestc.ew.rpc.common.context;
+
+import cn.uestc.ew.rpc.common.exception.DeadlineExceededException;
+import lombok.experimental.UtilityClass;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 服务方法执行期间的调用上下文，目前只有本次调用的截止时间
+ *
+ * <p>服务端在调用服务方法前设置，调用结束后恢复。上下文保存在线程本地变量中，只在执行服务方法的线程中有效，
+ * 服务方法把任务交给其它线程时需要自行传递。服务方法中通过 RPC 客户端发起的嵌套调用，
+ * 携带的超时时间不超过本次调用的剩余时间。</p>
+ */
+@UtilityClass
+public class RpcContext {
+
+    /**
+     * 截止时间（{@link System#nanoTime()}），0 表示没有截止时间。使用可变的数组避免每次设置时装箱
+     */
+    private static final ThreadLocal<long[]> DEADLINE = ThreadLocal.withInitial(() -> new long[1]);
+
+    /**
+     * 返回本次调用的截止时间
+     *
+     * @return 截止时间（{@link System#nanoTime()}），没有截止时间时返回 0
+     */
+    public static long getDeadline() {
+        return DEADLINE.get()[0];
+    }
+
+    /**
+     * 设置当前线程的截止时间，由服务端在调用服务方法前调用
+     *
+     * @param deadline 截止时间（{@link System#nanoTime()}），0 表示没有截止时间
+     * @return 之前的截止时间，调用结束后应恢复
+     */
+    public static long setDeadline(long deadline) {
+        long[] holder = DEADLINE.get();
+        long previous = holder[0];
+        holder[0] = deadline;
+        return previous;
+    }
+
+    /**
+     * 返回距截止时间的剩余时间
+     *
+     * @param unit 时间单位
+     * @return 剩余时间，已经超时时不大于 0，没有截止时间时返回 {@link Long#MAX_VALUE}
+     */
+    public static long remaining(TimeUnit unit) {
+        long deadline = getDeadline();
+        if (deadline == 0) return Long.MAX_VALUE;
+        return unit.convert(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 本次调用是否已经超过截止时间，调用方已经不再等待其结果
+     */
+    public static boolean isExpired() {
+        long deadline = getDeadline();
+        return deadline != 0 && System.nanoTime() - deadline >= 0;
+    }
+
+    /**
+     * 已经超过截止时间时抛出 {@link DeadlineExceededException}，供耗时的服务方法在执行过程中检查
+     */
+    public static void checkDeadline() {
+        if (isExpired()) {
+            throw new DeadlineExceededException("Deadline exceeded");
+        }
+    }
+}
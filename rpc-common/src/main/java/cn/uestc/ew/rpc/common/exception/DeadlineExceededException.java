@@ -0,0 +1,12 @@
+package cn.uestc.ew.rpc.common.exception;
+
+/**
+ * 调用超过了截止时间。服务端收到请求时已经超时的调用不再执行，以该异常响应；
+ * 服务方法也可以通过 {@link cn.uestc.ew.rpc.common.context.RpcContext#checkDeadline()} 在执行过程中提前结束
+ */
+public class DeadlineExceededException extends RuntimeException {
+
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+}
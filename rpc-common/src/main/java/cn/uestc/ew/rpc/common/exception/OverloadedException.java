@@ -0,0 +1,12 @@
+package cn.uestc.ew.rpc.common.exception;
+
+/**
+ * 服务端过载，请求在执行前被并发限制拒绝。请求没有被执行，客户端可以向另一个服务提供者重新发送。
+ * 服务端在读线程中频繁创建该异常，因此不记录调用栈
+ */
+public class OverloadedException extends RuntimeException {
+
+    public OverloadedException(String message) {
+        super(message, null, false, false);
+    }
+}
@@ -0,0 +1,59 @@
+package cn.uestc.ew.rpc.common.jfr;
+
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import lombok.Setter;
+
+/**
+ * 客户端的一次远程调用，从代理方法被调用开始，到结果（或异常）返回给调用方为止，
+ * 包括服务发现、序列化、网络通信及超时重试，异步调用在 Future 完成时结束
+ */
+@Name("cn.uestc.ew.rpc.ClientInvoke")
+@Label("RPC Client Invoke")
+@Description("Remote call made through a client proxy, including discovery, serialization, network and retries")
+@Setter
+public class ClientInvokeEvent extends RpcEvent {
+
+    /**
+     * 服务提供者的地址，服务发现失败时为 {@code null}
+     */
+    @Label("Address")
+    private String address;
+
+    /**
+     * 传输方式，见 {@link cn.uestc.ew.rpc.common.config.TransportType}
+     */
+    @Label("Transport")
+    private String transport;
+
+    @Label("Async")
+    private boolean async;
+
+    /**
+     * 最后一次发送的请求帧的字节数
+     */
+    @Label("Request Bytes")
+    @DataAmount
+    private int requestBytes;
+
+    /**
+     * 响应帧的字节数，没有收到响应时为 0
+     */
+    @Label("Response Bytes")
+    @DataAmount
+    private int responseBytes;
+
+    /**
+     * 超时重试的次数
+     */
+    @Label("Retries")
+    private int retries;
+
+    /**
+     * 调用以异常结束时异常的类型名称，正常结束时为 {@code null}
+     */
+    @Label("Exception")
+    private String exception;
+}
@@ -0,0 +1,28 @@
+package cn.uestc.ew.rpc.common.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import lombok.Setter;
+
+/**
+ * 客户端的一次服务发现，包括从注册中心（或本地缓存）查找服务提供者及负载均衡策略的选择
+ */
+@Name("cn.uestc.ew.rpc.Discovery")
+@Label("RPC Discovery")
+@Description("Service instance lookup and load balancer selection on the client")
+@Setter
+public class DiscoveryEvent extends RpcEvent {
+
+    /**
+     * 找到的服务提供者个数
+     */
+    @Label("Instances")
+    private int instances;
+
+    /**
+     * 负载均衡策略选中的服务提供者地址，没有服务提供者时为 {@code null}
+     */
+    @Label("Address")
+    private String address;
+}
@@ -0,0 +1,43 @@
+package cn.uestc.ew.rpc.common.jfr;
+
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import lombok.Setter;
+
+/**
+ * 客户端写出一个请求帧，或等待并读取其响应帧
+ *
+ * <p>读取的耗时从请求帧写出后开始，到收到完整的响应帧为止，包括网络往返及服务端的处理时间；
+ * 多路复用连接上由 I/O 读线程收到响应帧时提交，写出可能只是把帧交给正在合并写出的其它线程。</p>
+ */
+@Name("cn.uestc.ew.rpc.Network")
+@Label("RPC Network")
+@Description("Request frame write, or wait and read of its response frame, on the client")
+@Setter
+public class NetworkEvent extends RpcEvent {
+
+    public static final String WRITE = "write";
+
+    public static final String READ = "read";
+
+    /**
+     * {@link #WRITE} 或 {@link #READ}
+     */
+    @Label("Operation")
+    private String operation;
+
+    /**
+     * 服务提供者的地址
+     */
+    @Label("Address")
+    private String address;
+
+    /**
+     * 写出或读取的协议帧的字节数，读取失败时为 0
+     */
+    @Label("Frame Bytes")
+    @DataAmount
+    private int bytes;
+}
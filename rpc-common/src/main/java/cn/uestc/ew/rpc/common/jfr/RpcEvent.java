@@ -0,0 +1,49 @@
+package cn.uestc.ew.rpc.common.jfr;
+
+import cn.uestc.ew.rpc.common.bean.RpcRequest;
+import jdk.jfr.Category;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+import lombok.Setter;
+
+/**
+ * RPC 相关的 Java Flight Recorder 事件的基类，事件都带有服务名称及方法名称
+ *
+ * <p>所有事件默认关闭，关闭时创建事件对象、{@link #begin()} 及 {@link #shouldCommit()} 的开销都可以忽略，
+ * 热路径上不需要额外判断；需要时在录制配置中按事件名称（如 {@code cn.uestc.ew.rpc.ClientInvoke}）开启。
+ * 事件不记录调用栈，需要时同样可以在录制配置中开启。</p>
+ *
+ * <p>使用方式与其它 JFR 事件相同：阶段开始前创建事件并调用 {@link #begin()}，结束后调用 {@link #end()}，
+ * {@link #shouldCommit()} 返回 {@code true} 时才填充字段并提交，未开启时不会计算字段的值。</p>
+ */
+@Category("RPC")
+@Enabled(false)
+@StackTrace(false)
+@Setter
+public abstract class RpcEvent extends Event {
+
+    /**
+     * 服务名称（接口名称[-版本号]），JFR 不记录父类中的私有字段，因此父类中的字段都是受保护的
+     */
+    @Label("Service")
+    protected String service;
+
+    /**
+     * 方法名称
+     */
+    @Label("Method")
+    protected String method;
+
+    /**
+     * 以请求中的接口名称、版本号及方法名称填充服务名称及方法名称，请求为 {@code null} 时不填充
+     */
+    public void setTarget(RpcRequest request) {
+        if (request == null) return;
+        String version = request.getServiceVersion();
+        this.service = version == null || version.isEmpty()
+                ? request.getInterfaceName() : request.getInterfaceName() + "-" + version;
+        this.method = request.getMethodName();
+    }
+}
@@ -0,0 +1,56 @@
+package cn.uestc.ew.rpc.common.jfr;
+
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import lombok.Setter;
+
+/**
+ * 一次请求体或响应体的序列化（编码为协议帧）或反序列化，包括压缩及解压缩
+ */
+@Name("cn.uestc.ew.rpc.Serialization")
+@Label("RPC Serialization")
+@Description("Encoding of a request or response into a frame, or decoding it from one, including compression")
+@Setter
+public class SerializationEvent extends RpcEvent {
+
+    public static final String SERIALIZE = "serialize";
+
+    public static final String DESERIALIZE = "deserialize";
+
+    public static final String REQUEST = "request";
+
+    public static final String RESPONSE = "response";
+
+    /**
+     * {@link #SERIALIZE} 或 {@link #DESERIALIZE}
+     */
+    @Label("Operation")
+    private String operation;
+
+    /**
+     * {@link #REQUEST} 或 {@link #RESPONSE}
+     */
+    @Label("Message")
+    private String message;
+
+    /**
+     * 序列化器名称
+     */
+    @Label("Serializer")
+    private String serializer;
+
+    /**
+     * 协议帧的字节数（含帧头），压缩时为压缩后的字节数
+     */
+    @Label("Frame Bytes")
+    @DataAmount
+    private int bytes;
+
+    /**
+     * 消息体是否被压缩
+     */
+    @Label("Compressed")
+    private boolean compressed;
+}
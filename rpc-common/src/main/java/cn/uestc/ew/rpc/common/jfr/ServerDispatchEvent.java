@@ -0,0 +1,32 @@
+package cn.uestc.ew.rpc.common.jfr;
+
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import lombok.Setter;
+
+/**
+ * 服务端处理一个请求，从业务线程开始解码请求帧，到编码完响应帧为止，包括定位服务方法及执行服务方法；
+ * 批量请求中的每个调用各有一个事件，只包括执行服务方法
+ */
+@Name("cn.uestc.ew.rpc.ServerDispatch")
+@Label("RPC Server Dispatch")
+@Description("Request handling on the server, from frame decoding to response encoding")
+@Setter
+public class ServerDispatchEvent extends RpcEvent {
+
+    @Label("Request Bytes")
+    @DataAmount
+    private int requestBytes;
+
+    @Label("Response Bytes")
+    @DataAmount
+    private int responseBytes;
+
+    /**
+     * 服务方法以异常结束时异常的类型名称，正常结束时为 {@code null}
+     */
+    @Label("Exception")
+    private String exception;
+}
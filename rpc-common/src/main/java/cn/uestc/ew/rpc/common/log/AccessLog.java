@@ -0,0 +1,163 @@
+package cn.uestc.ew.rpc.common.log;
+
+import cn.uestc.ew.rpc.common.bean.RpcRequest;
+import cn.uestc.ew.rpc.common.util.MpscRingBuffer;
+import com.alibaba.fastjson2.JSON;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 结构化的访问日志，每次调用结束后记录一条，由后台线程异步写出到名为 {@value #LOGGER_NAME} 的日志记录器
+ *
+ * <p>调用方只创建日志条目并放入无锁的环形队列（{@link MpscRingBuffer}），格式化及写出都在后台线程中进行，
+ * 队列已满时丢弃条目并计数，不会阻塞调用方。默认只记录元数据：服务、方法、请求及响应帧的字节数、耗时及状态；
+ * 只有显式指定的服务才会记录参数及返回值，参数及返回值在调用方线程中渲染为 JSON，开销与调用本身相当。</p>
+ *
+ * <p>成功的调用按采样率记录，失败的调用总是记录；日志记录器的级别高于 INFO 时不记录任何条目。</p>
+ */
+@Slf4j(topic = AccessLog.LOGGER_NAME)
+public class AccessLog {
+
+    /**
+     * 访问日志使用的日志记录器名称，可以单独配置其级别及输出位置
+     */
+    public static final String LOGGER_NAME = "cn.uestc.ew.rpc.access";
+
+    public static final String CLIENT = "client";
+
+    public static final String SERVER = "server";
+
+    /**
+     * 环形队列的容量，所有访问日志共享
+     */
+    private static final int BUFFER_SIZE = 16384;
+
+    /**
+     * 写出线程空闲时最长的休眠时间
+     */
+    private static final long MAX_IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private static final MpscRingBuffer<AccessLogEntry> BUFFER = new MpscRingBuffer<>(BUFFER_SIZE);
+
+    /**
+     * 队列已满时丢弃的条目数，写出线程定期报告
+     */
+    private static final LongAdder DROPPED = new LongAdder();
+
+    static {
+        Thread writer = new Thread(AccessLog::writeLoop, "rpc-access-log");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * {@link #CLIENT} 或 {@link #SERVER}
+     */
+    private final String side;
+
+    /**
+     * 成功调用的采样率，1 表示全部记录，0 表示只记录失败的调用
+     */
+    private final double sampleRate;
+
+    /**
+     * 需要记录参数及返回值的服务，可以是服务名称（接口名称[-版本号]）或接口名称
+     */
+    private final Set<String> payloadServices;
+
+    /**
+     * @param side            {@link #CLIENT} 或 {@link #SERVER}
+     * @param sampleRate      成功调用的采样率，取值 [0, 1]
+     * @param payloadServices 需要记录参数及返回值的服务，以逗号分隔，可以为 {@code null}
+     */
+    public AccessLog(String side, double sampleRate, String payloadServices) {
+        this.side = side;
+        this.sampleRate = Math.max(0, Math.min(1, sampleRate));
+        this.payloadServices = parseServices(payloadServices);
+    }
+
+    /**
+     * 记录一次调用，没有被采样时立即返回
+     *
+     * @param request       RPC 请求
+     * @param address       对端地址，未知时为 {@code null}
+     * @param requestBytes  请求帧的字节数，未知时为 0
+     * @param responseBytes 响应帧的字节数，未知时为 0
+     * @param latencyNanos  调用耗时，单位纳秒
+     * @param exception     调用以异常结束时的异常，成功时为 {@code null}
+     * @param result        调用的返回值，只在记录参数及返回值时使用
+     */
+    public void record(RpcRequest request, String address, int requestBytes, int responseBytes, long latencyNanos,
+                       Throwable exception, Object result) {
+        if (!log.isInfoEnabled()) return;
+        if (exception == null && sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate) return;
+        String service = serviceName(request);
+        AccessLogEntry entry = new AccessLogEntry(side, service, request.getMethodName(), request.getRequestId(),
+                address, requestBytes, responseBytes, latencyNanos, Math.max(0, request.getRetryTimes() - 1),
+                exception);
+        if (!payloadServices.isEmpty()
+                && (payloadServices.contains(service) || payloadServices.contains(request.getInterfaceName()))) {
+            entry.setPayload(render(request.getParameters()), exception == null ? render(result) : null);
+        }
+        if (!BUFFER.offer(entry)) {
+            DROPPED.increment();
+        }
+    }
+
+    private static String serviceName(RpcRequest request) {
+        String version = request.getServiceVersion();
+        return version == null || version.isEmpty()
+                ? request.getInterfaceName() : request.getInterfaceName() + "-" + version;
+    }
+
+    private static String render(Object value) {
+        try {
+            return JSON.toJSONString(value);
+        } catch (RuntimeException e) {
+            return "<" + e.getClass().getSimpleName() + ">";
+        }
+    }
+
+    private static Set<String> parseServices(String services) {
+        if (services == null || services.isBlank()) return Collections.emptySet();
+        Set<String> result = new HashSet<>();
+        Arrays.stream(services.split(",")).map(String::trim).filter(s -> !s.isEmpty()).forEach(result::add);
+        return Collections.unmodifiableSet(result);
+    }
+
+    /**
+     * 写出线程的执行逻辑，队列为空时休眠，连续空闲时逐渐延长休眠时间
+     */
+    private static void writeLoop() {
+        StringBuilder line = new StringBuilder(256);
+        long idleNanos = TimeUnit.MILLISECONDS.toNanos(1);
+        while (true) {
+            int written = 0;
+            AccessLogEntry entry;
+            while ((entry = BUFFER.poll()) != null) {
+                line.setLength(0);
+                try {
+                    entry.format(line);
+                    log.info(line.toString());
+                } catch (RuntimeException e) {
+                    log.warn("Write access log failed: {}", e.getMessage());
+                }
+                written++;
+            }
+            long dropped = DROPPED.sumThenReset();
+            if (dropped > 0) {
+                log.warn("Access log buffer is full, {} entries dropped", dropped);
+            }
+            idleNanos = written > 0 ? TimeUnit.MILLISECONDS.toNanos(1) : Math.min(MAX_IDLE_NANOS, idleNanos * 2);
+            LockSupport.parkNanos(idleNanos);
+        }
+    }
+}
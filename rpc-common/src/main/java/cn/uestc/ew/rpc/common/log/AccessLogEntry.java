@@ -0,0 +1,80 @@
+package cn.uestc.ew.rpc.common.log;
+
+/**
+ * 一条访问日志，由调用方创建，在写出线程中格式化为 {@code key=value} 形式的一行
+ */
+final class AccessLogEntry {
+
+    private final String side;
+
+    private final String service;
+
+    private final String method;
+
+    private final long requestId;
+
+    private final String address;
+
+    private final int requestBytes;
+
+    private final int responseBytes;
+
+    private final long latencyNanos;
+
+    private final int retries;
+
+    private final Throwable exception;
+
+    /**
+     * 渲染为 JSON 的参数列表及返回值，不记录时为 {@code null}
+     */
+    private String parameters;
+
+    private String result;
+
+    AccessLogEntry(String side, String service, String method, long requestId, String address, int requestBytes,
+                   int responseBytes, long latencyNanos, int retries, Throwable exception) {
+        this.side = side;
+        this.service = service;
+        this.method = method;
+        this.requestId = requestId;
+        this.address = address;
+        this.requestBytes = requestBytes;
+        this.responseBytes = responseBytes;
+        this.latencyNanos = latencyNanos;
+        this.retries = retries;
+        this.exception = exception;
+    }
+
+    void setPayload(String parameters, String result) {
+        this.parameters = parameters;
+        this.result = result;
+    }
+
+    void format(StringBuilder out) {
+        out.append(side)
+                .append(" service=").append(service)
+                .append(" method=").append(method)
+                .append(" status=").append(exception == null ? "OK" : "ERROR")
+                .append(" latency=").append(latencyNanos / 1000).append("us")
+                .append(" requestBytes=").append(requestBytes)
+                .append(" responseBytes=").append(responseBytes)
+                .append(" retries=").append(retries)
+                .append(" requestId=").append(requestId);
+        if (address != null) {
+            out.append(" address=").append(address);
+        }
+        if (exception != null) {
+            out.append(" exception=").append(exception.getClass().getName());
+            if (exception.getMessage() != null) {
+                out.append(" message=\"").append(exception.getMessage()).append('"');
+            }
+        }
+        if (parameters != null) {
+            out.append(" parameters=").append(parameters);
+        }
+        if (result != null) {
+            out.append(" result=").append(result);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package cn.uestc.ew.rpc.common.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个服务方法在客户端或服务端的调用统计，由 {@link RpcMetrics} 创建并发布为 MBean
+ *
+ * <p>调用开始时调用 {@link #begin()}，结束时调用 {@link #end(long, boolean)}，热路径上只有计数器的自增，
+ * 百分位数等在读取 MBean 属性时才计算。</p>
+ */
+public class MethodMetrics implements MethodMetricsMBean {
+
+    private static final long RATE_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    private final LongAdder calls = new LongAdder();
+
+    private final LongAdder errors = new LongAdder();
+
+    private final LongAdder retries = new LongAdder();
+
+    private final LongAdder hedges = new LongAdder();
+
+    private final LongAdder expired = new LongAdder();
+
+    private final LongAdder duplicates = new LongAdder();
+
+    private final LongAdder inFlight = new LongAdder();
+
+    private final LongAdder requestBytes = new LongAdder();
+
+    private final LongAdder responseBytes = new LongAdder();
+
+    /**
+     * 上一次计算调用速率的时间及当时的调用次数
+     */
+    private long rateTime = System.nanoTime();
+
+    private long rateCalls;
+
+    private double rate;
+
+    /**
+     * 调用开始
+     */
+    public void begin() {
+        inFlight.increment();
+    }
+
+    /**
+     * 调用结束，记录延迟
+     *
+     * @param startNanos 调用开始时的 {@link System#nanoTime()}
+     * @param error      是否以异常结束
+     */
+    public void end(long startNanos, boolean error) {
+        latency.record(System.nanoTime() - startNanos);
+        inFlight.decrement();
+        calls.increment();
+        if (error) {
+            errors.increment();
+        }
+    }
+
+    /**
+     * 记录超时重试次数
+     */
+    public void retried(int times) {
+        if (times > 0) {
+            retries.add(times);
+        }
+    }
+
+    /**
+     * 记录一次对冲请求
+     */
+    public void hedged() {
+        hedges.increment();
+    }
+
+    /**
+     * 记录一次因超过截止时间而未执行的调用
+     */
+    public void expired() {
+        expired.increment();
+    }
+
+    /**
+     * 记录一次由幂等缓存响应而未重新执行的重复请求
+     */
+    public void duplicated() {
+        duplicates.increment();
+    }
+
+    /**
+     * 记录请求帧及响应帧的字节数，未知时为 0
+     */
+    public void bytes(int request, int response) {
+        if (request > 0) requestBytes.add(request);
+        if (response > 0) responseBytes.add(response);
+    }
+
+    @Override
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    @Override
+    public long getHedges() {
+        return hedges.sum();
+    }
+
+    @Override
+    public long getExpired() {
+        return expired.sum();
+    }
+
+    @Override
+    public long getDuplicates() {
+        return duplicates.sum();
+    }
+
+    @Override
+    public long getInFlight() {
+        return inFlight.sum();
+    }
+
+    @Override
+    public long getRequestBytes() {
+        return requestBytes.sum();
+    }
+
+    @Override
+    public long getResponseBytes() {
+        return responseBytes.sum();
+    }
+
+    @Override
+    public synchronized double getCallsPerSecond() {
+        long now = System.nanoTime();
+        long elapsed = now - rateTime;
+        if (elapsed >= RATE_INTERVAL) {
+            long current = calls.sum();
+            rate = (current - rateCalls) * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+            rateCalls = current;
+            rateTime = now;
+        }
+        return rate;
+    }
+
+    @Override
+    public long getLatencyMeanNanos() {
+        return latency.getMean();
+    }
+
+    @Override
+    public long getLatencyMaxNanos() {
+        return latency.getMax();
+    }
+
+    @Override
+    public long getLatencyP50Nanos() {
+        return latency.percentile(50);
+    }
+
+    @Override
+    public long getLatencyP99Nanos() {
+        return latency.percentile(99);
+    }
+
+    @Override
+    public long getLatencyP999Nanos() {
+        return latency.percentile(99.9);
+    }
+
+    @Override
+    public synchronized void reset() {
+        latency.reset();
+        calls.reset();
+        errors.reset();
+        retries.reset();
+        hedges.reset();
+        expired.reset();
+        duplicates.reset();
+        requestBytes.reset();
+        responseBytes.reset();
+        rateCalls = 0;
+        rateTime = System.nanoTime();
+        rate = 0;
+    }
+}
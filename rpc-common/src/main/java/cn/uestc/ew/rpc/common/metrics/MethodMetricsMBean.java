@@ -0,0 +1,74 @@
+package cn.uestc.ew.rpc.common.metrics;
+
+/**
+ * 单个服务方法的调用统计，以 MBean 发布，延迟单位均为纳秒
+ *
+ * @see MethodMetrics
+ */
+public interface MethodMetricsMBean {
+
+    /**
+     * 已完成的调用次数
+     */
+    long getCalls();
+
+    /**
+     * 以异常结束的调用次数，包括服务方法抛出的异常及网络异常
+     */
+    long getErrors();
+
+    /**
+     * 超时重试次数，只在客户端统计
+     */
+    long getRetries();
+
+    /**
+     * 对冲请求数，只在客户端统计，见 {@link cn.uestc.ew.rpc.common.annotation.RpcHedged}
+     */
+    long getHedges();
+
+    /**
+     * 收到时已经超过截止时间而未执行的调用数，只在服务端统计，同时计入异常次数
+     */
+    long getExpired();
+
+    /**
+     * 超时重试产生的重复请求中，由幂等缓存直接响应而未重新执行的请求数，只在服务端统计，同时计入调用次数
+     */
+    long getDuplicates();
+
+    /**
+     * 进行中的调用数
+     */
+    long getInFlight();
+
+    /**
+     * 请求帧的总字节数
+     */
+    long getRequestBytes();
+
+    /**
+     * 响应帧的总字节数
+     */
+    long getResponseBytes();
+
+    /**
+     * 最近一段时间（至少 1 秒）内每秒完成的调用数，在读取时计算
+     */
+    double getCallsPerSecond();
+
+    long getLatencyMeanNanos();
+
+    long getLatencyMaxNanos();
+
+    long getLatencyP50Nanos();
+
+    long getLatencyP99Nanos();
+
+    long getLatencyP999Nanos();
+
+    /**
+     * 清空所有统计
+     */
+    void reset();
+}
@@ -0,0 +1,128 @@
+package cn.uestc.ew.rpc.common.metrics;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按服务及方法管理调用统计，每个 JVM 中客户端、服务端各一个，同一进程中的多个代理（或服务端）共享同一份统计
+ *
+ * <p>每个方法的统计在首次使用时创建，并以
+ * {@code cn.uestc.ew.rpc:type=Client|Server,service=<服务名称>,method=<方法名称(参数类型的全限定名称)>}
+ * 注册到平台 MBeanServer，可通过 JConsole、VisualVM 或 JMX exporter 读取。调用方应缓存返回的 {@link MethodMetrics}，
+ * 避免每次调用都查找。</p>
+ */
+@Slf4j
+public class RpcMetrics {
+
+    /**
+     * MBean 的域名
+     */
+    public static final String DOMAIN = "cn.uestc.ew.rpc";
+
+    /**
+     * 客户端的调用统计
+     */
+    public static final RpcMetrics CLIENT = new RpcMetrics("Client");
+
+    /**
+     * 服务端的调用统计
+     */
+    public static final RpcMetrics SERVER = new RpcMetrics("Server");
+
+    private final String type;
+
+    private final Map<String, MethodMetrics> metrics = new ConcurrentHashMap<>();
+
+    private RpcMetrics(String type) {
+        this.type = type;
+    }
+
+    /**
+     * 返回方法的调用统计，不存在时创建并注册 MBean
+     *
+     * @param serviceName    服务名称（接口名称[-版本号]）
+     * @param methodName     方法名称
+     * @param parameterTypes 参数类型列表，用于区分重载的方法
+     */
+    public MethodMetrics get(String serviceName, String methodName, Class<?>[] parameterTypes) {
+        String method = methodKey(methodName, parameterTypes);
+        return metrics.computeIfAbsent(serviceName + "#" + method, key -> register(serviceName, method));
+    }
+
+    private MethodMetrics register(String serviceName, String method) {
+        MethodMetrics methodMetrics = new MethodMetrics();
+        try {
+            ObjectName name = new ObjectName(String.format("%s:type=%s,service=%s,method=%s",
+                    DOMAIN, type, quote(serviceName), quote(method)));
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (!server.isRegistered(name)) {
+                server.registerMBean(methodMetrics, name);
+            }
+        } catch (JMException | RuntimeException e) {
+            // 统计仍然可用，只是无法通过 JMX 读取
+            log.warn("Register metrics MBean failed: service={}, method={}, {}", serviceName, method, e.getMessage());
+        }
+        return methodMetrics;
+    }
+
+    /**
+     * 以 {@code cn.uestc.ew.rpc:type=Client|Server,name=<名称>} 注册方法统计以外的 MBean，同名的 MBean 已存在时替换
+     *
+     * @param name  MBean 的名称
+     * @param mbean 实现了标准 MBean 接口的对象
+     */
+    public void register(String name, Object mbean) {
+        try {
+            ObjectName objectName = new ObjectName(String.format("%s:type=%s,name=%s", DOMAIN, type, quote(name)));
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(mbean, objectName);
+        } catch (JMException | RuntimeException e) {
+            log.warn("Register MBean failed: name={}, {}", name, e.getMessage());
+        }
+    }
+
+    /**
+     * 方法名称及参数类型的全限定名称，如 {@code sum(int,java.util.Date)}。
+     * 不能使用简单名称，否则参数类型同名但所在包不同的重载方法会共用一份统计
+     */
+    private static String methodKey(String methodName, Class<?>[] parameterTypes) {
+        StringBuilder key = new StringBuilder(methodName).append('(');
+        if (parameterTypes != null) {
+            for (int i = 0; i < parameterTypes.length; i++) {
+                if (i > 0) key.append(',');
+                key.append(parameterTypes[i].getTypeName());
+            }
+        }
+        return key.append(')').toString();
+    }
+
+    /**
+     * 属性值中含有 ObjectName 的保留字符时加引号
+     */
+    private static String quote(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            switch (value.charAt(i)) {
+                case ',':
+                case '=':
+                case ':':
+                case '"':
+                case '*':
+                case '?':
+                case '\n':
+                    return ObjectName.quote(value);
+                default:
+                    break;
+            }
+        }
+        return value;
+    }
+}
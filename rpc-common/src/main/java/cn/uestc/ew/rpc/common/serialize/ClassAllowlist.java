@@ -0,0 +1,138 @@
+package cn.uestc.ew.rpc.common.serialize;
+
+import lombok.experimental.UtilityClass;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 反序列化时允许按名称加载的类，{@link CompactSerializer} 及 {@link JsonSerializer} 从消息中读到类名时先经过此处检查，
+ * 不在其中的类不会被加载或实例化，避免对端借助任意类（gadget）执行代码
+ *
+ * <p>默认允许基本类型及其包装类型、{@code java.util}、{@code java.math}、{@code java.time} 中的类、
+ * 框架自身的消息及异常，以及常见的 JDK 异常。服务端注册服务提供者及客户端创建代理时，
+ * 服务接口所在的包及方法签名中出现的类会自动加入，其它类（如参数的子类型、服务抛出的自定义异常）
+ * 需要通过 {@link #allow(String)} 加入。</p>
+ */
+@Slf4j
+@UtilityClass
+public class ClassAllowlist {
+
+    private static final Set<String> CLASSES = ConcurrentHashMap.newKeySet();
+
+    private static final Set<String> PACKAGES = ConcurrentHashMap.newKeySet();
+
+    static {
+        for (Class<?> type : new Class<?>[]{Object.class, String.class, Number.class, Boolean.class, Byte.class,
+                Short.class, Character.class, Integer.class, Long.class, Float.class, Double.class, Void.class,
+                Enum.class, Class.class, Throwable.class, Exception.class, Error.class, RuntimeException.class,
+                IllegalArgumentException.class, IllegalStateException.class, NullPointerException.class,
+                UnsupportedOperationException.class, ArithmeticException.class, ClassCastException.class,
+                IndexOutOfBoundsException.class, ArrayIndexOutOfBoundsException.class,
+                StringIndexOutOfBoundsException.class, NumberFormatException.class, SecurityException.class,
+                InterruptedException.class, java.io.IOException.class, java.io.UncheckedIOException.class}) {
+            CLASSES.add(type.getName());
+        }
+        for (String name : new String[]{"java.util", "java.util.concurrent", "java.util.concurrent.atomic",
+                "java.math", "java.time", "cn.uestc.ew.rpc.common.bean", "cn.uestc.ew.rpc.common.exception"}) {
+            PACKAGES.add(name);
+        }
+    }
+
+    /**
+     * 允许一个或多个类，以逗号分隔。以 {@code .*} 结尾时允许该包中的所有类（不包括子包）
+     *
+     * @param names 类的全限定名或 {@code 包名.*}，为空时忽略
+     */
+    public static void allow(String names) {
+        for (String name : StringUtils.split(StringUtils.defaultString(names), ',')) {
+            name = name.trim();
+            if (name.isEmpty()) continue;
+            if (name.endsWith(".*")) {
+                PACKAGES.add(name.substring(0, name.length() - 2));
+            } else {
+                CLASSES.add(name);
+            }
+        }
+    }
+
+    /**
+     * 允许服务接口所在的包，以及方法的参数、返回值、声明的异常中出现的类（包括泛型参数）
+     *
+     * @param interfaceClass 服务接口
+     */
+    public static void allowService(Class<?> interfaceClass) {
+        if (PACKAGES.add(interfaceClass.getPackageName())) {
+            log.debug("Allow classes of service package: {}", interfaceClass.getPackageName());
+        }
+        for (Method method : interfaceClass.getMethods()) {
+            allowType(method.getGenericReturnType());
+            for (Type type : method.getGenericParameterTypes()) {
+                allowType(type);
+            }
+            for (Class<?> type : method.getExceptionTypes()) {
+                allowType(type);
+            }
+        }
+    }
+
+    /**
+     * 类名是否被允许，数组按元素类型判断
+     *
+     * @param name {@link Class#getName()} 形式的类名，也接受 {@code Type[]} 形式的数组类名
+     */
+    public static boolean isAllowed(String name) {
+        if (name == null || name.isEmpty()) return false;
+        if (name.endsWith("[]")) return isAllowed(name.substring(0, name.length() - 2));
+        if (name.charAt(0) == '[') {
+            String component = name.substring(1);
+            if (component.length() == 1) return "ZBSCIJFD".contains(component);
+            if (component.charAt(0) == 'L' && component.endsWith(";")) {
+                component = component.substring(1, component.length() - 1);
+            }
+            return isAllowed(component);
+        }
+        if (CLASSES.contains(name)) return true;
+        int dot = name.lastIndexOf('.');
+        return PACKAGES.contains(dot > 0 ? name.substring(0, dot) : "");
+    }
+
+    /**
+     * 检查并加载类，不执行类的初始化
+     *
+     * @throws IllegalStateException 类不被允许时抛出该异常
+     */
+    public static Class<?> load(String name) throws ClassNotFoundException {
+        if (!isAllowed(name)) {
+            throw new IllegalStateException(String.format("Class is not allowed to deserialize: %s", name));
+        }
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        return Class.forName(name, false, classLoader != null ? classLoader : ClassAllowlist.class.getClassLoader());
+    }
+
+    private static void allowType(Type type) {
+        if (type instanceof Class) {
+            Class<?> cls = (Class<?>) type;
+            while (cls.isArray()) cls = cls.getComponentType();
+            if (!cls.isPrimitive()) CLASSES.add(cls.getName());
+        } else if (type instanceof ParameterizedType) {
+            allowType(((ParameterizedType) type).getRawType());
+            for (Type argument : ((ParameterizedType) type).getActualTypeArguments()) {
+                allowType(argument);
+            }
+        } else if (type instanceof GenericArrayType) {
+            allowType(((GenericArrayType) type).getGenericComponentType());
+        } else if (type instanceof WildcardType) {
+            for (Type bound : ((WildcardType) type).getUpperBounds()) {
+                allowType(bound);
+            }
+        }
+    }
+}
@@ -0,0 +1,803 @@
+package cn.uestc.ew.rpc.common.serialize;
+
+import cn.uestc.ew.rpc.common.bean.MethodDescriptor;
+import cn.uestc.ew.rpc.common.bean.MethodTable;
+import cn.uestc.ew.rpc.common.bean.RpcBatchRequest;
+import cn.uestc.ew.rpc.common.bean.RpcBatchResponse;
+import cn.uestc.ew.rpc.common.bean.RpcRequest;
+import cn.uestc.ew.rpc.common.bean.RpcResponse;
+import cn.uestc.ew.rpc.common.util.StripedPool;
+import org.objenesis.Objenesis;
+import org.objenesis.ObjenesisStd;
+import org.objenesis.instantiator.ObjectInstantiator;
+
+import java.io.OutputStream;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 手写的紧凑二进制序列化器，不依赖 Schema 及第三方库。
+ *
+ * <p>编码规则如下：</p>
+ * <ul>
+ *     <li>每个值以 1 字节的类型标记开头，整数使用 ZigZag 变长编码，小整数只占 1 字节</li>
+ *     <li>常用的类（见 {@link #WELL_KNOWN_CLASSES}）直接以编号引用，其他类名在同一个消息中只写出一次，之后以编号引用</li>
+ *     <li>普通对象按字段顺序（父类字段在前，同一个类中按字段名排序）依次写出，不写字段名或字段编号，
+ *         基本类型字段直接写出而没有类型标记，因此客户端与服务端的类定义必须完全一致；
+ *         {@code static} 及 {@code transient} 字段不参与序列化</li>
+ *     <li>集合与 Map 写出实际类型，无法通过公有无参构造器创建时（如 {@code List.of()} 的结果）
+ *         以相应的通用实现代替，{@link java.util.TreeMap} 等的自定义比较器不会保留</li>
+ *     <li>异常只传输类型、消息及原因链，不传输堆栈</li>
+ * </ul>
+ *
+ * <p>读取时只加载 {@link ClassAllowlist} 允许的类，其它类名直接拒绝；不被允许的异常类型以 {@link RuntimeException} 代替，
+ * 消息中保留原始类型。</p>
+ *
+ * <p>不支持循环引用，同一个对象被多次引用时会被写出多次。</p>
+ */
+public class CompactSerializer implements Serializer {
+
+    public static final byte ID = 2;
+
+    public static final String NAME = "compact";
+
+    private static final byte NULL = 0;
+    private static final byte TRUE = 1;
+    private static final byte FALSE = 2;
+    private static final byte BYTE = 3;
+    private static final byte SHORT = 4;
+    private static final byte CHAR = 5;
+    private static final byte INT = 6;
+    private static final byte LONG = 7;
+    private static final byte FLOAT = 8;
+    private static final byte DOUBLE = 9;
+    private static final byte STRING = 10;
+    private static final byte BYTES = 11;
+    private static final byte ARRAY = 12;
+    private static final byte COLLECTION = 13;
+    private static final byte MAP = 14;
+    private static final byte ENUM = 15;
+    private static final byte CLASS = 16;
+    private static final byte OBJECT = 17;
+    private static final byte THROWABLE = 18;
+    private static final byte BIG_INTEGER = 19;
+    private static final byte BIG_DECIMAL = 20;
+    private static final byte DATE = 21;
+
+    /**
+     * 对象嵌套的最大深度，超出时认为存在循环引用
+     */
+    private static final int MAX_DEPTH = 256;
+
+    /**
+     * 允许复用的输出缓冲区的最大容量
+     */
+    private static final int MAX_RETAINED_CAPACITY = 256 * 1024;
+
+    /**
+     * 预先分配编号的常用类，不写出类名。编号属于编码格式的一部分，只能在末尾追加
+     */
+    private static final Class<?>[] WELL_KNOWN_CLASSES = {RpcRequest.class, RpcResponse.class, MethodTable.class,
+            MethodDescriptor.class, Object.class, String.class, Class.class, Boolean.class, Byte.class, Short.class,
+            Character.class, Integer.class, Long.class, Float.class, Double.class, boolean.class, byte.class,
+            short.class, char.class, int.class, long.class, float.class, double.class, ArrayList.class,
+            LinkedList.class, HashMap.class, LinkedHashMap.class, TreeMap.class, HashSet.class, LinkedHashSet.class,
+            TreeSet.class, Exception.class, RuntimeException.class, IllegalArgumentException.class,
+            IllegalStateException.class, RpcBatchRequest.class, RpcBatchResponse.class};
+
+    private static final Map<Class<?>, Integer> WELL_KNOWN_INDEXES = new HashMap<>();
+
+    private static final Map<String, Class<?>> PRIMITIVE_TYPES = new HashMap<>();
+
+    static {
+        for (int i = 0; i < WELL_KNOWN_CLASSES.length; i++) {
+            WELL_KNOWN_INDEXES.put(WELL_KNOWN_CLASSES[i], i);
+        }
+        for (Class<?> type : new Class<?>[]{boolean.class, byte.class, short.class, char.class, int.class,
+                long.class, float.class, double.class, void.class}) {
+            PRIMITIVE_TYPES.put(type.getName(), type);
+        }
+    }
+
+    /**
+     * 普通对象的字段信息缓存
+     */
+    private final Map<Class<?>, ClassInfo> classInfos = new ConcurrentHashMap<>();
+
+    /**
+     * 已允许的类名与类型的缓存，避免重复检查及调用 {@link Class#forName(String)}
+     */
+    private final Map<String, Class<?>> classes = new ConcurrentHashMap<>();
+
+    /**
+     * 实例化工具
+     */
+    private final Objenesis objenesis = new ObjenesisStd(true);
+
+    /**
+     * 复用的输出缓冲区
+     */
+    private final StripedPool<Output> outputs = new StripedPool<>(Output::new);
+
+    @Override
+    public byte getId() {
+        return ID;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public <T> byte[] serialize(T obj) {
+        Output out = outputs.acquire();
+        try {
+            writeValue(out, obj, 0);
+            return out.toByteArray();
+        } catch (IllegalStateException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        } finally {
+            recycle(out);
+        }
+    }
+
+    @Override
+    public <T> void serialize(T obj, OutputStream stream) {
+        Output out = outputs.acquire();
+        try {
+            writeValue(out, obj, 0);
+            stream.write(out.buffer, 0, out.position);
+        } catch (IllegalStateException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        } finally {
+            recycle(out);
+        }
+    }
+
+    @Override
+    public <T> T deserialize(byte[] data, Class<T> cls) {
+        try {
+            return cls.cast(readValue(new Input(data), 0));
+        } catch (IllegalStateException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 重置输出缓冲区并归还，容量过大的缓冲区直接丢弃
+     */
+    private void recycle(Output out) {
+        out.reset();
+        if (out.buffer.length <= MAX_RETAINED_CAPACITY) {
+            outputs.release(out);
+        }
+    }
+
+    private void writeValue(Output out, Object value, int depth) throws IllegalAccessException {
+        if (value == null) {
+            out.writeByte(NULL);
+            return;
+        }
+        if (depth > MAX_DEPTH) {
+            throw new IllegalStateException("Object graph is too deep or cyclic");
+        }
+        Class<?> type = value.getClass();
+        if (type == String.class) {
+            out.writeByte(STRING);
+            out.writeString((String) value);
+        } else if (type == Integer.class) {
+            out.writeByte(INT);
+            out.writeVarInt((Integer) value);
+        } else if (type == Long.class) {
+            out.writeByte(LONG);
+            out.writeVarLong((Long) value);
+        } else if (type == Boolean.class) {
+            out.writeByte((Boolean) value ? TRUE : FALSE);
+        } else if (type == Double.class) {
+            out.writeByte(DOUBLE);
+            out.writeFixedLong(Double.doubleToRawLongBits((Double) value));
+        } else if (type == Float.class) {
+            out.writeByte(FLOAT);
+            out.writeFixedInt(Float.floatToRawIntBits((Float) value));
+        } else if (type == Byte.class) {
+            out.writeByte(BYTE);
+            out.writeByte((Byte) value);
+        } else if (type == Short.class) {
+            out.writeByte(SHORT);
+            out.writeVarInt((Short) value);
+        } else if (type == Character.class) {
+            out.writeByte(CHAR);
+            out.writeVarInt((Character) value);
+        } else if (type == byte[].class) {
+            out.writeByte(BYTES);
+            out.writeBytes((byte[]) value);
+        } else if (type.isArray()) {
+            out.writeByte(ARRAY);
+            writeClass(out, type.getComponentType());
+            int length = Array.getLength(value);
+            out.writeVarInt(length);
+            for (int i = 0; i < length; i++) {
+                writeValue(out, Array.get(value, i), depth + 1);
+            }
+        } else if (value instanceof Enum) {
+            out.writeByte(ENUM);
+            writeClass(out, ((Enum<?>) value).getDeclaringClass());
+            out.writeString(((Enum<?>) value).name());
+        } else if (type == Class.class) {
+            out.writeByte(CLASS);
+            writeClass(out, (Class<?>) value);
+        } else if (value instanceof Collection) {
+            out.writeByte(COLLECTION);
+            writeClass(out, type);
+            Collection<?> collection = (Collection<?>) value;
+            out.writeVarInt(collection.size());
+            for (Object element : collection) {
+                writeValue(out, element, depth + 1);
+            }
+        } else if (value instanceof Map) {
+            out.writeByte(MAP);
+            writeClass(out, type);
+            Map<?, ?> map = (Map<?, ?>) value;
+            out.writeVarInt(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writeValue(out, entry.getKey(), depth + 1);
+                writeValue(out, entry.getValue(), depth + 1);
+            }
+        } else if (value instanceof Throwable) {
+            out.writeByte(THROWABLE);
+            writeClass(out, type);
+            Throwable throwable = (Throwable) value;
+            writeValue(out, throwable.getMessage(), depth + 1);
+            writeValue(out, throwable.getCause(), depth + 1);
+        } else if (type == BigInteger.class) {
+            out.writeByte(BIG_INTEGER);
+            out.writeBytes(((BigInteger) value).toByteArray());
+        } else if (type == BigDecimal.class) {
+            out.writeByte(BIG_DECIMAL);
+            out.writeBytes(((BigDecimal) value).unscaledValue().toByteArray());
+            out.writeVarInt(((BigDecimal) value).scale());
+        } else if (type == Date.class) {
+            out.writeByte(DATE);
+            out.writeVarLong(((Date) value).getTime());
+        } else {
+            out.writeByte(OBJECT);
+            writeClass(out, type);
+            for (FieldInfo field : classInfo(type).fields) {
+                writeField(out, field, value, depth + 1);
+            }
+        }
+    }
+
+    private void writeField(Output out, FieldInfo field, Object target, int depth) throws IllegalAccessException {
+        Field f = field.field;
+        switch (field.kind) {
+            case INT:
+                out.writeVarInt(f.getInt(target));
+                break;
+            case LONG:
+                out.writeVarLong(f.getLong(target));
+                break;
+            case TRUE:
+                out.writeByte(f.getBoolean(target) ? TRUE : FALSE);
+                break;
+            case BYTE:
+                out.writeByte(f.getByte(target));
+                break;
+            case SHORT:
+                out.writeVarInt(f.getShort(target));
+                break;
+            case CHAR:
+                out.writeVarInt(f.getChar(target));
+                break;
+            case FLOAT:
+                out.writeFixedInt(Float.floatToRawIntBits(f.getFloat(target)));
+                break;
+            case DOUBLE:
+                out.writeFixedLong(Double.doubleToRawLongBits(f.getDouble(target)));
+                break;
+            default:
+                writeValue(out, f.get(target), depth);
+        }
+    }
+
+    private void writeClass(Output out, Class<?> type) {
+        Integer index = out.classIndex(type);
+        if (index != null) {
+            out.writeVarInt(index + 1);
+        } else {
+            out.writeVarInt(0);
+            out.writeString(type.getName());
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Object readValue(Input in, int depth) throws ReflectiveOperationException {
+        if (depth > MAX_DEPTH) {
+            throw new IllegalStateException("Object graph is too deep");
+        }
+        byte tag = in.readByte();
+        switch (tag) {
+            case NULL:
+                return null;
+            case TRUE:
+                return Boolean.TRUE;
+            case FALSE:
+                return Boolean.FALSE;
+            case BYTE:
+                return in.readByte();
+            case SHORT:
+                return (short) in.readVarInt();
+            case CHAR:
+                return (char) in.readVarInt();
+            case INT:
+                return in.readVarInt();
+            case LONG:
+                return in.readVarLong();
+            case FLOAT:
+                return Float.intBitsToFloat(in.readFixedInt());
+            case DOUBLE:
+                return Double.longBitsToDouble(in.readFixedLong());
+            case STRING:
+                return in.readString();
+            case BYTES:
+                return in.readBytes();
+            case ARRAY: {
+                Class<?> componentType = readClass(in);
+                int length = in.readLength();
+                Object array = Array.newInstance(componentType, length);
+                for (int i = 0; i < length; i++) {
+                    Array.set(array, i, readValue(in, depth + 1));
+                }
+                return array;
+            }
+            case ENUM:
+                return Enum.valueOf((Class<Enum>) readClass(in), in.readString());
+            case CLASS:
+                return readClass(in);
+            case COLLECTION: {
+                Collection<Object> collection = newCollection(readClass(in));
+                int size = in.readLength();
+                for (int i = 0; i < size; i++) {
+                    collection.add(readValue(in, depth + 1));
+                }
+                return collection;
+            }
+            case MAP: {
+                Map<Object, Object> map = newMap(readClass(in));
+                int size = in.readLength();
+                for (int i = 0; i < size; i++) {
+                    map.put(readValue(in, depth + 1), readValue(in, depth + 1));
+                }
+                return map;
+            }
+            case THROWABLE: {
+                Object type = readClassOrName(in);
+                return newThrowable(type, (String) readValue(in, depth + 1), (Throwable) readValue(in, depth + 1));
+            }
+            case BIG_INTEGER:
+                return new BigInteger(in.readBytes());
+            case BIG_DECIMAL:
+                return new BigDecimal(new BigInteger(in.readBytes()), in.readVarInt());
+            case DATE:
+                return new Date(in.readVarLong());
+            case OBJECT: {
+                ClassInfo info = classInfo(readClass(in));
+                Object target = info.instantiator.newInstance();
+                for (FieldInfo field : info.fields) {
+                    readField(in, field, target, depth + 1);
+                }
+                return target;
+            }
+            default:
+                throw new IllegalStateException(String.format("Illegal compact type tag: %d", tag));
+        }
+    }
+
+    private void readField(Input in, FieldInfo field, Object target, int depth) throws ReflectiveOperationException {
+        Field f = field.field;
+        switch (field.kind) {
+            case INT:
+                f.setInt(target, in.readVarInt());
+                break;
+            case LONG:
+                f.setLong(target, in.readVarLong());
+                break;
+            case TRUE:
+                f.setBoolean(target, in.readByte() == TRUE);
+                break;
+            case BYTE:
+                f.setByte(target, in.readByte());
+                break;
+            case SHORT:
+                f.setShort(target, (short) in.readVarInt());
+                break;
+            case CHAR:
+                f.setChar(target, (char) in.readVarInt());
+                break;
+            case FLOAT:
+                f.setFloat(target, Float.intBitsToFloat(in.readFixedInt()));
+                break;
+            case DOUBLE:
+                f.setDouble(target, Double.longBitsToDouble(in.readFixedLong()));
+                break;
+            default:
+                f.set(target, readValue(in, depth));
+        }
+    }
+
+    private Class<?> readClass(Input in) throws ClassNotFoundException {
+        Object type = readClassOrName(in);
+        if (type instanceof String) {
+            throw new IllegalStateException(String.format("Class is not allowed to deserialize: %s", type));
+        }
+        return (Class<?>) type;
+    }
+
+    /**
+     * 读取类，类不被 {@link ClassAllowlist} 允许时不加载，返回类名
+     */
+    private Object readClassOrName(Input in) throws ClassNotFoundException {
+        int index = in.readVarInt();
+        if (index > 0) return in.classAt(index - 1);
+        String name = in.readString();
+        Object type = classes.get(name);
+        if (type == null) {
+            type = PRIMITIVE_TYPES.get(name);
+            if (type == null && ClassAllowlist.isAllowed(name)) {
+                type = ClassAllowlist.load(name);
+            }
+            if (type != null) {
+                classes.put(name, (Class<?>) type);
+            } else {
+                type = name;
+            }
+        }
+        in.addClass(type);
+        return type;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Collection<Object> newCollection(Class<?> type) {
+        if (!Collection.class.isAssignableFrom(type)) {
+            throw new IllegalStateException(String.format("Not a collection type: %s", type.getName()));
+        }
+        Object collection = newDefaultInstance(type);
+        if (collection instanceof Collection) return (Collection<Object>) collection;
+        if (SortedSet.class.isAssignableFrom(type)) return new TreeSet<>();
+        if (Set.class.isAssignableFrom(type)) return new LinkedHashSet<>();
+        if (Queue.class.isAssignableFrom(type) && !List.class.isAssignableFrom(type)) return new ArrayDeque<>();
+        return new ArrayList<>();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<Object, Object> newMap(Class<?> type) {
+        if (!Map.class.isAssignableFrom(type)) {
+            throw new IllegalStateException(String.format("Not a map type: %s", type.getName()));
+        }
+        Object map = newDefaultInstance(type);
+        if (map instanceof Map) return (Map<Object, Object>) map;
+        if (SortedMap.class.isAssignableFrom(type)) return new TreeMap<>();
+        return new LinkedHashMap<>();
+    }
+
+    /**
+     * 通过公有无参构造器创建对象，无法创建时返回 {@code null}
+     */
+    private static Object newDefaultInstance(Class<?> type) {
+        if (!Modifier.isPublic(type.getModifiers()) || Modifier.isAbstract(type.getModifiers())) return null;
+        try {
+            return type.getConstructor().newInstance();
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 优先通过 {@code (String)} 构造器还原异常，无法还原或类型不被允许（{@code type} 为类名）时以 {@link RuntimeException} 代替，
+     * 消息中保留原始类型
+     */
+    private static Throwable newThrowable(Object typeOrName, String message, Throwable cause) {
+        Throwable throwable = null;
+        Class<?> type = typeOrName instanceof Class ? (Class<?>) typeOrName : null;
+        if (type != null && Throwable.class.isAssignableFrom(type) && Modifier.isPublic(type.getModifiers())) {
+            try {
+                throwable = (Throwable) type.getConstructor(String.class).newInstance(message);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                if (message == null) throwable = (Throwable) newDefaultInstance(type);
+            }
+        }
+        if (throwable == null) {
+            String name = type != null ? type.getName() : (String) typeOrName;
+            throwable = new RuntimeException(message == null ? name : name + ": " + message);
+        }
+        if (cause != null && throwable.getCause() == null) {
+            try {
+                throwable.initCause(cause);
+            } catch (IllegalStateException | IllegalArgumentException ignored) {
+                // Ignore
+            }
+        }
+        return throwable;
+    }
+
+    private ClassInfo classInfo(Class<?> type) {
+        ClassInfo info = classInfos.get(type);
+        if (info == null) {
+            info = classInfos.computeIfAbsent(type, key -> new ClassInfo(key, objenesis.getInstantiatorOf(key)));
+        }
+        return info;
+    }
+
+    /**
+     * 普通对象的字段信息，父类字段在前，同一个类中按字段名排序
+     */
+    private static class ClassInfo {
+
+        private final FieldInfo[] fields;
+
+        private final ObjectInstantiator<?> instantiator;
+
+        ClassInfo(Class<?> type, ObjectInstantiator<?> instantiator) {
+            this.instantiator = instantiator;
+            List<Class<?>> hierarchy = new ArrayList<>();
+            for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+                hierarchy.add(0, c);
+            }
+            List<FieldInfo> fields = new ArrayList<>();
+            for (Class<?> c : hierarchy) {
+                Field[] declared = c.getDeclaredFields();
+                Arrays.sort(declared, Comparator.comparing(Field::getName));
+                for (Field field : declared) {
+                    int modifiers = field.getModifiers();
+                    if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)) continue;
+                    try {
+                        field.setAccessible(true);
+                    } catch (RuntimeException e) {
+                        throw new IllegalStateException(String.format("Unsupported type for compact serializer: %s", type.getName()), e);
+                    }
+                    fields.add(new FieldInfo(field));
+                }
+            }
+            this.fields = fields.toArray(new FieldInfo[0]);
+        }
+    }
+
+    private static class FieldInfo {
+
+        private final Field field;
+
+        /**
+         * 基本类型字段的类型标记，引用类型字段为 {@link #OBJECT}
+         */
+        private final byte kind;
+
+        FieldInfo(Field field) {
+            this.field = field;
+            Class<?> type = field.getType();
+            if (type == int.class) kind = INT;
+            else if (type == long.class) kind = LONG;
+            else if (type == boolean.class) kind = TRUE;
+            else if (type == byte.class) kind = BYTE;
+            else if (type == short.class) kind = SHORT;
+            else if (type == char.class) kind = CHAR;
+            else if (type == float.class) kind = FLOAT;
+            else if (type == double.class) kind = DOUBLE;
+            else kind = OBJECT;
+        }
+    }
+
+    /**
+     * 可自动扩容的输出缓冲区，并记录当前消息中已写出的类
+     */
+    private static class Output {
+
+        private byte[] buffer = new byte[256];
+
+        private int position;
+
+        private Map<Class<?>, Integer> classIndexes;
+
+        /**
+         * 返回类在当前消息中的编号，首次出现时分配编号并返回 {@code null}
+         */
+        Integer classIndex(Class<?> type) {
+            Integer index = WELL_KNOWN_INDEXES.get(type);
+            if (index != null) return index;
+            if (classIndexes == null) classIndexes = new HashMap<>();
+            index = classIndexes.get(type);
+            if (index == null) classIndexes.put(type, WELL_KNOWN_CLASSES.length + classIndexes.size());
+            return index;
+        }
+
+        void writeByte(int value) {
+            ensure(1);
+            buffer[position++] = (byte) value;
+        }
+
+        void writeVarInt(int value) {
+            writeUnsignedVarLong(Integer.toUnsignedLong((value << 1) ^ (value >> 31)));
+        }
+
+        void writeVarLong(long value) {
+            writeUnsignedVarLong((value << 1) ^ (value >> 63));
+        }
+
+        private void writeUnsignedVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        void writeFixedInt(int value) {
+            ensure(4);
+            for (int i = 0; i < 4; i++) {
+                buffer[position++] = (byte) (value >>> (i * 8));
+            }
+        }
+
+        void writeFixedLong(long value) {
+            ensure(8);
+            for (int i = 0; i < 8; i++) {
+                buffer[position++] = (byte) (value >>> (i * 8));
+            }
+        }
+
+        void writeBytes(byte[] bytes) {
+            writeVarInt(bytes.length);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        void writeString(String value) {
+            writeBytes(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+
+        void reset() {
+            position = 0;
+            if (classIndexes != null) classIndexes.clear();
+        }
+
+        private void ensure(int length) {
+            if (position + length > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, position + length));
+            }
+        }
+    }
+
+    /**
+     * 输入缓冲区，并记录当前消息中已读取的类
+     */
+    private static class Input {
+
+        private final byte[] buffer;
+
+        private int position;
+
+        /**
+         * 已读取的类，不被允许的类记录为类名
+         */
+        private final List<Object> classList = new ArrayList<>();
+
+        Input(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        Object classAt(int index) {
+            if (index < WELL_KNOWN_CLASSES.length) return WELL_KNOWN_CLASSES[index];
+            if (index - WELL_KNOWN_CLASSES.length >= classList.size()) {
+                throw new IllegalStateException(String.format("Illegal class reference: %d", index));
+            }
+            return classList.get(index - WELL_KNOWN_CLASSES.length);
+        }
+
+        void addClass(Object type) {
+            classList.add(type);
+        }
+
+        byte readByte() {
+            if (position >= buffer.length) throw new IllegalStateException("Unexpected end of compact data");
+            return buffer[position++];
+        }
+
+        int readVarInt() {
+            long raw = readUnsignedVarLong();
+            return (int) (raw >>> 1) ^ -(int) (raw & 1);
+        }
+
+        long readVarLong() {
+            long raw = readUnsignedVarLong();
+            return (raw >>> 1) ^ -(raw & 1);
+        }
+
+        private long readUnsignedVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return value;
+            }
+            throw new IllegalStateException("Malformed compact varint");
+        }
+
+        /**
+         * 读取数组、集合等的长度，每个元素至少占 1 字节，超出剩余字节数的长度必然非法
+         */
+        int readLength() {
+            int length = readVarInt();
+            if (length < 0 || length > buffer.length - position) {
+                throw new IllegalStateException(String.format("Illegal compact length: %d", length));
+            }
+            return length;
+        }
+
+        int readFixedInt() {
+            int value = 0;
+            for (int i = 0; i < 4; i++) {
+                value |= (readByte() & 0xFF) << (i * 8);
+            }
+            return value;
+        }
+
+        long readFixedLong() {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value |= (long) (readByte() & 0xFF) << (i * 8);
+            }
+            return value;
+        }
+
+        byte[] readBytes() {
+            int length = readLength();
+            byte[] bytes = Arrays.copyOfRange(buffer, position, position + length);
+            position += length;
+            return bytes;
+        }
+
+        String readString() {
+            int length = readLength();
+            String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+}
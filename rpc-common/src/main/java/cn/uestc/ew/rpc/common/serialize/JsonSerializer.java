@@ -0,0 +1,130 @@
+package cn.uestc.ew.rpc.common.serialize;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONReader;
+import com.alibaba.fastjson2.JSONWriter;
+import com.alibaba.fastjson2.filter.Filter;
+import com.alibaba.fastjson2.filter.PropertyFilter;
+import com.alibaba.fastjson2.filter.ValueFilter;
+import com.alibaba.fastjson2.util.TypeUtils;
+
+import java.io.OutputStream;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+
+/**
+ * 基于 fastjson2 的 JSON 序列化器，消息体可以直接阅读，便于抓包调试，不建议在生产环境使用。
+ *
+ * <p>为了还原参数列表等 {@code Object} 类型字段的实际类型，序列化时写出类型名称，反序列化时开启 AutoType，
+ * 但类型名称全部交给 {@link ClassAllowlist} 检查，不被允许的类型直接拒绝。数组元素及基本类型数组的类型无法从 JSON 中还原，
+ * 由 {@link #convert(Object, Type)} 按方法声明的类型转换；异常只传输类型及消息。</p>
+ */
+public class JsonSerializer implements Serializer {
+
+    public static final byte ID = 3;
+
+    public static final String NAME = "json";
+
+    private static final JSONWriter.Feature[] WRITER_FEATURES = {JSONWriter.Feature.WriteClassName,
+            JSONWriter.Feature.FieldBased, JSONWriter.Feature.NotWriteDefaultValue};
+
+    /**
+     * 写出时使用的过滤器，用于绕过 fastjson2 的两个缺陷：
+     * <ul>
+     *     <li>写出 {@code char} 时每次都会扩容输出缓冲区，字符较多时抛出 {@link OutOfMemoryError}，因此以字符串写出</li>
+     *     <li>无法解析带有 cause 的异常，因此异常只写出类型及消息，堆栈等字段体积大，同样不写出</li>
+     * </ul>
+     */
+    private static final Filter[] WRITER_FILTERS = {
+            (ValueFilter) (object, name, value) -> value instanceof Character ? value.toString() : value,
+            (PropertyFilter) (object, name, value) ->
+                    !(object instanceof Throwable) || "message".equals(name) || "detailMessage".equals(name)};
+
+    private static final JSONReader.Feature[] READER_FEATURES = {JSONReader.Feature.SupportAutoType,
+            JSONReader.Feature.FieldBased};
+
+    /**
+     * 按 {@link ClassAllowlist} 解析消息中的类型名称，不被允许时抛出异常，不再交给 fastjson2 自身的 AutoType 检查。
+     * fastjson2 对部分常用类只写出简称（如 {@code IllegalArgumentException}），先还原为全限定名
+     */
+    private static final JSONReader.AutoTypeBeforeHandler AUTO_TYPE_HANDLER = (typeName, expectClass, features) -> {
+        Class<?> mapping = TypeUtils.getMapping(typeName);
+        try {
+            return ClassAllowlist.load(mapping != null ? mapping.getName() : typeName);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    };
+
+    @Override
+    public byte getId() {
+        return ID;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public <T> byte[] serialize(T obj) {
+        try {
+            return JSON.toJSONBytes(obj, WRITER_FILTERS, WRITER_FEATURES);
+        } catch (Exception e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public <T> void serialize(T obj, OutputStream out) {
+        try {
+            JSON.writeTo(out, obj, WRITER_FILTERS, WRITER_FEATURES);
+        } catch (Exception e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public <T> T deserialize(byte[] data, Class<T> cls) {
+        try {
+            return JSON.parseObject(data, cls, AUTO_TYPE_HANDLER, READER_FEATURES);
+        } catch (Exception e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 值的类型与声明的类型不符时（如被解析为 {@code JSONObject} 的对象、被解析为 {@code JSONArray} 的数组），
+     * 重新按声明的类型解析
+     */
+    @Override
+    public Object convert(Object value, Type type) {
+        Class<?> rawType = rawType(type);
+        if (value == null || rawType == null || rawType.isInstance(value)) return value;
+        try {
+            // JSONObject 中保留了嵌套对象的类型名称，不写出其自身的类型名称，重新解析时按声明的类型及嵌套的类型名称还原
+            return JSON.parseObject(JSON.toJSONBytes(value, WRITER_FILTERS), type, AUTO_TYPE_HANDLER, READER_FEATURES);
+        } catch (Exception e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 返回声明类型对应的类，基本类型转换为包装类型，无法确定时（如类型变量）返回 {@code null}
+     */
+    private static Class<?> rawType(Type type) {
+        if (type instanceof ParameterizedType) type = ((ParameterizedType) type).getRawType();
+        if (!(type instanceof Class)) return null;
+        Class<?> cls = (Class<?>) type;
+        if (!cls.isPrimitive()) return cls;
+        if (cls == int.class) return Integer.class;
+        if (cls == long.class) return Long.class;
+        if (cls == boolean.class) return Boolean.class;
+        if (cls == double.class) return Double.class;
+        if (cls == float.class) return Float.class;
+        if (cls == short.class) return Short.class;
+        if (cls == byte.class) return Byte.class;
+        if (cls == char.class) return Character.class;
+        return null;
+    }
+}
@@ -0,0 +1,103 @@
+package cn.uestc.ew.rpc.common.serialize;
+
+import cn.uestc.ew.rpc.common.util.StripedPool;
+import com.dyuproject.protostuff.LinkedBuffer;
+import com.dyuproject.protostuff.ProtostuffIOUtil;
+import com.dyuproject.protostuff.Schema;
+import com.dyuproject.protostuff.runtime.RuntimeSchema;
+import org.objenesis.Objenesis;
+import org.objenesis.ObjenesisStd;
+
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 基于 Protostuff {@link RuntimeSchema} 的序列化器，默认使用的序列化器
+ */
+public class ProtostuffSerializer implements Serializer {
+
+    public static final byte ID = 1;
+
+    public static final String NAME = "protostuff";
+
+    /**
+     * 缓存 Java 的 {@link Class} 类型与 Protostuff 的 {@link Schema} 类型的对应关系
+     */
+    private final Map<Class<?>, Schema<?>> cachedSchema = new ConcurrentHashMap<>();
+
+    /**
+     * 实例化工具
+     */
+    private final Objenesis objenesis = new ObjenesisStd(true);
+
+    /**
+     * 复用的 {@link LinkedBuffer}，避免每次序列化都分配新的缓冲区
+     */
+    private final StripedPool<LinkedBuffer> buffers =
+            new StripedPool<>(() -> LinkedBuffer.allocate(LinkedBuffer.DEFAULT_BUFFER_SIZE));
+
+    @Override
+    public byte getId() {
+        return ID;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> byte[] serialize(T obj) {
+        Class<T> cls = (Class<T>) obj.getClass();
+        LinkedBuffer buffer = buffers.acquire();
+        try {
+            Schema<T> schema = getSchema(cls);
+            return ProtostuffIOUtil.toByteArray(obj, schema, buffer);
+        } catch (Exception e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        } finally {
+            buffers.release(buffer.clear());
+        }
+    }
+
+    /**
+     * {@link LinkedBuffer} 写满后直接写出到输出流，而不会分配新的节点
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> void serialize(T obj, OutputStream out) {
+        Class<T> cls = (Class<T>) obj.getClass();
+        LinkedBuffer buffer = buffers.acquire();
+        try {
+            ProtostuffIOUtil.writeTo(out, obj, getSchema(cls), buffer);
+        } catch (Exception e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        } finally {
+            buffers.release(buffer.clear());
+        }
+    }
+
+    @Override
+    public <T> T deserialize(byte[] data, Class<T> cls) {
+        try {
+            T message = objenesis.newInstance(cls);
+            Schema<T> schema = getSchema(cls);
+            ProtostuffIOUtil.mergeFrom(data, message, schema);
+            return message;
+        } catch (Exception e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Schema<T> getSchema(Class<T> cls) {
+        Schema<T> schema = (Schema<T>) cachedSchema.get(cls);
+        if (schema == null) {
+            schema = RuntimeSchema.createFrom(cls);
+            cachedSchema.put(cls, schema);
+        }
+        return schema;
+    }
+}
@@ -0,0 +1,73 @@
+package cn.uestc.ew.rpc.common.serialize;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+
+/**
+ * 序列化器，负责 RPC 消息体与字节数组之间的转换
+ *
+ * <p>每个序列化器有一个唯一的编号，随协议帧的帧头传输，服务端使用与请求帧相同的序列化器解码请求并编码响应，
+ * 因此客户端可以为每个服务单独选择序列化器。内置序列化器见 {@link Serializers}，
+ * 自定义序列化器可以通过 {@link Serializers#register(Serializer)} 或 {@link java.util.ServiceLoader} 注册，
+ * 客户端与服务端必须注册相同的序列化器。实现类必须是线程安全的。</p>
+ */
+public interface Serializer {
+
+    /**
+     * 序列化器编号，取值范围为 1 ~ 127，其中 1 ~ 15 保留给内置序列化器
+     */
+    byte getId();
+
+    /**
+     * 序列化器名称，用于在配置中指定序列化器
+     */
+    String getName();
+
+    /**
+     * 序列化方法，将对象序列化为字节数组
+     *
+     * @param obj 需要序列化的对象
+     * @return 序列化后对应的字节数组
+     * @throws IllegalStateException 序列化失败后抛出该异常，可通过其 {@code getCause()} 方法获取原始异常
+     */
+    <T> byte[] serialize(T obj);
+
+    /**
+     * 序列化方法，将对象直接写入输出流，编码协议帧时使用。默认实现先序列化为字节数组再写出，
+     * 实现类应尽量覆盖该方法，直接写入输出流并复用内部的临时缓冲区
+     *
+     * @param obj 需要序列化的对象
+     * @param out 输出流，通常是 {@link cn.uestc.ew.rpc.common.util.codec.FrameBuffer}
+     * @throws IllegalStateException 序列化或写出失败后抛出该异常，可通过其 {@code getCause()} 方法获取原始异常
+     */
+    default <T> void serialize(T obj, OutputStream out) {
+        try {
+            out.write(serialize(obj));
+        } catch (IOException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 反序列化方法，将字节数组反序列化为指定对象类型
+     *
+     * @param data 需要反序列化的字节数组
+     * @param cls  反序列化后的对象类型
+     * @return 反序列化后的对象，失败时抛出异常而非返回 {@code null}
+     * @throws IllegalStateException 反序列化失败后抛出该异常，可通过其 {@code getCause()} 方法获取原始异常
+     */
+    <T> T deserialize(byte[] data, Class<T> cls);
+
+    /**
+     * 将反序列化得到的参数或返回值转换为方法声明的类型。服务端在调用服务方法前转换参数，客户端在返回结果前转换返回值。
+     * 自身携带完整类型信息的序列化器无需转换，JSON 等类型信息不完整的序列化器需要覆盖该方法
+     *
+     * @param value 反序列化得到的值
+     * @param type  方法声明的参数类型或返回值类型
+     * @return 转换后的值
+     */
+    default Object convert(Object value, Type type) {
+        return value;
+    }
+}
@@ -0,0 +1,97 @@
+package cn.uestc.ew.rpc.common.serialize;
+
+import lombok.experimental.UtilityClass;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 序列化器注册表，按编号或名称查找序列化器
+ *
+ * <p>内置以下序列化器：</p>
+ * <ul>
+ *     <li>{@link ProtostuffSerializer}：编号 1，名称 {@code protostuff}，默认使用</li>
+ *     <li>{@link CompactSerializer}：编号 2，名称 {@code compact}，手写的紧凑二进制编码</li>
+ *     <li>{@link JsonSerializer}：编号 3，名称 {@code json}，基于 fastjson2，便于调试及跨语言</li>
+ * </ul>
+ *
+ * <p>类加载时还会通过 {@link ServiceLoader} 加载 {@code META-INF/services/cn.uestc.ew.rpc.common.serialize.Serializer}
+ * 中声明的序列化器。</p>
+ */
+@Slf4j
+@UtilityClass
+public class Serializers {
+
+    /**
+     * 默认的序列化器
+     */
+    public static final Serializer DEFAULT = new ProtostuffSerializer();
+
+    /**
+     * 以编号为下标的序列化器数组，解码每一帧时都需要查找，因此不使用 Map
+     */
+    private static final Serializer[] SERIALIZERS = new Serializer[128];
+
+    private static final Map<String, Serializer> SERIALIZERS_BY_NAME = new ConcurrentHashMap<>();
+
+    static {
+        register(DEFAULT);
+        register(new CompactSerializer());
+        register(new JsonSerializer());
+        for (Serializer serializer : ServiceLoader.load(Serializer.class)) {
+            register(serializer);
+        }
+    }
+
+    /**
+     * 注册序列化器，编号或名称已被占用时抛出异常
+     *
+     * @param serializer 序列化器
+     */
+    public static synchronized void register(Serializer serializer) {
+        byte id = serializer.getId();
+        if (id <= 0) {
+            throw new IllegalArgumentException(String.format("Illegal serializer id: %d", id));
+        }
+        Serializer previous = SERIALIZERS[id];
+        if (previous != null || SERIALIZERS_BY_NAME.containsKey(serializer.getName())) {
+            throw new IllegalStateException(String.format("Serializer [%s] conflicts with registered one: id=%d",
+                    serializer.getName(), id));
+        }
+        SERIALIZERS[id] = serializer;
+        SERIALIZERS_BY_NAME.put(serializer.getName(), serializer);
+        log.debug("Register serializer: id={}, name={}", id, serializer.getName());
+    }
+
+    /**
+     * 按编号查找序列化器
+     *
+     * @param id 序列化器编号
+     * @return 序列化器
+     * @throws IllegalStateException 序列化器不存在时抛出该异常
+     */
+    public static Serializer get(byte id) {
+        Serializer serializer = id > 0 ? SERIALIZERS[id] : null;
+        if (serializer == null) {
+            throw new IllegalStateException(String.format("Unsupported serializer: id=%d", id));
+        }
+        return serializer;
+    }
+
+    /**
+     * 按名称查找序列化器
+     *
+     * @param name 序列化器名称
+     * @return 序列化器
+     * @throws IllegalStateException 序列化器不存在时抛出该异常
+     */
+    public static Serializer get(String name) {
+        Serializer serializer = SERIALIZERS_BY_NAME.get(name);
+        if (serializer == null) {
+            throw new IllegalStateException(String.format("Unsupported serializer: name=%s", name));
+        }
+        return serializer;
+    }
+}
@@ -0,0 +1,245 @@
+package cn.uestc.ew.rpc.common.stream;
+
+import cn.uestc.ew.rpc.common.bean.RpcFrame;
+import cn.uestc.ew.rpc.common.bean.RpcResponse;
+import cn.uestc.ew.rpc.common.serialize.Serializers;
+import cn.uestc.ew.rpc.common.util.codec.FrameCodec;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Type;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 接收方向的流，将对端发送的元素交付给本端的订阅者，只能被订阅一次
+ *
+ * <p>读线程收到的帧先放入队列，由 {@link #drain()} 在线程池中串行地解码并交付，同时按订阅者的需求向对端授予信用：
+ * 已授予但尚未交付的元素不超过 {@link RpcStreams#WINDOW} 个，空余额度达到窗口的一半（或没有在途元素）时才发送信用帧，
+ * 避免每交付一个元素就发送一个信用帧。</p>
+ */
+@Slf4j
+final class InboundStream<T> implements Flow.Publisher<T>, Flow.Subscription {
+
+    private final RpcStream stream;
+
+    private volatile Type elementType = Object.class;
+
+    /**
+     * 已收到但尚未交付的流元素帧
+     */
+    private final Queue<RpcFrame> received = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 交付循环的待处理信号数，不为 0 时已有线程在执行交付循环
+     */
+    private final AtomicInteger wip = new AtomicInteger();
+
+    /**
+     * 订阅者尚未满足的需求
+     */
+    private final AtomicLong requested = new AtomicLong();
+
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+
+    private volatile Flow.Subscriber<? super T> subscriber;
+
+    /**
+     * 对端发送的流结束帧
+     */
+    private volatile RpcFrame completion;
+
+    /**
+     * 连接断开等本端产生的异常
+     */
+    private volatile Throwable failure;
+
+    /**
+     * 订阅者请求了非正数个元素
+     */
+    private volatile IllegalArgumentException invalidRequest;
+
+    private volatile boolean cancelled;
+
+    /**
+     * 已授予对端但尚未交付的元素个数，只在交付循环中访问
+     */
+    private long outstanding;
+
+    /**
+     * 是否已结束，只在交付循环中访问
+     */
+    private boolean terminated;
+
+    InboundStream(RpcStream stream) {
+        this.stream = stream;
+    }
+
+    void setElementType(Type elementType) {
+        this.elementType = elementType;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        if (!subscribed.compareAndSet(false, true)) {
+            RpcStreams.<T>failed(new IllegalStateException("Stream can only be subscribed once")).subscribe(subscriber);
+            return;
+        }
+        // onSubscribe 返回后才开始交付，保证订阅者的回调是串行的
+        subscriber.onSubscribe(this);
+        this.subscriber = subscriber;
+        drain();
+    }
+
+    @Override
+    public void request(long n) {
+        if (n <= 0) {
+            invalidRequest = new IllegalArgumentException(String.format("Non-positive request: %d", n));
+        } else {
+            requested.getAndAccumulate(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+        }
+        drain();
+    }
+
+    @Override
+    public void cancel() {
+        cancelled = true;
+        drain();
+    }
+
+    void onElement(RpcFrame frame) {
+        received.add(frame);
+        drain();
+    }
+
+    void onComplete(RpcFrame frame) {
+        completion = frame;
+        drain();
+    }
+
+    void fail(Throwable cause) {
+        failure = cause;
+        drain();
+    }
+
+    private boolean isDone() {
+        return completion != null || failure != null;
+    }
+
+    /**
+     * 发出交付信号，没有线程在执行交付循环时提交到线程池执行
+     */
+    private void drain() {
+        if (wip.getAndIncrement() == 0) {
+            stream.execute(this::drainLoop);
+        }
+    }
+
+    private void drainLoop() {
+        int missed = 1;
+        do {
+            if (!terminated) {
+                drainOnce();
+            }
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void drainOnce() {
+        if (cancelled) {
+            terminate(!isDone());
+            return;
+        }
+        Flow.Subscriber<? super T> s = subscriber;
+        if (s == null) return;
+        if (invalidRequest != null) {
+            terminate(!isDone());
+            s.onError(invalidRequest);
+            return;
+        }
+
+        // 1. 在订阅者的需求范围内交付已收到的元素
+        long demand = requested.get();
+        long delivered = 0;
+        while (delivered != demand) {
+            RpcFrame frame = received.poll();
+            if (frame == null) break;
+            outstanding--;
+            T element;
+            try {
+                element = decode(frame);
+            } catch (RuntimeException e) {
+                terminate(!isDone());
+                s.onError(e);
+                return;
+            }
+            try {
+                s.onNext(element);
+            } catch (RuntimeException e) {
+                log.warn("Stream subscriber failed, cancel stream: requestId={}", stream.getRequestId(), e);
+                cancelled = true;
+            }
+            delivered++;
+            if (cancelled) {
+                terminate(!isDone());
+                return;
+            }
+        }
+        if (delivered > 0 && demand != Long.MAX_VALUE) {
+            requested.addAndGet(-delivered);
+        }
+
+        // 2. 对端已结束且元素已全部交付时结束订阅者
+        if (isDone() && received.isEmpty()) {
+            terminate(false);
+            Throwable error = failure != null ? failure : completionError();
+            if (error != null) {
+                s.onError(error);
+            } else {
+                s.onComplete();
+            }
+            return;
+        }
+
+        // 3. 按剩余需求授予信用
+        if (!isDone()) {
+            long credits = Math.min(requested.get(), RpcStreams.WINDOW) - outstanding;
+            if (credits > 0 && (outstanding == 0 || credits >= RpcStreams.WINDOW / 2)) {
+                outstanding += credits;
+                stream.send(FrameCodec.encodeStreamCredit(stream.getRequestId(), (int) credits));
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private T decode(RpcFrame frame) {
+        RpcResponse body = FrameCodec.decodeStreamElement(frame);
+        return (T) Serializers.get(frame.getSerializer()).convert(body.getResult(), elementType);
+    }
+
+    /**
+     * 对端以异常结束流时返回该异常
+     */
+    private Throwable completionError() {
+        try {
+            return FrameCodec.decodeStreamElement(completion).getException();
+        } catch (RuntimeException e) {
+            return e;
+        }
+    }
+
+    /**
+     * 结束接收方向，丢弃未交付的元素，需要时通知对端停止发送
+     */
+    private void terminate(boolean cancelPeer) {
+        terminated = true;
+        received.clear();
+        if (cancelPeer) {
+            stream.send(FrameCodec.encodeStreamCancel(stream.getRequestId()));
+        }
+        stream.release();
+    }
+}
@@ -0,0 +1,120 @@
+package cn.uestc.ew.rpc.common.stream;
+
+import cn.uestc.ew.rpc.common.util.codec.FrameBuffer;
+import cn.uestc.ew.rpc.common.util.codec.FrameCodec;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 发送方向的流，订阅本端的 {@link Flow.Publisher}，将元素逐个编码为流元素帧发送给对端
+ *
+ * <p>只在收到对端的信用帧时向上游请求同样数量的元素，上游遵守请求数量时本端不会缓存元素，
+ * 对端缓存的元素也不超过其授予的信用。向上游请求元素在线程池中执行，同步发出元素的上游不会占用连接的读线程。</p>
+ */
+@Slf4j
+final class OutboundStream implements Flow.Subscriber<Object> {
+
+    private final RpcStream stream;
+
+    /**
+     * 对端授予但尚未向上游请求的信用
+     */
+    private final AtomicLong credits = new AtomicLong();
+
+    private final AtomicBoolean done = new AtomicBoolean();
+
+    private volatile Flow.Subscription subscription;
+
+    OutboundStream(RpcStream stream) {
+        this.stream = stream;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        if (this.subscription != null || done.get()) {
+            subscription.cancel();
+            return;
+        }
+        this.subscription = subscription;
+        if (done.get()) {
+            // 订阅期间被取消
+            subscription.cancel();
+            return;
+        }
+        requestCredits();
+    }
+
+    @Override
+    public void onNext(Object item) {
+        if (done.get()) return;
+        FrameBuffer frame;
+        try {
+            frame = FrameCodec.encodeStreamElement(stream.getRequestId(), stream.getSerializer(), item);
+        } catch (RuntimeException e) {
+            finish(e, true);
+            return;
+        }
+        stream.send(frame);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        finish(throwable instanceof Exception ? (Exception) throwable : new RuntimeException(throwable), false);
+    }
+
+    @Override
+    public void onComplete() {
+        finish(null, false);
+    }
+
+    /**
+     * 收到对端的信用帧
+     */
+    void onCredit(int n) {
+        if (n <= 0) return;
+        credits.addAndGet(n);
+        requestCredits();
+    }
+
+    /**
+     * 对端取消或连接断开，取消上游的订阅，不再通知对端
+     */
+    void cancel() {
+        if (done.compareAndSet(false, true)) {
+            Flow.Subscription s = subscription;
+            if (s != null) s.cancel();
+            stream.release();
+        }
+    }
+
+    private void requestCredits() {
+        Flow.Subscription s = subscription;
+        if (s == null || done.get()) return;
+        long n = credits.getAndSet(0);
+        if (n > 0) {
+            stream.execute(() -> s.request(n));
+        }
+    }
+
+    /**
+     * 以流结束帧通知对端，异常无法编码时以其类型及消息代替
+     */
+    private void finish(Exception exception, boolean cancelUpstream) {
+        if (!done.compareAndSet(false, true)) return;
+        Flow.Subscription s = subscription;
+        if (cancelUpstream && s != null) s.cancel();
+        FrameBuffer frame;
+        try {
+            frame = FrameCodec.encodeStreamComplete(stream.getRequestId(), stream.getSerializer(), exception);
+        } catch (RuntimeException e) {
+            log.debug("Encode stream exception failed: {}", e.getMessage());
+            frame = FrameCodec.encodeStreamComplete(stream.getRequestId(), stream.getSerializer(),
+                    new RuntimeException(exception.toString()));
+        }
+        stream.send(frame);
+        stream.release();
+    }
+}
@@ -0,0 +1,194 @@
+package cn.uestc.ew.rpc.common.stream;
+
+import cn.uestc.ew.rpc.common.bean.RpcFrame;
+import cn.uestc.ew.rpc.common.bean.RpcResponse;
+import cn.uestc.ew.rpc.common.util.codec.FrameBuffer;
+import cn.uestc.ew.rpc.common.util.codec.FrameCodec;
+import lombok.Getter;
+
+import java.lang.reflect.Type;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 单个流式调用在连接一端的状态，每个方向至多有一个流：
+ * <ul>
+ *     <li>接收方向（{@link #inbound(Type)}）：对端发送的流，以 {@link Flow.Publisher} 交给本端的订阅者</li>
+ *     <li>发送方向（{@link #outbound()}）：本端发送的流，以 {@link Flow.Subscriber} 订阅本端的 {@link Flow.Publisher}，
+ *         按对端授予的信用向上游请求元素</li>
+ * </ul>
+ *
+ * <p>两个方向在第一次使用时创建，对端的帧可能先于本端创建该方向到达（如对端在本端开始调用服务方法前就结束了流），
+ * 此时帧保存在先行创建的方向中。打开流的一方持有一个引用，创建完需要的方向后调用 {@link #attached()} 释放，
+ * 每个方向结束时各释放一个引用，全部释放后流从注册表中移除。</p>
+ */
+public class RpcStream {
+
+    private final RpcStreams streams;
+
+    /**
+     * 流所属的请求标识符
+     */
+    @Getter
+    private final long requestId;
+
+    /**
+     * 流中元素使用的序列化器编号
+     */
+    @Getter
+    private final byte serializer;
+
+    /**
+     * 引用计数，初始时由打开流的一方持有一个引用
+     */
+    private final AtomicInteger refs = new AtomicInteger(1);
+
+    private final AtomicBoolean attached = new AtomicBoolean();
+
+    /**
+     * 流式请求的单个响应，服务方法以单个值返回结果或在流开始前出现异常时完成
+     */
+    private final CompletableFuture<RpcResponse> response = new CompletableFuture<>();
+
+    private InboundStream<?> inbound;
+
+    private OutboundStream outbound;
+
+    RpcStream(RpcStreams streams, long requestId, byte serializer) {
+        this.streams = streams;
+        this.requestId = requestId;
+        this.serializer = serializer;
+    }
+
+    /**
+     * 返回接收方向的流，每个流只能被订阅一次
+     *
+     * @param elementType 元素的声明类型，由序列化器将元素转换为该类型
+     * @return 对端发送的流
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Flow.Publisher<T> inbound(Type elementType) {
+        InboundStream<T> stream = (InboundStream<T>) inboundStream();
+        stream.setElementType(elementType);
+        return stream;
+    }
+
+    /**
+     * 返回发送方向的订阅者，以其订阅本端需要发送的流
+     */
+    public Flow.Subscriber<Object> outbound() {
+        return outboundStream();
+    }
+
+    /**
+     * 流式请求的单个响应，收到对端的响应帧时完成，连接断开时以异常结束
+     */
+    public CompletableFuture<RpcResponse> response() {
+        return response;
+    }
+
+    /**
+     * 需要的方向都已创建，释放打开流时持有的引用，多次调用只释放一次
+     */
+    public void attached() {
+        if (attached.compareAndSet(false, true)) {
+            release();
+        }
+    }
+
+    /**
+     * 结束流：取消尚未结束的接收方向（通知对端停止发送）及发送方向（取消上游的订阅），并释放打开流时持有的引用
+     */
+    public void close() {
+        InboundStream<?> in;
+        OutboundStream out;
+        synchronized (this) {
+            in = inbound;
+            out = outbound;
+        }
+        if (in != null) in.cancel();
+        if (out != null) out.cancel();
+        attached();
+    }
+
+    /**
+     * 以异常结束流（如连接断开、服务端在流开始前返回了异常）：接收方向的订阅者收到该异常，取消发送方向上游的订阅，
+     * 并以该异常结束响应
+     */
+    public void fail(Throwable cause) {
+        InboundStream<?> in;
+        OutboundStream out;
+        synchronized (this) {
+            in = inbound;
+            out = outbound;
+        }
+        if (in != null) in.fail(cause);
+        if (out != null) out.cancel();
+        response.completeExceptionally(cause);
+        attached();
+    }
+
+    /**
+     * 处理连接的读线程收到的属于当前流的帧
+     */
+    void receive(RpcFrame frame) {
+        switch (frame.getType()) {
+            case RpcFrame.TYPE_STREAM_ELEMENT:
+                inboundStream().onElement(frame);
+                break;
+            case RpcFrame.TYPE_STREAM_COMPLETE:
+                inboundStream().onComplete(frame);
+                break;
+            case RpcFrame.TYPE_STREAM_CREDIT:
+                outboundStream().onCredit(frame.getMethodId());
+                break;
+            case RpcFrame.TYPE_STREAM_CANCEL:
+                outboundStream().cancel();
+                break;
+            case RpcFrame.TYPE_RESPONSE:
+                try {
+                    response.complete(FrameCodec.decodeResponse(frame));
+                } catch (RuntimeException e) {
+                    response.completeExceptionally(e);
+                }
+                break;
+            default:
+                throw new IllegalStateException(String.format("Unexpected frame type: %d", frame.getType()));
+        }
+    }
+
+    private synchronized InboundStream<?> inboundStream() {
+        if (inbound == null) {
+            refs.incrementAndGet();
+            inbound = new InboundStream<>(this);
+        }
+        return inbound;
+    }
+
+    private synchronized OutboundStream outboundStream() {
+        if (outbound == null) {
+            refs.incrementAndGet();
+            outbound = new OutboundStream(this);
+        }
+        return outbound;
+    }
+
+    void send(FrameBuffer frame) {
+        streams.send(frame);
+    }
+
+    void execute(Runnable task) {
+        streams.execute(task);
+    }
+
+    /**
+     * 释放一个引用，全部释放后从注册表中移除
+     */
+    void release() {
+        if (refs.decrementAndGet() == 0) {
+            streams.remove(this);
+        }
+    }
+}
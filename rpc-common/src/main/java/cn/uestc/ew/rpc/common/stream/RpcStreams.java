@@ -0,0 +1,237 @@
+package cn.uestc.ew.rpc.common.stream;
+
+import cn.uestc.ew.rpc.common.bean.RpcFrame;
+import cn.uestc.ew.rpc.common.util.codec.FrameBuffer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * 单个连接上的流注册表，按请求标识符管理该连接上进行中的流（见 {@link RpcStream}）
+ *
+ * <p>服务方法的返回值或参数为 {@link Flow.Publisher} 时，调用以流的方式进行：客户端发送流式请求帧后，
+ * 流中的元素以同一个请求标识符的流元素帧逐个发送，最后以流结束帧结束。接收方按订阅者的需求以信用帧授予对端发送额度，
+ * 已授予但尚未交付给订阅者的元素不超过 {@link #WINDOW} 个，因此两端缓存的元素都是有界的。</p>
+ *
+ * <p>连接的读线程收到流相关的帧后交给 {@link #receive(RpcFrame)} 分发，不经过业务线程池，保证同一个流的帧按到达顺序处理；
+ * 元素的解码及交付在 {@code executor} 中执行，订阅者的回调不会阻塞读线程。</p>
+ */
+@Slf4j
+public class RpcStreams {
+
+    /**
+     * 接收方的流量窗口，即已授予对端但尚未交付给订阅者的元素个数上限
+     */
+    public static final int WINDOW = 128;
+
+    /**
+     * 什么也不做的订阅，用于以异常结束无法开始的流
+     */
+    private static final Flow.Subscription EMPTY_SUBSCRIPTION = new Flow.Subscription() {
+        @Override
+        public void request(long n) {
+        }
+
+        @Override
+        public void cancel() {
+        }
+    };
+
+    private final Map<Long, RpcStream> streams = new ConcurrentHashMap<>();
+
+    /**
+     * 将编码好的帧写出到连接，缓冲区的所有权随之转移
+     */
+    private final Consumer<FrameBuffer> sink;
+
+    /**
+     * 交付元素及向上游请求元素的线程池
+     */
+    private final Executor executor;
+
+    private volatile boolean closed;
+
+    /**
+     * @param sink     将编码好的帧写出到连接，写出后（或连接关闭时）归还缓冲区
+     * @param executor 交付元素及向上游请求元素的线程池
+     */
+    public RpcStreams(Consumer<FrameBuffer> sink, Executor executor) {
+        this.sink = sink;
+        this.executor = executor;
+    }
+
+    /**
+     * 登记一个新的流，流的两个方向在使用时创建
+     *
+     * @param requestId  流所属的请求标识符
+     * @param serializer 流中元素使用的序列化器编号
+     * @return 新登记的流，连接已关闭时流已以异常结束
+     * @throws IllegalStateException 请求标识符已被占用
+     */
+    public RpcStream open(long requestId, byte serializer) {
+        RpcStream stream = new RpcStream(this, requestId, serializer);
+        if (streams.putIfAbsent(requestId, stream) != null) {
+            throw new IllegalStateException(String.format("Duplicate stream: requestId=%d", requestId));
+        }
+        if (closed) {
+            stream.fail(new IOException("Connection closed"));
+        }
+        return stream;
+    }
+
+    /**
+     * 是否没有进行中的流
+     */
+    public boolean isEmpty() {
+        return streams.isEmpty();
+    }
+
+    /**
+     * 查找进行中的流
+     *
+     * @return 流，不存在或已结束时返回 {@code null}
+     */
+    public RpcStream get(long requestId) {
+        return streams.get(requestId);
+    }
+
+    /**
+     * 在连接的读线程中分发收到的帧
+     *
+     * <ul>
+     *     <li>流元素帧、流结束帧、信用帧及取消帧交给对应的流，流已结束时丢弃，返回 {@code true}</li>
+     *     <li>流式请求帧在此登记流后返回 {@code false}，由调用方交给业务线程池处理，
+     *         保证之后到达的同一个流的帧能找到该流</li>
+     *     <li>响应帧属于进行中的流时（流式请求的单个结果或开始前的异常）交给该流，返回 {@code true}</li>
+     *     <li>其它帧返回 {@code false}</li>
+     * </ul>
+     *
+     * @param frame 收到的帧
+     * @return 帧是否已被处理
+     */
+    public boolean receive(RpcFrame frame) {
+        switch (frame.getType()) {
+            case RpcFrame.TYPE_STREAM_ELEMENT:
+            case RpcFrame.TYPE_STREAM_COMPLETE:
+            case RpcFrame.TYPE_STREAM_CREDIT:
+            case RpcFrame.TYPE_STREAM_CANCEL:
+                RpcStream stream = streams.get(frame.getRequestId());
+                if (stream != null) {
+                    // 流中的帧只能使用流式请求帧选定的序列化器
+                    boolean hasBody = frame.getType() == RpcFrame.TYPE_STREAM_ELEMENT
+                            || frame.getType() == RpcFrame.TYPE_STREAM_COMPLETE;
+                    if (hasBody && frame.getSerializer() != stream.getSerializer()) {
+                        throw new IllegalStateException(String.format("Serializer mismatch in stream: requestId=%d, id=%d",
+                                frame.getRequestId(), frame.getSerializer()));
+                    }
+                    stream.receive(frame);
+                } else {
+                    log.debug("Discard frame of finished stream: type={}, requestId={}",
+                            frame.getType(), frame.getRequestId());
+                }
+                return true;
+            case RpcFrame.TYPE_STREAM_REQUEST:
+                open(frame.getRequestId(), frame.getSerializer());
+                return false;
+            case RpcFrame.TYPE_RESPONSE:
+                RpcStream owner = streams.get(frame.getRequestId());
+                if (owner == null) return false;
+                owner.receive(frame);
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * 连接关闭时调用，以异常结束所有进行中的流，之后登记的流立即以异常结束
+     *
+     * @param cause 连接关闭的原因
+     */
+    public void closeAll(Throwable cause) {
+        closed = true;
+        streams.values().forEach(stream -> stream.fail(cause));
+        streams.clear();
+    }
+
+    /**
+     * 类型是否为流，即 {@link Flow.Publisher} 及其实现
+     */
+    public static boolean isStream(Class<?> type) {
+        return Flow.Publisher.class.isAssignableFrom(type);
+    }
+
+    /**
+     * 返回方法中以流发送的参数的下标，每个方法至多有一个流参数
+     *
+     * @param method 服务方法
+     * @return 流参数的下标，没有时返回 -1
+     * @throws IllegalStateException 方法有多个流参数
+     */
+    public static int streamParameter(Method method) {
+        int index = -1;
+        Class<?>[] types = method.getParameterTypes();
+        for (int i = 0; i < types.length; i++) {
+            if (!isStream(types[i])) continue;
+            if (index >= 0) {
+                throw new IllegalStateException(String.format("At most one stream parameter is supported: %s#%s",
+                        method.getDeclaringClass().getName(), method.getName()));
+            }
+            index = i;
+        }
+        return index;
+    }
+
+    /**
+     * 返回流的元素类型，即 {@link Flow.Publisher} 的类型参数，无法确定时为 {@code Object}
+     */
+    public static Type elementType(Type streamType) {
+        return streamType instanceof ParameterizedType
+                ? ((ParameterizedType) streamType).getActualTypeArguments()[0] : Object.class;
+    }
+
+    /**
+     * 返回订阅后立即以指定异常结束的流，用于无法开始的调用
+     */
+    public static <T> Flow.Publisher<T> failed(Throwable cause) {
+        return subscriber -> {
+            subscriber.onSubscribe(EMPTY_SUBSCRIPTION);
+            subscriber.onError(cause);
+        };
+    }
+
+    /**
+     * 写出流的帧，连接已关闭时直接归还
+     */
+    void send(FrameBuffer frame) {
+        if (closed) {
+            frame.release();
+            return;
+        }
+        sink.accept(frame);
+    }
+
+    /**
+     * 在线程池中执行任务，线程池已关闭时在当前线程执行
+     */
+    void execute(Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.run();
+        }
+    }
+
+    void remove(RpcStream stream) {
+        streams.remove(stream.getRequestId(), stream);
+    }
+}
@@ -0,0 +1,69 @@
+package cn.uestc.ew.rpc.common.util;
+
+import cn.uestc.ew.rpc.common.config.ExecutionMode;
+import lombok.experimental.UtilityClass;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 线程池工具，根据 {@link ExecutionMode} 创建执行阻塞任务的线程池
+ */
+@Slf4j
+@UtilityClass
+public class ExecutorUtils {
+
+    /**
+     * {@code Executors.newVirtualThreadPerTaskExecutor()}，虚拟线程在 JDK 19 中仍是预览特性，
+     * 通过方法句柄调用，使项目在不开启预览特性时也能编译，当前 JVM 不支持时为 {@code null}
+     */
+    private static final MethodHandle VIRTUAL_EXECUTOR_FACTORY = findVirtualExecutorFactory();
+
+    /**
+     * 创建线程池
+     *
+     * @param mode            执行方式
+     * @param namePrefix      平台线程的名称前缀
+     * @param platformThreads 平台线程池的线程数，执行方式为 {@link ExecutionMode#VIRTUAL} 时忽略
+     * @param daemon          平台线程是否为守护线程
+     * @return 新建的线程池
+     */
+    public static ExecutorService newExecutor(ExecutionMode mode, String namePrefix, int platformThreads, boolean daemon) {
+        if (mode == ExecutionMode.VIRTUAL) {
+            ExecutorService executor = newVirtualThreadPerTaskExecutor();
+            if (executor != null) return executor;
+            log.warn("Virtual threads are not available, fall back to {} platform threads: {}", platformThreads, namePrefix);
+        }
+        AtomicInteger threadIndex = new AtomicInteger();
+        return Executors.newFixedThreadPool(platformThreads, r -> {
+            Thread thread = new Thread(r, namePrefix + threadIndex.getAndIncrement());
+            thread.setDaemon(daemon);
+            return thread;
+        });
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        if (VIRTUAL_EXECUTOR_FACTORY == null) return null;
+        try {
+            return (ExecutorService) VIRTUAL_EXECUTOR_FACTORY.invoke();
+        } catch (Throwable e) {
+            // JDK 19 未开启预览特性时抛出 UnsupportedOperationException
+            log.debug("Create virtual thread executor failed: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static MethodHandle findVirtualExecutorFactory() {
+        try {
+            return MethodHandles.publicLookup().findStatic(Executors.class,
+                    "newVirtualThreadPerTaskExecutor", MethodType.methodType(ExecutorService.class));
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
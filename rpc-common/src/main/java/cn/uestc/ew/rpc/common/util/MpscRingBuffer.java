@@ -0,0 +1,93 @@
+package cn.uestc.ew.rpc.common.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 有界的无锁环形队列，允许多个线程同时放入元素，只允许一个线程取出元素
+ *
+ * <p>每个槽位有一个序号：序号等于放入位置时槽位空闲，放入方以 CAS 领取位置后写入元素并将序号加 1，
+ * 取出方看到序号为位置加 1 时取出元素，再将序号推进一圈。放入方之间只竞争一次 CAS，不会阻塞，
+ * 队列已满时 {@link #offer(Object)} 立即返回 {@code false}，由调用方决定丢弃或重试。</p>
+ *
+ * @param <T> 元素类型
+ */
+public class MpscRingBuffer<T> {
+
+    private final Object[] buffer;
+
+    private final AtomicLongArray sequences;
+
+    private final int mask;
+
+    /**
+     * 下一个放入位置
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * 下一个取出位置，只有取出线程访问
+     */
+    private long head;
+
+    /**
+     * @param capacity 容量，向上取整为 2 的幂
+     */
+    public MpscRingBuffer(int capacity) {
+        int size = capacity <= 2 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+        this.buffer = new Object[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * 放入一个元素，可以在任意线程调用
+     *
+     * @param element 元素，不能为 {@code null}
+     * @return 队列已满时返回 {@code false}
+     */
+    public boolean offer(T element) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    buffer[index] = element;
+                    // 序号的 volatile 写保证取出线程看到元素
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                // 槽位中还是上一圈的元素，队列已满
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * 取出一个元素，只能在取出线程调用
+     *
+     * @return 队列为空（或下一个位置的元素尚未写完）时返回 {@code null}
+     */
+    @SuppressWarnings("unchecked")
+    public T poll() {
+        int index = (int) (head & mask);
+        if (sequences.get(index) != head + 1) return null;
+        T element = (T) buffer[index];
+        buffer[index] = null;
+        sequences.set(index, head + buffer.length);
+        head++;
+        return element;
+    }
+
+    public int capacity() {
+        return buffer.length;
+    }
+}
@@ -1,32 +1,14 @@
 package cn.uestc.ew.rpc.common.util;
 
-import com.dyuproject.protostuff.LinkedBuffer;
-import com.dyuproject.protostuff.ProtostuffIOUtil;
-import com.dyuproject.protostuff.Schema;
-import com.dyuproject.protostuff.runtime.RuntimeSchema;
+import cn.uestc.ew.rpc.common.serialize.Serializers;
 import lombok.experimental.UtilityClass;
-import org.objenesis.Objenesis;
-import org.objenesis.ObjenesisStd;
-
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * 序列化工具，基于 Protostuff
+ * 序列化工具，使用默认的序列化器（Protostuff），需要指定序列化器时见 {@link Serializers}
  */
 @UtilityClass
 public class SerializationUtils {
 
-    /**
-     * 缓存 Java 的 {@link Class} 类型与 Protostuff 的 {@link Schema} 类型的对应关系
-     */
-    private static final Map<Class<?>, Schema<?>> cachedSchema = new ConcurrentHashMap<>();
-
-    /**
-     * 实例化工具
-     */
-    private static final Objenesis objenesis = new ObjenesisStd(true);
-
     /**
      * 序列化方法，将对象序列化为字节数组
      *
@@ -34,18 +16,8 @@ public class SerializationUtils {
      * @return 序列化后对应的字节数组
      * @throws IllegalStateException 序列化失败后抛出该异常，可通过其 {@code getCause()} 方法获取原始异常
      */
-    @SuppressWarnings("unchecked")
     public static <T> byte[] serialize(T obj) {
-        Class<T> cls = (Class<T>) obj.getClass();
-        LinkedBuffer buffer = LinkedBuffer.allocate(LinkedBuffer.DEFAULT_BUFFER_SIZE);
-        try {
-            Schema<T> schema = getSchema(cls);
-            return ProtostuffIOUtil.toByteArray(obj, schema, buffer);
-        } catch (Exception e) {
-            throw new IllegalStateException(e.getMessage(), e);
-        } finally {
-            buffer.clear();
-        }
+        return Serializers.DEFAULT.serialize(obj);
     }
 
     /**
@@ -57,23 +29,6 @@ public class SerializationUtils {
      * @throws IllegalStateException 序列化失败后抛出该异常，可通过其 {@code getCause()} 方法获取原始异常
      */
     public static <T> T deserialize(byte[] data, Class<T> cls) {
-        try {
-            T message = objenesis.newInstance(cls);
-            Schema<T> schema = getSchema(cls);
-            ProtostuffIOUtil.mergeFrom(data, message, schema);
-            return message;
-        } catch (Exception e) {
-            throw new IllegalStateException(e.getMessage(), e);
-        }
-    }
-
-    @SuppressWarnings("unchecked")
-    private static <T> Schema<T> getSchema(Class<T> cls) {
-        Schema<T> schema = (Schema<T>) cachedSchema.get(cls);
-        if (schema == null) {
-            schema = RuntimeSchema.createFrom(cls);
-            cachedSchema.put(cls, schema);
-        }
-        return schema;
+        return Serializers.DEFAULT.deserialize(data, cls);
     }
-}
\ No newline at end of file
+}
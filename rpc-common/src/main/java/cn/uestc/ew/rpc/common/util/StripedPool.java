@@ -0,0 +1,71 @@
+package cn.uestc.ew.rpc.common.util;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+/**
+ * 无锁的分段对象池，用于复用编解码时的缓冲区等临时对象
+ *
+ * <p>对象保存在固定大小的槽位数组中，借出及归还时从当前线程对应的槽位开始探测相邻的几个槽位，
+ * 借出时没有空闲对象则新建，归还时没有空槽位则直接丢弃。借出与归还都不会阻塞，也不会产生额外的对象分配。
+ * 与 {@link ThreadLocal} 不同，对象池的大小不随线程数增长，在虚拟线程下同样适用。</p>
+ *
+ * @param <T> 池化对象的类型，对象归还前由调用方重置状态
+ */
+public class StripedPool<T> {
+
+    /**
+     * 每次借出或归还时最多探测的槽位数
+     */
+    private static final int PROBES = 4;
+
+    private final AtomicReferenceArray<T> slots;
+
+    private final int mask;
+
+    private final Supplier<T> factory;
+
+    /**
+     * 创建对象池，槽位数为 CPU 核数的 2 倍（向上取整为 2 的幂）
+     *
+     * @param factory 没有空闲对象时使用的创建方法
+     */
+    public StripedPool(Supplier<T> factory) {
+        this(factory, Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    public StripedPool(Supplier<T> factory, int capacity) {
+        int size = Integer.highestOneBit(Math.max(PROBES, capacity) - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.factory = factory;
+    }
+
+    /**
+     * 借出一个对象，没有空闲对象时新建
+     */
+    public T acquire() {
+        int start = Thread.currentThread().hashCode();
+        for (int i = 0; i < PROBES; i++) {
+            int index = (start + i) & mask;
+            T value = slots.get(index);
+            if (value != null && slots.compareAndSet(index, value, null)) {
+                return value;
+            }
+        }
+        return factory.get();
+    }
+
+    /**
+     * 归还对象，没有空槽位时丢弃，由 GC 回收
+     */
+    public void release(T value) {
+        int start = Thread.currentThread().hashCode();
+        for (int i = 0; i < PROBES; i++) {
+            int index = (start + i) & mask;
+            if (slots.get(index) == null && slots.compareAndSet(index, null, value)) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package cn.uestc.ew.rpc.common.util.codec;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 合并写出协议帧的写出器，多个线程共享同一个阻塞输出流（如多路复用连接、BIO 服务端连接）时使用
+ *
+ * <p>调用方把编码好的帧放入队列后，抢到写出权的线程负责把队列中所有的帧复制到合并缓冲区，
+ * 每个刷新周期只调用一次底层输出流的 {@code write}，没有抢到写出权的线程直接返回而不阻塞等待。
+ * 并发越高，每个刷新周期合并的帧越多，单次调用分摊的系统调用次数越少；没有并发时与逐帧写出相同。</p>
+ *
+ * <p>合并的字节数达到 {@code batchBytes} 时立即刷新；{@code maxDelay} 大于 0 时，写出线程在刷新前最多再等待该时间，
+ * 以便合并更多的帧，以增加单次调用的延迟为代价进一步减少系统调用，默认不等待。</p>
+ *
+ * <p>写出失败后写出器关闭，队列中未写出的帧被丢弃，调用方应随之关闭连接。</p>
+ */
+public final class CoalescingFrameWriter implements AutoCloseable {
+
+    /**
+     * 默认的单次写出的最大字节数
+     */
+    public static final int DEFAULT_BATCH_BYTES = 64 * 1024;
+
+    private final Queue<FrameBuffer> queue = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 写出权，同一时刻只有一个线程写出
+     */
+    private final AtomicBoolean writing = new AtomicBoolean();
+
+    /**
+     * 合并缓冲区，只有持有写出权的线程访问
+     */
+    private final OutputStream out;
+
+    private final int batchBytes;
+
+    private final long maxDelayNanos;
+
+    private volatile boolean closed;
+
+    /**
+     * @param out        底层输出流
+     * @param batchBytes 单次写出的最大字节数，即合并缓冲区大小
+     * @param maxDelay   刷新前等待更多帧的最长时间，单位微秒，0 表示不等待
+     */
+    public CoalescingFrameWriter(OutputStream out, int batchBytes, long maxDelay) {
+        if (batchBytes <= 0) {
+            throw new IllegalArgumentException(String.format("Illegal batch bytes: %d", batchBytes));
+        }
+        this.out = new BufferedOutputStream(out, batchBytes);
+        this.batchBytes = batchBytes;
+        this.maxDelayNanos = TimeUnit.MICROSECONDS.toNanos(Math.max(0, maxDelay));
+    }
+
+    /**
+     * 写出一帧，缓冲区的所有权转移给写出器，写出后（或写出器关闭时）归还。
+     * 当前线程抢到写出权时同时写出其它线程放入的帧，否则立即返回，由持有写出权的线程写出
+     *
+     * @param frame 编码好的协议帧
+     * @throws IOException 写出器已关闭，或当前线程写出时失败
+     */
+    public void write(FrameBuffer frame) throws IOException {
+        if (closed) {
+            frame.release();
+            throw new IOException("Frame writer closed");
+        }
+        queue.add(frame);
+        // 释放写出权后再检查一次队列，避免其它线程在释放前放入的帧无人写出
+        while (!queue.isEmpty() && writing.compareAndSet(false, true)) {
+            try {
+                writeQueued();
+            } catch (IOException e) {
+                close();
+                throw e;
+            } finally {
+                writing.set(false);
+            }
+        }
+    }
+
+    /**
+     * 关闭写出器并归还队列中未写出的帧，不关闭底层输出流
+     */
+    @Override
+    public void close() {
+        closed = true;
+        FrameBuffer frame;
+        while ((frame = queue.poll()) != null) {
+            frame.release();
+        }
+    }
+
+    /**
+     * 写出队列中所有的帧，持有写出权时调用
+     */
+    private void writeQueued() throws IOException {
+        int pending = 0;
+        boolean waited = false;
+        while (!closed) {
+            FrameBuffer frame = queue.poll();
+            if (frame == null) {
+                if (pending == 0) return;
+                if (!waited && maxDelayNanos > 0) {
+                    waited = true;
+                    LockSupport.parkNanos(maxDelayNanos);
+                    continue;
+                }
+                out.flush();
+                pending = 0;
+                waited = false;
+                continue;
+            }
+            try {
+                pending += frame.size();
+                frame.writeTo(out);
+            } finally {
+                frame.release();
+            }
+            if (pending >= batchBytes) {
+                out.flush();
+                pending = 0;
+                waited = false;
+            }
+        }
+        close();
+    }
+}
@@ -0,0 +1,215 @@
+package cn.uestc.ew.rpc.common.util.codec;
+
+import cn.uestc.ew.rpc.common.util.StripedPool;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * 可复用的协议帧编码缓冲区，帧头与消息体直接写入同一个数组，编码完成后整体写出到输出流或 {@link java.nio.channels.SocketChannel}
+ *
+ * <p>缓冲区由 {@link StripedPool} 池化，通过 {@link #acquire(Class)} 借出，写出完成后必须调用 {@link #release()} 归还，
+ * 归还后不能再访问。借出时按消息类型统计的平均帧长度预先扩容，避免编码过程中多次扩容；
+ * 归还时容量远大于该类型平均帧长度的缓冲区会被缩小，超过 {@link #MAX_RETAINED_CAPACITY} 的缓冲区直接丢弃，
+ * 避免偶发的大消息长期占用内存。</p>
+ *
+ * <p>非线程安全，同一时刻只能由一个线程使用。</p>
+ */
+public final class FrameBuffer extends OutputStream {
+
+    /**
+     * 新建缓冲区的初始容量
+     */
+    private static final int INITIAL_CAPACITY = 512;
+
+    /**
+     * 容量超过该值且超过平均帧长度 4 倍时，归还时缩小
+     */
+    private static final int SHRINK_THRESHOLD = 64 * 1024;
+
+    /**
+     * 允许归还到对象池的最大容量
+     */
+    private static final int MAX_RETAINED_CAPACITY = 1024 * 1024;
+
+    private static final VarHandle SHORT = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private static final VarHandle INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private static final StripedPool<FrameBuffer> POOL = new StripedPool<>(FrameBuffer::new);
+
+    /**
+     * 按消息类型统计的帧长度
+     */
+    private static final ClassValue<SizeStats> STATS = new ClassValue<>() {
+        @Override
+        protected SizeStats computeValue(Class<?> type) {
+            return new SizeStats();
+        }
+    };
+
+    private byte[] buffer = new byte[INITIAL_CAPACITY];
+
+    private int size;
+
+    /**
+     * 本次编码的消息类型对应的帧长度统计
+     */
+    private SizeStats stats;
+
+    /**
+     * 包装了已写入数据的 {@link ByteBuffer}，供 NIO 分多次写出时记录写出进度
+     */
+    private ByteBuffer byteBuffer;
+
+    private FrameBuffer() {
+    }
+
+    /**
+     * 借出一个空的缓冲区
+     *
+     * @param type 消息类型，用于统计帧长度并预先扩容，如响应帧使用返回值的类型
+     * @return 空的缓冲区
+     */
+    public static FrameBuffer acquire(Class<?> type) {
+        FrameBuffer frameBuffer = POOL.acquire();
+        frameBuffer.stats = STATS.get(type);
+        frameBuffer.ensureCapacity(frameBuffer.stats.expectedSize());
+        return frameBuffer;
+    }
+
+    /**
+     * 归还缓冲区，并记录本次编码的帧长度
+     */
+    public void release() {
+        if (stats == null) return;
+        stats.record(size);
+        int expectedSize = stats.expectedSize();
+        size = 0;
+        stats = null;
+        byteBuffer = null;
+        if (buffer.length > MAX_RETAINED_CAPACITY) return;
+        if (buffer.length > SHRINK_THRESHOLD && buffer.length > expectedSize * 4) {
+            buffer = new byte[Math.max(INITIAL_CAPACITY, expectedSize)];
+        }
+        POOL.release(this);
+    }
+
+    /**
+     * 已写入的字节数
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 预留指定长度的空间（如帧头），之后再通过 {@code putXxx} 方法填充
+     *
+     * @param length 预留的字节数
+     * @return 预留空间的起始下标
+     */
+    public int reserve(int length) {
+        ensureCapacity(size + length);
+        int index = size;
+        size += length;
+        return index;
+    }
+
+    /**
+     * 在指定下标写入一个字节，用于填充预留的帧头，多字节字段均按小端法写入
+     */
+    public void put(int index, byte value) {
+        buffer[index] = value;
+    }
+
+    public void putShort(int index, short value) {
+        SHORT.set(buffer, index, value);
+    }
+
+    public void putInt(int index, int value) {
+        INT.set(buffer, index, value);
+    }
+
+    public void putLong(int index, long value) {
+        LONG.set(buffer, index, value);
+    }
+
+    @Override
+    public void write(int b) {
+        ensureCapacity(size + 1);
+        buffer[size++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        ensureCapacity(size + len);
+        System.arraycopy(b, off, buffer, size, len);
+        size += len;
+    }
+
+    /**
+     * 将已写入的数据一次性写出到输出流，不会主动刷新输出流
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(buffer, 0, size);
+    }
+
+    /**
+     * 返回包装了已写入数据的 {@link ByteBuffer}（读模式），多次调用返回同一个对象，写出进度保存在其中
+     */
+    public ByteBuffer toByteBuffer() {
+        if (byteBuffer == null) {
+            byteBuffer = ByteBuffer.wrap(buffer, 0, size);
+        }
+        return byteBuffer;
+    }
+
+    /**
+     * 返回内部数组，只供同一个包中的编解码器读取已写入的数据，数组在扩容后会被替换
+     */
+    byte[] array() {
+        return buffer;
+    }
+
+    /**
+     * 复制已写入的数据
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, size);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, capacity));
+        }
+    }
+
+    /**
+     * 单个消息类型的帧长度统计，以指数加权移动平均估计下一帧的长度。
+     * 多个线程并发更新时可能丢失个别样本，不影响估计结果，因此不加锁
+     */
+    private static class SizeStats {
+
+        private volatile int average = -1;
+
+        void record(int size) {
+            int current = average;
+            average = current < 0 ? size : current + ((size - current) >> 3);
+        }
+
+        /**
+         * 预期的帧长度，在平均值的基础上预留 25% 的余量
+         */
+        int expectedSize() {
+            int current = average;
+            return current < 0 ? INITIAL_CAPACITY : current + (current >> 2);
+        }
+    }
+}
@@ -0,0 +1,504 @@
+package cn.uestc.ew.rpc.common.util.codec;
+
+import cn.uestc.ew.rpc.common.bean.MethodTable;
+import cn.uestc.ew.rpc.common.bean.RpcBatchRequest;
+import cn.uestc.ew.rpc.common.bean.RpcBatchResponse;
+import cn.uestc.ew.rpc.common.bean.RpcFrame;
+import cn.uestc.ew.rpc.common.bean.RpcRequest;
+import cn.uestc.ew.rpc.common.bean.RpcResponse;
+import cn.uestc.ew.rpc.common.compress.Compressor;
+import cn.uestc.ew.rpc.common.compress.Compressors;
+import cn.uestc.ew.rpc.common.jfr.SerializationEvent;
+import cn.uestc.ew.rpc.common.serialize.Serializer;
+import cn.uestc.ew.rpc.common.serialize.Serializers;
+import lombok.experimental.UtilityClass;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 协议帧编解码器，帧格式见 {@link RpcFrame}
+ *
+ * <p>编码时帧头与消息体直接写入池化的 {@link FrameBuffer}，消息体由序列化器以流的方式写入，
+ * 不再为消息体单独分配数组；调用方写出后必须调用 {@link FrameBuffer#release()} 归还缓冲区。</p>
+ *
+ * <p>消息体超过压缩阈值时，使用协商的压缩算法压缩，压缩后的消息体以 4 字节的原始长度开头，
+ * 压缩算法编号记录在帧头的标志位中；压缩后没有变小的消息体仍以原始形式发送。</p>
+ *
+ * <p>编码请求帧及解码响应帧时记录 {@link SerializationEvent}，默认关闭。</p>
+ */
+@UtilityClass
+public class FrameCodec {
+
+    /**
+     * 单个帧的消息体允许的最大长度（字节），超出时认为是非法帧
+     */
+    public static final int MAX_BODY_LENGTH = 16 * 1024 * 1024;
+
+    /**
+     * 将帧写入输出流，不会主动刷新输出流
+     *
+     * @param out   输出流
+     * @param frame 协议帧
+     */
+    public static void write(OutputStream out, RpcFrame frame) throws IOException {
+        FrameBuffer buffer = encode(frame);
+        try {
+            buffer.writeTo(out);
+        } finally {
+            buffer.release();
+        }
+    }
+
+    /**
+     * 从输入流中阻塞读取一个完整的帧，帧头直接从输入流中按字段读取
+     *
+     * @param in 输入流
+     * @return 协议帧
+     * @throws java.io.EOFException 对端在帧开始前关闭了连接
+     * @throws IOException          帧头非法或读取失败
+     */
+    public static RpcFrame read(DataInputStream in) throws IOException {
+        // DataInputStream 按大端法读取，需要反转字节序
+        checkMagicAndVersion(Short.reverseBytes(in.readShort()), in.readByte());
+        RpcFrame frame = new RpcFrame();
+        frame.setType(in.readByte());
+        frame.setFlags(in.readByte());
+        frame.setSerializer(in.readByte());
+        frame.setRequestId(Long.reverseBytes(in.readLong()));
+        frame.setMethodId(Integer.reverseBytes(in.readInt()));
+        frame.setBody(new byte[checkBodyLength(Integer.reverseBytes(in.readInt()))]);
+        in.readFully(frame.getBody());
+        return frame;
+    }
+
+    /**
+     * 将已有消息体的帧编码到缓冲区中
+     *
+     * @param frame 协议帧
+     * @return 包含帧头及消息体的缓冲区，写出后需要归还
+     */
+    public static FrameBuffer encode(RpcFrame frame) {
+        FrameBuffer buffer = FrameBuffer.acquire(RpcFrame.class);
+        buffer.reserve(RpcFrame.HEADER_LENGTH);
+        buffer.write(frame.getBody(), 0, frame.getBody().length);
+        writeHeader(buffer, frame.getType(), frame.getFlags(), frame.getSerializer(), frame.getRequestId(),
+                frame.getMethodId());
+        return buffer;
+    }
+
+    /**
+     * 解析帧头，返回的帧中已按消息体长度分配好 {@code body} 数组，由调用方继续读取消息体
+     *
+     * @param header 完整的帧头，从当前位置开始读取
+     * @return 消息体尚未填充的协议帧
+     * @throws IOException 魔数、版本号或消息体长度非法
+     */
+    public static RpcFrame decodeHeader(ByteBuffer header) throws IOException {
+        header.order(ByteOrder.LITTLE_ENDIAN);
+        checkMagicAndVersion(header.getShort(), header.get());
+        RpcFrame frame = new RpcFrame();
+        frame.setType(header.get());
+        frame.setFlags(header.get());
+        frame.setSerializer(header.get());
+        frame.setRequestId(header.getLong());
+        frame.setMethodId(header.getInt());
+        frame.setBody(new byte[checkBodyLength(header.getInt())]);
+        return frame;
+    }
+
+    /**
+     * 将 RPC 请求编码为请求帧，使用请求中指定的序列化器。方法表中能找到对应方法时，消息体只保留参数列表、重试次数及超时时间。
+     * 请求指定了压缩算法且服务端支持时，按请求的压缩阈值压缩消息体，并要求服务端以同一算法压缩响应
+     *
+     * @param request     RPC 请求体
+     * @param methodTable 当前连接握手时获取的方法表，可以为 {@code null}
+     * @return 包含请求帧的缓冲区，写出后需要归还
+     */
+    public static FrameBuffer encodeRequest(RpcRequest request, MethodTable methodTable) {
+        return encodeRequest(RpcFrame.TYPE_REQUEST, request, methodTable);
+    }
+
+    /**
+     * 将 RPC 请求编码为流式请求帧，除帧类型外与 {@link #encodeRequest(RpcRequest, MethodTable)} 相同，
+     * 参数中的流应已替换为 {@code null}
+     *
+     * @param request     RPC 请求体
+     * @param methodTable 当前连接握手时获取的方法表，可以为 {@code null}
+     * @return 包含流式请求帧的缓冲区，写出后需要归还
+     */
+    public static FrameBuffer encodeStreamRequest(RpcRequest request, MethodTable methodTable) {
+        return encodeRequest(RpcFrame.TYPE_STREAM_REQUEST, request, methodTable);
+    }
+
+    /**
+     * 将批量 RPC 请求编码为批量请求帧，每个调用与 {@link #encodeRequest(RpcRequest, MethodTable)} 相同，
+     * 能找到方法编号时只保留参数列表、重试次数及超时时间，序列化器及压缩算法使用批量请求中指定的
+     *
+     * @param batch       批量 RPC 请求体
+     * @param methodTable 当前连接握手时获取的方法表，可以为 {@code null}
+     * @return 包含批量请求帧的缓冲区，写出后需要归还
+     */
+    public static FrameBuffer encodeBatchRequest(RpcBatchRequest batch, MethodTable methodTable) {
+        RpcRequest[] requests = batch.getRequests();
+        RpcBatchRequest body = new RpcBatchRequest();
+        body.setRequests(new RpcRequest[requests.length]);
+        body.setMethodIds(new int[requests.length]);
+        for (int i = 0; i < requests.length; i++) {
+            int methodId = lookupMethodId(requests[i], methodTable);
+            body.getMethodIds()[i] = methodId;
+            body.getRequests()[i] = stripRequest(requests[i], methodId);
+        }
+        Compressor compressor = negotiateCompressor(batch.getCompressor(), methodTable);
+        return encode(RpcBatchRequest.class, RpcFrame.TYPE_BATCH_REQUEST, acceptFlags(compressor),
+                Serializers.get(batch.getSerializer()), batch.getRequestId(), 0, body, compressor,
+                batch.getCompressThreshold());
+    }
+
+    /**
+     * 将 RPC 响应编码为响应帧，按返回值的类型统计帧长度
+     *
+     * @param response          RPC 响应体
+     * @param serializerId      序列化器编号，与对应的请求帧相同
+     * @param compressorId      压缩算法编号，即请求帧中客户端接受的压缩算法，0 表示不压缩
+     * @param compressThreshold 压缩阈值（字节），消息体超过该长度时才压缩
+     * @return 包含响应帧的缓冲区，写出后需要归还
+     */
+    public static FrameBuffer encodeResponse(RpcResponse response, byte serializerId, byte compressorId,
+                                             int compressThreshold) {
+        Object result = response.getResult();
+        return encode(result != null ? result.getClass() : RpcResponse.class, RpcFrame.TYPE_RESPONSE, (byte) 0,
+                Serializers.get(serializerId), response.getRequestId(), 0, response, Compressors.get(compressorId),
+                compressThreshold);
+    }
+
+    /**
+     * 将批量 RPC 响应编码为批量响应帧，参数含义与 {@link #encodeResponse(RpcResponse, byte, byte, int)} 相同
+     *
+     * @param response 批量 RPC 响应体
+     * @return 包含批量响应帧的缓冲区，写出后需要归还
+     */
+    public static FrameBuffer encodeBatchResponse(RpcBatchResponse response, byte serializerId, byte compressorId,
+                                                  int compressThreshold) {
+        return encode(RpcBatchResponse.class, RpcFrame.TYPE_BATCH_RESPONSE, (byte) 0, Serializers.get(serializerId),
+                response.getRequestId(), 0, response, Compressors.get(compressorId), compressThreshold);
+    }
+
+    /**
+     * 将流中的一个元素编码为流元素帧，流中的元素不压缩
+     *
+     * @param requestId    流所属的请求标识符
+     * @param serializerId 序列化器编号，与流式请求帧相同
+     * @param element      流中的元素
+     * @return 包含流元素帧的缓冲区，写出后需要归还
+     */
+    public static FrameBuffer encodeStreamElement(long requestId, byte serializerId, Object element) {
+        RpcResponse body = new RpcResponse();
+        body.setResult(element);
+        return encode(element != null ? element.getClass() : RpcResponse.class, RpcFrame.TYPE_STREAM_ELEMENT,
+                (byte) 0, Serializers.get(serializerId), requestId, 0, body, null, 0);
+    }
+
+    /**
+     * 编码流结束帧
+     *
+     * @param requestId    流所属的请求标识符
+     * @param serializerId 序列化器编号，与流式请求帧相同
+     * @param exception    流异常结束时的异常，正常结束时为 {@code null}
+     * @return 包含流结束帧的缓冲区，写出后需要归还
+     */
+    public static FrameBuffer encodeStreamComplete(long requestId, byte serializerId, Exception exception) {
+        RpcResponse body = new RpcResponse();
+        body.setException(exception);
+        return encode(RpcResponse.class, RpcFrame.TYPE_STREAM_COMPLETE, (byte) 0, Serializers.get(serializerId),
+                requestId, 0, body, null, 0);
+    }
+
+    /**
+     * 编码流量信用帧，信用数记录在 {@code methodId} 字段中，消息体为空
+     *
+     * @param requestId 流所属的请求标识符
+     * @param credits   接收方还能接收的元素个数
+     * @return 包含信用帧的缓冲区，写出后需要归还
+     */
+    public static FrameBuffer encodeStreamCredit(long requestId, int credits) {
+        return encodeControl(RpcFrame.TYPE_STREAM_CREDIT, requestId, credits);
+    }
+
+    /**
+     * 编码取消流的帧，消息体为空
+     *
+     * @param requestId 流所属的请求标识符
+     * @return 包含取消帧的缓冲区，写出后需要归还
+     */
+    public static FrameBuffer encodeStreamCancel(long requestId) {
+        return encodeControl(RpcFrame.TYPE_STREAM_CANCEL, requestId, 0);
+    }
+
+    /**
+     * 返回已编码的协议帧的消息体使用的压缩算法编号
+     *
+     * @param buffer 包含完整协议帧的缓冲区
+     * @return 压缩算法编号，0 表示未压缩
+     */
+    public static byte compressor(FrameBuffer buffer) {
+        return (byte) (buffer.array()[4] & RpcFrame.FLAG_COMPRESSOR_MASK);
+    }
+
+    /**
+     * 返回协议帧解压缩后的消息体，未压缩时直接返回原消息体
+     *
+     * @param frame 协议帧
+     * @return 解压缩后的消息体
+     * @throws IllegalStateException 压缩算法不支持或压缩数据损坏
+     */
+    public static byte[] decompressBody(RpcFrame frame) {
+        byte[] body = frame.getBody();
+        Compressor compressor = Compressors.get(frame.getCompressor());
+        if (compressor == null) return body;
+        if (body.length < Integer.BYTES) {
+            throw new IllegalStateException(String.format("Illegal compressed body length: %d", body.length));
+        }
+        int length = (body[0] & 0xff) | (body[1] & 0xff) << 8 | (body[2] & 0xff) << 16 | (body[3] & 0xff) << 24;
+        if (length < 0 || length > MAX_BODY_LENGTH) {
+            throw new IllegalStateException(String.format("Illegal decompressed body length: %d", length));
+        }
+        byte[] data = new byte[length];
+        compressor.decompress(body, Integer.BYTES, body.length - Integer.BYTES, data);
+        return data;
+    }
+
+    /**
+     * 从响应帧中解码 RPC 响应
+     *
+     * @param frame 响应帧
+     * @return RPC 响应体
+     */
+    public static RpcResponse decodeResponse(RpcFrame frame) {
+        return decodeResponse(frame, null);
+    }
+
+    /**
+     * 从响应帧中解码 RPC 响应，以对应的请求中的服务及方法记录 {@link SerializationEvent}
+     *
+     * @param frame   响应帧
+     * @param request 对应的 RPC 请求，为 {@code null} 时不记录事件
+     * @return RPC 响应体
+     */
+    public static RpcResponse decodeResponse(RpcFrame frame, RpcRequest request) {
+        checkType(frame, RpcFrame.TYPE_RESPONSE);
+        SerializationEvent event = new SerializationEvent();
+        event.begin();
+        Serializer serializer = Serializers.get(frame.getSerializer());
+        RpcResponse response = serializer.deserialize(decompressBody(frame), RpcResponse.class);
+        response.setRequestId(frame.getRequestId());
+        response.setFrameLength(RpcFrame.HEADER_LENGTH + frame.getBody().length);
+        event.end();
+        if (request != null && event.shouldCommit()) {
+            event.setTarget(request);
+            event.setOperation(SerializationEvent.DESERIALIZE);
+            event.setMessage(SerializationEvent.RESPONSE);
+            event.setSerializer(serializer.getName());
+            event.setBytes(response.getFrameLength());
+            event.setCompressed(frame.getCompressor() != 0);
+            event.commit();
+        }
+        return response;
+    }
+
+    /**
+     * 从流元素帧或流结束帧中解码消息体，元素保存在 {@code result} 中，流异常结束时异常保存在 {@code exception} 中
+     *
+     * @param frame 流元素帧或流结束帧
+     * @return 消息体
+     */
+    public static RpcResponse decodeStreamElement(RpcFrame frame) {
+        if (frame.getType() != RpcFrame.TYPE_STREAM_ELEMENT) {
+            checkType(frame, RpcFrame.TYPE_STREAM_COMPLETE);
+        }
+        RpcResponse response = Serializers.get(frame.getSerializer()).deserialize(decompressBody(frame), RpcResponse.class);
+        response.setRequestId(frame.getRequestId());
+        return response;
+    }
+
+    /**
+     * 从批量响应帧中解码批量 RPC 响应
+     *
+     * @param frame 批量响应帧
+     * @return 批量 RPC 响应体
+     */
+    public static RpcBatchResponse decodeBatchResponse(RpcFrame frame) {
+        checkType(frame, RpcFrame.TYPE_BATCH_RESPONSE);
+        RpcBatchResponse response = Serializers.get(frame.getSerializer())
+                .deserialize(decompressBody(frame), RpcBatchResponse.class);
+        response.setRequestId(frame.getRequestId());
+        return response;
+    }
+
+    /**
+     * 在新建立的连接上执行握手，获取服务端的方法表
+     *
+     * @param in  连接的输入流
+     * @param out 连接的输出流
+     * @return 服务端的方法表
+     * @throws IOException 握手失败，连接不可使用
+     */
+    public static MethodTable handshake(DataInputStream in, OutputStream out) throws IOException {
+        write(out, new RpcFrame(RpcFrame.TYPE_HANDSHAKE_REQUEST, (byte) 0, Serializers.DEFAULT.getId(), 0L, 0,
+                new byte[0]));
+        out.flush();
+        RpcFrame frame = read(in);
+        if (frame.getType() != RpcFrame.TYPE_HANDSHAKE_RESPONSE) {
+            throw new IOException(String.format("Unexpected handshake frame type: %d", frame.getType()));
+        }
+        return Serializers.DEFAULT.deserialize(frame.getBody(), MethodTable.class);
+    }
+
+    private static FrameBuffer encodeRequest(byte type, RpcRequest request, MethodTable methodTable) {
+        SerializationEvent event = new SerializationEvent();
+        event.begin();
+        int methodId = lookupMethodId(request, methodTable);
+        Compressor compressor = negotiateCompressor(request.getCompressor(), methodTable);
+        Serializer serializer = Serializers.get(request.getSerializer());
+        FrameBuffer buffer = encode(RpcRequest.class, type, acceptFlags(compressor), serializer,
+                request.getRequestId(), methodId, stripRequest(request, methodId), compressor,
+                request.getCompressThreshold());
+        request.setFrameLength(buffer.size());
+        event.end();
+        if (event.shouldCommit()) {
+            event.setTarget(request);
+            event.setOperation(SerializationEvent.SERIALIZE);
+            event.setMessage(SerializationEvent.REQUEST);
+            event.setSerializer(serializer.getName());
+            event.setBytes(buffer.size());
+            event.setCompressed(compressor(buffer) != 0);
+            event.commit();
+        }
+        return buffer;
+    }
+
+    /**
+     * 编码只有帧头的控制帧
+     */
+    private static FrameBuffer encodeControl(byte type, long requestId, int methodId) {
+        FrameBuffer buffer = FrameBuffer.acquire(RpcFrame.class);
+        buffer.reserve(RpcFrame.HEADER_LENGTH);
+        writeHeader(buffer, type, (byte) 0, Serializers.DEFAULT.getId(), requestId, methodId);
+        return buffer;
+    }
+
+    private static int lookupMethodId(RpcRequest request, MethodTable methodTable) {
+        return methodTable == null ? 0 : methodTable.lookup(request.getInterfaceName(), request.getServiceVersion(),
+                request.getMethodName(), request.getParameterTypes());
+    }
+
+    /**
+     * 能找到方法编号时，请求体只保留参数列表、重试次数及超时时间
+     */
+    private static RpcRequest stripRequest(RpcRequest request, int methodId) {
+        if (methodId <= 0) return request;
+        RpcRequest body = new RpcRequest();
+        body.setRetryTimes(request.getRetryTimes());
+        body.setParameters(request.getParameters());
+        body.setTimeout(request.getTimeout());
+        return body;
+    }
+
+    /**
+     * 请求指定的压缩算法在服务端支持时才使用，否则不压缩
+     */
+    private static Compressor negotiateCompressor(byte compressorId, MethodTable methodTable) {
+        return compressorId != 0 && methodTable != null && methodTable.supportsCompressor(compressorId)
+                ? Compressors.get(compressorId) : null;
+    }
+
+    /**
+     * 请求帧的标志位，高 4 位声明客户端接受的响应压缩算法
+     */
+    private static byte acceptFlags(Compressor compressor) {
+        return compressor != null ? (byte) (compressor.getId() << RpcFrame.FLAG_ACCEPT_COMPRESSOR_SHIFT) : 0;
+    }
+
+    /**
+     * 预留帧头后由序列化器直接将消息体写入缓冲区，需要时压缩消息体，最后回填帧头
+     */
+    private static FrameBuffer encode(Class<?> sizeClass, byte type, byte flags, Serializer serializer, long requestId,
+                                      int methodId, Object body, Compressor compressor, int compressThreshold) {
+        FrameBuffer buffer = FrameBuffer.acquire(sizeClass);
+        try {
+            buffer.reserve(RpcFrame.HEADER_LENGTH);
+            serializer.serialize(body, buffer);
+            if (compressor != null && buffer.size() - RpcFrame.HEADER_LENGTH > compressThreshold) {
+                FrameBuffer compressed = compress(buffer, compressor);
+                if (compressed != null) {
+                    buffer.release();
+                    buffer = compressed;
+                    flags |= compressor.getId();
+                }
+            }
+            writeHeader(buffer, type, flags, serializer.getId(), requestId, methodId);
+            return buffer;
+        } catch (RuntimeException e) {
+            buffer.release();
+            throw e;
+        }
+    }
+
+    /**
+     * 将缓冲区中的消息体压缩到新的缓冲区中，同样预留帧头，压缩后没有变小时返回 {@code null}
+     */
+    private static FrameBuffer compress(FrameBuffer buffer, Compressor compressor) {
+        int length = buffer.size() - RpcFrame.HEADER_LENGTH;
+        FrameBuffer compressed = FrameBuffer.acquire(compressor.getClass());
+        try {
+            compressed.reserve(RpcFrame.HEADER_LENGTH + Integer.BYTES);
+            compressed.putInt(RpcFrame.HEADER_LENGTH, length);
+            compressor.compress(buffer.array(), RpcFrame.HEADER_LENGTH, length, compressed);
+        } catch (RuntimeException e) {
+            compressed.release();
+            throw e;
+        }
+        if (compressed.size() >= buffer.size()) {
+            compressed.release();
+            return null;
+        }
+        return compressed;
+    }
+
+    private static void writeHeader(FrameBuffer buffer, byte type, byte flags, byte serializer, long requestId,
+                                    int methodId) {
+        buffer.putShort(0, RpcFrame.MAGIC);
+        buffer.put(2, RpcFrame.VERSION);
+        buffer.put(3, type);
+        buffer.put(4, flags);
+        buffer.put(5, serializer);
+        buffer.putLong(6, requestId);
+        buffer.putInt(14, methodId);
+        buffer.putInt(18, buffer.size() - RpcFrame.HEADER_LENGTH);
+    }
+
+    private static void checkType(RpcFrame frame, byte type) {
+        if (frame.getType() != type) {
+            throw new IllegalStateException(String.format("Unexpected frame type: %d", frame.getType()));
+        }
+    }
+
+    private static void checkMagicAndVersion(short magic, byte version) throws IOException {
+        if (magic != RpcFrame.MAGIC) {
+            throw new IOException(String.format("Illegal frame magic: 0x%04x", magic & 0xffff));
+        }
+        if (version != RpcFrame.VERSION) {
+            throw new IOException(String.format("Unsupported frame version: %d", version));
+        }
+    }
+
+    private static int checkBodyLength(int length) throws IOException {
+        if (length < 0 || length > MAX_BODY_LENGTH) {
+            throw new IOException(String.format("Illegal frame body length: %d", length));
+        }
+        return length;
+    }
+}
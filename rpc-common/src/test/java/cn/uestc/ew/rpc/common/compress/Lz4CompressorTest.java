@@ -0,0 +1,176 @@
+package cn.uestc.ew.rpc.common.compress;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * {@link Lz4Compressor} 的往返及损坏数据测试
+ */
+public class Lz4CompressorTest {
+
+    private final Lz4Compressor compressor = new Lz4Compressor();
+
+    @Test
+    public void emptyInput() {
+        byte[] compressed = roundTrip(new byte[0]);
+        // 只有一个字面量长度为 0 的令牌
+        assertArrayEquals(new byte[]{0}, compressed);
+    }
+
+    @Test
+    public void shortInputs() {
+        Random random = new Random(1);
+        for (int length = 1; length <= 64; length++) {
+            byte[] data = new byte[length];
+            random.nextBytes(data);
+            roundTrip(data);
+            Arrays.fill(data, (byte) 'x');
+            roundTrip(data);
+        }
+    }
+
+    @Test
+    public void incompressibleInput() {
+        byte[] data = new byte[64 * 1024];
+        new Random(2).nextBytes(data);
+        byte[] compressed = roundTrip(data);
+        // 最坏情况下只增加令牌及字面量长度的开销
+        assertTrue(compressed.length <= data.length + data.length / 255 + 16);
+    }
+
+    @Test
+    public void highlyRepetitiveInput() {
+        byte[] zeros = new byte[1024 * 1024];
+        assertTrue(roundTrip(zeros).length < zeros.length / 100);
+
+        // 短模式的匹配与自身重叠，解压时逐字节复制
+        byte[] pattern = "abc".repeat(10000).getBytes(StandardCharsets.US_ASCII);
+        assertTrue(roundTrip(pattern).length < pattern.length / 50);
+
+        byte[] text = ("{\"id\":1,\"name\":\"item\",\"price\":9.99,\"tags\":[\"a\",\"b\"]}," .repeat(200))
+                .getBytes(StandardCharsets.UTF_8);
+        assertTrue(roundTrip(text).length < text.length / 10);
+    }
+
+    @Test
+    public void longLiteralsAndMatches() {
+        // 字面量及匹配长度都超过令牌的表示范围（15 + 255 的整数倍），需要多个长度字节
+        Random random = new Random(3);
+        byte[] data = new byte[300 + 10000 + 520 + 255 + 15];
+        random.nextBytes(data);
+        Arrays.fill(data, 300, 300 + 10000, (byte) 7);
+        Arrays.fill(data, 300 + 10000 + 520, data.length, (byte) 9);
+        roundTrip(data);
+    }
+
+    @Test
+    public void overLongInput() {
+        // 重复的数据块相距超过 64KB，超出 LZ4 的最大偏移量，不能引用
+        byte[] block = new byte[100 * 1024];
+        new Random(4).nextBytes(block);
+        byte[] data = new byte[block.length * 2];
+        System.arraycopy(block, 0, data, 0, block.length);
+        System.arraycopy(block, 0, data, block.length, block.length);
+        roundTrip(data);
+
+        byte[] large = new byte[8 * 1024 * 1024];
+        for (int i = 0; i < large.length; i++) {
+            large[i] = (byte) (i % 251 ^ i >>> 13);
+        }
+        roundTrip(large);
+    }
+
+    @Test
+    public void compressSlice() {
+        byte[] data = "prefix-hello hello hello hello hello-suffix".getBytes(StandardCharsets.US_ASCII);
+        int off = 7;
+        int len = data.length - off - 7;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        compressor.compress(data, off, len, out);
+
+        // 压缩数据前后都有无关的字节
+        byte[] padded = new byte[out.size() + 10];
+        System.arraycopy(out.toByteArray(), 0, padded, 5, out.size());
+        byte[] restored = new byte[len];
+        compressor.decompress(padded, 5, out.size(), restored);
+        assertArrayEquals(Arrays.copyOfRange(data, off, off + len), restored);
+    }
+
+    @Test
+    public void wrongDestinationLength() {
+        byte[] data = "hello hello hello hello hello hello".getBytes(StandardCharsets.US_ASCII);
+        byte[] compressed = compress(data);
+        assertCorrupted(compressed, 0, compressed.length, new byte[data.length - 1]);
+        assertCorrupted(compressed, 0, compressed.length, new byte[data.length + 1]);
+    }
+
+    @Test
+    public void truncatedInput() {
+        byte[] data = new byte[4096];
+        Random random = new Random(5);
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) random.nextInt(4);
+        }
+        byte[] compressed = compress(data);
+        for (int len = 0; len < compressed.length; len++) {
+            // 截断的数据在数组中后面仍有字节，解压不能越过指定的长度读取
+            assertCorrupted(compressed, 0, len, new byte[data.length]);
+        }
+    }
+
+    @Test
+    public void illegalOffset() {
+        // 字面量 "abcd" 之后的匹配偏移量为 0
+        byte[] zeroOffset = {0x40, 'a', 'b', 'c', 'd', 0, 0, 0x00};
+        assertCorrupted(zeroOffset, 0, zeroOffset.length, new byte[8]);
+        // 匹配偏移量超出已解压的数据
+        byte[] farOffset = {0x40, 'a', 'b', 'c', 'd', 5, 0, 0x00};
+        assertCorrupted(farOffset, 0, farOffset.length, new byte[8]);
+    }
+
+    @Test
+    public void randomGarbage() {
+        Random random = new Random(6);
+        for (int i = 0; i < 10000; i++) {
+            byte[] garbage = new byte[1 + random.nextInt(64)];
+            random.nextBytes(garbage);
+            try {
+                compressor.decompress(garbage, 0, garbage.length, new byte[random.nextInt(256)]);
+            } catch (IllegalStateException expected) {
+                // 损坏的数据只能以 IllegalStateException 结束
+            }
+        }
+    }
+
+    private byte[] roundTrip(byte[] data) {
+        byte[] compressed = compress(data);
+        byte[] restored = new byte[data.length];
+        compressor.decompress(compressed, 0, compressed.length, restored);
+        assertArrayEquals(data, restored);
+        return compressed;
+    }
+
+    private byte[] compress(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        compressor.compress(data, 0, data.length, out);
+        return out.toByteArray();
+    }
+
+    private void assertCorrupted(byte[] src, int off, int len, byte[] dst) {
+        try {
+            compressor.decompress(src, off, len, dst);
+            fail("Corrupted data decompressed: len=" + len);
+        } catch (IllegalStateException e) {
+            assertEquals(IllegalStateException.class, e.getClass());
+        }
+    }
+}
@@ -0,0 +1,371 @@
+package cn.uestc.ew.rpc.common.serialize;
+
+import cn.uestc.ew.rpc.common.bean.RpcBatchRequest;
+import cn.uestc.ew.rpc.common.bean.RpcBatchResponse;
+import cn.uestc.ew.rpc.common.bean.RpcRequest;
+import cn.uestc.ew.rpc.common.bean.RpcResponse;
+import cn.uestc.ew.rpc.common.exception.DeadlineExceededException;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.DayOfWeek;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * {@link CompactSerializer} 对各类值的往返测试，以及非法数据、不被允许的类的处理
+ */
+public class CompactSerializerTest {
+
+    private final CompactSerializer serializer = new CompactSerializer();
+
+    @BeforeClass
+    public static void allowTestClasses() {
+        ClassAllowlist.allow(Base.class.getName() + "," + Pojo.class.getName() + "," + Color.class.getName());
+    }
+
+    @Test
+    public void nullAndPrimitiveWrappers() {
+        assertNull(roundTrip(null));
+        for (Object value : new Object[]{true, false, (byte) -128, (byte) 127, (short) -32768, Short.MAX_VALUE,
+                'a', Character.MAX_VALUE, 0, -1, 63, -64, 64, Integer.MIN_VALUE, Integer.MAX_VALUE, 0L, Long.MIN_VALUE,
+                Long.MAX_VALUE, 1.5f, Float.NaN, Float.NEGATIVE_INFINITY, -0.0d, Math.PI, Double.MIN_VALUE}) {
+            Object restored = roundTrip(value);
+            assertEquals(value.getClass(), restored.getClass());
+            assertEquals(value, restored);
+        }
+    }
+
+    @Test
+    public void smallIntegersUseOneByte() {
+        // 类型标记 + ZigZag 变长编码
+        assertEquals(2, serializer.serialize(63).length);
+        assertEquals(2, serializer.serialize(-64).length);
+        assertEquals(3, serializer.serialize(64).length);
+    }
+
+    @Test
+    public void stringsAndBytes() {
+        assertEquals("", roundTrip(""));
+        assertEquals("héllo, 世界 😀", roundTrip("héllo, 世界 😀"));
+        String longString = "x".repeat(100000);
+        assertEquals(longString, roundTrip(longString));
+        assertArrayEquals(new byte[0], (byte[]) roundTrip(new byte[0]));
+        assertArrayEquals(new byte[]{1, -2, 3}, (byte[]) roundTrip(new byte[]{1, -2, 3}));
+    }
+
+    @Test
+    public void arrays() {
+        assertArrayEquals(new int[]{1, -2, Integer.MAX_VALUE}, (int[]) roundTrip(new int[]{1, -2, Integer.MAX_VALUE}));
+        assertArrayEquals(new long[]{Long.MIN_VALUE, 0}, (long[]) roundTrip(new long[]{Long.MIN_VALUE, 0}));
+        assertArrayEquals(new double[]{1.25, -3}, (double[]) roundTrip(new double[]{1.25, -3}), 0);
+        assertArrayEquals(new char[]{'a', 'b'}, (char[]) roundTrip(new char[]{'a', 'b'}));
+        assertArrayEquals(new boolean[]{true, false}, (boolean[]) roundTrip(new boolean[]{true, false}));
+
+        String[] strings = (String[]) roundTrip(new String[]{"a", null, "c"});
+        assertArrayEquals(new String[]{"a", null, "c"}, strings);
+        Object[] objects = (Object[]) roundTrip(new Object[]{1, "two", 3L, null, new int[]{4}});
+        assertEquals(Object[].class, objects.getClass());
+        assertArrayEquals(new int[]{4}, (int[]) objects[4]);
+        int[][] matrix = (int[][]) roundTrip(new int[][]{{1, 2}, {3}});
+        assertArrayEquals(new int[]{3}, matrix[1]);
+        assertArrayEquals(new Pojo[0], (Pojo[]) roundTrip(new Pojo[0]));
+    }
+
+    @Test
+    public void collections() {
+        for (Object value : new Object[]{new ArrayList<>(Arrays.asList(1, "a", null)), new LinkedList<>(List.of(2L)),
+                new LinkedHashSet<>(List.of("x", "y")), new TreeSet<>(List.of(3, 1, 2)),
+                new ArrayDeque<>(List.of(5, 6)), new HashMap<>(Map.of("k", 1)), new LinkedHashMap<>(Map.of(1, "v")),
+                new TreeMap<>(Map.of("b", 2, "a", 1)), new ConcurrentHashMap<>(Map.of("c", 3))}) {
+            Object restored = roundTrip(value);
+            assertEquals(value.getClass(), restored.getClass());
+            if (value instanceof ArrayDeque) {
+                assertEquals(new ArrayList<>((ArrayDeque<?>) value), new ArrayList<>((ArrayDeque<?>) restored));
+            } else {
+                assertEquals(value, restored);
+            }
+        }
+    }
+
+    @Test
+    public void immutableCollectionsUseGeneralImplementations() {
+        assertEquals(ArrayList.class, roundTrip(List.of(1, 2)).getClass());
+        assertEquals(List.of(1, 2), roundTrip(List.of(1, 2)));
+        assertEquals(ArrayList.class, roundTrip(Collections.emptyList()).getClass());
+        Set<?> set = (Set<?>) roundTrip(Set.of("a"));
+        assertEquals(LinkedHashSet.class, set.getClass());
+        assertEquals(Set.of("a"), set);
+        Map<?, ?> map = (Map<?, ?>) roundTrip(Collections.unmodifiableMap(new TreeMap<>(Map.of("a", 1))));
+        assertEquals(Map.of("a", 1), map);
+    }
+
+    @Test
+    public void enumsClassesAndValueTypes() {
+        assertSame(Color.GREEN, roundTrip(Color.GREEN));
+        assertSame(DayOfWeek.FRIDAY, roundTrip(DayOfWeek.FRIDAY));
+        assertSame(String.class, roundTrip(String.class));
+        assertSame(int.class, roundTrip(int.class));
+        assertSame(Pojo.class, roundTrip(Pojo.class));
+        BigInteger bigInteger = new BigInteger("-123456789012345678901234567890");
+        assertEquals(bigInteger, roundTrip(bigInteger));
+        BigDecimal bigDecimal = new BigDecimal("12345.678900");
+        BigDecimal restored = (BigDecimal) roundTrip(bigDecimal);
+        assertEquals(bigDecimal, restored);
+        assertEquals(6, restored.scale());
+        assertEquals(new Date(1234567890123L), roundTrip(new Date(1234567890123L)));
+    }
+
+    @Test
+    public void objects() {
+        Pojo pojo = new Pojo();
+        pojo.id = 7;
+        pojo.flag = true;
+        pojo.b = -1;
+        pojo.s = 300;
+        pojo.c = 'z';
+        pojo.i = -100000;
+        pojo.l = 1L << 40;
+        pojo.f = 2.5f;
+        pojo.d = -0.125;
+        pojo.name = "pojo";
+        pojo.boxed = 42;
+        pojo.color = Color.BLUE;
+        pojo.tags = new ArrayList<>(List.of("a", "b"));
+        pojo.attributes = new HashMap<>(Map.of("k", new BigDecimal("1.5")));
+        pojo.child = new Pojo();
+        pojo.child.name = "child";
+        pojo.cache = "not serialized";
+
+        Pojo restored = (Pojo) roundTrip(pojo);
+        assertEquals(7, restored.id);
+        assertTrue(restored.flag);
+        assertEquals(-1, restored.b);
+        assertEquals(300, restored.s);
+        assertEquals('z', restored.c);
+        assertEquals(-100000, restored.i);
+        assertEquals(1L << 40, restored.l);
+        assertEquals(2.5f, restored.f, 0);
+        assertEquals(-0.125, restored.d, 0);
+        assertEquals("pojo", restored.name);
+        assertEquals(Integer.valueOf(42), restored.boxed);
+        assertSame(Color.BLUE, restored.color);
+        assertEquals(pojo.tags, restored.tags);
+        assertEquals(pojo.attributes, restored.attributes);
+        assertEquals("child", restored.child.name);
+        assertNull(restored.child.child);
+        assertNull(restored.cache);
+    }
+
+    @Test
+    public void rpcMessages() {
+        RpcRequest request = new RpcRequest();
+        request.setRequestId(99);
+        request.setInterfaceName("cn.uestc.ew.rpc.Sample");
+        request.setMethodName("echo");
+        request.setParameterTypes(new Class<?>[]{String.class, int.class, List.class});
+        request.setParameters(new Object[]{"hi", 3, List.of(1)});
+        request.setRetryTimes(2);
+        request.setTimeout(1500);
+        RpcRequest restoredRequest = (RpcRequest) roundTrip(request);
+        assertEquals(0, restoredRequest.getRequestId());   // transient 字段由帧头携带
+        assertEquals("echo", restoredRequest.getMethodName());
+        assertArrayEquals(request.getParameterTypes(), restoredRequest.getParameterTypes());
+        assertEquals("hi", restoredRequest.getParameters()[0]);
+        assertEquals(List.of(1), restoredRequest.getParameters()[2]);
+        assertEquals(2, restoredRequest.getRetryTimes());
+        assertEquals(1500, restoredRequest.getTimeout());
+
+        RpcResponse response = new RpcResponse();
+        response.setResult(Map.of("answer", 42));
+        assertEquals(Map.of("answer", 42), ((RpcResponse) roundTrip(response)).getResult());
+
+        RpcBatchRequest batch = new RpcBatchRequest();
+        batch.setRequests(new RpcRequest[]{request, request});
+        assertEquals(2, ((RpcBatchRequest) roundTrip(batch)).getRequests().length);
+        RpcBatchResponse batchResponse = new RpcBatchResponse();
+        batchResponse.setResponses(new RpcResponse[]{response});
+        assertEquals(Map.of("answer", 42), ((RpcBatchResponse) roundTrip(batchResponse)).getResponses()[0].getResult());
+    }
+
+    @Test
+    public void exceptions() {
+        Exception exception = new IllegalStateException("outer", new IllegalArgumentException("inner"));
+        Throwable restored = (Throwable) roundTrip(exception);
+        assertEquals(IllegalStateException.class, restored.getClass());
+        assertEquals("outer", restored.getMessage());
+        assertEquals(IllegalArgumentException.class, restored.getCause().getClass());
+        assertEquals("inner", restored.getCause().getMessage());
+
+        Throwable deadline = (Throwable) roundTrip(new DeadlineExceededException("late"));
+        assertEquals(DeadlineExceededException.class, deadline.getClass());
+        assertEquals("late", deadline.getMessage());
+
+        // 没有 String 构造器的异常类型以无参构造器创建
+        assertEquals(NullPointerException.class, roundTrip(new NullPointerException()).getClass());
+    }
+
+    @Test
+    public void disallowedExceptionBecomesRuntimeException() {
+        Throwable restored = (Throwable) roundTrip(new CustomException("boom"));
+        assertEquals(RuntimeException.class, restored.getClass());
+        assertEquals(CustomException.class.getName() + ": boom", restored.getMessage());
+    }
+
+    @Test
+    public void disallowedClassIsRejected() {
+        Forbidden forbidden = new Forbidden();
+        forbidden.value = "x";
+        assertRejected(serializer.serialize(forbidden), Forbidden.class.getName());
+        assertRejected(serializer.serialize(new Forbidden[0]), Forbidden.class.getName());
+        assertRejected(serializer.serialize(List.of(forbidden)), Forbidden.class.getName());
+        assertRejected(serializer.serialize(Forbidden.class), Forbidden.class.getName());
+    }
+
+    @Test
+    public void nonCollectionTypeIsRejected() {
+        // 将集合的类型替换为允许加载、但不是集合的类型
+        byte[] data = replaceClassName(serializer.serialize(new ArrayDeque<>(List.of(1))),
+                ArrayDeque.class.getName(), Properties.class.getName());
+        try {
+            serializer.deserialize(data, Object.class);
+            fail("Non-collection type accepted");
+        } catch (IllegalStateException e) {
+            assertEquals("Not a collection type: " + Properties.class.getName(), e.getMessage());
+        }
+    }
+
+    @Test
+    public void serializeToStream() {
+        Pojo pojo = new Pojo();
+        pojo.name = "stream";
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        serializer.serialize(pojo, out);
+        assertArrayEquals(serializer.serialize(pojo), out.toByteArray());
+    }
+
+    @Test
+    public void cyclicObjectGraphIsRejected() {
+        List<Object> list = new ArrayList<>();
+        list.add(list);
+        try {
+            serializer.serialize(list);
+            fail("Cyclic object graph serialized");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("too deep"));
+        }
+    }
+
+    @Test
+    public void malformedData() {
+        assertMalformed(new byte[0]);
+        assertMalformed(new byte[]{99});
+        assertMalformed(new byte[]{-1});
+        // 长度超出剩余字节数
+        assertMalformed(new byte[]{10, 100, 'a'});
+        // 变长整数超过 5 字节
+        assertMalformed(new byte[]{6, -1, -1, -1, -1, -1, -1});
+
+        Pojo pojo = new Pojo();
+        pojo.name = "truncated";
+        pojo.tags = new ArrayList<>(List.of("a"));
+        byte[] data = serializer.serialize(pojo);
+        for (int length = 0; length < data.length; length++) {
+            assertMalformed(Arrays.copyOf(data, length));
+        }
+    }
+
+    private Object roundTrip(Object value) {
+        return serializer.deserialize(serializer.serialize(value), Object.class);
+    }
+
+    private void assertRejected(byte[] data, String className) {
+        try {
+            serializer.deserialize(data, Object.class);
+            fail("Disallowed class deserialized: " + className);
+        } catch (IllegalStateException e) {
+            assertEquals("Class is not allowed to deserialize: " + className, e.getMessage());
+        }
+    }
+
+    private void assertMalformed(byte[] data) {
+        try {
+            serializer.deserialize(data, Object.class);
+            fail("Malformed data deserialized: " + Arrays.toString(data));
+        } catch (IllegalStateException expected) {
+            // 非法数据只能以 IllegalStateException 结束
+        }
+    }
+
+    /**
+     * 替换序列化结果中写出的类名，两个类名的长度必须相同
+     */
+    private static byte[] replaceClassName(byte[] data, String from, String to) {
+        assertEquals(from.length(), to.length());
+        String text = new String(data, StandardCharsets.ISO_8859_1);
+        assertTrue(text.contains(from));
+        return text.replace(from, to).getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    public enum Color {
+        RED, GREEN, BLUE
+    }
+
+    public static class Base {
+        int id;
+    }
+
+    public static class Pojo extends Base {
+        static int ignored = 1;
+        boolean flag;
+        byte b;
+        short s;
+        char c;
+        int i;
+        long l;
+        float f;
+        double d;
+        String name;
+        Integer boxed;
+        Color color;
+        List<String> tags;
+        Map<String, Object> attributes;
+        Pojo child;
+        transient String cache;
+    }
+
+    public static class Forbidden {
+        String value;
+    }
+
+    public static class CustomException extends Exception {
+        public CustomException(String message) {
+            super(message);
+        }
+    }
+}
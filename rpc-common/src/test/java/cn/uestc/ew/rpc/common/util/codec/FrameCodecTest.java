@@ -0,0 +1,351 @@
+package cn.uestc.ew.rpc.common.util.codec;
+
+import cn.uestc.ew.rpc.common.bean.MethodDescriptor;
+import cn.uestc.ew.rpc.common.bean.MethodTable;
+import cn.uestc.ew.rpc.common.bean.RpcFrame;
+import cn.uestc.ew.rpc.common.bean.RpcRequest;
+import cn.uestc.ew.rpc.common.bean.RpcResponse;
+import cn.uestc.ew.rpc.common.compress.Compressors;
+import cn.uestc.ew.rpc.common.compress.DeflateCompressor;
+import cn.uestc.ew.rpc.common.compress.Lz4Compressor;
+import cn.uestc.ew.rpc.common.serialize.CompactSerializer;
+import cn.uestc.ew.rpc.common.serialize.JsonSerializer;
+import cn.uestc.ew.rpc.common.serialize.ProtostuffSerializer;
+import cn.uestc.ew.rpc.common.serialize.Serializers;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * {@link FrameCodec} 的编解码往返测试，包括压缩的消息体及非法帧头的处理
+ */
+public class FrameCodecTest {
+
+    private static final String INTERFACE_NAME = "cn.uestc.ew.rpc.sample.EchoService";
+
+    private static final int METHOD_ID = 3;
+
+    private static final byte[] SERIALIZERS = {ProtostuffSerializer.ID, CompactSerializer.ID, JsonSerializer.ID};
+
+    private static final byte[] COMPRESSORS = {0, DeflateCompressor.ID, Lz4Compressor.ID};
+
+    @Test
+    public void requestWithoutMethodTable() throws IOException {
+        for (byte serializer : SERIALIZERS) {
+            RpcRequest request = request(serializer, "hello");
+            RpcFrame frame = read(FrameCodec.encodeRequest(request, null));
+            assertEquals(RpcFrame.TYPE_REQUEST, frame.getType());
+            assertEquals(0, frame.getFlags());
+            assertEquals(serializer, frame.getSerializer());
+            assertEquals(request.getRequestId(), frame.getRequestId());
+            assertEquals(0, frame.getMethodId());
+            assertEquals(RpcFrame.HEADER_LENGTH + frame.getBody().length, request.getFrameLength());
+
+            RpcRequest decoded = decodeRequest(frame);
+            assertEquals(INTERFACE_NAME, decoded.getInterfaceName());
+            assertEquals("echo", decoded.getMethodName());
+            assertArrayEquals(new Class<?>[]{String.class}, decoded.getParameterTypes());
+            assertArrayEquals(new Object[]{"hello"}, decoded.getParameters());
+            assertEquals(1, decoded.getRetryTimes());
+            assertEquals(500, decoded.getTimeout());
+        }
+    }
+
+    @Test
+    public void requestWithMethodId() throws IOException {
+        RpcRequest request = request(ProtostuffSerializer.ID, "hello");
+        RpcFrame frame = read(FrameCodec.encodeRequest(request, methodTable()));
+        assertEquals(METHOD_ID, frame.getMethodId());
+
+        // 只保留参数列表、重试次数及超时时间
+        RpcRequest decoded = decodeRequest(frame);
+        assertNull(decoded.getInterfaceName());
+        assertNull(decoded.getMethodName());
+        assertArrayEquals(new Object[]{"hello"}, decoded.getParameters());
+        assertEquals(1, decoded.getRetryTimes());
+        assertEquals(500, decoded.getTimeout());
+
+        int fullLength = read(FrameCodec.encodeRequest(request, null)).getBody().length;
+        assertTrue(frame.getBody().length < fullLength);
+    }
+
+    @Test
+    public void compressedRequest() throws IOException {
+        for (byte serializer : SERIALIZERS) {
+            for (byte compressor : new byte[]{DeflateCompressor.ID, Lz4Compressor.ID}) {
+                String text = "compressible ".repeat(1000);
+                RpcRequest request = request(serializer, text);
+                request.setCompressor(compressor);
+                request.setCompressThreshold(0);
+                FrameBuffer buffer = FrameCodec.encodeRequest(request, methodTable());
+                assertEquals(compressor, FrameCodec.compressor(buffer));
+                RpcFrame frame = read(buffer);
+                assertEquals(compressor, frame.getCompressor());
+                assertEquals(compressor, frame.getAcceptCompressor());
+                assertTrue(frame.getBody().length < text.length() / 10);
+                assertArrayEquals(new Object[]{text}, decodeRequest(frame).getParameters());
+            }
+        }
+    }
+
+    @Test
+    public void requestNotCompressed() throws IOException {
+        // 服务端不支持压缩算法
+        RpcRequest request = request(ProtostuffSerializer.ID, "compressible ".repeat(1000));
+        request.setCompressor(Lz4Compressor.ID);
+        request.setCompressThreshold(0);
+        MethodTable withoutCompressors = new MethodTable(methodTable().getMethods(), new byte[0]);
+        RpcFrame frame = read(FrameCodec.encodeRequest(request, withoutCompressors));
+        assertEquals(0, frame.getCompressor());
+        assertEquals(0, frame.getAcceptCompressor());
+
+        // 消息体不超过压缩阈值
+        request.setCompressThreshold(1 << 20);
+        frame = read(FrameCodec.encodeRequest(request, methodTable()));
+        assertEquals(0, frame.getCompressor());
+        assertEquals(Lz4Compressor.ID, frame.getAcceptCompressor());
+
+        // 压缩后没有变小
+        byte[] random = new byte[4096];
+        new Random(1).nextBytes(random);
+        request.setParameters(new Object[]{random});
+        request.setParameterTypes(new Class<?>[]{byte[].class});
+        request.setCompressThreshold(0);
+        frame = read(FrameCodec.encodeRequest(request, null));
+        assertEquals(0, frame.getCompressor());
+        assertArrayEquals(random, (byte[]) decodeRequest(frame).getParameters()[0]);
+    }
+
+    @Test
+    public void responseRoundTrip() throws IOException {
+        for (byte serializer : SERIALIZERS) {
+            for (byte compressor : COMPRESSORS) {
+                for (String result : new String[]{"small", "large ".repeat(2000)}) {
+                    RpcResponse response = new RpcResponse();
+                    response.setRequestId(42L);
+                    response.setResult(result);
+                    RpcFrame frame = read(FrameCodec.encodeResponse(response, serializer, compressor, 64));
+                    assertEquals(RpcFrame.TYPE_RESPONSE, frame.getType());
+                    assertEquals(result.length() > 64 ? compressor : 0, frame.getCompressor());
+
+                    RpcResponse decoded = FrameCodec.decodeResponse(frame);
+                    assertEquals(42L, decoded.getRequestId());
+                    assertEquals(result, decoded.getResult());
+                    assertNull(decoded.getException());
+                    assertEquals(RpcFrame.HEADER_LENGTH + frame.getBody().length, decoded.getFrameLength());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void exceptionResponse() throws IOException {
+        RpcResponse response = new RpcResponse();
+        response.setRequestId(7L);
+        response.setException(new IllegalArgumentException("bad argument"));
+        RpcResponse decoded = FrameCodec.decodeResponse(
+                read(FrameCodec.encodeResponse(response, CompactSerializer.ID, (byte) 0, 0)));
+        assertEquals(IllegalArgumentException.class, decoded.getException().getClass());
+        assertEquals("bad argument", decoded.getException().getMessage());
+    }
+
+    @Test
+    public void decodeHeaderMatchesRead() throws IOException {
+        RpcRequest request = request(CompactSerializer.ID, "header");
+        byte[] bytes = FrameCodec.encodeRequest(request, methodTable()).toByteArray();
+        RpcFrame frame = FrameCodec.decodeHeader(ByteBuffer.wrap(bytes, 0, RpcFrame.HEADER_LENGTH));
+        RpcFrame expected = read(bytes);
+        assertEquals(expected.getType(), frame.getType());
+        assertEquals(expected.getFlags(), frame.getFlags());
+        assertEquals(expected.getSerializer(), frame.getSerializer());
+        assertEquals(expected.getRequestId(), frame.getRequestId());
+        assertEquals(expected.getMethodId(), frame.getMethodId());
+        assertEquals(expected.getBody().length, frame.getBody().length);
+    }
+
+    @Test
+    public void encodeExistingFrame() throws IOException {
+        RpcFrame frame = new RpcFrame();
+        frame.setType(RpcFrame.TYPE_STREAM_CREDIT);
+        frame.setSerializer(Serializers.DEFAULT.getId());
+        frame.setRequestId(-1L);
+        frame.setMethodId(16);
+        frame.setBody(new byte[]{1, 2, 3});
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        FrameCodec.write(out, frame);
+        RpcFrame decoded = read(out.toByteArray());
+        assertEquals(RpcFrame.TYPE_STREAM_CREDIT, decoded.getType());
+        assertEquals(-1L, decoded.getRequestId());
+        assertEquals(16, decoded.getMethodId());
+        assertArrayEquals(new byte[]{1, 2, 3}, decoded.getBody());
+    }
+
+    @Test
+    public void badMagic() {
+        byte[] bytes = validFrame();
+        bytes[0] ^= 0x01;
+        assertIllegalHeader(bytes, "Illegal frame magic");
+    }
+
+    @Test
+    public void badVersion() {
+        byte[] bytes = validFrame();
+        bytes[2] = RpcFrame.VERSION + 1;
+        assertIllegalHeader(bytes, "Unsupported frame version");
+    }
+
+    @Test
+    public void badLength() {
+        for (int length : new int[]{-1, Integer.MIN_VALUE, FrameCodec.MAX_BODY_LENGTH + 1}) {
+            byte[] bytes = validFrame();
+            ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putInt(18, length);
+            assertIllegalHeader(bytes, "Illegal frame body length");
+        }
+    }
+
+    @Test
+    public void truncatedFrame() {
+        byte[] bytes = validFrame();
+        for (int length = 0; length < bytes.length; length++) {
+            try {
+                read(Arrays.copyOf(bytes, length));
+                fail("Truncated frame decoded: length=" + length);
+            } catch (IOException expected) {
+                // EOFException
+            }
+        }
+    }
+
+    @Test
+    public void corruptedCompressedBody() throws IOException {
+        RpcResponse response = new RpcResponse();
+        response.setResult("corrupted ".repeat(1000));
+        RpcFrame frame = read(FrameCodec.encodeResponse(response, ProtostuffSerializer.ID, Lz4Compressor.ID, 0));
+        byte[] body = frame.getBody();
+
+        // 记录的原始长度与实际不符
+        byte[] wrongLength = body.clone();
+        wrongLength[0]++;
+        assertCorruptedBody(frame, wrongLength);
+        // 原始长度超出上限
+        byte[] tooLong = body.clone();
+        ByteBuffer.wrap(tooLong).order(ByteOrder.LITTLE_ENDIAN).putInt(0, FrameCodec.MAX_BODY_LENGTH + 1);
+        assertCorruptedBody(frame, tooLong);
+        // 不足以容纳原始长度
+        assertCorruptedBody(frame, new byte[]{1, 2});
+        // 压缩数据被截断
+        assertCorruptedBody(frame, Arrays.copyOf(body, body.length - 1));
+    }
+
+    @Test
+    public void unexpectedFrameType() throws IOException {
+        RpcFrame frame = read(FrameCodec.encodeRequest(request(ProtostuffSerializer.ID, "x"), null));
+        try {
+            FrameCodec.decodeResponse(frame);
+            fail("Request frame decoded as response");
+        } catch (IllegalStateException e) {
+            assertEquals("Unexpected frame type: " + RpcFrame.TYPE_REQUEST, e.getMessage());
+        }
+    }
+
+    @Test
+    public void unsupportedCompressor() {
+        RpcFrame frame = new RpcFrame();
+        frame.setFlags((byte) 0x0f);
+        frame.setBody(new byte[8]);
+        try {
+            FrameCodec.decompressBody(frame);
+            fail("Unsupported compressor accepted");
+        } catch (IllegalStateException e) {
+            assertEquals("Unsupported compressor: id=15", e.getMessage());
+        }
+    }
+
+    private static RpcRequest request(byte serializer, String parameter) {
+        RpcRequest request = new RpcRequest();
+        request.setRequestId(0x1234_5678_9abc_def0L);
+        request.setSerializer(serializer);
+        request.setInterfaceName(INTERFACE_NAME);
+        request.setMethodName("echo");
+        request.setParameterTypes(new Class<?>[]{String.class});
+        request.setParameters(new Object[]{parameter});
+        request.setRetryTimes(1);
+        request.setTimeout(500);
+        return request;
+    }
+
+    private static MethodTable methodTable() {
+        return new MethodTable(List.of(
+                new MethodDescriptor(METHOD_ID, INTERFACE_NAME, "", "echo", new String[]{String.class.getName()})),
+                Compressors.ids());
+    }
+
+    private static byte[] validFrame() {
+        return FrameCodec.encodeRequest(request(ProtostuffSerializer.ID, "valid"), null).toByteArray();
+    }
+
+    private static RpcFrame read(FrameBuffer buffer) throws IOException {
+        try {
+            return read(buffer.toByteArray());
+        } finally {
+            buffer.release();
+        }
+    }
+
+    private static RpcFrame read(byte[] bytes) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        RpcFrame frame = FrameCodec.read(in);
+        assertEquals(-1, in.read());
+        return frame;
+    }
+
+    private static RpcRequest decodeRequest(RpcFrame frame) {
+        return Serializers.get(frame.getSerializer()).deserialize(FrameCodec.decompressBody(frame), RpcRequest.class);
+    }
+
+    /**
+     * 帧头非法时，从输入流读取及解析帧头都抛出 {@link IOException}
+     */
+    private static void assertIllegalHeader(byte[] bytes, String message) {
+        try {
+            read(bytes);
+            fail("Illegal frame read: " + message);
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith(message));
+        }
+        try {
+            FrameCodec.decodeHeader(ByteBuffer.wrap(bytes, 0, RpcFrame.HEADER_LENGTH));
+            fail("Illegal frame header decoded: " + message);
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith(message));
+        }
+    }
+
+    private static void assertCorruptedBody(RpcFrame frame, byte[] body) {
+        RpcFrame corrupted = new RpcFrame();
+        corrupted.setType(frame.getType());
+        corrupted.setFlags(frame.getFlags());
+        corrupted.setSerializer(frame.getSerializer());
+        corrupted.setBody(body);
+        try {
+            FrameCodec.decompressBody(corrupted);
+            fail("Corrupted body decompressed");
+        } catch (IllegalStateException expected) {
+            // 数据损坏或长度非法
+        }
+    }
+}
@@ -1,5 +1,9 @@
 package cn.uestc.ew.rpc.registry;
 
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.List;
+
 /**
  * 服务发现接口，为 RPC 客户端提供服务发现功能
  */
@@ -12,4 +16,32 @@ public interface ServiceDiscovery {
      * @return 对应的服务地址
      */
     String discover(String serviceName);
-}
\ No newline at end of file
+
+    /**
+     * 服务发现接口，返回已解析的服务地址。默认实现在每次调用时解析 {@link #discover(String)}
+     * 返回的 "host:port"，实现类可以缓存解析结果以避免重复解析
+     *
+     * @param serviceName 查找的服务名称
+     * @return 对应的服务地址，找不到服务时返回 {@code null}
+     */
+    default InetSocketAddress discoverAddress(String serviceName) {
+        String address = discover(serviceName);
+        if (address == null || address.isEmpty()) return null;
+        int index = address.lastIndexOf(':');
+        return InetSocketAddress.createUnresolved(address.substring(0, index), Integer.parseInt(address.substring(index + 1)));
+    }
+
+    /**
+     * 查找服务的所有提供者实例，由客户端的负载均衡策略从中选择一个。
+     * 默认实现只返回 {@link #discover(String)} 选择的一个实例
+     *
+     * @param serviceName 查找的服务名称
+     * @return 不可修改的提供者实例列表，找不到服务时返回空列表。实现类应当在提供者不变时返回同一个列表对象，
+     *         以便负载均衡策略据此缓存其内部状态
+     */
+    default List<ServiceInstance> discoverInstances(String serviceName) {
+        String address = discover(serviceName);
+        if (address == null || address.isEmpty()) return Collections.emptyList();
+        return Collections.singletonList(ServiceInstance.parse(address));
+    }
+}
@@ -0,0 +1,73 @@
+package cn.uestc.ew.rpc.registry;
+
+import lombok.Getter;
+
+import java.net.InetSocketAddress;
+
+/**
+ * 服务提供者实例，对应注册中心中的一个 Address 节点。
+ *
+ * <p>节点数据的格式为 {@code host:port[?weight=N]}，未指定权重时使用 {@link #DEFAULT_WEIGHT}。
+ * 创建后不可修改，地址在创建时解析一次，供负载均衡及建立连接时直接使用。</p>
+ */
+@Getter
+public class ServiceInstance {
+
+    /**
+     * 默认权重
+     */
+    public static final int DEFAULT_WEIGHT = 100;
+
+    private static final String WEIGHT_PARAMETER = "weight=";
+
+    /**
+     * 服务地址（host:port）
+     */
+    private final String address;
+
+    /**
+     * 预先解析好的服务地址
+     */
+    private final InetSocketAddress socketAddress;
+
+    /**
+     * 权重，用于加权负载均衡，不小于 0
+     */
+    private final int weight;
+
+    public ServiceInstance(String address, int weight) {
+        int index = address.lastIndexOf(':');
+        if (index < 0) {
+            throw new IllegalArgumentException(String.format("Illegal service address: %s", address));
+        }
+        this.address = address;
+        this.socketAddress = new InetSocketAddress(address.substring(0, index), Integer.parseInt(address.substring(index + 1)));
+        this.weight = Math.max(0, weight);
+    }
+
+    /**
+     * 解析注册中心中 Address 节点的数据
+     *
+     * @param data 节点数据，格式为 {@code host:port[?weight=N]}
+     * @return 服务提供者实例
+     */
+    public static ServiceInstance parse(String data) {
+        int index = data.indexOf('?');
+        if (index < 0) return new ServiceInstance(data, DEFAULT_WEIGHT);
+        int weight = DEFAULT_WEIGHT;
+        for (String parameter : data.substring(index + 1).split("&")) {
+            if (parameter.startsWith(WEIGHT_PARAMETER)) {
+                weight = Integer.parseInt(parameter.substring(WEIGHT_PARAMETER.length()));
+            }
+        }
+        return new ServiceInstance(data.substring(0, index), weight);
+    }
+
+    /**
+     * 返回注册到注册中心时的节点数据，使用默认权重时省略权重参数，与旧版本的节点数据格式一致
+     */
+    @Override
+    public String toString() {
+        return weight == DEFAULT_WEIGHT ? address : address + "?" + WEIGHT_PARAMETER + weight;
+    }
+}
@@ -9,7 +9,7 @@ public interface ServiceRegistry {
      * 服务注册接口
      *
      * @param serviceName       待注册服务名称
-     * @param serviceAddress    待注册服务地址
+     * @param serviceAddress    待注册服务地址，格式为 {@code host:port[?weight=N]}，见 {@link ServiceInstance}
      */
     void register(String serviceName, String serviceAddress);
 }
\ No newline at end of file
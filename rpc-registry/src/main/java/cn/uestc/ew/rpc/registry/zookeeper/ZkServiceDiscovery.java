@@ -1,63 +1,207 @@
 package cn.uestc.ew.rpc.registry.zookeeper;
 
 import cn.uestc.ew.rpc.registry.ServiceDiscovery;
+import cn.uestc.ew.rpc.registry.ServiceInstance;
+import org.I0Itec.zkclient.IZkChildListener;
+import org.I0Itec.zkclient.IZkDataListener;
+import org.I0Itec.zkclient.IZkStateListener;
 import org.I0Itec.zkclient.ZkClient;
-import org.apache.commons.collections4.CollectionUtils;
+import org.apache.zookeeper.Watcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * ZooKeeper 服务发现类，为客户端提供服务发现
+ *
+ * <p>整个生命周期只使用一个 ZooKeeper 客户端。首次查找某个服务时订阅其 Service 节点的子节点变化
+ * 及各 Address 节点的数据变化，并在内存中保存该服务所有提供者地址的快照，之后由 ZooKeeper 通知驱动更新。
+ * 因此 {@link #discover(String)} 只是一次本地查找，不会产生任何网络请求。</p>
  */
-public class ZkServiceDiscovery implements ServiceDiscovery {
+public class ZkServiceDiscovery implements ServiceDiscovery, AutoCloseable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ZkServiceDiscovery.class);
 
     /**
-     * ZooKeeper 服务器地址，通过配置传入
+     * Zookeeper Client
      */
-    private final String zkAddress;
+    private final ZkClient zkClient;
+
+    /**
+     * 服务名称与其提供者地址快照的映射
+     */
+    private final Map<String, ServiceSnapshot> snapshots = new ConcurrentHashMap<>();
+
+    /**
+     * Service 节点的子节点监听器，Address 节点增删时刷新对应服务的快照
+     */
+    private final IZkChildListener childListener = (servicePath, children) -> refresh(serviceName(servicePath));
+
+    /**
+     * Address 节点的数据监听器，地址变化时刷新对应服务的快照
+     */
+    private final IZkDataListener dataListener = new IZkDataListener() {
+        @Override
+        public void handleDataChange(String addressPath, Object data) {
+            refresh(serviceName(parentPath(addressPath)));
+        }
+
+        @Override
+        public void handleDataDeleted(String addressPath) {
+            refresh(serviceName(parentPath(addressPath)));
+        }
+    };
 
     public ZkServiceDiscovery(String zkAddress) {
-        this.zkAddress = zkAddress;
+        // 创建 ZooKeeper 客户端
+        zkClient = new ZkClient(zkAddress, Constants.SESSION_TIMEOUT, Constants.CONNECTION_TIMEOUT);
+        LOGGER.debug("Connect zookeeper: address={}", zkAddress);
+        zkClient.subscribeStateChanges(new IZkStateListener() {
+            @Override
+            public void handleStateChanged(Watcher.Event.KeeperState state) {
+                // Ignore
+            }
+
+            @Override
+            public void handleNewSession() {
+                // 会话过期期间可能错过了通知，重建会话后刷新所有快照
+                snapshots.keySet().forEach(ZkServiceDiscovery.this::refresh);
+            }
+
+            @Override
+            public void handleSessionEstablishmentError(Throwable error) {
+                LOGGER.error("Establish zookeeper session failed", error);
+            }
+        });
+    }
+
+    @Override
+    public String discover(String serviceName) {
+        return select(snapshot(serviceName).instances).getAddress();
+    }
+
+    @Override
+    public InetSocketAddress discoverAddress(String serviceName) {
+        return select(snapshot(serviceName).instances).getSocketAddress();
     }
 
     @Override
-    public String discover(String name) {
-        // 1. 创建 ZooKeeper 客户端
-        ZkClient zkClient = new ZkClient(zkAddress, Constants.SESSION_TIMEOUT, Constants.CONNECTION_TIMEOUT);
-        LOGGER.debug("Connect zookeeper start: address={}", zkAddress);
-        try {
-            // 2. 获取 Service 节点
-            String servicePath = Constants.REGISTRY_ROOT_PATH + "/" + name;
-            if (!zkClient.exists(servicePath)) {
-                throw new RuntimeException(String.format("Can not find any service node on path: %s", servicePath));
+    public List<ServiceInstance> discoverInstances(String serviceName) {
+        return snapshot(serviceName).instances;
+    }
+
+    @Override
+    public void close() {
+        zkClient.close();
+    }
+
+    /**
+     * 获取服务的提供者快照，首次查找时从 ZooKeeper 加载并订阅变化
+     */
+    private ServiceSnapshot snapshot(String serviceName) {
+        ServiceSnapshot snapshot = snapshots.get(serviceName);
+        if (snapshot == null) {
+            snapshot = refresh(serviceName);
+        }
+        if (snapshot.instances.isEmpty()) {
+            throw new RuntimeException(String.format("Can not find any address node on path: %s", servicePath(serviceName)));
+        }
+        return snapshot;
+    }
+
+    /**
+     * 该服务被注册了多次时随机选择其中之一，客户端的负载均衡策略见 {@link #discoverInstances(String)}
+     */
+    private static ServiceInstance select(List<ServiceInstance> instances) {
+        int size = instances.size();
+        return instances.get(size == 1 ? 0 : ThreadLocalRandom.current().nextInt(size));
+    }
+
+    /**
+     * 从 ZooKeeper 重新加载服务的提供者快照，首次加载时订阅 Service 节点的子节点变化。
+     * ZooKeeper 事件线程与首次查找的调用方可能同时刷新，以加锁的方式串行执行
+     *
+     * @param serviceName 服务名称
+     * @return 最新的提供者快照
+     */
+    private synchronized ServiceSnapshot refresh(String serviceName) {
+        String servicePath = servicePath(serviceName);
+        ServiceSnapshot previous = snapshots.get(serviceName);
+        // 订阅时同时返回当前的子节点，Service 节点不存在时返回 null，节点创建后仍会收到通知
+        List<String> children = previous == null
+                ? zkClient.subscribeChildChanges(servicePath, childListener)
+                : zkClient.exists(servicePath) ? zkClient.getChildren(servicePath) : null;
+        Map<String, String> nodes = new LinkedHashMap<>();
+        if (children != null) {
+            Collections.sort(children);
+            for (String child : children) {
+                String addressPath = servicePath + "/" + child;
+                if (previous == null || !previous.nodes.containsKey(child)) {
+                    zkClient.subscribeDataChanges(addressPath, dataListener);
+                }
+                String address = zkClient.readData(addressPath, true);
+                if (address != null) nodes.put(child, address);
             }
-            List<String> addressList = zkClient.getChildren(servicePath);
-            if (CollectionUtils.isEmpty(addressList)) {
-                throw new RuntimeException(String.format("Can not find any address node on path: %s", servicePath));
+        }
+        if (previous != null) {
+            for (String child : previous.nodes.keySet()) {
+                if (!nodes.containsKey(child)) {
+                    zkClient.unsubscribeDataChanges(servicePath + "/" + child, dataListener);
+                }
             }
-            // 3. 获取 Address 节点
-            String address;
-            int size = addressList.size();
-            if (size == 1) {
-                // 该服务只被注册了一次
-                address = addressList.get(0);
-                LOGGER.debug("Find single address node: {}", address);
-            } else {
-                // 该服务被注册了多次，随机获其中
-                // TODO: 2022/10/3 Load balance
-                address = addressList.get(ThreadLocalRandom.current().nextInt(size));
-                LOGGER.debug("Find random service node: {}", address);
+        }
+        ServiceSnapshot snapshot = new ServiceSnapshot(nodes);
+        snapshots.put(serviceName, snapshot);
+        LOGGER.debug("Refresh service nodes: name={}, instances={}", serviceName, snapshot.instances);
+        return snapshot;
+    }
+
+    private static String servicePath(String serviceName) {
+        return Constants.REGISTRY_ROOT_PATH + "/" + serviceName;
+    }
+
+    private static String serviceName(String servicePath) {
+        return servicePath.substring(Constants.REGISTRY_ROOT_PATH.length() + 1);
+    }
+
+    private static String parentPath(String path) {
+        return path.substring(0, path.lastIndexOf('/'));
+    }
+
+    /**
+     * 单个服务的提供者快照，创建后不可修改，更新时整体替换
+     */
+    private static class ServiceSnapshot {
+
+        /**
+         * Address 节点名称与节点数据（host:port[?weight=N]）的映射
+         */
+        private final Map<String, String> nodes;
+
+        /**
+         * 所有提供者实例，地址已预先解析
+         */
+        private final List<ServiceInstance> instances;
+
+        ServiceSnapshot(Map<String, String> nodes) {
+            this.nodes = nodes;
+            List<ServiceInstance> instances = new ArrayList<>(nodes.size());
+            for (String data : nodes.values()) {
+                try {
+                    instances.add(ServiceInstance.parse(data));
+                } catch (IllegalArgumentException e) {
+                    LOGGER.warn("Ignore illegal address node: {}", data);
+                }
             }
-            // 4. 获取 address 节点的值
-            String addressPath = servicePath + "/" + address;
-            return zkClient.readData(addressPath);
-        } finally {
-            zkClient.close();
+            this.instances = Collections.unmodifiableList(instances);
         }
     }
-}
\ No newline at end of file
+}
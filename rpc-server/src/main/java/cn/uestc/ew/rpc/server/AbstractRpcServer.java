@@ -0,0 +1,235 @@
+package cn.uestc.ew.rpc.server;
+
+import cn.uestc.ew.rpc.common.compress.Compressors;
+import cn.uestc.ew.rpc.common.config.ExecutionMode;
+import cn.uestc.ew.rpc.common.log.AccessLog;
+import cn.uestc.ew.rpc.common.metrics.RpcMetrics;
+import cn.uestc.ew.rpc.common.serialize.ClassAllowlist;
+import cn.uestc.ew.rpc.common.serialize.Serializer;
+import cn.uestc.ew.rpc.common.serialize.Serializers;
+import cn.uestc.ew.rpc.common.util.codec.CoalescingFrameWriter;
+import cn.uestc.ew.rpc.registry.ServiceInstance;
+import cn.uestc.ew.rpc.registry.ServiceRegistry;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.collections4.MapUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * RPC 服务端基类，负责收集 {@link RpcService} 服务提供者并注册到注册中心，
+ * 具体的网络通信方式由子类通过 {@link RpcServer#startup()} 实现
+ */
+@Slf4j
+public abstract class AbstractRpcServer implements ApplicationContextAware, InitializingBean, RpcServer {
+
+    /**
+     * 服务端地址
+     */
+    protected final String serverAddress;
+
+    /**
+     * 服务注册工具
+     */
+    protected final ServiceRegistry serviceRegistry;
+
+    /**
+     * 存放 "服务名" 与 "服务" 之间的映射
+     */
+    protected final Map<String, Object> handlerMap = new HashMap<>();
+
+    /**
+     * RPC 请求处理器，收集到服务提供者后以新的分派表重建
+     */
+    protected volatile RpcServerHandler serverHandler = new RpcServerHandler(RpcDispatchTable.EMPTY);
+
+    /**
+     * 请求处理（{@link RpcServerHandler#handle}）的执行方式，默认使用有界的平台线程池
+     */
+    @Setter
+    protected ExecutionMode executionMode = ExecutionMode.PLATFORM;
+
+    /**
+     * 注册到注册中心的权重，供客户端加权负载均衡使用
+     */
+    @Setter
+    protected int weight = ServiceInstance.DEFAULT_WEIGHT;
+
+    /**
+     * 默认的响应压缩阈值（字节），响应的消息体超过该长度且客户端接受压缩时才压缩，
+     * 单个服务可通过 {@link RpcService#compressThreshold()} 单独指定。需要在注册服务提供者之前设置
+     */
+    @Setter
+    protected int compressThreshold = Compressors.DEFAULT_THRESHOLD;
+
+    /**
+     * 同一连接上并发完成的响应合并写出的最大字节数
+     */
+    @Setter
+    protected int writeBatchBytes = CoalescingFrameWriter.DEFAULT_BATCH_BYTES;
+
+    /**
+     * 合并写出前等待更多响应的最长时间，单位微秒，0 表示不等待。
+     * 只对 BIO 服务端生效，NIO 服务端在每轮事件循环结束时合并写出，不额外等待
+     */
+    @Setter
+    protected long writeBatchDelay = 0;
+
+    /**
+     * 访问日志中成功调用的采样率，1 表示全部记录，0 表示只记录失败的调用。需要在注册服务提供者之前设置
+     */
+    @Setter
+    protected double accessLogSampleRate = 1;
+
+    /**
+     * 访问日志中需要记录参数及返回值的服务（服务名称或接口名称），以逗号分隔，默认只记录元数据。需要在注册服务提供者之前设置
+     */
+    @Setter
+    protected String accessLogPayloadServices;
+
+    /**
+     * 幂等缓存的最大条目数，0 表示不去重，超时重试的重复请求重新执行。需要在注册服务提供者之前设置
+     */
+    @Setter
+    protected int idempotencyCacheSize = 10000;
+
+    /**
+     * 幂等缓存中响应的有效时间，单位毫秒，应不短于客户端重试的总时间。需要在注册服务提供者之前设置
+     */
+    @Setter
+    protected long idempotencyCacheTtl = 60000;
+
+    /**
+     * 自适应并发限制的上限，也是初始的并发上限，0 表示不限制。需要在注册服务提供者之前设置，见 {@link ConcurrencyLimiter}
+     */
+    @Setter
+    protected int maxConcurrency = 0;
+
+    /**
+     * 自适应并发限制的下限，请求排队时上限最低降到该值。需要在注册服务提供者之前设置
+     */
+    @Setter
+    protected int minConcurrency = 10;
+
+    /**
+     * 接受的序列化器名称，以逗号分隔，默认接受所有已注册的序列化器。需要在注册服务提供者之前设置
+     */
+    @Setter
+    protected String serializers;
+
+    /**
+     * 反序列化时额外允许的类，以逗号分隔，{@code 包名.*} 表示整个包，见 {@link ClassAllowlist}。
+     * 服务接口所在的包及方法签名中的类已自动允许，参数的子类型、服务抛出的自定义异常等需要在此声明
+     */
+    @Setter
+    protected String serializerAllowlist;
+
+    /**
+     * 请求帧的并发限制，在首次注册服务提供者时创建，重建请求处理器时保留
+     */
+    protected ConcurrencyLimiter concurrencyLimiter;
+
+    protected AbstractRpcServer(String serverAddress, ServiceRegistry serviceRegistry) {
+        this.serverAddress = serverAddress;
+        this.serviceRegistry = serviceRegistry;
+    }
+
+    /**
+     * 应用启动时，提供 Spring 提供的注解扫描，自动收集所有 RPC 服提供者，
+     * 将其注册到 {@code handleMap} 中，并构建 {@link RpcServerHandler} 使用的分派表
+     *
+     * @param ctx Spring 上下文
+     */
+    @Override
+    public void setApplicationContext(ApplicationContext ctx) {
+
+        // 1. 扫描带有 RpcService 注解的类
+        Map<String, Object> serviceBeanMap = ctx.getBeansWithAnnotation(RpcService.class);
+        if (MapUtils.isEmpty(serviceBeanMap)) return;
+
+        // 2. 注册服务提供者
+        registerServices(serviceBeanMap.values());
+    }
+
+    /**
+     * 注册服务提供者，并以所有已注册的服务提供者重建分派表，非 Spring 环境下可直接调用
+     *
+     * @param serviceBeans 带有 {@link RpcService} 注解的服务对象
+     */
+    public void registerServices(Collection<?> serviceBeans) {
+
+        // 1. 初始化 HandlerMap 对象
+        for (Object serviceBean : serviceBeans) {
+            RpcService rpcService = serviceBean.getClass().getAnnotation(RpcService.class);
+            String serviceName = rpcService.value().getName();
+            String serviceVersion = rpcService.version();
+            if (StringUtils.isNotEmpty(serviceVersion)) {
+                serviceName += "-" + serviceVersion;
+            }
+            handlerMap.put(serviceName, serviceBean);
+            ClassAllowlist.allowService(rpcService.value());
+        }
+        ClassAllowlist.allow(serializerAllowlist);
+
+        // 2. 创建并发限制，以 MBean 发布当前上限及拒绝次数
+        if (concurrencyLimiter == null && maxConcurrency > 0) {
+            concurrencyLimiter = new ConcurrencyLimiter(Math.min(minConcurrency, maxConcurrency), maxConcurrency);
+            RpcMetrics.SERVER.register("ConcurrencyLimiter-" + serverAddress, concurrencyLimiter);
+        }
+
+        // 3. 构建分派表，请求处理时不再需要查找服务对象及方法
+        serverHandler = new RpcServerHandler(RpcDispatchTable.build(handlerMap.values()), compressThreshold,
+                new AccessLog(AccessLog.SERVER, accessLogSampleRate, accessLogPayloadServices),
+                idempotencyCacheSize > 0 ? new IdempotencyCache(idempotencyCacheSize, idempotencyCacheTtl) : null,
+                concurrencyLimiter, acceptedSerializers());
+    }
+
+    /**
+     * 解析接受的序列化器，未配置时返回 {@code null}
+     */
+    private List<Serializer> acceptedSerializers() {
+        if (StringUtils.isBlank(serializers)) return null;
+        List<Serializer> accepted = new ArrayList<>();
+        for (String name : StringUtils.split(serializers, ',')) {
+            if (StringUtils.isNotBlank(name)) accepted.add(Serializers.get(name.trim()));
+        }
+        return accepted;
+    }
+
+    /**
+     * RPC 服务端启动时，先将本地服务注册到注册中心，再启动 RPC Server Stub
+     */
+    @Override
+    public void afterPropertiesSet() {
+
+        // 1. 注册 RPC 服务到注册中心
+        if (serviceRegistry != null) {
+            String instance = new ServiceInstance(serverAddress, weight).toString();
+            for (String interfaceName : handlerMap.keySet()) {
+                serviceRegistry.register(interfaceName, instance);
+                log.debug("Register service: name={}, address={}", interfaceName, instance);
+            }
+        }
+
+        // 2. 启动 RPC Server Stub
+        this.startup();
+    }
+
+    /**
+     * 获取 RPC 服务的监听端口号
+     *
+     * @return 服务端地址（host:port）中的端口号
+     */
+    protected int getPort() {
+        String[] addressArray = StringUtils.split(serverAddress, ":");
+        return Integer.parseInt(addressArray[1]);
+    }
+}
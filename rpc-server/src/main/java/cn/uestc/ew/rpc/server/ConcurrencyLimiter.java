@@ -0,0 +1,178 @@
+package cn.uestc.ew.rpc.server;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 服务端的自适应并发限制，根据请求耗时的变化调整同时处理的请求数上限，超过上限的请求立即拒绝
+ *
+ * <p>请求的耗时从读取完请求帧开始计算，包括在业务线程池中排队的时间。每个窗口（至少 {@link #WINDOW_NANOS}
+ * 且至少 {@link #MIN_SAMPLES} 个请求）结束时，以窗口内的平均耗时作为短期耗时，与没有排队时的基准耗时比较，
+ * 按两者的比值（梯度）调整上限：</p>
+ *
+ * <pre>
+ * gradient = max(0.5, min(1, 1.5 * baseLatency / shortLatency))
+ * limit    = limit * (1 - 0.2) + (limit * gradient + sqrt(limit)) * 0.2
+ * </pre>
+ *
+ * <p>基准耗时取各窗口平均耗时的最小值，并且每个窗口向更高的短期耗时靠拢 1%，持续过载时不会很快被排队的耗时抬高，
+ * 服务本身变慢时也能逐渐适应。短期耗时不超过基准耗时的 1.5 倍时上限逐步增加，请求开始排队、耗时上升时上限随之减小，
+ * 超出上限的请求不再排队等待，而是立即以过载响应，由客户端交给其它服务提供者。
+ * 窗口内的最大并发数不到上限的一半时不调整上限，避免负载较低时上限无限增长。</p>
+ *
+ * <p>初始上限为最大值，刚启动的服务端不会因为上限过低而拒绝正常的请求，请求开始排队时再由耗时的梯度逐步降低上限。
+ * 窗口内的请求数不足 {@link #MIN_SAMPLES} 时窗口继续延长，释放请求时不进入调整。</p>
+ *
+ * <p>准入及释放只有计数器的原子操作，上限在窗口结束时由一个线程计算。</p>
+ */
+public class ConcurrencyLimiter implements ConcurrencyLimiterMBean {
+
+    /**
+     * 调整上限的最短间隔
+     */
+    private static final long WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /**
+     * 调整上限所需的最少请求数
+     */
+    private static final long MIN_SAMPLES = 10;
+
+    /**
+     * 允许短期耗时超过长期耗时的倍数，超过后减小上限
+     */
+    private static final double TOLERANCE = 1.5;
+
+    /**
+     * 每次调整时新上限所占的比例
+     */
+    private static final double SMOOTHING = 0.2;
+
+    /**
+     * 短期耗时高于基准耗时时，基准耗时每个窗口向短期耗时靠拢的比例
+     */
+    private static final double BASE_DRIFT = 0.01;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /**
+     * 当前窗口内的最大并发数
+     */
+    private final AtomicInteger peak = new AtomicInteger();
+
+    private final LongAdder latencySum = new LongAdder();
+
+    private final LongAdder samples = new LongAdder();
+
+    private final LongAdder rejected = new LongAdder();
+
+    private volatile int limit;
+
+    /**
+     * 未取整的上限，只在调整时访问
+     */
+    private double estimate;
+
+    private volatile double shortLatency;
+
+    private volatile double baseLatency;
+
+    private volatile long windowStart = System.nanoTime();
+
+    /**
+     * @param minLimit 并发上限的最小值
+     * @param maxLimit 并发上限的最大值，也是初始上限
+     */
+    public ConcurrencyLimiter(int minLimit, int maxLimit) {
+        if (minLimit <= 0 || maxLimit < minLimit) {
+            throw new IllegalArgumentException(String.format("Illegal concurrency limit: min=%d, max=%d",
+                    minLimit, maxLimit));
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = maxLimit;
+        this.estimate = maxLimit;
+    }
+
+    /**
+     * 尝试接受一个请求，接受后需要在请求处理完时调用 {@link #release(long)}
+     *
+     * @return 未超过并发上限时返回 {@code true}
+     */
+    public boolean tryAcquire() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= limit) {
+                rejected.increment();
+                return false;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        int p = peak.get();
+        if (current + 1 > p) peak.compareAndSet(p, current + 1);
+        return true;
+    }
+
+    /**
+     * 请求处理完毕，记录耗时，窗口结束时调整上限
+     *
+     * @param latencyNanos 从读取完请求帧到处理完毕的耗时
+     */
+    public void release(long latencyNanos) {
+        inFlight.decrementAndGet();
+        latencySum.add(latencyNanos);
+        samples.increment();
+        if (System.nanoTime() - windowStart >= WINDOW_NANOS && samples.sum() >= MIN_SAMPLES) {
+            update();
+        }
+    }
+
+    private synchronized void update() {
+        long now = System.nanoTime();
+        if (now - windowStart < WINDOW_NANOS || samples.sum() < MIN_SAMPLES) return;
+        long count = samples.sumThenReset();
+        long sum = latencySum.sumThenReset();
+        int maxInFlight = peak.getAndSet(inFlight.get());
+        windowStart = now;
+        if (count == 0 || sum <= 0) return;
+        double latency = (double) sum / count;
+        shortLatency = latency;
+        double base = baseLatency == 0 || latency < baseLatency
+                ? latency : baseLatency + (latency - baseLatency) * BASE_DRIFT;
+        baseLatency = base;
+        if (maxInFlight < estimate / 2) return;
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * base / latency));
+        double target = estimate * gradient + Math.sqrt(estimate);
+        estimate = Math.max(minLimit, Math.min(maxLimit, estimate * (1 - SMOOTHING) + target * SMOOTHING));
+        limit = (int) estimate;
+    }
+
+    @Override
+    public int getLimit() {
+        return limit;
+    }
+
+    @Override
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    @Override
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    @Override
+    public long getShortLatencyNanos() {
+        return (long) shortLatency;
+    }
+
+    @Override
+    public long getBaseLatencyNanos() {
+        return (long) baseLatency;
+    }
+}
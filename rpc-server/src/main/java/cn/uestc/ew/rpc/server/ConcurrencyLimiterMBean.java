@@ -0,0 +1,34 @@
+package cn.uestc.ew.rpc.server;
+
+/**
+ * 服务端并发限制的状态，以 MBean 发布，耗时单位均为纳秒
+ *
+ * @see ConcurrencyLimiter
+ */
+public interface ConcurrencyLimiterMBean {
+
+    /**
+     * 当前的并发上限
+     */
+    int getLimit();
+
+    /**
+     * 已接受而尚未处理完的请求数，包括在业务线程池中排队的请求
+     */
+    int getInFlight();
+
+    /**
+     * 因超过并发上限而被拒绝的请求数
+     */
+    long getRejected();
+
+    /**
+     * 最近一个窗口内请求的平均耗时
+     */
+    long getShortLatencyNanos();
+
+    /**
+     * 没有排队时的基准耗时，见 {@link ConcurrencyLimiter}
+     */
+    long getBaseLatencyNanos();
+}
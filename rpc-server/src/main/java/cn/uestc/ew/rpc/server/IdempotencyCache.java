@@ -0,0 +1,189 @@
+package cn.uestc.ew.rpc.server;
+
+import cn.uestc.ew.rpc.common.bean.RpcRequest;
+import cn.uestc.ew.rpc.common.bean.RpcResponse;
+import cn.uestc.ew.rpc.common.exception.DeadlineExceededException;
+import cn.uestc.ew.rpc.common.metrics.MethodMetrics;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 服务端的幂等缓存，按 requestId 保存最近执行过的请求的响应，使超时重试（"至少一次"）的重复请求不再重新执行
+ *
+ * <p>首次收到的请求登记一个进行中的条目后执行；执行期间收到的重复请求等待同一次执行，最多等待到自身的截止时间，
+ * 没有截止时间时最多等待响应的有效时间，等待超时后返回可重试的 {@link DeadlineExceededException}；
+ * 执行结束后的重复请求在有效时间内直接得到保存的响应。没有执行服务方法的响应（如超过截止时间）不会保存，
+ * 等待中的重复请求转而自行执行。</p>
+ *
+ * <p>条目按登记顺序记录在固定长度的环形数组中，登记新条目时直接淘汰同一位置上最早的条目，因此条目数不超过上限，
+ * 淘汰只需一次数组写入及一次哈希表删除；过期的条目在再次访问时视为不存在，直到被淘汰前仍占用空间。</p>
+ *
+ * <p>requestId 是客户端生成的 64 位随机数，不同客户端的请求可以共用一个缓存；
+ * 对冲请求与原请求的 requestId 相同，但发往不同的服务端，不会互相影响。</p>
+ */
+public class IdempotencyCache {
+
+    private final long ttlNanos;
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * 按登记顺序记录条目的环形数组，长度即最大条目数
+     */
+    private final AtomicReferenceArray<Entry> ring;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final LongAdder duplicates = new LongAdder();
+
+    /**
+     * @param maxSize 最大条目数
+     * @param ttl     响应的有效时间，单位毫秒，应不短于客户端重试的总时间
+     */
+    public IdempotencyCache(int maxSize, long ttl) {
+        if (maxSize <= 0 || ttl <= 0) {
+            throw new IllegalArgumentException(String.format("Illegal idempotency cache config: maxSize=%d, ttl=%d",
+                    maxSize, ttl));
+        }
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttl);
+        this.ring = new AtomicReferenceArray<>(maxSize);
+    }
+
+    /**
+     * 返回请求的响应，首次收到时由 {@code execution} 执行，重复的请求等待或直接返回同一个响应
+     *
+     * @param request   RPC 请求体，按 {@link RpcRequest#getRequestId()} 识别重复的请求
+     * @param metrics   服务方法的调用统计，重复的请求计入 {@link MethodMetrics#duplicated()}，可以为 {@code null}
+     * @param execution 执行请求，返回响应
+     * @return 响应，等待的执行超过请求的截止时间（或响应的有效时间）时返回带有 {@link DeadlineExceededException} 的响应
+     */
+    public RpcResponse execute(RpcRequest request, MethodMetrics metrics, Supplier<RpcResponse> execution) {
+        Long key = request.getRequestId();
+        while (true) {
+            long now = System.nanoTime();
+            Entry created = new Entry(key);
+            Entry entry = entries.compute(key, (k, old) -> old != null && !old.isExpired(now) ? old : created);
+            if (entry == created) {
+                register(created);
+                return run(created, execution);
+            }
+            RpcResponse response = await(entry, request);
+            if (response != null) {
+                duplicates.increment();
+                if (metrics != null) metrics.duplicated();
+                return response;
+            }
+            // 原请求没有执行服务方法，由当前请求重新登记并执行
+        }
+    }
+
+    /**
+     * 返回当前的条目数，包括已过期但尚未淘汰的条目
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * 返回由缓存响应的重复请求数
+     */
+    public long getDuplicates() {
+        return duplicates.sum();
+    }
+
+    /**
+     * 将条目登记到环形数组，并淘汰同一位置上最早的条目
+     */
+    private void register(Entry entry) {
+        int slot = (int) (sequence.getAndIncrement() % ring.length());
+        Entry evicted = ring.getAndSet(slot, entry);
+        if (evicted != null) {
+            entries.remove(evicted.requestId, evicted);
+        }
+    }
+
+    private RpcResponse run(Entry entry, Supplier<RpcResponse> execution) {
+        RpcResponse response = null;
+        try {
+            response = execution.get();
+            return response;
+        } finally {
+            if (executed(response)) {
+                entry.expireAt = System.nanoTime() + ttlNanos;
+                entry.done = true;
+                entry.future.complete(response);
+            } else {
+                entries.remove(entry.requestId, entry);
+                entry.future.complete(null);
+            }
+        }
+    }
+
+    /**
+     * 等待进行中的执行，请求有截止时间时最多等待到截止时间，否则最多等待响应的有效时间，
+     * 避免执行卡住时重复的请求无限占用业务线程
+     *
+     * @return 响应，原请求没有执行服务方法时返回 {@code null}
+     */
+    private RpcResponse await(Entry entry, RpcRequest request) {
+        long waitNanos = request.getDeadline() != 0 ? request.getDeadline() - System.nanoTime() : ttlNanos;
+        try {
+            return entry.future.get(waitNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            return deadlineExceeded(request, waitNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return deadlineExceeded(request, waitNanos);
+        } catch (ExecutionException e) {
+            // 条目的 Future 只会正常完成
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static RpcResponse deadlineExceeded(RpcRequest request, long waitNanos) {
+        RpcResponse response = new RpcResponse();
+        response.setRequestId(request.getRequestId());
+        response.setException(new DeadlineExceededException(String.format(
+                "Deadline exceeded while waiting for the original request: timeout=%d ms, waited=%d ms",
+                request.getTimeout(), TimeUnit.NANOSECONDS.toMillis(waitNanos))));
+        return response;
+    }
+
+    /**
+     * 响应是否来自服务方法的执行（包括服务方法抛出的异常），只有这样的响应才能交给重复的请求
+     */
+    private static boolean executed(RpcResponse response) {
+        return response != null && !(response.getException() instanceof DeadlineExceededException);
+    }
+
+    private static final class Entry {
+
+        private final Long requestId;
+
+        private final CompletableFuture<RpcResponse> future = new CompletableFuture<>();
+
+        /**
+         * 执行是否已结束，结束前条目不会过期
+         */
+        private volatile boolean done;
+
+        private volatile long expireAt;
+
+        Entry(Long requestId) {
+            this.requestId = requestId;
+        }
+
+        boolean isExpired(long now) {
+            return done && now - expireAt >= 0;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package cn.uestc.ew.rpc.server;
+
+import cn.uestc.ew.rpc.common.bean.MethodDescriptor;
+import cn.uestc.ew.rpc.common.bean.MethodTable;
+import cn.uestc.ew.rpc.common.compress.Compressors;
+import lombok.Getter;
+import net.sf.cglib.reflect.FastClass;
+import org.apache.commons.lang3.StringUtils;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 服务方法分派表，在收集到所有 {@link RpcService} 服务提供者时一次性构建，构建后不可修改。
+ *
+ * <p>以 "接口名称 -> 版本号 -> 方法名称" 三级映射索引预先解析好的 {@link RpcMethodInvoker}，
+ * 同名的重载方法按参数类型列表逐个比较。处理请求时只需几次 {@link HashMap#get(Object)} 及数组比较，
+ * 不会拼接字符串或创建对象；只有服务接口中声明的方法才会被索引，查找失败时直接返回 {@code null}。</p>
+ *
+ * <p>构建时同时为每个方法分配从 1 开始的编号，并生成握手时下发给客户端的 {@link MethodTable}，
+ * 携带方法编号的请求直接按下标定位调用器。</p>
+ */
+public class RpcDispatchTable {
+
+    /**
+     * 空分派表，未注册任何服务时使用
+     */
+    public static final RpcDispatchTable EMPTY = new RpcDispatchTable(Collections.emptyMap(), new RpcMethodInvoker[1]);
+
+    /**
+     * 接口名称 -> 版本号 -> 方法名称 -> 同名方法的调用器列表
+     */
+    private final Map<String, Map<String, Map<String, RpcMethodInvoker[]>>> index;
+
+    /**
+     * 以方法编号为下标的调用器列表，下标 0 保留不用
+     */
+    private final RpcMethodInvoker[] invokers;
+
+    /**
+     * 握手时下发给客户端的方法表
+     */
+    @Getter
+    private final MethodTable methodTable;
+
+    private RpcDispatchTable(Map<String, Map<String, Map<String, RpcMethodInvoker[]>>> index, RpcMethodInvoker[] invokers) {
+        this.index = index;
+        this.invokers = invokers;
+        List<MethodDescriptor> descriptors = new ArrayList<>(invokers.length - 1);
+        for (int id = 1; id < invokers.length; id++) {
+            RpcMethodInvoker invoker = invokers[id];
+            String[] typeNames = Arrays.stream(invoker.getParameterTypes()).map(Class::getName).toArray(String[]::new);
+            descriptors.add(new MethodDescriptor(id, invoker.getInterfaceName(), invoker.getServiceVersion(),
+                    invoker.getMethodName(), typeNames));
+        }
+        this.methodTable = new MethodTable(descriptors, Compressors.ids());
+    }
+
+    /**
+     * 根据服务提供者构建分派表，服务接口及版本号由其 {@link RpcService} 注解指定
+     *
+     * @param serviceBeans 带有 {@link RpcService} 注解的服务对象
+     * @return 分派表
+     */
+    public static RpcDispatchTable build(Collection<?> serviceBeans) {
+        Map<String, Map<String, Map<String, RpcMethodInvoker[]>>> index = new HashMap<>();
+        List<RpcMethodInvoker> invokers = new ArrayList<>();
+        invokers.add(null);
+        for (Object serviceBean : serviceBeans) {
+            RpcService rpcService = serviceBean.getClass().getAnnotation(RpcService.class);
+            Class<?> interfaceClass = rpcService.value();
+            String interfaceName = interfaceClass.getName();
+            String serviceVersion = StringUtils.defaultString(rpcService.version());
+            FastClass serviceFastClass = FastClass.create(serviceBean.getClass());
+            Map<String, RpcMethodInvoker[]> methods = index
+                    .computeIfAbsent(interfaceName, key -> new HashMap<>())
+                    .computeIfAbsent(serviceVersion, key -> new HashMap<>());
+            for (Method method : interfaceClass.getMethods()) {
+                RpcMethodInvoker invoker = new RpcMethodInvoker(interfaceName, serviceVersion,
+                        rpcService.compressThreshold(), serviceBean,
+                        serviceFastClass.getMethod(method.getName(), method.getParameterTypes()));
+                invokers.add(invoker);
+                methods.merge(method.getName(), new RpcMethodInvoker[]{invoker}, (current, added) -> {
+                    RpcMethodInvoker[] merged = Arrays.copyOf(current, current.length + 1);
+                    merged[current.length] = added[0];
+                    return merged;
+                });
+            }
+        }
+        return new RpcDispatchTable(index, invokers.toArray(new RpcMethodInvoker[0]));
+    }
+
+    /**
+     * 按方法编号查找服务方法调用器
+     *
+     * @param methodId 方法编号，由 {@link #getMethodTable()} 分配
+     * @return 对应的调用器，编号无效时返回 {@code null}
+     */
+    public RpcMethodInvoker lookup(int methodId) {
+        return methodId > 0 && methodId < invokers.length ? invokers[methodId] : null;
+    }
+
+    /**
+     * 查找服务方法调用器
+     *
+     * @param interfaceName  服务接口名称
+     * @param serviceVersion 服务版本号，{@code null} 视为空字符串
+     * @param methodName     方法名称
+     * @param parameterTypes 参数类型列表
+     * @return 对应的调用器，找不到时返回 {@code null}
+     */
+    public RpcMethodInvoker lookup(String interfaceName, String serviceVersion, String methodName, Class<?>[] parameterTypes) {
+        Map<String, Map<String, RpcMethodInvoker[]>> versions = index.get(interfaceName);
+        if (versions == null) return null;
+        Map<String, RpcMethodInvoker[]> methods = versions.get(serviceVersion == null ? StringUtils.EMPTY : serviceVersion);
+        if (methods == null) return null;
+        RpcMethodInvoker[] invokers = methods.get(methodName);
+        if (invokers == null) return null;
+        for (RpcMethodInvoker invoker : invokers) {
+            if (sameTypes(invoker.getParameterTypes(), parameterTypes)) return invoker;
+        }
+        return null;
+    }
+
+    /**
+     * 比较参数类型列表，无参方法的参数类型列表在反序列化后可能为 {@code null}
+     */
+    private static boolean sameTypes(Class<?>[] expected, Class<?>[] actual) {
+        if (actual == null) return expected.length == 0;
+        return Arrays.equals(expected, actual);
+    }
+}
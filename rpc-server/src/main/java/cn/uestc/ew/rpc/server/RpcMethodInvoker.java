@@ -0,0 +1,116 @@
+package cn.uestc.ew.rpc.server;
+
+import cn.uestc.ew.rpc.common.metrics.MethodMetrics;
+import cn.uestc.ew.rpc.common.metrics.RpcMetrics;
+import cn.uestc.ew.rpc.common.stream.RpcStreams;
+import lombok.Getter;
+import net.sf.cglib.reflect.FastMethod;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+
+/**
+ * 预先解析好的服务方法调用器，绑定了服务对象及其 CGLib {@link FastMethod}，
+ * 处理请求时直接调用，无需再查找服务对象及方法
+ */
+@Getter
+public class RpcMethodInvoker {
+
+    /**
+     * 服务接口名称
+     */
+    private final String interfaceName;
+
+    /**
+     * 服务版本号，未指定版本时为空字符串
+     */
+    private final String serviceVersion;
+
+    /**
+     * 方法名称
+     */
+    private final String methodName;
+
+    /**
+     * 参数类型列表
+     */
+    private final Class<?>[] parameterTypes;
+
+    /**
+     * 带泛型信息的参数类型列表，用于序列化器将参数转换为声明的类型
+     */
+    private final Type[] genericParameterTypes;
+
+    /**
+     * 以流接收的参数（{@link java.util.concurrent.Flow.Publisher}）的下标，没有时为 -1
+     */
+    private final int streamParameter;
+
+    /**
+     * 流参数的元素类型
+     */
+    private final Type streamElementType;
+
+    /**
+     * 是否以流返回结果，即返回值为 {@link java.util.concurrent.Flow.Publisher}
+     */
+    private final boolean streamResult;
+
+    /**
+     * 响应的压缩阈值（字节），小于 0 时使用服务端的默认阈值，见 {@link RpcService#compressThreshold()}
+     */
+    private final int compressThreshold;
+
+    /**
+     * 提供服务的 Bean 对象
+     */
+    private final Object serviceBean;
+
+    /**
+     * 服务方法
+     */
+    private final FastMethod fastMethod;
+
+    /**
+     * 该方法在服务端的调用统计
+     */
+    private final MethodMetrics metrics;
+
+    RpcMethodInvoker(String interfaceName, String serviceVersion, int compressThreshold, Object serviceBean,
+                     FastMethod fastMethod) {
+        this.interfaceName = interfaceName;
+        this.serviceVersion = serviceVersion;
+        this.compressThreshold = compressThreshold;
+        Method method = fastMethod.getJavaMethod();
+        this.methodName = fastMethod.getName();
+        this.parameterTypes = fastMethod.getParameterTypes();
+        this.genericParameterTypes = method.getGenericParameterTypes();
+        this.streamParameter = RpcStreams.streamParameter(method);
+        this.streamElementType = streamParameter >= 0
+                ? RpcStreams.elementType(genericParameterTypes[streamParameter]) : null;
+        this.streamResult = RpcStreams.isStream(method.getReturnType());
+        this.serviceBean = serviceBean;
+        this.fastMethod = fastMethod;
+        this.metrics = RpcMetrics.SERVER.get(serviceVersion.isEmpty() ? interfaceName : interfaceName + "-" + serviceVersion,
+                methodName, parameterTypes);
+    }
+
+    /**
+     * 是否为流式方法，流式方法只能通过流式请求帧调用
+     */
+    public boolean isStreaming() {
+        return streamParameter >= 0 || streamResult;
+    }
+
+    /**
+     * 调用服务方法
+     *
+     * @param parameters 参数列表
+     * @return 服务方法的原始返回结果
+     * @throws InvocationTargetException 服务方法抛出的异常
+     */
+    public Object invoke(Object[] parameters) throws InvocationTargetException {
+        return fastMethod.invoke(serviceBean, parameters);
+    }
+}
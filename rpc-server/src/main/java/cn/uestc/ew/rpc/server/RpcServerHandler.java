@@ -1,14 +1,37 @@
 package cn.uestc.ew.rpc.server;
 
+import cn.uestc.ew.rpc.common.bean.RpcBatchRequest;
+import cn.uestc.ew.rpc.common.bean.RpcBatchResponse;
+import cn.uestc.ew.rpc.common.bean.RpcFrame;
 import cn.uestc.ew.rpc.common.bean.RpcRequest;
 import cn.uestc.ew.rpc.common.bean.RpcResponse;
+import cn.uestc.ew.rpc.common.compress.Compressors;
+import cn.uestc.ew.rpc.common.context.RpcContext;
+import cn.uestc.ew.rpc.common.exception.DeadlineExceededException;
+import cn.uestc.ew.rpc.common.exception.OverloadedException;
+import cn.uestc.ew.rpc.common.jfr.SerializationEvent;
+import cn.uestc.ew.rpc.common.log.AccessLog;
+import cn.uestc.ew.rpc.common.jfr.ServerDispatchEvent;
+import cn.uestc.ew.rpc.common.metrics.MethodMetrics;
+import cn.uestc.ew.rpc.common.serialize.Serializer;
+import cn.uestc.ew.rpc.common.serialize.Serializers;
+import cn.uestc.ew.rpc.common.stream.RpcStream;
+import cn.uestc.ew.rpc.common.stream.RpcStreams;
+import cn.uestc.ew.rpc.common.util.codec.FrameBuffer;
+import cn.uestc.ew.rpc.common.util.codec.FrameCodec;
 import cn.uestc.ew.rpc.server.impl.SocketRpcServer;
 import lombok.extern.slf4j.Slf4j;
-import net.sf.cglib.reflect.FastClass;
-import net.sf.cglib.reflect.FastMethod;
-import org.apache.commons.lang3.StringUtils;
 
-import java.util.Map;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
 
 /**
  * RPC 服务端处理器，规定了服务端收到远程调用请求时的处理逻辑，
@@ -19,12 +42,480 @@ import java.util.Map;
 public class RpcServerHandler {
 
     /**
-     * 当前服务器中，服务名称（服务类名称-服务版本号）与服务类（Service Bean）的映射
+     * 单个批量请求中同时执行的最大调用数
      */
-    private final Map<String, Object> handlerMap;
+    public static final int MAX_BATCH_PARALLELISM = 16;
 
-    public RpcServerHandler(Map<String, Object> handlerMap) {
-        this.handlerMap = handlerMap;
+    /**
+     * 当前服务器中所有服务方法的分派表
+     */
+    private final RpcDispatchTable dispatchTable;
+
+    /**
+     * 序列化后的方法表，作为握手响应的消息体
+     */
+    private final byte[] methodTableBytes;
+
+    /**
+     * 默认的响应压缩阈值（字节），服务未通过 {@link RpcService#compressThreshold()} 单独指定时使用
+     */
+    private final int compressThreshold;
+
+    /**
+     * 服务端的访问日志
+     */
+    private final AccessLog accessLog;
+
+    /**
+     * 超时重试的重复请求使用的幂等缓存，为 {@code null} 时重复的请求重新执行
+     */
+    private final IdempotencyCache idempotencyCache;
+
+    /**
+     * 请求帧的并发限制，为 {@code null} 时不限制
+     */
+    private final ConcurrencyLimiter concurrencyLimiter;
+
+    /**
+     * 以编号为下标，记录接受的序列化器，为 {@code null} 时接受所有已注册的序列化器
+     */
+    private final boolean[] acceptedSerializers;
+
+    public RpcServerHandler(RpcDispatchTable dispatchTable) {
+        this(dispatchTable, Compressors.DEFAULT_THRESHOLD);
+    }
+
+    public RpcServerHandler(RpcDispatchTable dispatchTable, int compressThreshold) {
+        this(dispatchTable, compressThreshold, new AccessLog(AccessLog.SERVER, 1, null));
+    }
+
+    public RpcServerHandler(RpcDispatchTable dispatchTable, int compressThreshold, AccessLog accessLog) {
+        this(dispatchTable, compressThreshold, accessLog, null, null);
+    }
+
+    public RpcServerHandler(RpcDispatchTable dispatchTable, int compressThreshold, AccessLog accessLog,
+                            IdempotencyCache idempotencyCache, ConcurrencyLimiter concurrencyLimiter) {
+        this(dispatchTable, compressThreshold, accessLog, idempotencyCache, concurrencyLimiter, null);
+    }
+
+    /**
+     * @param acceptedSerializers 接受的序列化器，请求帧使用其它序列化器时关闭连接，为 {@code null} 时接受所有已注册的序列化器
+     */
+    public RpcServerHandler(RpcDispatchTable dispatchTable, int compressThreshold, AccessLog accessLog,
+                            IdempotencyCache idempotencyCache, ConcurrencyLimiter concurrencyLimiter,
+                            Collection<Serializer> acceptedSerializers) {
+        this.dispatchTable = dispatchTable;
+        this.methodTableBytes = Serializers.DEFAULT.serialize(dispatchTable.getMethodTable());
+        this.compressThreshold = compressThreshold;
+        this.accessLog = accessLog;
+        this.idempotencyCache = idempotencyCache;
+        this.concurrencyLimiter = concurrencyLimiter;
+        if (acceptedSerializers != null) {
+            this.acceptedSerializers = new boolean[128];
+            acceptedSerializers.forEach(serializer -> this.acceptedSerializers[serializer.getId()] = true);
+        } else {
+            this.acceptedSerializers = null;
+        }
+    }
+
+    /**
+     * 读线程在协议帧进入业务线程池排队前调用，由 {@link ConcurrencyLimiter} 决定是否接受。只限制请求帧，
+     * 握手、批量及流式请求帧总是接受，批量请求中的各个调用在执行前分别申请，被拒绝的调用在各自的位置以
+     * {@link OverloadedException} 响应。接受的协议帧处理完后需要调用 {@link #release(RpcFrame, long)}
+     *
+     * @param frame 刚刚读取完的协议帧
+     * @return 拒绝时返回以 {@link OverloadedException} 响应的已编码帧，调用方直接写出，不再调用 {@code handle}；
+     *         接受时返回 {@code null}
+     */
+    public FrameBuffer admit(RpcFrame frame) {
+        if (concurrencyLimiter == null || frame.getType() != RpcFrame.TYPE_REQUEST
+                || concurrencyLimiter.tryAcquire()) {
+            return null;
+        }
+        RpcResponse response = new RpcResponse();
+        response.setRequestId(frame.getRequestId());
+        response.setException(overloaded());
+        return FrameCodec.encodeResponse(response, frame.getSerializer(), (byte) 0, compressThreshold);
+    }
+
+    private OverloadedException overloaded() {
+        return new OverloadedException(String.format("Server overloaded: limit=%d", concurrencyLimiter.getLimit()));
+    }
+
+    /**
+     * 由 {@link #admit(RpcFrame)} 接受的协议帧处理完毕
+     *
+     * @param frame       处理完的协议帧
+     * @param receiveTime 读取完协议帧的时间（{@link System#nanoTime()}）
+     */
+    public void release(RpcFrame frame, long receiveTime) {
+        if (concurrencyLimiter != null && frame.getType() == RpcFrame.TYPE_REQUEST) {
+            concurrencyLimiter.release(System.nanoTime() - receiveTime);
+        }
+    }
+
+    /**
+     * 处理客户端发来的一个协议帧，返回已编码的需要写回客户端的协议帧
+     *
+     * <p>握手帧直接返回方法表；请求帧的方法编号大于 0 时按编号定位服务方法，
+     * 并以服务端的方法信息补全请求体，否则按请求体中的完整方法信息查找。
+     * 请求体使用帧头中指定的序列化器解码，响应体使用同一个序列化器编码，序列化器不被接受时抛出异常；
+     * 请求帧声明了接受的压缩算法时，超过压缩阈值的响应体使用该算法压缩。
+     * 批量请求帧中的各个调用并行执行，见 {@link #handleBatch(RpcFrame, Executor, long)}；
+     * 流式请求帧见 {@link #handleStream(RpcFrame, RpcStreams, long)}。请求帧及批量请求中的各个调用按服务方法记录调用统计，
+     * 见 {@link RpcMethodInvoker#getMetrics()}，并记录 {@link ServerDispatchEvent} 及 {@link SerializationEvent}（默认关闭），
+     * 结束后写入 {@link AccessLog}。</p>
+     *
+     * <p>请求携带了超时时间（{@link RpcRequest#getTimeout()}）时，以收到请求帧的时间加上超时时间作为截止时间：
+     * 解码后已经超过截止时间的调用不再执行，直接以 {@link DeadlineExceededException} 响应；
+     * 否则服务方法执行期间可以通过 {@link RpcContext} 查询截止时间。</p>
+     *
+     * <p>配置了 {@link IdempotencyCache} 时，客户端以"至少一次"语义发送的请求（{@link RpcRequest#getRetryTimes()} 大于 0）
+     * 按 requestId 去重：执行中的重复请求等待同一次执行，已执行的重复请求直接返回保存的响应。批量请求及流式请求不去重。</p>
+     *
+     * @param frame       客户端发来的协议帧
+     * @param executor    并行执行批量请求中各个调用的线程池，通常是调用方所在的业务线程池
+     * @param streams     连接上的流注册表，流式请求帧对应的流已由读线程登记，不支持流式调用时为 {@code null}
+     * @param receiveTime 读取完协议帧的时间（{@link System#nanoTime()}），在帧进入业务线程池排队前记录
+     * @return 包含握手响应帧或 RPC 响应帧的缓冲区，调用方写出后需要调用 {@link FrameBuffer#release()} 归还；
+     *         以流返回结果时为 {@code null}，结果由流注册表写出
+     * @throws IllegalStateException 帧类型或请求体非法，调用方应关闭连接
+     */
+    public FrameBuffer handle(RpcFrame frame, Executor executor, RpcStreams streams, long receiveTime) {
+        if (frame.getType() == RpcFrame.TYPE_HANDSHAKE_REQUEST) {
+            return FrameCodec.encode(new RpcFrame(RpcFrame.TYPE_HANDSHAKE_RESPONSE, (byte) 0,
+                    Serializers.DEFAULT.getId(), frame.getRequestId(), 0, methodTableBytes));
+        }
+        if (frame.getType() == RpcFrame.TYPE_BATCH_REQUEST) {
+            return handleBatch(frame, executor, receiveTime);
+        }
+        if (frame.getType() == RpcFrame.TYPE_STREAM_REQUEST) {
+            return handleStream(frame, streams, receiveTime);
+        }
+        if (frame.getType() != RpcFrame.TYPE_REQUEST) {
+            throw new IllegalStateException(String.format("Unexpected frame type: %d", frame.getType()));
+        }
+        ServerDispatchEvent dispatch = new ServerDispatchEvent();
+        dispatch.begin();
+        long start = System.nanoTime();
+        int requestBytes = RpcFrame.HEADER_LENGTH + frame.getBody().length;
+        Serializer serializer = serializer(frame);
+        SerializationEvent decode = new SerializationEvent();
+        decode.begin();
+        RpcRequest request = serializer.deserialize(FrameCodec.decompressBody(frame), RpcRequest.class);
+        decode.end();
+        request.setRequestId(frame.getRequestId());
+        request.setDeadline(deadline(request, receiveTime));
+        RpcMethodInvoker invoker = resolve(request, frame.getMethodId());
+        commit(decode, request, SerializationEvent.DESERIALIZE, SerializationEvent.REQUEST, serializer,
+                requestBytes, frame.getCompressor() != 0);
+        // 找不到服务方法时没有对应的调用统计
+        MethodMetrics metrics = invoker != null ? invoker.getMetrics() : null;
+        if (metrics != null) metrics.begin();
+        RpcResponse response = null;
+        FrameBuffer buffer = null;
+        Exception failure = null;
+        try {
+            response = idempotencyCache != null && invoker != null && request.getRetryTimes() > 0
+                    ? idempotencyCache.execute(request, metrics,
+                            () -> invoke(serializer, request, frame.getMethodId(), invoker))
+                    : invoke(serializer, request, frame.getMethodId(), invoker);
+            SerializationEvent encode = new SerializationEvent();
+            encode.begin();
+            buffer = FrameCodec.encodeResponse(response, serializer.getId(), frame.getAcceptCompressor(),
+                    compressThreshold(invoker));
+            encode.end();
+            commit(encode, request, SerializationEvent.SERIALIZE, SerializationEvent.RESPONSE, serializer,
+                    buffer.size(), FrameCodec.compressor(buffer) != 0);
+            if (metrics != null) metrics.bytes(requestBytes, buffer.size());
+            failure = response.getException();
+            return buffer;
+        } catch (RuntimeException e) {
+            failure = e;
+            throw e;
+        } finally {
+            if (metrics != null) metrics.end(start, failure != null);
+            int responseBytes = buffer != null ? buffer.size() : 0;
+            commit(dispatch, request, requestBytes, responseBytes, failure);
+            accessLog.record(request, null, requestBytes, responseBytes, System.nanoTime() - start, failure,
+                    response != null ? response.getResult() : null);
+        }
+    }
+
+    /**
+     * 处理刚刚读取完的协议帧
+     *
+     * @see #handle(RpcFrame, Executor, RpcStreams, long)
+     */
+    public FrameBuffer handle(RpcFrame frame, Executor executor, RpcStreams streams) {
+        return handle(frame, executor, streams, System.nanoTime());
+    }
+
+    /**
+     * 处理不支持流式调用的连接上刚刚读取完的协议帧
+     *
+     * @see #handle(RpcFrame, Executor, RpcStreams, long)
+     */
+    public FrameBuffer handle(RpcFrame frame, Executor executor) {
+        return handle(frame, executor, null, System.nanoTime());
+    }
+
+    /**
+     * 返回请求帧使用的序列化器，只在服务端接受时返回，避免对端选择未开放的序列化器解码请求体
+     *
+     * @throws IllegalStateException 序列化器不存在或不被接受
+     */
+    private Serializer serializer(RpcFrame frame) {
+        byte id = frame.getSerializer();
+        if (acceptedSerializers != null && (id <= 0 || !acceptedSerializers[id])) {
+            throw new IllegalStateException(String.format("Serializer not accepted: id=%d", id));
+        }
+        return Serializers.get(id);
+    }
+
+    /**
+     * 根据请求携带的超时时间计算截止时间，没有超时时间时返回 0
+     */
+    private static long deadline(RpcRequest request, long receiveTime) {
+        if (request.getTimeout() <= 0) return 0;
+        long deadline = receiveTime + TimeUnit.MILLISECONDS.toNanos(request.getTimeout());
+        return deadline != 0 ? deadline : 1;
+    }
+
+    /**
+     * 处理流式请求帧，服务方法的流参数替换为接收客户端元素的 {@link Flow.Publisher}
+     *
+     * <p>服务方法以流返回结果时，以发送方向的订阅者订阅返回的流，元素随客户端授予的信用逐个写出，返回 {@code null}；
+     * 否则（包括找不到服务方法、调用出现异常）返回单个响应帧并结束流，流参数只在服务方法执行期间有效。</p>
+     */
+    @SuppressWarnings("unchecked")
+    private FrameBuffer handleStream(RpcFrame frame, RpcStreams streams, long receiveTime) {
+        RpcStream stream = streams != null ? streams.get(frame.getRequestId()) : null;
+        if (stream == null) {
+            throw new IllegalStateException(String.format("Stream not opened: requestId=%d", frame.getRequestId()));
+        }
+        Serializer serializer = serializer(frame);
+        RpcRequest request = serializer.deserialize(FrameCodec.decompressBody(frame), RpcRequest.class);
+        request.setRequestId(frame.getRequestId());
+        request.setDeadline(deadline(request, receiveTime));
+        RpcMethodInvoker invoker = resolve(request, frame.getMethodId());
+        RpcResponse response;
+        if (invoker != null && invoker.isStreaming()) {
+            convertParameters(serializer, request, invoker);
+            log.debug("RPC: stream request, service = {}, method = {}, requestId = {}",
+                    request.getInterfaceName(), request.getMethodName(), request.getRequestId());
+            Object[] parameters = request.getParameters();
+            if (invoker.getStreamParameter() >= 0 && parameters != null
+                    && invoker.getStreamParameter() < parameters.length) {
+                parameters[invoker.getStreamParameter()] = stream.inbound(invoker.getStreamElementType());
+            }
+            response = handle(request, invoker);
+            if (invoker.isStreamResult() && response.getException() == null) {
+                if (response.getResult() instanceof Flow.Publisher) {
+                    ((Flow.Publisher<Object>) response.getResult()).subscribe(stream.outbound());
+                    stream.attached();
+                    return null;
+                }
+                response.setResult(null);
+                response.setException(new IllegalStateException(String.format(
+                        "Stream method returned null: %s#%s", request.getInterfaceName(), request.getMethodName())));
+            }
+        } else {
+            response = invoke(serializer, request, frame.getMethodId(), invoker);
+        }
+        stream.close();
+        return FrameCodec.encodeResponse(response, serializer.getId(), frame.getAcceptCompressor(),
+                compressThreshold(invoker));
+    }
+
+    /**
+     * 处理批量请求帧，各个调用在线程池中并行执行，按请求的顺序返回各自的响应，单个调用的异常不影响其它调用
+     *
+     * <p>当前线程与线程池中的至多 {@link #MAX_BATCH_PARALLELISM} - 1 个线程共同领取尚未执行的调用，
+     * 当前线程只等待已被其它线程领取的调用，即使线程池已满也不会死锁。响应的压缩阈值取各个服务中最小的。
+     * 配置了 {@link ConcurrencyLimiter} 时，每个调用执行前单独申请并发许可，被拒绝的调用以 {@link OverloadedException} 响应。</p>
+     *
+     * @throws IllegalStateException 请求数与方法编号数不一致，或者某个请求为空
+     */
+    private FrameBuffer handleBatch(RpcFrame frame, Executor executor, long receiveTime) {
+        Serializer serializer = serializer(frame);
+        RpcBatchRequest batch = serializer.deserialize(FrameCodec.decompressBody(frame), RpcBatchRequest.class);
+        RpcRequest[] requests = batch.getRequests() != null ? batch.getRequests() : new RpcRequest[0];
+        int[] methodIds = batch.getMethodIds() != null ? batch.getMethodIds() : new int[requests.length];
+        if (methodIds.length != requests.length) {
+            throw new IllegalStateException(String.format("Illegal batch request: %d requests, %d method ids",
+                    requests.length, methodIds.length));
+        }
+        RpcMethodInvoker[] invokers = new RpcMethodInvoker[requests.length];
+        int threshold = requests.length > 0 ? Integer.MAX_VALUE : compressThreshold;
+        for (int i = 0; i < requests.length; i++) {
+            if (requests[i] == null) {
+                throw new IllegalStateException(String.format("Illegal batch request: request %d is null", i));
+            }
+            requests[i].setRequestId(frame.getRequestId());
+            requests[i].setDeadline(deadline(requests[i], receiveTime));
+            invokers[i] = resolve(requests[i], methodIds[i]);
+            threshold = Math.min(threshold, compressThreshold(invokers[i]));
+        }
+        RpcResponse[] responses = new RpcResponse[requests.length];
+        invokeAll(requests.length, i -> {
+            if (concurrencyLimiter != null && !concurrencyLimiter.tryAcquire()) {
+                responses[i] = errorResponse(requests[i], overloaded());
+                return;
+            }
+            MethodMetrics metrics = invokers[i] != null ? invokers[i].getMetrics() : null;
+            ServerDispatchEvent event = new ServerDispatchEvent();
+            event.begin();
+            long start = System.nanoTime();
+            if (metrics != null) metrics.begin();
+            try {
+                responses[i] = invoke(serializer, requests[i], methodIds[i], invokers[i]);
+            } catch (RuntimeException e) {
+                responses[i] = errorResponse(requests[i], e);
+            } finally {
+                Exception failure = responses[i] != null ? responses[i].getException() : null;
+                if (metrics != null) metrics.end(start, responses[i] == null || failure != null);
+                commit(event, requests[i], 0, 0, failure);
+                accessLog.record(requests[i], null, 0, 0, System.nanoTime() - start, failure,
+                        responses[i] != null ? responses[i].getResult() : null);
+                if (concurrencyLimiter != null) concurrencyLimiter.release(System.nanoTime() - start);
+            }
+        }, executor);
+        return FrameCodec.encodeBatchResponse(new RpcBatchResponse(frame.getRequestId(), responses),
+                serializer.getId(), frame.getAcceptCompressor(), threshold);
+    }
+
+    /**
+     * 由当前线程与线程池中的线程共同执行 {@code count} 个任务，全部完成后返回
+     */
+    private static void invokeAll(int count, IntConsumer task, Executor executor) {
+        AtomicInteger next = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(count);
+        Runnable worker = () -> {
+            int i;
+            while ((i = next.getAndIncrement()) < count) {
+                try {
+                    task.accept(i);
+                } finally {
+                    done.countDown();
+                }
+            }
+        };
+        int helpers = Math.min(count, MAX_BATCH_PARALLELISM) - 1;
+        for (int i = 0; i < helpers; i++) {
+            try {
+                executor.execute(worker);
+            } catch (RejectedExecutionException e) {
+                break;
+            }
+        }
+        worker.run();
+        boolean interrupted = false;
+        while (true) {
+            try {
+                done.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    /**
+     * 定位请求对应的服务方法调用器。方法编号大于 0 时按编号查找，并以服务端的方法信息补全请求体，
+     * 否则按请求体中的完整方法信息查找
+     *
+     * @return 服务方法调用器，找不到时返回 {@code null}
+     */
+    private RpcMethodInvoker resolve(RpcRequest request, int methodId) {
+        if (methodId <= 0) {
+            return dispatchTable.lookup(request.getInterfaceName(), request.getServiceVersion(),
+                    request.getMethodName(), request.getParameterTypes());
+        }
+        RpcMethodInvoker invoker = dispatchTable.lookup(methodId);
+        if (invoker != null) {
+            request.setInterfaceName(invoker.getInterfaceName());
+            request.setServiceVersion(invoker.getServiceVersion());
+            request.setMethodName(invoker.getMethodName());
+            request.setParameterTypes(invoker.getParameterTypes());
+        }
+        return invoker;
+    }
+
+    /**
+     * 转换参数类型后调用服务方法，按编号找不到服务方法时返回带有异常的响应
+     */
+    private RpcResponse invoke(Serializer serializer, RpcRequest request, int methodId, RpcMethodInvoker invoker) {
+        if (invoker == null && methodId > 0) {
+            return errorResponse(request, new RuntimeException(
+                    String.format("Can not find service method: id=%d", methodId)));
+        }
+        if (invoker != null && invoker.isStreaming()) {
+            return errorResponse(request, new IllegalStateException(String.format(
+                    "Stream method must be called with stream request: %s#%s",
+                    invoker.getInterfaceName(), invoker.getMethodName())));
+        }
+        if (invoker != null) {
+            convertParameters(serializer, request, invoker);
+        }
+        return handle(request, invoker);
+    }
+
+    /**
+     * 结束并提交服务端处理请求的事件，事件未开启时不填充字段
+     */
+    private static void commit(ServerDispatchEvent event, RpcRequest request, int requestBytes, int responseBytes,
+                               Exception exception) {
+        event.end();
+        if (!event.shouldCommit()) return;
+        event.setTarget(request);
+        event.setRequestBytes(requestBytes);
+        event.setResponseBytes(responseBytes);
+        event.setException(exception != null ? exception.getClass().getName() : null);
+        event.commit();
+    }
+
+    /**
+     * 提交已结束的序列化事件，事件未开启时不填充字段
+     */
+    private static void commit(SerializationEvent event, RpcRequest request, String operation, String message,
+                               Serializer serializer, int bytes, boolean compressed) {
+        if (!event.shouldCommit()) return;
+        event.setTarget(request);
+        event.setOperation(operation);
+        event.setMessage(message);
+        event.setSerializer(serializer.getName());
+        event.setBytes(bytes);
+        event.setCompressed(compressed);
+        event.commit();
+    }
+
+    private static RpcResponse errorResponse(RpcRequest request, Exception exception) {
+        RpcResponse response = new RpcResponse();
+        response.setRequestId(request.getRequestId());
+        response.setException(exception);
+        return response;
+    }
+
+    /**
+     * 服务的响应压缩阈值，未单独指定时使用默认阈值
+     */
+    private int compressThreshold(RpcMethodInvoker invoker) {
+        return invoker != null && invoker.getCompressThreshold() >= 0
+                ? invoker.getCompressThreshold() : compressThreshold;
+    }
+
+    /**
+     * 由序列化器将参数转换为服务方法声明的类型，见 {@link Serializer#convert(Object, Type)}
+     */
+    private static void convertParameters(Serializer serializer, RpcRequest request, RpcMethodInvoker invoker) {
+        Object[] parameters = request.getParameters();
+        if (parameters == null) return;
+        Type[] types = invoker.getGenericParameterTypes();
+        for (int i = 0; i < parameters.length && i < types.length; i++) {
+            parameters[i] = serializer.convert(parameters[i], types[i]);
+        }
     }
 
     /**
@@ -32,27 +523,54 @@ public class RpcServerHandler {
      * {@link RpcRequest} 并调用当前方法，执行业务处理逻辑
      */
     public RpcResponse handle(RpcRequest request) {
+        return handle(request, null);
+    }
+
+    /**
+     * 使用已经定位到的服务方法调用器处理请求。请求已经超过截止时间（{@link RpcRequest#getDeadline()}）时不再执行，
+     * 否则在服务方法执行期间将截止时间设置到 {@link RpcContext}
+     *
+     * @param request RPC 请求体
+     * @param invoker 服务方法调用器，为 {@code null} 时按请求体中的方法信息从分派表中查找
+     * @return RPC 响应体，调用出现异常时异常随响应返回
+     */
+    public RpcResponse handle(RpcRequest request, RpcMethodInvoker invoker) {
         // 1. 创建并初始化 RPC 响应对象
         RpcResponse response = new RpcResponse();
         response.setRequestId(request.getRequestId());
+        long deadline = request.getDeadline();
+        if (deadline != 0 && System.nanoTime() - deadline >= 0) {
+            if (invoker != null) invoker.getMetrics().expired();
+            log.debug("RPC: deadline exceeded, service = {}, method = {}, requestId = {}, timeout = {} ms",
+                    request.getInterfaceName(), request.getMethodName(), request.getRequestId(), request.getTimeout());
+            response.setException(new DeadlineExceededException(String.format(
+                    "Deadline exceeded before execution: timeout=%d ms", request.getTimeout())));
+            return response;
+        }
+        long previous = RpcContext.setDeadline(deadline);
         try {
             // 2. 服务端执行本地调用
-            Object result = call(request);
+            Object result = invoker != null ? invoker.invoke(request.getParameters()) : call(request);
             // 3. 返回调用结果
             response.setResult(result);
             return response;
         } catch (Exception e) {
-            log.error("Server error occurred during local procedure call", e);
-            response.setException(e);
-            throw new RuntimeException(e);
+            // 异常随响应返回给客户端，由客户端代理重新抛出，连接可以继续处理后续请求
+            Exception cause = e instanceof InvocationTargetException && e.getCause() instanceof Exception
+                    ? (Exception) e.getCause() : e;
+            log.error("Server error occurred during local procedure call", cause);
+            response.setException(cause);
+            return response;
+        } finally {
+            RpcContext.setDeadline(previous);
         }
     }
 
     /**
      * 自定义服务端本地过程调用逻辑，处理流程如下：
      * <ol>
-     *     <li>获取提供服务的 Bean 对象</li>
-     *     <li>反射调用其指定方法（RpcRequest 指定）</li>
+     *     <li>从分派表中查找预先解析好的服务方法调用器</li>
+     *     <li>使用 CGLib 调用其指定方法（RpcRequest 指定）</li>
      * </ol>
      *
      * @param request 客户端调用信息，包括调用者身份、目标服务及参数等
@@ -60,24 +578,14 @@ public class RpcServerHandler {
      * @throws Exception 反射调用时可能出现的任何异常
      */
     private Object call(RpcRequest request) throws Exception {
-        // 1. 从容器中获取本地服务对象
-        String serviceName = request.getInterfaceName();
-        String serviceVersion = request.getServiceVersion();
-        if (StringUtils.isNotEmpty(serviceVersion)) {
-            serviceName += "-" + serviceVersion;
-        }
-        Object serviceBean = handlerMap.get(serviceName);
-        if (serviceBean == null) {
-            throw new RuntimeException(String.format("Can not find service bean by service name: %s", serviceName));
-        }
-        // 2. 获取反射调用所需的参数
-        Class<?> serviceClass = serviceBean.getClass();
-        String methodName = request.getMethodName();
-        Class<?>[] parameterTypes = request.getParameterTypes();
-        Object[] parameters = request.getParameters();
-        // 3. 使用 CGLib 执行反射调用
-        FastClass serviceFastClass = FastClass.create(serviceClass);
-        FastMethod serviceFastMethod = serviceFastClass.getMethod(methodName, parameterTypes);
-        return serviceFastMethod.invoke(serviceBean, parameters);
+        // 1. 从分派表中获取服务方法调用器
+        RpcMethodInvoker invoker = dispatchTable.lookup(request.getInterfaceName(),
+                request.getServiceVersion(), request.getMethodName(), request.getParameterTypes());
+        if (invoker == null) {
+            throw new RuntimeException(String.format("Can not find service method: %s#%s, version=%s",
+                    request.getInterfaceName(), request.getMethodName(), request.getServiceVersion()));
+        }
+        // 2. 使用 CGLib 执行调用
+        return invoker.invoke(request.getParameters());
     }
 }
\ No newline at end of file
@@ -24,4 +24,10 @@ public @interface RpcService {
      * 服务版本号
      */
     String version() default "";
+
+    /**
+     * 响应的压缩阈值（字节），响应的消息体超过该长度时，以客户端在请求中声明接受的压缩算法压缩。
+     * 小于 0 时使用服务端的默认阈值，见 {@link AbstractRpcServer#setCompressThreshold(int)}
+     */
+    int compressThreshold() default -1;
 }
\ No newline at end of file
@@ -0,0 +1,375 @@
+package cn.uestc.ew.rpc.server.impl;
+
+import cn.uestc.ew.rpc.common.bean.RpcFrame;
+import cn.uestc.ew.rpc.common.stream.RpcStreams;
+import cn.uestc.ew.rpc.common.util.codec.FrameBuffer;
+import cn.uestc.ew.rpc.common.util.codec.FrameCodec;
+import cn.uestc.ew.rpc.server.RpcServerHandler;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * NIO 工作反应器（Sub Reactor），每个反应器独占一个线程与一个 {@link Selector}，
+ * 负责所分配连接上的非阻塞读写。
+ *
+ * <p>请求与响应都使用 {@link RpcFrame} 协议帧，连接在多次请求之间保持打开。
+ * 读取到一个完整的请求帧后，业务处理交给业务线程池执行，
+ * 避免慢调用阻塞同一反应器上的其它连接；业务线程产生的响应再投递回反应器线程写出，
+ * 因此连接状态只会被反应器线程访问，无需加锁。</p>
+ *
+ * <p>一轮事件循环中投递回来的响应先放入连接的写出队列，该轮任务执行完后再统一写出，
+ * 每个连接以一次聚集写（gathering write）写出队列中的多个响应，减少高并发时的系统调用次数。</p>
+ *
+ * <p>流式调用的信用帧、取消帧等由反应器线程直接交给连接的 {@link RpcStreams}，流中的元素同样投递回反应器线程写出。</p>
+ */
+@Slf4j
+class NioReactor implements Runnable {
+
+    /**
+     * 一次聚集写最多写出的响应数
+     */
+    private static final int MAX_GATHER = 64;
+
+    /**
+     * 当前反应器的多路复用器
+     */
+    private final Selector selector;
+
+    /**
+     * 其它线程投递给反应器线程执行的任务，如注册新连接、写出响应等
+     */
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 执行本地服务调用的业务线程池
+     */
+    private final Executor executor;
+
+    /**
+     * 提供服务端当前的 RPC 请求处理器，注册服务提供者后处理器会被替换，因此每个协议帧重新获取一次，
+     * 同一协议帧的准入、处理及释放使用同一个处理器
+     */
+    private final Supplier<RpcServerHandler> serverHandler;
+
+    /**
+     * 一次聚集写最多写出的字节数，至少写出一个响应
+     */
+    private final int writeBatchBytes;
+
+    /**
+     * 本轮事件循环中有新响应待写出的连接
+     */
+    private final List<Connection> pendingFlush = new ArrayList<>();
+
+    /**
+     * 聚集写使用的缓冲区数组，只有反应器线程访问，因此复用
+     */
+    private final ByteBuffer[] gather = new ByteBuffer[MAX_GATHER];
+
+    NioReactor(Executor executor, Supplier<RpcServerHandler> serverHandler, int writeBatchBytes) throws IOException {
+        this.selector = Selector.open();
+        this.executor = executor;
+        this.serverHandler = serverHandler;
+        this.writeBatchBytes = writeBatchBytes;
+    }
+
+    /**
+     * 将 Boss Reactor 接收到的新连接注册到当前反应器，可在任意线程调用
+     *
+     * @param channel 已设置为非阻塞模式的客户端连接
+     */
+    void register(SocketChannel channel) {
+        execute(() -> {
+            try {
+                SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                Connection connection = new Connection(channel, key);
+                connection.streams = new RpcStreams(frame -> send(connection, frame), executor);
+                key.attach(connection);
+            } catch (IOException e) {
+                log.error("Register channel failed", e);
+                closeQuietly(channel);
+            }
+        });
+    }
+
+    /**
+     * 关闭反应器，已注册的连接随之关闭
+     */
+    void shutdown() {
+        execute(() -> {
+            for (SelectionKey key : selector.keys()) {
+                closeQuietly(key.channel());
+            }
+            Thread.currentThread().interrupt();
+        });
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                selector.select();
+                runTasks();
+                flushPending();
+                Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+                while (iterator.hasNext()) {
+                    SelectionKey key = iterator.next();
+                    iterator.remove();
+                    Connection connection = (Connection) key.attachment();
+                    if (connection == null || !key.isValid()) continue;
+                    try {
+                        if (key.isReadable()) read(connection);
+                        if (key.isValid() && key.isWritable()) flush(connection);
+                    } catch (IOException | IllegalStateException e) {
+                        log.debug("Connection closed: {}", e.getMessage());
+                        connection.close();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.error("NIO reactor terminated unexpectedly", e);
+        } finally {
+            closeQuietly(selector);
+        }
+    }
+
+    /**
+     * 投递任务到反应器线程执行，并唤醒阻塞在 {@code select()} 上的反应器线程
+     */
+    private void execute(Runnable task) {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+    /**
+     * 写出本轮事件循环中投递回来的响应，同一连接的多个响应合并为一次聚集写
+     */
+    private void flushPending() {
+        for (Connection connection : pendingFlush) {
+            connection.flushPending = false;
+            try {
+                flush(connection);
+            } catch (IOException e) {
+                log.debug("Write response failed: {}", e.getMessage());
+                connection.close();
+            }
+        }
+        pendingFlush.clear();
+    }
+
+    /**
+     * 非阻塞地读取协议帧，先读取固定长度的帧头，再读取对应长度的消息体。
+     * 一次可读事件中数据可能不完整，未读完的部分保留在连接的缓冲区中等待下次可读事件。
+     */
+    private void read(Connection connection) throws IOException {
+        SocketChannel channel = connection.channel;
+        while (true) {
+            if (connection.frame == null) {
+                if (channel.read(connection.header) < 0) {
+                    connection.close();
+                    return;
+                }
+                if (connection.header.hasRemaining()) return;
+                connection.frame = FrameCodec.decodeHeader(connection.header.flip());   // 帧头非法时抛出异常关闭连接
+                connection.body = ByteBuffer.wrap(connection.frame.getBody());
+            }
+            if (connection.body.hasRemaining() && channel.read(connection.body) < 0) {
+                connection.close();
+                return;
+            }
+            if (connection.body.hasRemaining()) return;
+
+            // 协议帧读取完毕，流的控制帧直接处理，超过并发限制的请求直接以过载响应，
+            // 其它帧交给业务线程池处理，并继续读取下一个协议帧
+            RpcFrame frame = connection.frame;
+            connection.header.clear();
+            connection.frame = null;
+            connection.body = null;
+            if (!connection.streams.receive(frame)) {
+                RpcServerHandler handler = serverHandler.get();
+                FrameBuffer rejected = handler.admit(frame);
+                if (rejected != null) {
+                    send(connection, rejected);
+                    continue;
+                }
+                long receiveTime = System.nanoTime();
+                try {
+                    executor.execute(() -> dispatch(connection, handler, frame, receiveTime));
+                } catch (RejectedExecutionException e) {
+                    // 业务线程池已关闭，归还已申请的并发许可后关闭连接
+                    log.debug("Business executor rejected request, close connection");
+                    handler.release(frame, receiveTime);
+                    connection.close();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 在业务线程池中执行本地服务调用，并将响应投递回反应器线程写出。
+     * 非法的请求帧（{@link IllegalStateException}）及处理过程中的其它运行时异常都没有对应的响应，
+     * 直接关闭连接，使客户端立即失败而不是等到超时
+     */
+    private void dispatch(Connection connection, RpcServerHandler handler, RpcFrame frame, long receiveTime) {
+        FrameBuffer response;
+        try {
+            response = handler.handle(frame, executor, connection.streams, receiveTime);
+        } catch (IllegalStateException e) {
+            log.error("Illegal request frame, close connection", e);
+            execute(connection::close);
+            return;
+        } catch (RuntimeException e) {
+            log.error("Handle request frame failed, close connection", e);
+            execute(connection::close);
+            return;
+        } finally {
+            handler.release(frame, receiveTime);
+        }
+        if (response != null) {
+            send(connection, response);
+        }
+    }
+
+    /**
+     * 将帧投递回反应器线程，放入连接的写出队列，在本轮事件循环结束时写出，可在任意线程调用
+     */
+    private void send(Connection connection, FrameBuffer frame) {
+        execute(() -> {
+            connection.writeQueue.add(frame);
+            if (!connection.flushPending) {
+                connection.flushPending = true;
+                pendingFlush.add(connection);
+            }
+        });
+    }
+
+    /**
+     * 尽可能多地写出待发送数据，每次以聚集写写出队列头部的多个响应，写不完时关注可写事件，等待下次可写时继续。
+     * 写出进度保存在缓冲区中，完整写出的缓冲区立即归还
+     */
+    private void flush(Connection connection) throws IOException {
+        if (!connection.key.isValid()) {
+            connection.releaseAll();
+            return;
+        }
+        while (!connection.writeQueue.isEmpty()) {
+            int count = 0;
+            long bytes = 0;
+            for (FrameBuffer response : connection.writeQueue) {
+                ByteBuffer buffer = response.toByteBuffer();
+                gather[count++] = buffer;
+                bytes += buffer.remaining();
+                if (count == MAX_GATHER || bytes >= writeBatchBytes) break;
+            }
+            ByteBuffer last = gather[count - 1];
+            try {
+                connection.channel.write(gather, 0, count);
+            } finally {
+                Arrays.fill(gather, 0, count, null);
+            }
+            FrameBuffer response;
+            while ((response = connection.writeQueue.peek()) != null && !response.toByteBuffer().hasRemaining()) {
+                connection.writeQueue.poll().release();
+            }
+            if (last.hasRemaining()) {
+                connection.key.interestOps(SelectionKey.OP_WRITE);
+                return;
+            }
+        }
+        connection.key.interestOps(SelectionKey.OP_READ);
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+            // Ignore
+        }
+    }
+
+    /**
+     * 连接上下文，保存单个连接的读写缓冲区，只允许反应器线程访问
+     */
+    private static class Connection {
+
+        private final SocketChannel channel;
+
+        private final SelectionKey key;
+
+        /**
+         * 帧头缓冲区
+         */
+        private final ByteBuffer header = ByteBuffer.allocate(RpcFrame.HEADER_LENGTH);
+
+        /**
+         * 正在读取的协议帧，帧头读取完成前为 {@code null}
+         */
+        private RpcFrame frame;
+
+        /**
+         * 包装了 {@code frame} 消息体数组的缓冲区，帧头读取完成前为 {@code null}
+         */
+        private ByteBuffer body;
+
+        /**
+         * 待写出的响应队列，元素写出完成后归还
+         */
+        private final Queue<FrameBuffer> writeQueue = new ArrayDeque<>();
+
+        /**
+         * 是否已加入本轮事件循环的待写出列表
+         */
+        private boolean flushPending;
+
+        /**
+         * 连接上进行中的流，注册连接时创建
+         */
+        private RpcStreams streams;
+
+        Connection(SocketChannel channel, SelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+        }
+
+        void close() {
+            key.cancel();
+            closeQuietly(channel);
+            releaseAll();
+            if (streams != null) streams.closeAll(new IOException("Connection closed"));
+        }
+
+        /**
+         * 归还所有未写出的响应缓冲区
+         */
+        void releaseAll() {
+            FrameBuffer response;
+            while ((response = writeQueue.poll()) != null) {
+                response.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package cn.uestc.ew.rpc.server.impl;
+
+import cn.uestc.ew.rpc.common.config.ExecutionMode;
+import cn.uestc.ew.rpc.common.util.ExecutorUtils;
+import cn.uestc.ew.rpc.registry.ServiceRegistry;
+import cn.uestc.ew.rpc.server.AbstractRpcServer;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * RPC 服务端，基于 Socket NIO 的主从多 Reactor 模型实现
+ *
+ * <ul>
+ *     <li>Boss Reactor：单线程，只负责接收新连接，并轮询分配给 Worker Reactor</li>
+ *     <li>Worker Reactor：默认与 CPU 核数相同，负责连接上的非阻塞读写，见 {@link NioReactor}</li>
+ *     <li>业务线程池：执行本地服务调用，慢调用不会阻塞网络读写；执行方式为
+ *     {@link ExecutionMode#VIRTUAL} 时每个请求运行在独立的虚拟线程上</li>
+ * </ul>
+ *
+ * <p>协议与 {@link SocketRpcServer} 保持一致，二者可以互相替换。与 {@link SocketRpcServer} 不同，
+ * {@link #startup()} 启动监听线程后立即返回，不会阻塞调用方。</p>
+ */
+@Slf4j
+public class NioRpcServer extends AbstractRpcServer {
+
+    /**
+     * 默认 Worker Reactor 数量，与 CPU 核数相同
+     */
+    public static final int DEFAULT_WORKER_COUNT = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * 默认业务线程数
+     */
+    public static final int DEFAULT_BUSINESS_THREADS = 200;
+
+    /**
+     * Worker Reactor 数量
+     */
+    @Setter
+    private int workerCount = DEFAULT_WORKER_COUNT;
+
+    /**
+     * 业务线程数
+     */
+    @Setter
+    private int businessThreads = DEFAULT_BUSINESS_THREADS;
+
+    /**
+     * 服务端监听通道
+     */
+    private ServerSocketChannel serverChannel;
+
+    /**
+     * Boss Reactor 的多路复用器
+     */
+    private Selector bossSelector;
+
+    /**
+     * Worker Reactor 列表
+     */
+    private NioReactor[] workers;
+
+    /**
+     * 业务线程池
+     */
+    private ExecutorService executor;
+
+    /**
+     * 轮询分配连接时使用的计数器
+     */
+    private final AtomicInteger nextWorker = new AtomicInteger();
+
+    public NioRpcServer(String serverAddress, ServiceRegistry serviceRegistry) {
+        super(serverAddress, serviceRegistry);
+    }
+
+    @Override
+    public void startup() {
+
+        // 1. 创建业务线程池及 Worker Reactor
+        executor = ExecutorUtils.newExecutor(executionMode, "rpc-nio-business-", businessThreads, false);
+        workers = new NioReactor[workerCount];
+        try {
+            for (int i = 0; i < workerCount; i++) {
+                // 每个协议帧读取服务端当前的处理器，启动后注册的服务提供者同样可见
+                workers[i] = new NioReactor(executor, () -> serverHandler, writeBatchBytes);
+                new Thread(workers[i], "rpc-nio-worker-" + i).start();
+            }
+
+            // 2. 启动服务器监听
+            bossSelector = Selector.open();
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.bind(new InetSocketAddress(getPort()));
+            serverChannel.configureBlocking(false);
+            serverChannel.register(bossSelector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            shutdown();
+            throw new RuntimeException(e);
+        }
+
+        // 3. 启动 Boss Reactor
+        new Thread(this::accept, "rpc-nio-boss").start();
+        log.debug("NIO server started: address={}, workers={}", serverAddress, workerCount);
+    }
+
+    /**
+     * 关闭服务端，停止监听并关闭所有连接
+     */
+    public void shutdown() {
+        try {
+            if (serverChannel != null) serverChannel.close();
+            if (bossSelector != null) bossSelector.close();
+        } catch (IOException e) {
+            log.warn("Close server channel failed", e);
+        }
+        if (workers != null) {
+            for (NioReactor worker : workers) {
+                if (worker != null) worker.shutdown();
+            }
+        }
+        if (executor != null) executor.shutdown();
+    }
+
+    /**
+     * Boss Reactor 执行逻辑，接收新连接后轮询分配给 Worker Reactor
+     */
+    private void accept() {
+        try {
+            while (serverChannel.isOpen()) {
+                bossSelector.select();
+                Iterator<SelectionKey> iterator = bossSelector.selectedKeys().iterator();
+                while (iterator.hasNext()) {
+                    SelectionKey key = iterator.next();
+                    iterator.remove();
+                    if (!key.isValid() || !key.isAcceptable()) continue;
+                    SocketChannel channel = serverChannel.accept();
+                    if (channel == null) continue;
+                    channel.configureBlocking(false);
+                    channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                    workers[Math.floorMod(nextWorker.getAndIncrement(), workers.length)].register(channel);
+                }
+            }
+        } catch (IOException e) {
+            if (serverChannel.isOpen()) {
+                log.error("NIO boss reactor terminated unexpectedly", e);
+            }
+        } catch (ClosedSelectorException e) {
+            // Server shutdown
+        }
+    }
+}
@@ -1,135 +1,270 @@
 package cn.uestc.ew.rpc.server.impl;
 
-import cn.uestc.ew.rpc.common.bean.RpcRequest;
-import cn.uestc.ew.rpc.common.bean.RpcResponse;
-import cn.uestc.ew.rpc.common.util.SerializationUtils;
-import cn.uestc.ew.rpc.common.util.codec.RpcDecoder;
+import cn.uestc.ew.rpc.common.bean.RpcFrame;
+import cn.uestc.ew.rpc.common.config.ExecutionMode;
+import cn.uestc.ew.rpc.common.stream.RpcStreams;
+import cn.uestc.ew.rpc.common.util.ExecutorUtils;
+import cn.uestc.ew.rpc.common.util.codec.CoalescingFrameWriter;
+import cn.uestc.ew.rpc.common.util.codec.FrameBuffer;
+import cn.uestc.ew.rpc.common.util.codec.FrameCodec;
 import cn.uestc.ew.rpc.registry.ServiceRegistry;
-import cn.uestc.ew.rpc.server.RpcServer;
+import cn.uestc.ew.rpc.server.AbstractRpcServer;
 import cn.uestc.ew.rpc.server.RpcServerHandler;
-import cn.uestc.ew.rpc.server.RpcService;
-import com.alibaba.fastjson2.JSON;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.collections4.MapUtils;
-import org.apache.commons.lang3.StringUtils;
-import org.springframework.beans.factory.InitializingBean;
-import org.springframework.context.ApplicationContext;
-import org.springframework.context.ApplicationContextAware;
 
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.net.ServerSocket;
 import java.net.Socket;
-import java.util.HashMap;
-import java.util.Map;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * RPC 服务端，启动服务端监听，基于 Socket BIO 实现
+ *
+ * <p>客户端连接在多次请求之间保持打开，每个连接由连接线程池中的一个线程负责读取请求帧，
+ * 直到客户端关闭连接。读取到的请求交给业务线程池并发执行，先完成的请求先写回响应，
+ * 因此同一连接上的请求可以乱序完成，慢调用不会阻塞同一连接上的后续请求。
+ * 同一连接上并发完成的响应由 {@link CoalescingFrameWriter} 合并写出。</p>
+ *
+ * <p>连接线程池由平台线程组成时，每个连接（包括连接池中空闲的连接）都占用一个连接线程，
+ * 连接数达到连接线程数后新的连接被直接关闭，而不是在线程池中排队无限期等待；
+ * 没有进行中的请求及流、且超过空闲超时时间没有收到请求的连接由服务端关闭，释放连接线程。</p>
+ *
+ * <p>执行方式为 {@link ExecutionMode#VIRTUAL} 时，每个连接及每个请求都运行在独立的虚拟线程上，
+ * 连接线程数与业务线程数配置不再生效。</p>
  */
 @Slf4j
-public class SocketRpcServer implements ApplicationContextAware, InitializingBean, RpcServer {
+public class SocketRpcServer extends AbstractRpcServer {
 
     /**
-     * 服务端地址
+     * 默认连接线程数，即执行方式为 {@link ExecutionMode#PLATFORM} 时可同时服务的最大连接数
      */
-    private final String serverAddress;
+    public static final int DEFAULT_CONNECTION_THREADS = 200;
 
     /**
-     * 服务注册工具
+     * 默认业务线程数
      */
-    private final ServiceRegistry serviceRegistry;
+    public static final int DEFAULT_BUSINESS_THREADS = 200;
 
     /**
-     * 存放 "服务名" 与 "服务" 之间的映射
+     * 默认的连接空闲超时时间，单位毫秒，长于客户端连接池默认的最大空闲时间，正常情况下由客户端先回收空闲连接
      */
-    private final Map<String, Object> handlerMap = new HashMap<>();
+    public static final int DEFAULT_IDLE_TIMEOUT = 120000;
 
     /**
-     * RPC 请求处理器
+     * 连接线程数
      */
-    private final RpcServerHandler serverHandler = new RpcServerHandler(handlerMap);
+    @Setter
+    private int connectionThreads = DEFAULT_CONNECTION_THREADS;
 
-    public SocketRpcServer(String serverAddress, ServiceRegistry serviceRegistry) {
-        this.serverAddress = serverAddress;
-        this.serviceRegistry = serviceRegistry;
-    }
+    /**
+     * 业务线程数
+     */
+    @Setter
+    private int businessThreads = DEFAULT_BUSINESS_THREADS;
 
     /**
-     * 应用启动时，提供 Spring 提供的注解扫描，自动收集所有 RPC 服提供者，
-     * 将其注册到 {@link RpcServerHandler} 的 {@code handleMap} 中
-     *
-     * @param ctx Spring 上下文
+     * 连接空闲超时时间，单位毫秒，0 表示不超时
      */
-    @Override
-    public void setApplicationContext(ApplicationContext ctx) {
-
-        // 1. 扫描带有 RpcService 注解的类
-        Map<String, Object> serviceBeanMap = ctx.getBeansWithAnnotation(RpcService.class);
-        if (MapUtils.isEmpty(serviceBeanMap)) return;
-
-        // 2. 初始化 HandlerMap 对象
-        for (Object serviceBean : serviceBeanMap.values()) {
-            RpcService rpcService = serviceBean.getClass().getAnnotation(RpcService.class);
-            String serviceName = rpcService.value().getName();
-            String serviceVersion = rpcService.version();
-            if (StringUtils.isNotEmpty(serviceVersion)) {
-                serviceName += "-" + serviceVersion;
-            }
-            handlerMap.put(serviceName, serviceBean);
-        }
-    }
+    @Setter
+    private int idleTimeout = DEFAULT_IDLE_TIMEOUT;
 
     /**
-     * RPC 服务端启动时，在本地
+     * 当前的连接数，只由监听线程增加
      */
-    @Override
-    public void afterPropertiesSet() {
+    private final AtomicInteger connections = new AtomicInteger();
 
-        // 1. 注册 RPC 服务到注册中心
-        if (serviceRegistry != null) {
-            for (String interfaceName : handlerMap.keySet()) {
-                serviceRegistry.register(interfaceName, serverAddress);
-                log.debug("Register service: name={}, address={}", interfaceName, serverAddress);
-            }
-        }
+    /**
+     * 业务线程池
+     */
+    private ExecutorService businessExecutor;
 
-        // 2. 启动 RPC Server Stub
-        this.startup();
+    public SocketRpcServer(String serverAddress, ServiceRegistry serviceRegistry) {
+        super(serverAddress, serviceRegistry);
     }
 
     @Override
     public void startup() {
 
         // 1. 获取 RPC 服务的端口号并启动监听
-        String[] addressArray = StringUtils.split(serverAddress, ":");
-        int port = Integer.parseInt(addressArray[1]);
+        int port = getPort();
+        ExecutorService executor = ExecutorUtils.newExecutor(
+                executionMode, "rpc-socket-connection-", connectionThreads, false);
+        businessExecutor = ExecutorUtils.newExecutor(
+                executionMode, "rpc-socket-business-", businessThreads, false);
+
+        // 虚拟线程不受连接线程数限制
+        int maxConnections = executor instanceof ThreadPoolExecutor ? connectionThreads : Integer.MAX_VALUE;
 
         // 2. 启动服务器监听
         try (ServerSocket socket = new ServerSocket(port)) {
             while (true) {
-                // 2.1 服务器阻塞等待客户端请求
-                try (Socket client = socket.accept();
-                     InputStream in = client.getInputStream();
-                     OutputStream out = client.getOutputStream()) {
-
-                    // 2.2 读取请求体
-                    int requestSize = RpcDecoder.toInt(in.readNBytes(4));   // 请求体大小
-                    byte[] requestBytes = in.readNBytes(requestSize);
-                    RpcRequest rpcRequest = SerializationUtils.deserialize(requestBytes, RpcRequest.class);
-
-                    // 2.3 调用本地服务处理请求
-                    log.info("RPC: request body = {}", JSON.toJSONString(rpcRequest));
-                    RpcResponse rpcResponse = serverHandler.handle(rpcRequest);
-                    log.info("RPC: response body = {}", JSON.toJSONString(rpcResponse));
-
-                    // 2.4 写响应并关闭客户端连接
-                    out.write(SerializationUtils.serialize(rpcResponse));
-                    out.flush();
+                // 2.1 服务器阻塞等待客户端连接，交给连接线程处理，没有空闲的连接线程时直接关闭
+                Socket client = socket.accept();
+                if (connections.get() >= maxConnections) {
+                    log.warn("Too many connections, close: remote={}, max={}",
+                            client.getRemoteSocketAddress(), maxConnections);
+                    closeQuietly(client);
+                    continue;
+                }
+                connections.incrementAndGet();
+                try {
+                    executor.execute(() -> serve(client));
+                } catch (RejectedExecutionException e) {
+                    connections.decrementAndGet();
+                    closeQuietly(client);
                 }
             }
         } catch (IOException e) {
             throw new RuntimeException(e);
+        } finally {
+            executor.shutdown();
+            businessExecutor.shutdown();
+        }
+    }
+
+    /**
+     * 处理单个客户端连接上的所有请求
+     *
+     * @param client 客户端连接
+     */
+    private void serve(Socket client) {
+        // 进行中的请求数，连接上有进行中的请求或流时不因空闲关闭
+        AtomicInteger inflight = new AtomicInteger();
+        try (client;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(client.getInputStream()));
+             CoalescingFrameWriter writer = new CoalescingFrameWriter(
+                     client.getOutputStream(), writeBatchBytes, writeBatchDelay)) {
+            client.setTcpNoDelay(true);
+            client.setSoTimeout(idleTimeout);
+            RpcStreams streams = new RpcStreams(frame -> write(client, writer, frame), businessExecutor);
+            try {
+                while (true) {
+                    // 2.2 读取协议帧，客户端关闭连接或连接空闲超时时结束
+                    if (!awaitFrame(in, inflight, streams)) {
+                        return;
+                    }
+                    RpcFrame frame;
+                    try {
+                        frame = FrameCodec.read(in);
+                    } catch (EOFException e) {
+                        return;
+                    }
+
+                    // 2.3 流的控制帧直接处理，超过并发限制的请求直接以过载响应，其它帧交给业务线程池处理，继续读取下一个请求
+                    if (!streams.receive(frame)) {
+                        RpcServerHandler handler = serverHandler;
+                        FrameBuffer rejected = handler.admit(frame);
+                        if (rejected != null) {
+                            write(client, writer, rejected);
+                            continue;
+                        }
+                        long receiveTime = System.nanoTime();
+                        inflight.incrementAndGet();
+                        try {
+                            businessExecutor.execute(() -> {
+                                try {
+                                    dispatch(client, writer, handler, streams, frame, receiveTime);
+                                } finally {
+                                    inflight.decrementAndGet();
+                                }
+                            });
+                        } catch (RejectedExecutionException e) {
+                            // 业务线程池已关闭，归还已申请的并发许可后关闭连接
+                            inflight.decrementAndGet();
+                            handler.release(frame, receiveTime);
+                            throw new IOException("Business executor rejected request", e);
+                        }
+                    }
+                }
+            } finally {
+                streams.closeAll(new IOException("Connection closed"));
+            }
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Connection closed: {}", e.getMessage());
+        } finally {
+            connections.decrementAndGet();
+        }
+    }
+
+    /**
+     * 等待下一帧的第一个字节，期间每隔空闲超时时间检查一次连接是否空闲
+     *
+     * @return 有数据可读时返回 {@code true}；客户端关闭连接，或没有进行中的请求及流的连接空闲超时时返回 {@code false}
+     */
+    private static boolean awaitFrame(DataInputStream in, AtomicInteger inflight, RpcStreams streams)
+            throws IOException {
+        while (true) {
+            in.mark(1);
+            try {
+                if (in.read() < 0) return false;
+                in.reset();
+                return true;
+            } catch (SocketTimeoutException e) {
+                if (inflight.get() == 0 && streams.isEmpty()) {
+                    log.debug("Close idle connection");
+                    return false;
+                }
+            }
+        }
+    }
+
+    /**
+     * 在业务线程池中处理协议帧（握手或调用本地服务），并写回响应帧
+     *
+     * @param client 客户端连接，写出失败、收到非法帧或处理失败时关闭
+     * @param writer  客户端连接的写出器，多个业务线程共享。写出器不加锁，虚拟线程在写出时不会固定其载体线程
+     * @param handler 接受该协议帧的请求处理器
+     * @param streams 客户端连接上进行中的流
+     * @param frame   客户端发来的协议帧
+     * @param receiveTime 读取完协议帧的时间（{@link System#nanoTime()}）
+     */
+    private void dispatch(Socket client, CoalescingFrameWriter writer, RpcServerHandler handler, RpcStreams streams,
+                          RpcFrame frame, long receiveTime) {
+        FrameBuffer response;
+        try {
+            response = handler.handle(frame, businessExecutor, streams, receiveTime);
+        } catch (IllegalStateException e) {
+            log.debug("Illegal request frame: {}", e.getMessage());
+            closeQuietly(client);
+            return;
+        } catch (RuntimeException e) {
+            // 没有对应的响应，关闭连接使客户端立即失败而不是等到超时
+            log.error("Handle request frame failed, close connection", e);
+            closeQuietly(client);
+            return;
+        } finally {
+            handler.release(frame, receiveTime);
+        }
+        if (response != null) {
+            write(client, writer, response);
+        }
+    }
+
+    /**
+     * 写出一帧，其它业务线程正在写出时只入队，由其合并写出。写出失败时关闭连接
+     */
+    private static void write(Socket client, CoalescingFrameWriter writer, FrameBuffer frame) {
+        try {
+            writer.write(frame);
+        } catch (IOException e) {
+            log.debug("Write response failed: {}", e.getMessage());
+            closeQuietly(client);
+        }
+    }
+
+    private static void closeQuietly(Socket client) {
+        try {
+            client.close();
+        } catch (IOException ignored) {
+            // Ignore
         }
     }
-}
\ No newline at end of file
+}